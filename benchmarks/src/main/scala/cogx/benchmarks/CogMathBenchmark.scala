@@ -0,0 +1,72 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.benchmarks
+
+import java.util.concurrent.TimeUnit
+
+import cogx.cogmath.algebra.complex.{ComplexArray, ComplexMatrix, ComplexTensor3}
+import cogx.cogmath.algebra.real.{Matrix, Tensor3}
+import cogx.cogmath.fft.{FFT1D, FFT2D, FFT3D}
+import org.openjdk.jmh.annotations._
+
+/** The cogmath routines used on the host to build filters and to check
+  * results: dense matrix multiplication and the 1D, 2D and 3D FFTs.
+  *
+  * @author Dick Carter
+  */
+@State(Scope.Thread)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+class CogMathBenchmark {
+
+  /** Edge length of the matrices and FFT inputs (a power of 2 for the FFTs). */
+  @Param(Array("64", "256"))
+  var size: Int = _
+
+  private var a: Matrix = null
+  private var b: Matrix = null
+  private var signal: Array[Float] = null
+  private var image: ComplexMatrix = null
+  private var volume: Tensor3 = null
+
+  @Setup
+  def setup() {
+    a = Matrix.random(size, size)
+    b = Matrix.random(size, size)
+    signal = Array.tabulate(size * size)(i => math.sin(i * 0.01).toFloat)
+    image = new ComplexMatrix(Matrix.random(size, size))
+    // Keep the 3D transform's working set comparable to the 2D one.
+    val depth = math.max(1, size / 8)
+    volume = Tensor3.random(depth, depth, depth)
+  }
+
+  @Benchmark
+  def matrixMultiply(): Matrix = a * b
+
+  @Benchmark
+  def fft1D(): ComplexArray = FFT1D.transform(signal)
+
+  @Benchmark
+  def fft2D(): ComplexMatrix = FFT2D.transform(image)
+
+  @Benchmark
+  def fft3D(): ComplexTensor3 = FFT3D.transform(volume)
+}
@@ -0,0 +1,139 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.benchmarks
+
+import java.util.concurrent.TimeUnit
+
+import cogx.cogmath.algebra.real.{Matrix, Vector}
+import cogx.cogmath.geometry.Shape
+import cogx.platform.cpumemory.{FieldMemory, MatrixFieldMemory, ScalarFieldMemory, VectorFieldMemory}
+import cogx.platform.types.ElementTypes.Float32
+import cogx.platform.types.FieldType
+import org.openjdk.jmh.annotations._
+import org.openjdk.jmh.infra.Blackhole
+
+/** Element-wise and bulk access to 2D scalar, vector and matrix field
+  * memories, the path taken by every sensor, actuator and probe.
+  *
+  * Fields are laid out without column padding, so `columns` compares a row
+  * width that is a multiple of the old 16-float padding quantum against one
+  * that is not, to catch any regression that brings alignment back into the
+  * cost of an access.
+  *
+  * @author Dick Carter
+  */
+@State(Scope.Thread)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+class FieldMemoryBenchmark {
+
+  @Param(Array("256"))
+  var rows: Int = _
+
+  @Param(Array("256", "250"))
+  var columns: Int = _
+
+  private val allocator = FieldMemory()
+  private var scalars: ScalarFieldMemory = null
+  private var vectors: VectorFieldMemory = null
+  private var matrices: MatrixFieldMemory = null
+  private var array2D: Array[Array[Float]] = null
+  private val vector = new Vector(3f, 1f, 4f)
+  private val matrix = Matrix(Array(1f, 2f), Array(3f, 4f))
+
+  @Setup
+  def setup() {
+    val fieldShape = Shape(rows, columns)
+    scalars = allocator.direct(new FieldType(fieldShape, Shape(), Float32)).asInstanceOf[ScalarFieldMemory]
+    vectors = allocator.direct(new FieldType(fieldShape, Shape(3), Float32)).asInstanceOf[VectorFieldMemory]
+    matrices = allocator.direct(new FieldType(fieldShape, Shape(2, 2), Float32)).asInstanceOf[MatrixFieldMemory]
+    array2D = Array.tabulate(rows, columns)((row, col) => row + col)
+  }
+
+  @TearDown
+  def tearDown() {
+    allocator.destroyAll()
+  }
+
+  @Benchmark
+  def scalarWrite() {
+    for (row <- 0 until rows; col <- 0 until columns)
+      scalars.write(row, col, col)
+  }
+
+  @Benchmark
+  def scalarRead(): Float = {
+    var sum = 0f
+    for (row <- 0 until rows; col <- 0 until columns)
+      sum += scalars.read(row, col)
+    sum
+  }
+
+  @Benchmark
+  def scalarWriteArray() {
+    scalars.write(array2D)
+  }
+
+  @Benchmark
+  def scalarGetArray(): Array[Array[Float]] = {
+    scalars.get(array2D)
+    array2D
+  }
+
+  @Benchmark
+  def scalarIterator(): Float = {
+    var sum = 0f
+    val iterator = scalars.iterator
+    while (iterator.hasNext)
+      sum += iterator.next()
+    sum
+  }
+
+  @Benchmark
+  def vectorWrite() {
+    for (row <- 0 until rows; col <- 0 until columns)
+      vectors.write(row, col, vector)
+  }
+
+  @Benchmark
+  def vectorRead(blackhole: Blackhole) {
+    val out = new Vector(3)
+    for (row <- 0 until rows; col <- 0 until columns) {
+      vectors.read(row, col, out)
+      blackhole.consume(out)
+    }
+  }
+
+  @Benchmark
+  def matrixWrite() {
+    for (row <- 0 until rows; col <- 0 until columns)
+      matrices.write(row, col, matrix)
+  }
+
+  @Benchmark
+  def matrixRead(blackhole: Blackhole) {
+    val out = new Matrix(2, 2)
+    for (row <- 0 until rows; col <- 0 until columns) {
+      matrices.read(row, col, out)
+      blackhole.consume(out)
+    }
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.benchmarks
+
+import java.util.concurrent.TimeUnit
+
+import cogx.cogmath.geometry.Shape
+import cogx.platform.cpumemory.FieldMemory
+import cogx.platform.types.ElementTypes.Float32
+import cogx.platform.types.FieldType
+import org.openjdk.jmh.annotations._
+
+/** Cost of obtaining a field memory from an allocator's pool and returning
+  * it, against that of allocating a fresh direct buffer each time (what a
+  * pool miss costs, and what every step would cost without the pool).
+  *
+  * @author Dick Carter
+  */
+@State(Scope.Thread)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+class FieldMemoryPoolBenchmark {
+
+  /** Edge length of the square 2D scalar field. */
+  @Param(Array("64", "1024"))
+  var size: Int = _
+
+  private val allocator = FieldMemory()
+  private var fieldType: FieldType = null
+
+  @Setup
+  def setup() {
+    fieldType = new FieldType(Shape(size, size), Shape(), Float32)
+    // Prime the pool so every direct() below is a hit.
+    allocator.release(allocator.direct(fieldType))
+  }
+
+  @TearDown
+  def tearDown() {
+    allocator.destroyAll()
+  }
+
+  @Benchmark
+  def pooledDirectAndRelease() {
+    allocator.release(allocator.direct(fieldType))
+  }
+
+  @Benchmark
+  def unpooledDirect() {
+    val freshAllocator = FieldMemory()
+    // Release before destroyAll(), which frees only pooled memories.
+    freshAllocator.release(freshAllocator.direct(fieldType))
+    freshAllocator.destroyAll()
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.benchmarks
+
+import java.util.concurrent.TimeUnit
+
+import cogx.platform.opencl.KernelSourceCode
+import cogx.utilities.MD5
+import org.openjdk.jmh.annotations._
+
+/** Naming of generated kernels by the MD5 digest of their source, done for
+  * every kernel of every circuit that is compiled.
+  *
+  * `digest` hashes the source afresh each time. `kernelSourceCode` builds a
+  * KernelSourceCode, which finds the kernel name and rewrites the source
+  * around a digest that MD5's cache serves after the first call.
+  *
+  * @author Dick Carter
+  */
+@State(Scope.Thread)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+class KernelSourceCodeBenchmark {
+
+  /** Statements in the body of the synthetic kernel. */
+  @Param(Array("10", "200"))
+  var statements: Int = _
+
+  private var source: String = null
+
+  @Setup
+  def setup() {
+    val body = new StringBuilder
+    for (i <- 0 until statements)
+      body ++= s"    float t$i = in0[index] * ${i + 1}.0f + in1[index + $i];\n" +
+        s"    out0[index] += t$i;\n"
+    source =
+      "__kernel void add_1234(__global const float *in0, __global const float *in1,\n" +
+      "                       __global float *out0) {\n" +
+      "    int index = get_global_id(0);\n" +
+      body +
+      "}\n"
+  }
+
+  @Benchmark
+  def digest(): String = new MD5(source).digest
+
+  @Benchmark
+  def kernelSourceCode(): String = new KernelSourceCode(source).codeAsRun
+}
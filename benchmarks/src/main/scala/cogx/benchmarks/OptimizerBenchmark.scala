@@ -0,0 +1,115 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.benchmarks
+
+import java.util.concurrent.TimeUnit
+
+import cogx.compiler.codegenerator.KernelCircuit
+import cogx.compiler.codegenerator.opencl.generator.OpenCLCodeGenerator
+import cogx.compiler.optimizer._
+import cogx.compiler.parser.syntaxtree.{Field, ScalarField, SyntaxTree}
+import cogx.platform.opencl.OpenCLKernelCodeGenParams
+import org.openjdk.jmh.annotations._
+
+/** Each pass of the kernel circuit optimizer, and the full optimizer, run on
+  * a freshly generated synthetic circuit.
+  *
+  * The circuit is a lattice `width` fields wide and `depth` layers deep in
+  * which each field combines two fields of the layer above. Every combination
+  * computes one sum twice (work for CommonSubexpression, after which the
+  * product of the sums has a redundant input), and every layer drives one
+  * unused field (work for DeadKernel). The last layer is probed. None of the
+  * patterns sought by the tensor-reduce, transpose and reshape passes are
+  * present, so those benchmarks measure the cost of a fruitless search.
+  *
+  * Circuit generation happens in a per-invocation setup that JMH excludes
+  * from the timings, since every pass changes the circuit it is given.
+  *
+  * @author Dick Carter
+  */
+@State(Scope.Thread)
+@BenchmarkMode(Array(Mode.AverageTime))
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+class OptimizerBenchmark {
+
+  @Param(Array("16", "64"))
+  var width: Int = _
+
+  @Param(Array("16"))
+  var depth: Int = _
+
+  /** Parameters of a typical discrete GPU. */
+  private val codeGenParams = OpenCLKernelCodeGenParams(maxMemAllocSize = 1L << 30,
+    maxConstantBufferSize = 64 * 1024, localMemSize = 48 * 1024, warpSize = 32)
+
+  private var circuit: KernelCircuit = null
+
+  @Setup(Level.Invocation)
+  def generateCircuit() {
+    val (width, depth) = (this.width, this.depth)
+    val tree = new SyntaxTree {
+      val input = ScalarField(64, 64)
+      var layer: IndexedSeq[Field] = (0 until width).map(i => input + i.toFloat)
+      for (d <- 1 until depth) {
+        layer = (0 until width).map { i =>
+          val left = layer(i)
+          val right = layer((i + 1) % width)
+          (left + right) * (left + right) - left
+        }
+        layer.head * 3f
+      }
+      layer.foreach(_.probe())
+    }
+    circuit = (new OpenCLCodeGenerator).generateCircuit(tree)
+  }
+
+  @Benchmark
+  def deadKernel(): Int = DeadKernel.optimize(circuit, codeGenParams, null, report = false)
+
+  @Benchmark
+  def redundantInputs(): Int = RedundantInputs.optimize(circuit, codeGenParams, null, report = false)
+
+  @Benchmark
+  def commonSubexpression(): Int = CommonSubexpression.optimize(circuit, codeGenParams, null, report = false)
+
+  @Benchmark
+  def tensorReduce(): Int = TensorReduceOptimizer.optimize(circuit, codeGenParams, null, report = false)
+
+  @Benchmark
+  def projectFrameTensorReduceSum(): Int =
+    ProjectFrameTensorReduceSumOptimizer.optimize(circuit, codeGenParams, null, report = false)
+
+  @Benchmark
+  def transformTranspose(): Int = TransformTransposeOptimizer.optimize(circuit, codeGenParams, null, report = false)
+
+  @Benchmark
+  def hyperKernelMerger(): Int = HyperKernelMerger.optimize(circuit, codeGenParams, null, report = false)
+
+  @Benchmark
+  def hyperKernelMultiOutputMerger(): Int =
+    HyperKernelMultiOutputMerger.optimize(circuit, codeGenParams, null, report = false)
+
+  @Benchmark
+  def reshapeRemover(): Int = ReshapeRemover.optimize(circuit, codeGenParams, null, report = false)
+
+  @Benchmark
+  def allPasses(): Int = KernelCircuitOptimizer.optimize(circuit, codeGenParams, null, report = false)
+}
@@ -2100,6 +2100,80 @@ trait CogFunctionAPI extends SemanticError with ImplicitConversions {
       fieldToColorField(field)
   }
 
+  /** Convert the packed Uint8 planes of a YUV 4:2:0 image to a color field.
+    * The planes are a 2D field, as wide as the image and 1.5 times as tall,
+    * holding the Y plane followed by the chroma plane(s) of `format`; see
+    * YUVColorSensor, which feeds such planes from a camera or decoder.
+    *
+    * @param planes The Uint8 field holding the planes of the image.
+    * @param format The plane layout, NV12 or I420.
+    * @return The color image.
+    */
+  def yuvToColorField(planes: Field, format: YUVFormat): ColorField =
+    UnaryOperator(YUVToColorFieldOp(format), planes).asInstanceOf[ColorField]
+
+  /** Convert a scalar or vector field to half (Float16) storage. Halves are
+    * rounded to nearest even; magnitudes beyond 65504 become infinities.
+    *
+    * @param field The input field.
+    * @return The converted field.
+    */
+  def toFloat16(field: Field): Float16Field =
+    UnaryOperator(ToFloat16Op, field).asInstanceOf[Float16Field]
+
+  /** Convert a scalar or vector field to Uint8 storage. Values are rounded to nearest
+    * even and saturated to [0, 255]; NaNs become 0.
+    *
+    * @param field The input field.
+    * @return The converted field.
+    */
+  def toUint8(field: Field): IntegerField =
+    UnaryOperator(ToUint8Op, field).asInstanceOf[IntegerField]
+
+  /** Convert a scalar or vector field to Uint16 storage. Values are rounded to nearest
+    * even and saturated to [0, 65535]; NaNs become 0.
+    *
+    * @param field The input field.
+    * @return The converted field.
+    */
+  def toUint16(field: Field): IntegerField =
+    UnaryOperator(ToUint16Op, field).asInstanceOf[IntegerField]
+
+  /** Convert a scalar or vector field to Int32 storage. Values are rounded to nearest
+    * even and saturated to the range of an Int; NaNs become 0.
+    *
+    * @param field The input field.
+    * @return The converted field.
+    */
+  def toInt32(field: Field): IntegerField =
+    UnaryOperator(ToInt32Op, field).asInstanceOf[IntegerField]
+
+  /** Convert a half (Float16) or integer field back to a Float32 scalar or
+    * vector field.
+    *
+    * @param field The input field.
+    * @return The converted field.
+    */
+  def toFloat32(field: Field): Field =
+    UnaryOperator(ToFloat32Op, field)
+
+  /** Convert a half (Float16) or integer field to a Float32 scalar or vector
+    * field of `value * scale + offset`, e.g. `toFloat32(frame, 1f / 255, 0f)`
+    * to map 8-bit pixels to [0, 1]. The conversion, scale and offset are all
+    * merged into the kernel that consumes the result, so a raw sensor's
+    * packed data is expanded on the GPU with no extra kernel launches.
+    *
+    * @param field The input field.
+    * @param scale Factor applied to each converted value.
+    * @param offset Amount added to each scaled value.
+    * @return The converted field.
+    */
+  def toFloat32(field: Field, scale: Float, offset: Float): Field = {
+    val converted = UnaryOperator(ToFloat32Op, field)
+    val scaled = if (scale == 1f) converted else converted * scale
+    if (offset == 0f) scaled else scaled + offset
+  }
+
   /** Another explicit conversion, this time working on both ScalarFields and
     * VectorFields. The return type is Field though, the common base class of
     * both ComplexFields and ComplexScalarFields. 
@@ -0,0 +1,102 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.compiler
+
+/** The duration of one phase of the compilation of a ComputeGraph.
+  *
+  * @param phase The name of the phase.
+  * @param secs The wall-clock duration of the phase.
+  * @param kernelsBefore Kernels in the circuit at the start of the phase (0
+  *        before code generation has created the circuit).
+  * @param kernelsAfter Kernels in the circuit at the end of the phase.
+  */
+case class CompilePhaseTiming(phase: String, secs: Double, kernelsBefore: Int, kernelsAfter: Int)
+
+/** The duration and effect of one run of an optimizer pass.
+  *
+  * @param pass The name of the optimizer.
+  * @param round The run of this optimizer within its group (passes that feed
+  *        each other's opportunities are re-run until none improves).
+  * @param secs The wall-clock duration of the run.
+  * @param kernelsBefore Kernels in the circuit before the run.
+  * @param kernelsAfter Kernels in the circuit after the run.
+  * @param optimizations The improvements the optimizer reported making.
+  */
+case class OptimizerPassTiming(pass: String, round: Int, secs: Double,
+                               kernelsBefore: Int, kernelsAfter: Int, optimizations: Int)
+
+/** The OpenCL build of the program of one device.
+  *
+  * @param device The device the program was built for.
+  * @param kernels The number of unique kernels in the program.
+  * @param sourceChars The length of the program's source, in characters.
+  * @param secs The wall-clock duration of creating and building the program.
+  */
+case class ProgramBuildTiming(device: String, kernels: Int, sourceChars: Long, secs: Double)
+
+/** Where the time went in compiling a ComputeGraph.
+  *
+  * The phases of ComputeGraph.compileCircuit are reported in order, with the
+  * optimizer phase broken down by pass. Kernel variant selection by the
+  * Profiler happens within the code generation and optimization phases, so
+  * its time is part of theirs and is reported separately as `profilerSecs`.
+  * The OpenCL programs are built when the graph is first reset or stepped,
+  * so `programBuilds` is empty before then.
+  *
+  * @param phases The phases of circuit compilation, in order.
+  * @param optimizerPasses Each run of an optimizer, in order.
+  * @param profilerSecs Time spent selecting kernel variants.
+  * @param programBuilds The OpenCL program builds, one per device used.
+  *
+  * @author Dick Carter
+  */
+case class CompileReport(phases: Seq[CompilePhaseTiming],
+                         optimizerPasses: Seq[OptimizerPassTiming],
+                         profilerSecs: Double,
+                         programBuilds: Seq[ProgramBuildTiming])
+{
+  /** Time spent compiling the circuit. */
+  def circuitSecs: Double = phases.map(_.secs).sum
+
+  /** Time spent building OpenCL programs. */
+  def programBuildSecs: Double = programBuilds.map(_.secs).sum
+
+  /** Total compilation time, circuit and OpenCL programs together. */
+  def totalSecs: Double = circuitSecs + programBuildSecs
+
+  /** Total time spent in each optimizer, over all of its runs, slowest first. */
+  def secsPerOptimizer: Seq[(String, Double)] =
+    optimizerPasses.groupBy(_.pass).toSeq.map {
+      case (pass, runs) => (pass, runs.map(_.secs).sum)
+    }.sortBy(-_._2)
+
+  /** A table of the report, for printing. */
+  override def toString: String = {
+    val s = new StringBuilder
+    s ++= f"Compile report: $totalSecs%.3f sec total, of which kernel variant selection $profilerSecs%.3f sec\n"
+    for (p <- phases)
+      s ++= f"  ${p.phase}%-30s ${p.secs}%9.3f sec  kernels ${p.kernelsBefore}%6d -> ${p.kernelsAfter}%6d\n"
+    for (o <- optimizerPasses)
+      s ++= f"    ${o.pass + " #" + o.round}%-28s ${o.secs}%9.3f sec  kernels ${o.kernelsBefore}%6d -> " +
+        f"${o.kernelsAfter}%6d  (${o.optimizations} optimizations)\n"
+    for (b <- programBuilds)
+      s ++= f"  ${"OpenCL program build"}%-30s ${b.secs}%9.3f sec  ${b.kernels} kernels, " +
+        f"${b.sourceChars} source chars, ${b.device}\n"
+    s.toString
+  }
+}
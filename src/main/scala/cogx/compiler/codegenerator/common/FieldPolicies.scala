@@ -55,6 +55,18 @@ object FieldPolicies {
     fieldType.elementType == Float32
   }
 
+  /** Return true if `fieldType` is an integer (Uint8, Uint16 or Int32) field. */
+  def isIntegerField(fieldType: FieldType): Boolean = fieldType.elementType match {
+    case Uint8 | Uint16 | Int32 => true
+    case _ => false
+  }
+
+  /** Return true if `fieldType` is a storage-only field, i.e. one that holds
+    * halves or integers and must be converted to Float32 for computation.
+    */
+  def isStorageField(fieldType: FieldType): Boolean =
+    fieldType.elementType == Float16 || isIntegerField(fieldType)
+
   /** Return true if `fieldType` is a color field. */
   def isColorField(fieldType: FieldType): Boolean = {
     fieldType.elementType == Uint8Pixel
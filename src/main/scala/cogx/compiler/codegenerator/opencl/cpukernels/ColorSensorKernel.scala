@@ -16,8 +16,10 @@
 
 package cogx.compiler.codegenerator.opencl.cpukernels
 
+import java.nio.ByteBuffer
+
 import cogx.cogmath.hypercircuit.Hypercircuit
-import cogx.compiler.parser.op.{PipelinedColorSensorOp, ColorSensorOp}
+import cogx.compiler.parser.op.{InPlaceSensorInput, PipelinedColorSensorOp, ColorSensorOp}
 import cogx.compiler.parser.syntaxtree.{ColorSensor, UnpipelinedColorSensor, RestoreHooks}
 import cogx.platform.checkpoint.{ObjectRestorer, Saveable, ObjectSaver}
 import cogx.platform.cpumemory.ColorFieldMemory
@@ -97,6 +99,19 @@ class ColorSensorKernel(fieldType: FieldType, op: ColorSensorOp, sensorClassname
       synchronizer.startDataCollection()
     }
     nextInput() match {
+      case Some(input: InPlaceSensorInput[ByteBuffer] @unchecked) =>
+        // The user writes straight into the CPU part of the buffer
+        val cpuMemory = out.master.cpuMemory.asInstanceOf[ColorFieldMemory]
+        val view = cpuMemory.directBuffer.duplicate
+        view.rewind()
+        if (input.fill(view)) {
+          // Copy the CPU part out to the GPU.
+          out.master.write
+          newDataProvided = true
+        }
+        else
+          noNextInput(out, fromReset)
+
       case Some(iterator) =>
 
         // Fill the CPU part of the buffer
@@ -123,36 +138,41 @@ class ColorSensorKernel(fieldType: FieldType, op: ColorSensorOp, sensorClassname
         newDataProvided = true
 
       case None =>
-        if (fromReset || !pipelined) {
-          // This kernel must provide the initial reset state (the RecurrentFieldKernel usually does this, but
-          // has been told not to when it shares a field register with this type of kernel in the pipelined mode).
-          // If this kernel is in unpipelined mode, then we shouldn't expect to see None here (i.e. it's an internal
-          // compiler error).  We do something sensible (produce 0's) rather than throwing an exception.
-
-          // Fill the CPU part of the buffer with 0's
-          val cpuMemory = out.master.cpuMemory.asInstanceOf[ColorFieldMemory]
-          for(pixelIndex <- 0 until fieldType.fieldShape.points) {
-            cpuMemory.directBuffer.put(4*pixelIndex,     0x00.toByte)    // red
-            cpuMemory.directBuffer.put(4*pixelIndex + 1, 0x00.toByte)    // green
-            cpuMemory.directBuffer.put(4*pixelIndex + 2, 0x00.toByte)    // blue
-            cpuMemory.directBuffer.put(4*pixelIndex + 3, 0xff.toByte)    // alpha
-          }
-          // Copy the CPU part out to the GPU.
-          out.master.write
-          newDataProvided = true
-        }
-        else {
-          // No data this cycle, do nothing.
-          newDataProvided = false
-        }
-        // No data this cycle, so nothing to do. The CPU buffer still holds
-        // the last frame.
-        newDataProvided = false
+        noNextInput(out, fromReset)
     }
     if (synchronizer != null)
       synchronizer.endDataCollection()
   }
 
+  /** Handle a step for which the user supplied no new input. */
+  private def noNextInput(out: OpenCLFieldRegister, fromReset: Boolean) {
+    if (fromReset || !pipelined) {
+      // This kernel must provide the initial reset state (the RecurrentFieldKernel usually does this, but
+      // has been told not to when it shares a field register with this type of kernel in the pipelined mode).
+      // If this kernel is in unpipelined mode, then we shouldn't expect to see None here (i.e. it's an internal
+      // compiler error).  We do something sensible (produce 0's) rather than throwing an exception.
+
+      // Fill the CPU part of the buffer with 0's
+      val cpuMemory = out.master.cpuMemory.asInstanceOf[ColorFieldMemory]
+      for(pixelIndex <- 0 until fieldType.fieldShape.points) {
+        cpuMemory.directBuffer.put(4*pixelIndex,     0x00.toByte)    // red
+        cpuMemory.directBuffer.put(4*pixelIndex + 1, 0x00.toByte)    // green
+        cpuMemory.directBuffer.put(4*pixelIndex + 2, 0x00.toByte)    // blue
+        cpuMemory.directBuffer.put(4*pixelIndex + 3, 0xff.toByte)    // alpha
+      }
+      // Copy the CPU part out to the GPU.
+      out.master.write
+      newDataProvided = true
+    }
+    else {
+      // No data this cycle, do nothing.
+      newDataProvided = false
+    }
+    // No data this cycle, so nothing to do. The CPU buffer still holds
+    // the last frame.
+    newDataProvided = false
+  }
+
   /** Create a clone of this kernel that uses a new set of virtual field registers
     *  as inputs.  Useful for breaking a large circuit apart into smaller subcircuits. */
   def copyWithNewInputs(inputs: Array[VirtualFieldRegister]): AbstractKernel =
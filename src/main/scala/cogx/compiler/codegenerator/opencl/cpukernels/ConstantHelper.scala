@@ -18,7 +18,7 @@ package cogx.compiler.codegenerator.opencl.cpukernels
 
 import cogx.cogmath.algebra.complex.{Complex, ComplexVector}
 import cogx.compiler.parser.op._
-import cogx.platform.checkpoint.{ObjectRestorer, ObjectSaver}
+import cogx.platform.checkpoint.{DigestSaver, ObjectRestorer, ObjectSaver}
 import cogx.platform.cpumemory._
 import cogx.platform.cpumemory.readerwriter.FieldReader
 import cogx.platform.opencl.OpenCLFieldRegister
@@ -346,6 +346,16 @@ trait ConstantHelper {
     }
   }
 
+  /** A digest of the data that saveData would write for this field, so that delta checkpoints can leave out
+    * fields whose state hasn't changed since the last checkpoint.
+    */
+  private[cpukernels]
+  def dataDigest(fieldReader: FieldReader, fieldType: FieldType, opcode: Opcode): String = {
+    val digestSaver = new DigestSaver
+    saveData(digestSaver, fieldReader, fieldType, opcode)
+    digestSaver.digest
+  }
+
   /** Read the save data for this field using the 'restorer', converting it to a ConstantOp function. */
   private[cpukernels]
   def restoreData(restorer: ObjectRestorer, fieldType: FieldType): NulleryOpcode = {
@@ -23,6 +23,7 @@ import cogx.platform.types._
 import cogx.platform.types.ElementTypes._
 import cogx.platform.opencl._
 import cogx.platform.cpumemory._
+import cogx.platform.cpumemory.readerwriter.FieldReader
 import cogx.compiler.parser.op._
 import cogx.runtime.{ComputeGraphSaverState, ComputeGraph, ComputeGraphRestorerState}
 
@@ -149,8 +150,30 @@ class RecurrentFieldKernel(fieldType: FieldType, opcode: NulleryOpcode)
       case None => throw new RuntimeException("Internal error: expecting to find recurrence field in database.")
     }
     saver.writeInt("recurrenceField", recurrenceIndex)
-    saveData(saver, computeGraph.readVirtualRegister(recurrence), fieldType, opcode)
+    val state = readState(computeGraph)
+    saveData(saver, state, fieldType, opcode)
+    if (!isSensorPipelineRegister)
+      recurrenceDigests(recurrenceIndex) = stateDigest(state)
   }
+
+  /** True for the pipeline register of a pipelined sensor, whose state is not
+    * saved: a restored graph asks the sensor for its input again.
+    */
+  private[cogx] def isSensorPipelineRegister: Boolean = opcode == NullOp
+
+  /** Read the state of this recurrence, i.e. the field that drives it, as
+    * saved by a checkpoint.
+    */
+  private[cogx] def readState(computeGraph: ComputeGraph): FieldReader =
+    computeGraph.readVirtualRegister(recurrence)
+
+  /** A digest of `state`, which changes if and only if the saved data does. */
+  private[cogx] def stateDigest(state: FieldReader): String =
+    dataDigest(state, fieldType, opcode)
+
+  /** Save `state` (from readState) for a delta checkpoint. */
+  private[cogx] def saveState(saver: ObjectSaver, state: FieldReader): Unit =
+    saveData(saver, state, fieldType, opcode)
 }
 
 /** A factory method to restore a recurrent field kernel from its stored data.
@@ -166,10 +189,18 @@ object RecurrentFieldKernel extends ConstantHelper {
   def restore(restorer: ObjectRestorer, resultType: FieldType): RecurrentFieldKernel = {
     val kernelToRecurrenceIndex = restorer.asInstanceOf[ComputeGraphRestorerState].recurrences
     val recurrenceFieldIndex = restorer.readInt("recurrenceField")
-    val opcode = restoreData(restorer, resultType)
+    val savedOpcode = restoreData(restorer, resultType)
+    // Delta checkpoints replayed on top of this one may hold a newer state.
+    val opcode = restorer.asInstanceOf[ComputeGraphRestorerState].recurrenceUpdates
+            .getOrElse(recurrenceFieldIndex, savedOpcode)
     val restoredKernel = new RecurrentFieldKernel(resultType, opcode)
     kernelToRecurrenceIndex(restoredKernel) = recurrenceFieldIndex
     restoredKernel
   }
 
+  /** Read the state of a recurrence of type `resultType` saved to a delta
+    * checkpoint by saveState.
+    */
+  private[cogx] def restoreState(restorer: ObjectRestorer, resultType: FieldType): NulleryOpcode =
+    restoreData(restorer, resultType)
 }
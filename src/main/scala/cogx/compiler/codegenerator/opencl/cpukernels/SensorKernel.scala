@@ -16,17 +16,23 @@
 
 package cogx.compiler.codegenerator.opencl.cpukernels
 
+import java.nio.Buffer
+
 import cogx.cogmath.hypercircuit.Hypercircuit
 import cogx.compiler.parser.syntaxtree._
 import cogx.platform.checkpoint.{ObjectRestorer, Saveable, ObjectSaver}
 import cogx.platform.types.KernelTypes.SensorKernelType
 import cogx.platform.types.{VirtualFieldRegister, AbstractKernel, FieldType}
 import cogx.platform.opencl.{OpenCLCpuSingleOutputKernel, OpenCLFieldRegister}
-import cogx.compiler.parser.op.{PipelinedSensorOp, SensorOp}
-import cogx.platform.cpumemory.ScalarFieldMemory
+import cogx.compiler.parser.op.{InPlaceSensorInput, PipelinedSensorOp, SensorOp}
+import cogx.platform.cpumemory.{AbstractFieldMemory, IntegerElement, ScalarFieldMemory}
 import cogx.runtime.ComputeGraphRestorerState
 
 /** Kernel that copies user-supplied data to a buffer for use by consumers on the GPU.
+  *
+  * Besides Float32 scalar fields, this also drives the integer (Uint8, Uint16
+  * or Int32) scalar and vector fields of raw sensors, which are only ever
+  * written in place.
   *
   * @param fieldType The type of the scalar field produced by this input.
   * @param op The sensor opcode, with its nextInput, resetHook, desiredRate
@@ -88,6 +94,15 @@ class SensorKernel(fieldType: FieldType, op: SensorOp, sensorClassname: String,
       synchronizer.startDataCollection()
     }
     nextInput() match {
+      case Some(input: InPlaceSensorInput[Buffer] @unchecked) =>
+        // The user writes straight into the CPU part of the buffer
+        if (input.fill(inPlaceView(out.master.cpuMemory))) {
+          // Copy the CPU part out to the GPU.
+          out.master.write
+          newDataProvided = true
+        }
+        else
+          noNextInput(out, fromReset)
       case Some(writeData) =>
         // Fill the CPU part of the buffer
         val cpuMemory = out.master.cpuMemory.asInstanceOf[ScalarFieldMemory]
@@ -99,33 +114,56 @@ class SensorKernel(fieldType: FieldType, op: SensorOp, sensorClassname: String,
         out.master.write
         newDataProvided = true
       case None =>
-        if (fromReset || !pipelined) {
-          // This kernel must provide the initial reset state (the RecurrentFieldKernel usually does this, but
-          // has been told not to when it shares a field register with this type of kernel in the pipelined mode).
-          // If this kernel is in unpipelined mode, then we shouldn't expect to see None here (i.e. it's an internal
-          // compiler error).  We do something sensible (produce 0's) rather than throwing an exception.
-
-          // A simple iterator that keeps sourcing 0's for a default init.
-          val it = new Iterator[Float] {
-            def next() = 0f
-            def hasNext = true
-          }
-          // Fill the CPU part of the buffer with 0's
-          val cpuMemory = out.master.cpuMemory.asInstanceOf[ScalarFieldMemory]
-          cpuMemory.write(it)
-          // Copy the CPU part out to the GPU.
-          out.master.write
-          newDataProvided = true
-        }
-        else {
-          // No data this cycle, do nothing.
-          newDataProvided = false
-        }
+        noNextInput(out, fromReset)
     }
     if (synchronizer != null)
       synchronizer.endDataCollection()
   }
 
+  /** Handle a step for which the user supplied no new input. */
+  private def noNextInput(out: OpenCLFieldRegister, fromReset: Boolean) {
+    if (fromReset || !pipelined) {
+      // This kernel must provide the initial reset state (the RecurrentFieldKernel usually does this, but
+      // has been told not to when it shares a field register with this type of kernel in the pipelined mode).
+      // If this kernel is in unpipelined mode, then we shouldn't expect to see None here (i.e. it's an internal
+      // compiler error).  We do something sensible (produce 0's) rather than throwing an exception.
+
+      // A simple iterator that keeps sourcing 0's for a default init.
+      val it = new Iterator[Float] {
+        def next() = 0f
+        def hasNext = true
+      }
+      // Fill the CPU part of the buffer with 0's
+      out.master.cpuMemory match {
+        case cpuMemory: ScalarFieldMemory =>
+          cpuMemory.write(it)
+        case cpuMemory =>
+          for (i <- 0 until cpuMemory.bufferSize)
+            IntegerElement.put(cpuMemory.directBuffer, cpuMemory.elementType, i, 0)
+      }
+      // Copy the CPU part out to the GPU.
+      out.master.write
+      newDataProvided = true
+    }
+    else {
+      // No data this cycle, do nothing.
+      newDataProvided = false
+    }
+  }
+
+  /** A view, positioned at 0, of the direct buffer of `cpuMemory` for an in-place input to fill. */
+  private def inPlaceView(cpuMemory: AbstractFieldMemory): Buffer = {
+    if (cpuMemory.isSegmented)
+      throw new RuntimeException("in-place sensor inputs are not supported for fields larger than 2 GB: " +
+              fieldType)
+    val view = cpuMemory match {
+      case memory: ScalarFieldMemory => memory.directBuffer.duplicate
+      case memory => IntegerElement.duplicate(memory.directBuffer)
+    }
+    view.rewind()
+    view
+  }
+
   /** Create a clone of this kernel that uses a new set of virtual field registers
     *  as inputs.  Useful for breaking a large circuit apart into smaller subcircuits. */
   def copyWithNewInputs(inputs: Array[VirtualFieldRegister]): AbstractKernel =
@@ -58,6 +58,7 @@ object SensorKernelRestorer {
           case unpiped: UnpipelinedSensor => unpiped
           case unpipedColor: UnpipelinedColorSensor => unpipedColor
           case unpipedVector: UnpipelinedVectorSensor => unpipedVector
+          case unpipedRaw: UnpipelinedRawSensor[_] => unpipedRaw
           case piped: Sensor =>
             val recurrence = piped.recurrence match {
               case Some(f) => f
@@ -82,6 +83,14 @@ object SensorKernelRestorer {
             require(recurrence.opcode.isInstanceOf[PipelinedColorSensorOp],
               "Expecting PipelineColorSensorOp as input to pipelined color sensor output register, found: " + recurrence.opcode)
             recurrence
+          case rawPiped: RawSensor[_] =>
+            val recurrence = rawPiped.recurrence match {
+              case Some(f) => f
+              case None => throw new RuntimeException("Expecting pipelined RawSensor to have a recurrence.")
+            }
+            require(recurrence.opcode.isInstanceOf[PipelinedSensorOp],
+              "Expecting PipelineSensorOp as input to pipelined raw sensor output register, found: " + recurrence.opcode)
+            recurrence
           case x => throw new RuntimeException("Expecting {Pipelined,Unpipelined}{Sensor,ColorSensor}, found: " + x)
         }
       } catch {
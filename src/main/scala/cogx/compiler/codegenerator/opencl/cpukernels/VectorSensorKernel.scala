@@ -16,11 +16,13 @@
 
 package cogx.compiler.codegenerator.opencl.cpukernels
 
+import java.nio.FloatBuffer
+
 import cogx.platform.checkpoint.{ObjectSaver, Saveable}
 import cogx.platform.types.KernelTypes.SensorKernelType
 import cogx.platform.types.{VirtualFieldRegister, AbstractKernel, FieldType}
 import cogx.platform.opencl.{OpenCLCpuSingleOutputKernel, OpenCLFieldRegister}
-import cogx.compiler.parser.op.VectorSensorOp
+import cogx.compiler.parser.op.{InPlaceSensorInput, VectorSensorOp}
 import cogx.platform.cpumemory.VectorFieldMemory
 import cogx.cogmath.algebra.real.Vector
 
@@ -91,6 +93,16 @@ class VectorSensorKernel(fieldType: FieldType, op: VectorSensorOp, sensorClassna
     }
     val iterator = nextInput()
     iterator match {
+      case Some(input: InPlaceSensorInput[FloatBuffer] @unchecked) =>
+        // The user writes straight into the CPU part of the buffer
+        val cpuMemory = out.master.cpuMemory.asInstanceOf[VectorFieldMemory]
+        if (input.fill(inPlaceView(cpuMemory))) {
+          // Copy the CPU part out to the GPU.
+          out.master.write
+          newDataProvided = true
+        }
+        else
+          noNextInput(out, fromReset)
       case Some(iter) =>
         // Fill the CPU part of the buffer
         val cpuMemory = out.master.cpuMemory.asInstanceOf[VectorFieldMemory]
@@ -99,34 +111,49 @@ class VectorSensorKernel(fieldType: FieldType, op: VectorSensorOp, sensorClassna
         out.master.write
         newDataProvided = true
       case None =>
-        if (fromReset || !pipelined) {
-          // This kernel must provide the initial reset state (the RecurrentFieldKernel usually does this, but
-          // has been told not to when it shares a field register with this type of kernel in the pipelined mode).
-          // If this kernel is in unpipelined mode, then we shouldn't expect to see None here (i.e. it's an internal
-          // compiler error).  We do something sensible (produce 0's) rather than throwing an exception.
-
-          // A simple iterator that keeps sourcing 0's for a default init.
-          val it = new Iterator[Vector] {
-            val v = new Vector(vectorLen)
-            def next() = v
-            def hasNext() = true
-          }
-          // Fill the CPU part of the buffer with 0's
-          val cpuMemory = out.master.cpuMemory.asInstanceOf[VectorFieldMemory]
-          cpuMemory.write(it)
-          // Copy the CPU part out to the GPU.
-          out.master.write
-          newDataProvided = true
-        }
-        else {
-          // No data this cycle, do nothing.
-          newDataProvided = false
-        }
+        noNextInput(out, fromReset)
     }
     if (synchronizer != null)
       synchronizer.endDataCollection()
   }
 
+  /** Handle a step for which the user supplied no new input. */
+  private def noNextInput(out: OpenCLFieldRegister, fromReset: Boolean) {
+    if (fromReset || !pipelined) {
+      // This kernel must provide the initial reset state (the RecurrentFieldKernel usually does this, but
+      // has been told not to when it shares a field register with this type of kernel in the pipelined mode).
+      // If this kernel is in unpipelined mode, then we shouldn't expect to see None here (i.e. it's an internal
+      // compiler error).  We do something sensible (produce 0's) rather than throwing an exception.
+
+      // A simple iterator that keeps sourcing 0's for a default init.
+      val it = new Iterator[Vector] {
+        val v = new Vector(vectorLen)
+        def next() = v
+        def hasNext() = true
+      }
+      // Fill the CPU part of the buffer with 0's
+      val cpuMemory = out.master.cpuMemory.asInstanceOf[VectorFieldMemory]
+      cpuMemory.write(it)
+      // Copy the CPU part out to the GPU.
+      out.master.write
+      newDataProvided = true
+    }
+    else {
+      // No data this cycle, do nothing.
+      newDataProvided = false
+    }
+  }
+
+  /** A view, positioned at 0, of the direct buffer of `cpuMemory` for an in-place input to fill. */
+  private def inPlaceView(cpuMemory: VectorFieldMemory): FloatBuffer = {
+    if (cpuMemory.isSegmented)
+      throw new RuntimeException("in-place sensor inputs are not supported for fields larger than 2 GB: " +
+              fieldType)
+    val view = cpuMemory.directBuffer.duplicate
+    view.rewind()
+    view
+  }
+
   /** Create a clone of this kernel that uses a new set of virtual field registers
     *  as inputs.  Useful for breaking a large circuit apart into smaller subcircuits. */
   def copyWithNewInputs(inputs: Array[VirtualFieldRegister]): AbstractKernel =
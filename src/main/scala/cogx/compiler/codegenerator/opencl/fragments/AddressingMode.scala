@@ -58,7 +58,7 @@ case object SmallTensorAddressing extends AddressingMode with CompilerError {
     */
   def clType(fieldType: FieldType): CLType = {
     fieldType.elementType match {
-      case Float32 =>
+      case Float32 | Float16 | Uint8 | Uint16 | Int32 =>
         fieldType.tensorShape.points match {
           case 16 => if (isSmallTensorField(fieldType)) CLFloat16 else CLFloatN(16)
           case 8 => if (isSmallTensorField(fieldType)) CLFloat8 else CLFloatN(8)
@@ -94,7 +94,7 @@ private[cogx]
 case object BigTensorAddressing extends AddressingMode with CompilerError {
   def clType(fieldType: FieldType): CLType = {
     fieldType.elementType match {
-      case Float32 =>
+      case Float32 | Float16 | Uint8 | Uint16 | Int32 =>
         CLFloat
       case Complex32 =>
         CLComplex
@@ -112,7 +112,7 @@ private[cogx]
 case object TensorElementAddressing extends AddressingMode with CompilerError {
   def clType(fieldType: FieldType): CLType = {
     fieldType.elementType match {
-      case Float32 =>
+      case Float32 | Float16 | Uint8 | Uint16 | Int32 =>
         CLFloat
       case Complex32 =>
         CLComplex
@@ -244,6 +244,10 @@ abstract class FieldFragment(val clType: CLType) extends Fragment {
     */
   def readPoint(addressing: AddressingMode): String = {
     require(fieldType.elementType == Float32 ||
+            fieldType.elementType == Float16 ||
+            fieldType.elementType == Uint8 ||
+            fieldType.elementType == Uint16 ||
+            fieldType.elementType == Int32 ||
             fieldType.elementType == Complex32)
     read(addressing)
   }
@@ -257,11 +261,19 @@ abstract class FieldFragment(val clType: CLType) extends Fragment {
     */
   def readScalar(addressing: AddressingMode): String = {
     require(fieldType.elementType == Float32 ||
+            fieldType.elementType == Float16 ||
+            fieldType.elementType == Uint8 ||
+            fieldType.elementType == Uint16 ||
+            fieldType.elementType == Int32 ||
             fieldType.elementType == Complex32)
     if (UniqueID.findFirstIn(name) != null)
       "(" + name + ")"
     else if (fieldType.elementType == Float32)
       "(" + name + "[0])"
+    else if (fieldType.elementType == Float16)
+      "vload_half(0, " + name + ")"
+    else if (fieldType.elementType != Complex32)
+      "convert_float(" + name + "[0])"
     else
       "((float2) (" + name + "[0]," + name + "[" + name + "_partStride]))"
   }
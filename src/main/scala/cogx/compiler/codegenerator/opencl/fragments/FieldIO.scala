@@ -18,6 +18,7 @@ package cogx.compiler.codegenerator.opencl.fragments
 
 import cogx.platform.types.{FieldMemoryLayoutImpl, FieldType}
 import cogx.platform.types.ElementTypes._
+import cogx.compiler.codegenerator.common.FieldPolicies.isStorageField
 
 /** Translates a read or write request in a user's hyperkernel code to
   * an executable OpenCL code string.
@@ -28,6 +29,14 @@ import cogx.platform.types.ElementTypes._
   * that the read and write calls are semantically correct, this module just
   * generates code strings.
   *
+  * Float16 fields are stored as half but computed on as float: reads convert
+  * with vload_half and writes round with vstore_half, both of which are core
+  * OpenCL and do not need the cl_khr_fp16 extension. Integer (Uint8, Uint16
+  * and Int32) fields are likewise converted to float on read, and rounded to
+  * nearest and saturated to the integer's range on write. Since none of these
+  * writes is a plain assignment, the write-pointer functions don't support
+  * such "storage" fields.
+  *
   * @author Greg Snider
   */
 private[cogx]
@@ -51,6 +60,9 @@ object FieldIO {
       case Float32 =>
         fieldName + "[" + fieldOffset(fieldType, fieldName, fieldLocal) +
                 tensorOffset(fieldType, fieldName, tensorLocal) + "]"
+      case Float16 | Uint8 | Uint16 | Int32 =>
+        loadNumber(fieldType, fieldName, fieldOffset(fieldType, fieldName, fieldLocal) +
+                tensorOffset(fieldType, fieldName, tensorLocal))
       case Complex32 =>
         "(float2) (" +
                 fieldName + "[" + fieldOffset(fieldType, fieldName, fieldLocal) +
@@ -78,6 +90,8 @@ object FieldIO {
   {
     val baseIndex = fieldOffset(fieldType, fieldName, fieldLocal)
     val string = tensorType match {
+      case _ if isStorageField(fieldType) =>
+        readStorageTensor(fieldType, fieldName, tensorType, fieldLocal)
       case CLFloat =>
         fieldName + "[" + baseIndex + "]"
       case CLComplex =>
@@ -173,6 +187,9 @@ object FieldIO {
         val reference = fieldName + "[" + fieldOffset(fieldType, fieldName, fieldLocal) +
                 tensorOffset(fieldType, fieldName, tensorLocal) + "]"
         "    " + reference + " = " + value + ";\n"
+      case Float16 | Uint8 | Uint16 | Int32 =>
+        storeNumber(fieldType, fieldName, fieldOffset(fieldType, fieldName, fieldLocal) +
+                tensorOffset(fieldType, fieldName, tensorLocal), value)
       case Complex32 =>
         val realPartReference =
           fieldName + "[" + fieldOffset(fieldType, fieldName, fieldLocal) +
@@ -202,6 +219,7 @@ object FieldIO {
     */
   def writePointer(fieldType: FieldType, fieldName: String,  fieldLocal: Boolean, tensorLocal: Boolean): String =
   {
+    requireAddressable(fieldType)
     fieldName + "[" + fieldOffset(fieldType, fieldName, fieldLocal) +
             tensorOffset(fieldType, fieldName, tensorLocal) + "]"
   }
@@ -217,6 +235,7 @@ object FieldIO {
     */
   def writeTensor0FieldPointer(fieldType: FieldType, fieldName: String,  fieldLocal: Boolean): String =
   {
+    requireAddressable(fieldType)
     fieldName + "[" + fieldOffset(fieldType, fieldName, fieldLocal) + "]"
   }
 
@@ -236,6 +255,8 @@ object FieldIO {
   {
     val baseIndex = fieldOffset(fieldType, fieldName, fieldLocal)
     tensorType match {
+      case _ if isStorageField(fieldType) =>
+        writeStorageTensor(fieldType, fieldName, tensorType, fieldLocal, result)
       case CLFloat =>
         "    " + fieldName + "[" + baseIndex + "] = " + result + ";\n"
       case CLComplex =>
@@ -294,6 +315,78 @@ object FieldIO {
                 "for " + tensorType)
     }  }
 
+  /** An expression that reads the number at `index` of a storage field as a float. */
+  private def loadNumber(fieldType: FieldType, fieldName: String, index: String): String =
+    fieldType.elementType match {
+      case Float16 => "vload_half(" + index + ", " + fieldName + ")"
+      case Uint8 | Uint16 | Int32 => "convert_float(" + fieldName + "[" + index + "])"
+      case x => throw new RuntimeException("FieldIO.loadNumber not supported for " + x)
+    }
+
+  /** A statement that writes the float `value` to `index` of a storage field. */
+  private def storeNumber(fieldType: FieldType, fieldName: String, index: String, value: String): String =
+    fieldType.elementType match {
+      case Float16 =>
+        "    vstore_half(" + value + ", " + index + ", " + fieldName + ");\n"
+      case Uint8 =>
+        "    " + fieldName + "[" + index + "] = convert_uchar_sat_rte(" + value + ");\n"
+      case Uint16 =>
+        "    " + fieldName + "[" + index + "] = convert_ushort_sat_rte(" + value + ");\n"
+      case Int32 =>
+        "    " + fieldName + "[" + index + "] = convert_int_sat_rte(" + value + ");\n"
+      case x => throw new RuntimeException("FieldIO.storeNumber not supported for " + x)
+    }
+
+  /** Components of the OpenCL vector types, in order, for the tensor types of
+    * a storage field.
+    */
+  private def tensorComponents(fieldType: FieldType, tensorType: CLType): Seq[String] = tensorType match {
+    case CLFloat => Seq("")
+    case CLFloat2 => Seq(".x", ".y")
+    case CLFloat3 => Seq(".x", ".y", ".z")
+    case CLFloat4 => Seq(".x", ".y", ".z", ".w")
+    case CLFloat8 => (0 until 8).map(i => ".s" + "%X".format(i))
+    case CLFloat16 => (0 until 16).map(i => ".s" + "%X".format(i))
+    case x => throw new RuntimeException(fieldType.elementType + " fields not supported for " + x)
+  }
+
+  /** Offsets of the numbers of a tensor of a storage field from its base index. */
+  private def tensorIndices(fieldName: String, baseIndex: String, components: Int): Seq[String] =
+    (0 until components).map(i =>
+      if (i == 0) baseIndex
+      else if (i == 1) baseIndex + " + " + fieldName + "_tensorStride"
+      else baseIndex + " + " + i + " * " + fieldName + "_tensorStride")
+
+  /** The readTensor expression for a storage field, converting to float. */
+  private def readStorageTensor(fieldType: FieldType, fieldName: String, tensorType: CLType,
+                                fieldLocal: Boolean): String = {
+    val baseIndex = fieldOffset(fieldType, fieldName, fieldLocal)
+    val components = tensorComponents(fieldType, tensorType).length
+    val loads = tensorIndices(fieldName, baseIndex, components).map(index =>
+      loadNumber(fieldType, fieldName, index))
+    if (components == 1)
+      loads.head
+    else
+      "(" + tensorType.name + ")(" + loads.mkString(", ") + ")"
+  }
+
+  /** The writeTensor statements for a storage field, converting from float. */
+  private def writeStorageTensor(fieldType: FieldType, fieldName: String, tensorType: CLType, fieldLocal: Boolean,
+                                 result: String): String = {
+    val baseIndex = fieldOffset(fieldType, fieldName, fieldLocal)
+    val components = tensorComponents(fieldType, tensorType)
+    tensorIndices(fieldName, baseIndex, components.length).zip(components).map {
+      case (index, component) => storeNumber(fieldType, fieldName, index, result + component)
+    }.mkString
+  }
+
+  /** Storage fields can't be written through a pointer, since their writes convert. */
+  private def requireAddressable(fieldType: FieldType) {
+    if (isStorageField(fieldType))
+      throw new RuntimeException(fieldType.elementType + " fields can only be written by conversion, " +
+              "not through a pointer")
+  }
+
 
   /** Pointer calculation to determine offset in a field buffer for a given
     * tensor field.
@@ -197,6 +197,12 @@ class HyperKernel(opcode: Opcode,
   protected lazy val workFieldType = resultTypes(0)
   /** Scheduling parameters for this kernel driver. */
   lazy val workGroup = computeWorkGroupParameters(workFieldType, addressing)
+  /** Estimated arithmetic ops per execution (see KernelCost). A merged kernel
+    * is credited with the ops of the kernels it replaces.
+    */
+  private var _estimatedOps: Long =
+    KernelCost.arithmeticOps(opcode, in.map(_.fieldType), resultTypes)
+  override private[cogx] def estimatedOps: Long = _estimatedOps
   /** Distinct name for this kernel.  The system coalesces kernels based on
     * their source code (minus the kernel name), so this name is mostly useful
     * for debugging the OpenCL source: set Verbose = 2 in OpenCLPlatform and
@@ -601,6 +607,7 @@ class HyperKernel(opcode: Opcode,
     require(copy.workFieldType == this.workFieldType)
     require(copy.workGroup == this.workGroup)
     copy._usesLocalMemory     = this._usesLocalMemory
+    copy._estimatedOps        = this._estimatedOps
     //copy.nonlocallyReadInputs = this.nonlocallyReadInputs // This won't work; we have new inputs!
     if (this.rawUserCode != null) {
       copy.addCode(this.rawUserCode)
@@ -680,6 +687,7 @@ object HyperKernel {
 
     // Update some flags of the new kernel based on the old
     resultKernel._usesLocalMemory = kernel._usesLocalMemory
+    resultKernel._estimatedOps = kernel._estimatedOps
     resultKernel.nonlocallyReadInputs = kernel.nonlocallyReadInputs
 
     // Link old inFieldFragments in source and sink to new inFieldFragments
@@ -835,6 +843,8 @@ object HyperKernel {
     mergedKernel.nonlocallyReadInputs =
             sink.nonlocallyReadInputs union source.nonlocallyReadInputs
 
+    mergedKernel._estimatedOps = sink._estimatedOps + source._estimatedOps
+
     // Link old inFieldFragments in source and sink to new inFieldFragments
     // in mergedKernel.  First we need a map to get from the new set of unique
     // input virtual field registers to their InFieldFragments:
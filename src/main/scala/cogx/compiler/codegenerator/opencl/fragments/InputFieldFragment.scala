@@ -17,7 +17,7 @@
 package cogx.compiler.codegenerator.opencl.fragments
 
 import cogx.platform.types.{VirtualFieldRegister, FieldType}
-import cogx.platform.types.ElementTypes.Uint8Pixel
+import cogx.platform.types.ElementTypes.{Float16, Int32, Uint16, Uint8, Uint8Pixel}
 
 /** An input field on a kernel. This is a "slot" that initially is unconnected
   * to a fragment on its input.
@@ -91,7 +91,11 @@ class InputFieldFragment(val fieldType: FieldType, index: Int,
       }
     } else {
       val constType = if (constant) "    __constant " else "    __global const "
-      constType + "float *" + name
+      val numberType = fieldType.elementType match {
+        case Float16 | Uint8 | Uint16 | Int32 => fieldType.elementType.cTypeName + " *"
+        case _ => "float *"
+      }
+      constType + numberType + name
     }
   }
 
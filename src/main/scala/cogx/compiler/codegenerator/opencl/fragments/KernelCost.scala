@@ -0,0 +1,89 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.compiler.codegenerator.opencl.fragments
+
+import cogx.compiler.parser.op._
+import cogx.platform.types.{FieldMemoryLayoutImpl, FieldType, Opcode}
+
+/** First-order estimates of the arithmetic done by a kernel, used with
+  * measured execution times to report the GFLOP/s a kernel achieves (the
+  * memory traffic half of the picture is estimated by OpenCLDeviceKernel).
+  *
+  * Arithmetic is counted per number (tensor element) produced. Convolutions
+  * and matrix products count a multiply and an add per term. Other kernels
+  * are taken to do one op per output number for each input beyond the first,
+  * but never less than one op per number of their largest input, which
+  * covers reductions. Comparisons, selects and transcendental functions
+  * all count as single ops, so the GFLOP/s figure is indicative only.
+  *
+  * @author Dick Carter
+  */
+private[cogx]
+object KernelCost {
+
+  /** Numbers (not counting padding) in a field of type `fieldType`. */
+  def numbers(fieldType: FieldType): Long =
+    fieldType.fieldShape.longPoints * new FieldMemoryLayoutImpl(fieldType).longNumbersInTensor
+
+  /** Estimated arithmetic ops performed by one execution of a kernel.
+    *
+    * @param opcode The kernel's operation.
+    * @param inputTypes The types of the fields driving the kernel.
+    * @param resultTypes The types of the fields produced by the kernel.
+    */
+  def arithmeticOps(opcode: Opcode, inputTypes: Seq[FieldType], resultTypes: Seq[FieldType]): Long = {
+    val outputNumbers = resultTypes.map(numbers).sum
+    def multiplyAdds(termsPerOutputNumber: Long) = 2L * termsPerOutputNumber * outputNumbers
+    opcode match {
+      case op: AbstractConvolveOp if inputTypes.length == 2 =>
+        val image = inputTypes(0)
+        val filter = inputTypes(1)
+        op.vectorMode match {
+          case FilterAdjoint | FilterAdjointBlockReduceSum =>
+            // Each filter element correlates the image with the gradient.
+            multiplyAdds(image.fieldShape.longPoints)
+          case ProjectFrame | ProjectFrameBlockReduceSum | BackProjectFrame | BackProjectFrameBlockReduceSum =>
+            // Each output plane sums the convolutions of a batch of input planes.
+            val planesSummed = math.max(1L, image.tensorShape.longPoints / math.max(1, op.batchSize))
+            multiplyAdds(filter.fieldShape.longPoints * planesSummed)
+          case _ =>
+            multiplyAdds(filter.fieldShape.longPoints)
+        }
+      case op: ConvolveRows2DOp if inputTypes.length == 2 =>
+        multiplyAdds(inputTypes(1).fieldShape.longPoints)
+      case op: ConvolveColumns2DOp if inputTypes.length == 2 =>
+        multiplyAdds(inputTypes(1).fieldShape.longPoints)
+      case op: ScalarMatrixConvolve2DOp if inputTypes.length == 2 =>
+        multiplyAdds(inputTypes(1).fieldShape.longPoints)
+      case op: MatrixTransformMatrixOp if inputTypes.length == 2 =>
+        val in1 = inputTypes(0)
+        multiplyAdds(if (op.transposeIn1) in1.tensorRows else in1.tensorColumns)
+      case MatrixTransformVectorOp if inputTypes.length == 2 =>
+        multiplyAdds(inputTypes(0).tensorColumns)
+      case op: FFTOpRI =>
+        // The usual 5 N log2(N) flops for a complex transform of N points,
+        // for each of the transforms done in parallel.
+        val transformPoints = resultTypes.head.fieldShape.longPoints
+        val transforms = math.max(1L, outputNumbers / (2 * transformPoints))
+        val log2Points = 63 - java.lang.Long.numberOfLeadingZeros(math.max(1L, transformPoints))
+        5L * transformPoints * log2Points * transforms
+      case _ =>
+        val largestInput = if (inputTypes.isEmpty) 0L else inputTypes.map(numbers).max
+        math.max(outputNumbers * math.max(1, inputTypes.length - 1), largestInput)
+    }
+  }
+}
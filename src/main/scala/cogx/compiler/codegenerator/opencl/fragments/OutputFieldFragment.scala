@@ -48,6 +48,8 @@ class OutputFieldFragment (val input: Fragment,
       "    write_only image2d_t " + name
     case Complex32 =>
       "    __global float *" + name
+    case Float16 | Uint8 | Uint16 | Int32 =>
+      "    __global " + fieldType.elementType.cTypeName + " *" + name
     case _ =>
       "    __global float *" + name
   }
@@ -85,6 +85,8 @@ object ColorFieldGenerator {
       case VectorFieldToColorFieldOp =>
         VectorFieldToColorFieldHyperKernel(inputs(0), VectorFieldToColorFieldOp,
           fieldType)
+      case op: YUVToColorFieldOp =>
+        YUVToColorFieldHyperKernel(inputs(0), op, fieldType)
       case FlipOp =>
         FlipHyperKernel(inputs, opcode, fieldType)   // Not tested XXX
       case MergeColorPlanesOp =>
@@ -0,0 +1,45 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.compiler.codegenerator.opencl.generator
+
+import cogx.platform.types.{AbstractKernel, VirtualFieldRegister}
+import cogx.compiler.codegenerator.opencl.hyperkernels.ElementConversionHyperKernel
+import cogx.compiler.parser.op.ToFloat16Op
+import cogx.compiler.parser.syntaxtree.Field
+
+/** Generates OpenCL code for operations that produce half (Float16) fields.
+  * The only such operation is the conversion from Float32.
+  *
+  * @author Dick Carter
+  */
+private[cogx]
+object Float16FieldGenerator {
+  /** Generate an OpenCL kernel for a field.
+    *
+    * @param field The field which will have a kernel generated for it.
+    * @param inputs Inputs to the operation.
+    * @return OpenCL kernel implementing the operation.
+    */
+  def apply(field: Field, inputs: Array[VirtualFieldRegister]): AbstractKernel = {
+    field.opcode match {
+      case ToFloat16Op =>
+        ElementConversionHyperKernel(inputs(0), ToFloat16Op, field.fieldType)
+      case x =>
+        throw new RuntimeException("Unsupported Float16 field operation: " + x)
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.compiler.codegenerator.opencl.generator
+
+import cogx.platform.types.{AbstractKernel, VirtualFieldRegister}
+import cogx.compiler.codegenerator.opencl.hyperkernels.ElementConversionHyperKernel
+import cogx.compiler.codegenerator.opencl.cpukernels.{RecurrentFieldKernel, SensorKernel}
+import cogx.compiler.parser.op._
+import cogx.compiler.parser.syntaxtree.{Field, RestoreHooks}
+
+/** Generates OpenCL code for operations that produce integer (Uint8, Uint16
+  * or Int32) fields. The only such operations are the conversions from
+  * Float32 and raw sensors (with, for pipelined raw sensors, their pipeline
+  * registers).
+  *
+  * @author Dick Carter
+  */
+private[cogx]
+object IntegerFieldGenerator {
+  /** Generate an OpenCL kernel for a field.
+    *
+    * @param field The field which will have a kernel generated for it.
+    * @param inputs Inputs to the operation.
+    * @return OpenCL kernel implementing the operation.
+    */
+  def apply(field: Field, inputs: Array[VirtualFieldRegister]): AbstractKernel = {
+    val fieldType = field.fieldType
+    field.opcode match {
+      case op: SensorOp =>
+        val f = field.asInstanceOf[RestoreHooks]
+        new SensorKernel(fieldType, op, f.classnameAsSaved, f.restoreParameters _)
+      case op: ConstantOp =>
+        // The pipeline register of a pipelined raw sensor, whose SensorKernel
+        // sources the reset data.
+        field.recurrence match {
+          case Some(recurrenceField) if recurrenceField.opcode.isInstanceOf[PipelinedSensorOp] =>
+            new RecurrentFieldKernel(fieldType, NullOp)
+          case _ =>
+            throw new RuntimeException("Unsupported integer field operation: " + op)
+        }
+      case op@(ToUint8Op | ToUint16Op | ToInt32Op) =>
+        ElementConversionHyperKernel(inputs(0), op, fieldType)
+      case x =>
+        throw new RuntimeException("Unsupported integer field operation: " + x)
+    }
+  }
+}
@@ -139,6 +139,10 @@ class OpenCLCodeGenerator(codeGenParams: OpenCLKernelCodeGenParams = null,
                   case f: ComplexVectorField =>
                     ComplexVectorFieldGenerator(f, translateFields(f.inputs),
                       codeGenParams, fftUse, smallTensorUse, profiler)
+                  case f: Float16Field =>
+                    Float16FieldGenerator(f, translateFields(f.inputs))
+                  case f: IntegerField =>
+                    IntegerFieldGenerator(f, translateFields(f.inputs))
                   case x =>
                     throw new RuntimeException("oops, bad field type: " + x.getClass.getSimpleName)
                 }
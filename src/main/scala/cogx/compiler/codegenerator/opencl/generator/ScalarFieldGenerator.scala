@@ -161,6 +161,8 @@ object ScalarFieldGenerator {
         DynamicConvolutionGenerator(inputs, op, fieldType, fftUse, smallTensorUse, codeGenParams, profiler)
       case op: ComplexToRealOp =>
         ComplexToRealHyperKernel(inputs, op, fieldType)
+      case ToFloat32Op =>
+        ElementConversionHyperKernel(inputs(0), opcode, fieldType)
       case DownsampleOp(factor, phase) =>
         Downsample2DHyperKernel(inputs, DownsampleOp(factor, phase), fieldType)
       case SupersampleOp =>
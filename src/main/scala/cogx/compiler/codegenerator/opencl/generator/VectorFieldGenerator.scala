@@ -210,6 +210,8 @@ object VectorFieldGenerator {
         DynamicConvolutionGenerator(inputs, op, fieldType, fftUse, smallTensorUse, codeGenParams, profiler)
       case op: ComplexToRealOp =>
         ComplexToRealHyperKernel(inputs, op, fieldType)
+      case ToFloat32Op =>
+        ElementConversionHyperKernel(inputs(0), opcode, fieldType)
       case NonMaximumSuppressionOp =>
         NonMaxSuppression2DHyperKernel(inputs(0), NonMaximumSuppressionOp, fieldType)
       case FieldArraySelectOp =>
@@ -0,0 +1,83 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.compiler.codegenerator.opencl.hyperkernels
+
+import cogx.compiler.codegenerator.opencl.fragments.{AddressingMode, HyperKernel}
+import cogx.platform.types._
+import cogx.platform.types.ElementTypes.{Float16, Float32, Int32, Uint16, Uint8}
+import cogx.compiler.codegenerator.common.FieldPolicies._
+import cogx.compiler.parser.op.{ToFloat16Op, ToFloat32Op, ToInt32Op, ToUint16Op, ToUint8Op}
+
+/** Kernel that converts a real field to a storage element type (Float16,
+  * Uint8, Uint16 or Int32), or back to Float32.
+  *
+  * The conversion itself is done by the field reads and writes (vload_half
+  * and vstore_half for halves, convert_float and convert_<type>_sat_rte for
+  * integers, see FieldIO), so the kernel is a simple copy. It's expected to
+  * be merged into the kernel that produces its input or consumes its output,
+  * leaving that kernel reading or writing the storage type directly.
+  *
+  * @author Dick Carter
+  *
+  * @param in The input virtual field register driving this kernel.
+  * @param operation The opcode for this operation.
+  * @param resultType The FieldType of the result of this kernel.
+  * @param addressMode The addressing mode of this kernel.
+  */
+private[cogx]
+class ElementConversionHyperKernel private (in: VirtualFieldRegister,
+                                            operation: Opcode,
+                                            resultType: FieldType,
+                                            addressMode: AddressingMode)
+        extends HyperKernel(operation, Array(in), resultType, addressMode)
+{
+  addCode("    @out0 = read(@in0);")
+}
+
+/** Factory object for creating kernels of this type.
+  */
+private[cogx]
+object ElementConversionHyperKernel extends HyperHelper {
+
+  /**
+   * Create a kernel that converts a real field to or from a storage type.
+   *
+   * @param in The input virtual field register driving this kernel.
+   * @param operation The opcode for this operation: ToFloat16Op, ToUint8Op,
+   *        ToUint16Op, ToInt32Op or ToFloat32Op.
+   * @param resultType The FieldType of the result of this kernel.
+   * @return Synthesized hyperkernel for the operation.
+   */
+  def apply(in: VirtualFieldRegister, operation: Opcode, resultType: FieldType): HyperKernel = {
+    val inType = in.fieldType
+    val outElementType = operation match {
+      case ToFloat16Op => Float16
+      case ToUint8Op => Uint8
+      case ToUint16Op => Uint16
+      case ToInt32Op => Int32
+      case ToFloat32Op => Float32
+      case x => throw new RuntimeException("unexpected opcode: " + x)
+    }
+    if (operation == ToFloat32Op)
+      require(isStorageField(inType))
+    else
+      require(isRealField(inType))
+    require(resultType == new FieldType(inType.fieldShape, inType.tensorShape, outElementType))
+    val addressing = bestAddressMode(Array(in), resultType)
+    new ElementConversionHyperKernel(in, operation, resultType, addressing)
+  }
+}
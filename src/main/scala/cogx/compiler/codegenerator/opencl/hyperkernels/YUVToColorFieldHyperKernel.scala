@@ -0,0 +1,118 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.compiler.codegenerator.opencl.hyperkernels
+
+import cogx.platform.types._
+import cogx.platform.types.ElementTypes.{Uint8, Uint8Pixel}
+import cogx.compiler.parser.op._
+import cogx.compiler.codegenerator.opencl.fragments._
+import cogx.compiler.codegenerator.common.FieldPolicies._
+import cogx.cogmath.geometry.Shape
+
+
+/** Converts the packed Uint8 planes of a YUV 4:2:0 image (NV12 or I420) to a
+  * color field, using the BT.601 "video range" coefficients of SD cameras
+  * and decoders.
+  *
+  * The planes are read as the bytes of a 2D field `columns` bytes wide, so the
+  * bytes of a chroma plane (whose rows are only half as wide as the image in
+  * I420) are located by their offset from the start of the planes. Each
+  * thread reads its luma byte and the two chroma bytes shared with its 2 x 2
+  * neighborhood, so only 1.5 bytes per pixel cross the bus to feed the kernel.
+  *
+  * @author Dick Carter
+  *
+  * @param in The input virtual field register driving this kernel.
+  * @param operation The YUVToColorFieldOp opcode for this operation.
+  * @param resultType The FieldType of the result of this kernel.
+  * @param addressMode The addressing mode of this kernel.
+  */
+private[cogx]
+class YUVToColorFieldHyperKernel private (in: VirtualFieldRegister,
+                                          operation: YUVToColorFieldOp,
+                                          resultType: FieldType,
+                                          addressMode: AddressingMode)
+        extends HyperKernel(operation, Array(in), resultType, addressMode, DontCare)
+{
+  val imageRows = resultType.rows
+  val columns = resultType.columns
+  val chromaPlaneSize = (imageRows / 2) * (columns / 2)
+
+  val readChroma = operation.format match {
+    case NV12 =>
+      s"""
+        |    row = $imageRows + _row / 2;
+        |    column = _column & ~1;
+        |    float u = readNonlocal(@in0);
+        |    column = column + 1;
+        |    float v = readNonlocal(@in0);
+      """.stripMargin
+    case I420 =>
+      s"""
+        |    int uOffset = ${imageRows * columns} + (_row / 2) * ${columns / 2} + _column / 2;
+        |    row = uOffset / $columns;
+        |    column = uOffset - row * $columns;
+        |    float u = readNonlocal(@in0);
+        |    int vOffset = uOffset + $chromaPlaneSize;
+        |    row = vOffset / $columns;
+        |    column = vOffset - row * $columns;
+        |    float v = readNonlocal(@in0);
+      """.stripMargin
+  }
+  val code =
+    s"""
+      |    row = _row;
+      |    column = _column;
+      |    float luma = 1.164f * (readNonlocal(@in0) - 16.0f);
+      |$readChroma
+      |    u = u - 128.0f;
+      |    v = v - 128.0f;
+      |    float red = clamp((luma + 1.596f * v) / 255.0f, 0.0f, 1.0f);
+      |    float green = clamp((luma - 0.392f * u - 0.813f * v) / 255.0f, 0.0f, 1.0f);
+      |    float blue = clamp((luma + 2.017f * u) / 255.0f, 0.0f, 1.0f);
+      |    float4 pixel = (float4) (red, green, blue, 1.0f);
+      |    @out0 = pixel;
+    """.stripMargin
+  addCode(code)
+  //      debugCompile
+}
+
+/** Factory object for creating kernels of this type.
+  */
+private[cogx]
+object YUVToColorFieldHyperKernel {
+
+  /** Create an image kernel that converts YUV planes to a color field.
+    *
+    * @param in The input virtual field register driving this kernel.
+    * @param operation The opcode for this operation.
+    * @param resultType The FieldType of the result of this kernel.
+    * @return Synthesized hyperkernel for the operation.
+    */
+  def apply(in: VirtualFieldRegister, operation: YUVToColorFieldOp, resultType: FieldType):
+  HyperKernel =
+  {
+    require(isColorField(resultType))
+    require(resultType.dimensions == 2)
+    val inType = in.fieldType
+    val expectedInputType = new FieldType(
+      operation.format.planesShape(resultType.rows, resultType.columns), Shape(), Uint8)
+    require(inType == expectedInputType)
+    val addressing = SmallTensorAddressing
+    new YUVToColorFieldHyperKernel(in, operation, resultType, addressing)
+  }
+}
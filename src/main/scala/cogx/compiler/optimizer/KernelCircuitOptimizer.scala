@@ -16,11 +16,14 @@
 
 package cogx.compiler.optimizer
 
+import cogx.compiler.OptimizerPassTiming
 import cogx.compiler.codegenerator.KernelCircuit
 import cogx.parameters.Cog
 import cogx.platform.opencl.OpenCLKernelCodeGenParams
 import cogx.runtime.execution.Profiler
 
+import scala.collection.mutable.ArrayBuffer
+
 /** Optimizes a kernel circuit using a variety of approaches.
   *
   * @author Greg Snider
@@ -37,14 +40,44 @@ object KernelCircuitOptimizer extends Optimizer {
     * @param report True if verbosity is desired.
     * @return  The number of optimizations made.
     */
-  def optimize(kernelCircuit: KernelCircuit, codeGenParams: OpenCLKernelCodeGenParams, profiler: Profiler, report: Boolean = true) = {
+  def optimize(kernelCircuit: KernelCircuit, codeGenParams: OpenCLKernelCodeGenParams, profiler: Profiler, report: Boolean = true): Int =
+    optimize(kernelCircuit, codeGenParams, profiler, report, kernelMerging = true)
+
+  /** Optimize `circuit` by a number of means, optionally skipping the HyperKernel mergers.
+    *
+    * @param kernelCircuit Kernel circuit to be optimized.
+    * @param codeGenParams A bundle of device parameters that affect kernel code generation and optimization.
+    * @param profiler The profiler to use to pick the best variant
+    * @param report True if verbosity is desired.
+    * @param kernelMerging False to leave HyperKernels unmerged, as needed by a backend that runs kernels by opcode.
+    * @return  The number of optimizations made.
+    */
+  def optimize(kernelCircuit: KernelCircuit, codeGenParams: OpenCLKernelCodeGenParams, profiler: Profiler,
+               report: Boolean, kernelMerging: Boolean): Int =
+    optimize(kernelCircuit, codeGenParams, profiler, report, kernelMerging, null)
+
+  /** Optimize `circuit` by a number of means, optionally skipping the HyperKernel mergers, and optionally
+    * recording the duration and effect of each optimizer run.
+    *
+    * @param kernelCircuit Kernel circuit to be optimized.
+    * @param codeGenParams A bundle of device parameters that affect kernel code generation and optimization.
+    * @param profiler The profiler to use to pick the best variant
+    * @param report True if verbosity is desired.
+    * @param kernelMerging False to leave HyperKernels unmerged, as needed by a backend that runs kernels by opcode.
+    * @param passTimings If not null, a timing of each optimizer run is appended to this.
+    * @return  The number of optimizations made.
+    */
+  def optimize(kernelCircuit: KernelCircuit, codeGenParams: OpenCLKernelCodeGenParams, profiler: Profiler,
+               report: Boolean, kernelMerging: Boolean, passTimings: ArrayBuffer[OptimizerPassTiming]): Int = {
     var optimizations = 0
     if (Enabled) {
-      optimizations += DeadKernel.optimize(kernelCircuit, codeGenParams, profiler)
-      optimizations += RedundantInputs.optimize(kernelCircuit, codeGenParams, profiler)
-      optimizations += CommonSubexpression.optimize(kernelCircuit, codeGenParams, profiler)
-      optimizations += TensorReduceOptimizer.optimize(kernelCircuit, codeGenParams, profiler)
-      optimizations += ProjectFrameTensorReduceSumOptimizer.optimize(kernelCircuit, codeGenParams, profiler)
+      def once(optimizer: Optimizer) =
+        runOptimizer(optimizer, 1, kernelCircuit, codeGenParams, profiler, passTimings)
+      optimizations += once(DeadKernel)
+      optimizations += once(RedundantInputs)
+      optimizations += once(CommonSubexpression)
+      optimizations += once(TensorReduceOptimizer)
+      optimizations += once(ProjectFrameTensorReduceSumOptimizer)
 
       // Loop over a list of optimizers whose improvements may create further
       // optimization opportunities.  Keep going until no further optimizations
@@ -52,15 +85,17 @@ object KernelCircuitOptimizer extends Optimizer {
 
       // The TransformTranspose optimizer takes a few passes to fully absorb all the transpose kernels.
       // We want this complete before the transpose kernels might be merged into multi-output kernels
-      optimizations += loopOptimize(kernelCircuit, codeGenParams, profiler, report, Array(TransformTransposeOptimizer))
+      optimizations += loopOptimize(kernelCircuit, codeGenParams, profiler, report, Array(TransformTransposeOptimizer), passTimings)
 
       // Other optimizers that might take a few passes worst case
-      val dependentOptimizers = Array(HyperKernelMerger, HyperKernelMultiOutputMerger)
-      optimizations += loopOptimize(kernelCircuit, codeGenParams, profiler, report, dependentOptimizers)
+      if (kernelMerging) {
+        val dependentOptimizers = Array(HyperKernelMerger, HyperKernelMultiOutputMerger)
+        optimizations += loopOptimize(kernelCircuit, codeGenParams, profiler, report, dependentOptimizers, passTimings)
+      }
 
       // Reshape remover- no other kernel creation should happen after this, so do this last
 
-      optimizations += loopOptimize(kernelCircuit, codeGenParams, profiler, report, Array(ReshapeRemover))
+      optimizations += loopOptimize(kernelCircuit, codeGenParams, profiler, report, Array(ReshapeRemover), passTimings)
 
       if (Cog.verboseOptimizer) {
         println("Post-optimizer kernel circuit:")
@@ -78,16 +113,21 @@ object KernelCircuitOptimizer extends Optimizer {
     * @param profiler The profiler to use to pick the best variant
     * @param report True if verbosity is desired
     * @param optimizers The optimizers to loop over until no further improvement is seen
+    * @param passTimings If not null, a timing of each optimizer run is appended to this.
     * @return  The number of optimizations made
     */
-  private def loopOptimize(kernelCircuit: KernelCircuit, platformParams: OpenCLKernelCodeGenParams, profiler: Profiler, report: Boolean, optimizers: Array[Optimizer]) = {
+  private def loopOptimize(kernelCircuit: KernelCircuit, platformParams: OpenCLKernelCodeGenParams, profiler: Profiler,
+                           report: Boolean, optimizers: Array[Optimizer],
+                           passTimings: ArrayBuffer[OptimizerPassTiming]) = {
     var optimizations = 0
     var numOptimizers = optimizers.length
     var consecutiveFails = 0
     var i = 0
+    val rounds = new Array[Int](numOptimizers)
     while(consecutiveFails <= numOptimizers - 1) {
       val optimizer = optimizers(i)
-      val improvements = optimizer.optimize(kernelCircuit, platformParams, profiler)
+      rounds(i) += 1
+      val improvements = runOptimizer(optimizer, rounds(i), kernelCircuit, platformParams, profiler, passTimings)
       optimizations += improvements
       if (improvements == 0)
         consecutiveFails += 1
@@ -97,4 +137,24 @@ object KernelCircuitOptimizer extends Optimizer {
     }
     optimizations
   }
+
+  /** Run one optimizer over `kernelCircuit`, appending its timing to `passTimings` if that is not null.
+    *
+    * @return  The number of optimizations made
+    */
+  private def runOptimizer(optimizer: Optimizer, round: Int, kernelCircuit: KernelCircuit,
+                           platformParams: OpenCLKernelCodeGenParams, profiler: Profiler,
+                           passTimings: ArrayBuffer[OptimizerPassTiming]): Int = {
+    if (passTimings == null)
+      optimizer.optimize(kernelCircuit, platformParams, profiler)
+    else {
+      val kernelsBefore = kernelCircuit.size
+      val start = System.nanoTime()
+      val improvements = optimizer.optimize(kernelCircuit, platformParams, profiler)
+      val secs = (System.nanoTime() - start) / 1e9
+      val name = optimizer.getClass.getSimpleName.stripSuffix("$")
+      passTimings += OptimizerPassTiming(name, round, secs, kernelsBefore, kernelCircuit.size, improvements)
+      improvements
+    }
+  }
 }
@@ -0,0 +1,56 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.compiler.parser.op
+
+import java.nio.Buffer
+
+/** A sensor input that is written directly into the CPU memory of the sensor's
+  * field register, rather than being copied there from an iterator or array.
+  *
+  * Sensor kernels pass `fill` a view of the field memory's direct buffer (a
+  * FloatBuffer for scalar and vector fields, a ByteBuffer for color fields)
+  * positioned at 0, which `fill` writes with the next input. `fill` returns
+  * false if it has no new input (permitted of pipelined sensors only), in which
+  * case it must leave the buffer untouched.
+  *
+  * This is an (always empty) Iterator only so that it can be returned by the
+  * `nextInput` functions of the sensor opcodes without changing their types;
+  * the sensor kernels recognize it and never iterate over it.
+  *
+  * @param fill Function that writes the next input into the buffer it's given.
+  *
+  * @author Dick Carter
+  */
+private[cogx] class InPlaceSensorInput[B <: Buffer](val fill: (B) => Boolean) extends Iterator[Nothing] {
+  def hasNext = false
+  def next() = throw new NoSuchElementException("in-place sensor inputs have no iterator")
+}
+
+private[cogx] object InPlaceSensorInput {
+  /** A nextInput function for a pipelined sensor with in-place input `fill`. */
+  def pipelined[B <: Buffer](fill: (B) => Boolean): () => Option[Iterator[Nothing]] = {
+    val input = Some(new InPlaceSensorInput(fill))
+    () => input
+  }
+
+  /** A nextInput function for an unpipelined sensor with in-place input `fill`. */
+  def unpipelined[B <: Buffer](fill: (B) => Unit): () => Iterator[Nothing] = {
+    val input = new InPlaceSensorInput[B]((buffer: B) => {fill(buffer); true})
+    () => input
+  }
+}
@@ -18,7 +18,7 @@ package cogx.compiler.parser.op
 
 import cogx.compiler.codegenerator.opencl.hyperkernels.fastfouriertransform.{ClFFTDirection, Forward, Inverse}
 import cogx.platform.cpumemory.readerwriter.ScalarFieldReader
-import cogx.platform.types.{BorderPolicy, ConvolutionSamplingPolicy, FilterOrientation, Opcode}
+import cogx.platform.types.{BorderPolicy, ConvolutionSamplingPolicy, FilterOrientation, Opcode, YUVFormat}
 import cogx.cogmath.geometry.Shape
 import cogx.cogmath.algebra.real.Matrix
 import cogx.cogmath.algebra.complex.Complex
@@ -150,6 +150,22 @@ private[cogx] case object ColorPlaneBlueOp extends ColorPlaneOp
 private[cogx] case object ColorPlaneLuminanceOp extends ColorPlaneOp
 private[cogx] case object ColorFieldToVectorFieldOp extends UnaryOpcode("colorFieldToVectorField")
 private[cogx] case object VectorFieldToColorFieldOp extends UnaryOpcode("vectorFieldToColorField")
+/** Conversion of the packed Uint8 planes of a YUV 4:2:0 image to a color field. */
+private[cogx] case class YUVToColorFieldOp(format: YUVFormat)
+  extends UnaryOpcode("yuvToColorField_" + format)
+
+// Storage conversions ---------------------------------------------------------
+
+/** Conversion of a real field to half (Float16) storage. */
+private[cogx] case object ToFloat16Op extends UnaryOpcode
+/** Conversion of a real field to Uint8 storage, rounding and saturating. */
+private[cogx] case object ToUint8Op extends UnaryOpcode
+/** Conversion of a real field to Uint16 storage, rounding and saturating. */
+private[cogx] case object ToUint16Op extends UnaryOpcode
+/** Conversion of a real field to Int32 storage, rounding and saturating. */
+private[cogx] case object ToInt32Op extends UnaryOpcode
+/** Conversion of a half (Float16) or integer field back to Float32. */
+private[cogx] case object ToFloat32Op extends UnaryOpcode
 
 // Complex operations-----------------------------------------------------------
 
@@ -16,9 +16,12 @@
 
 package cogx.compiler.parser.syntaxtree
 
+import java.nio.FloatBuffer
+
 import cogx.compiler.parser.op._
 import cogx.compiler.parser.semantics.SemanticError
 import cogx.cogmath.geometry.Shape
+import cogx.platform.cpumemory.ScalarFieldMemory
 import cogx.platform.cpumemory.readerwriter.ScalarFieldReader
 import cogx.platform.types.ElementTypes.Float32
 import Actuator.{zeroInitOp, wrap}
@@ -133,6 +136,7 @@ object Actuator extends SemanticError {
 
   type ScalarFieldReaderFunc = Function1[ScalarFieldReader, Unit]
   type IteratorOfFloatFunc = Function1[Iterator[Float], Unit]
+  type FloatBufferFunc = Function1[FloatBuffer, Unit]
 
   // 0D scalar field actuator factory methods
 
@@ -447,6 +451,26 @@ object Actuator extends SemanticError {
     new Actuator(zeroInitOp(source), source, wrap(update), resetHook)
   }
 
+  /** Create an actuator for an nD scalar field `source` whose update callback
+    * function takes a read-only FloatBuffer view of the field's values as an argument.
+    *
+    * Init supplied:  NO
+    * Reset supplied: YES
+    *
+    * Some extra implicit arg had to added here to disambiguate this constructor's signature from the above-seen:
+    *
+    * apply(source: Field, update: ScalarFieldReaderFunc, resetHook: () => Unit)
+    * apply(source: Field, update: IteratorOfFloatFunc, resetHook: () => Unit)
+    *
+    * @param source The field to written output to an array each clock cycle.
+    * @param update A callback function that is called after each new value is available.
+    * @param resetHook An callback function that is called upon reset.
+    * @return An actuator that writes `source` to `output` each cycle.
+    */
+  def apply(source: Field, update: FloatBufferFunc, resetHook: () => Unit)(implicit tt: TypeTag[FloatBufferFunc]): Actuator = {
+    new Actuator(zeroInitOp(source), source, wrapBuffer(update), resetHook)
+  }
+
   /** Type checking for Actuator creation.
    *
     * Verifies that `source` is a scalar type, and that the shape of `source`
@@ -523,6 +547,29 @@ object Actuator extends SemanticError {
     wrapped _
   }
 
+  /** Adapter for update functions that read the actuator's data through a
+    * FloatBuffer rather than a ScalarFieldReader. The buffer is a read-only
+    * view, positioned at 0, of the field's values in row-major order in the
+    * actuator's CPU memory. Nothing is copied, so the view is only valid for
+    * the duration of the update call.
+    *
+    * @param f Form of update() that takes a FloatBuffer
+    * @return new style form of update() that takes a ScalarFieldReader
+    */
+  def wrapBuffer(f: (FloatBuffer) => Unit) = {
+    def wrapped(sfr: ScalarFieldReader) {
+      sfr match {
+        case memory: ScalarFieldMemory if !memory.isSegmented =>
+          val view = memory.directBuffer.asReadOnlyBuffer
+          view.rewind()
+          f(view)
+        case _ =>
+          throw new RuntimeException("FloatBuffer actuator view not available for field " + sfr.fieldShape)
+      }
+    }
+    wrapped _
+  }
+
   /** Create an actuator "update" function that takes a ScalarFieldReader and returns Unit.
     *
     * @param source The field supplying the data seen by the Actuator.
@@ -546,8 +593,9 @@ object Actuator extends SemanticError {
         typeOf[T] match {
           case t if t =:= typeOf[ScalarFieldReaderFunc] => target.asInstanceOf[ScalarFieldReaderFunc]
           case t if t =:= typeOf[IteratorOfFloatFunc] => wrap(target.asInstanceOf[IteratorOfFloatFunc])
+          case t if t =:= typeOf[FloatBufferFunc] => wrapBuffer(target.asInstanceOf[FloatBufferFunc])
           case _ => throw new RuntimeException("Unexpected Actuator target type: " + typeOf[T] + "." +
-            "  Expecting a function: (ScalarFieldReader) => Unit.")
+            "  Expecting a function: (ScalarFieldReader) => Unit, (Iterator[Float]) => Unit or (FloatBuffer) => Unit.")
         }
       case _ => throw new RuntimeException("Unexpected Actuator target type: " + typeOf[T] + ".")
     }
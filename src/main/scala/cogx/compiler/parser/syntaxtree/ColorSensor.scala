@@ -16,6 +16,8 @@
 
 package cogx.compiler.parser.syntaxtree
 
+import java.nio.ByteBuffer
+
 import cogx.platform.types.{Pixel, FieldType}
 import cogx.platform.types.ElementTypes.Uint8Pixel
 import cogx.compiler.parser.op._
@@ -46,6 +48,10 @@ import cogx.cogmath.geometry.Shape
   * Both types of sensors supply their next input by `nextValue` function which (optionally) returns an
   * iterator of the values of the new input in row-major order.
   *
+  * Instead of `nextValue`, a sensor may be given a `fill` function, as described for [[Sensor]]. Here
+  * `fill` is passed a ByteBuffer holding 4 bytes per pixel (red, green, blue, then an alpha of 0xff)
+  * in row-major order.
+  *
   * NOTE: if the user wishes to optimize input using, for example, multiple threads or double-buffering,
   * that must be done in the implementation of the function `nextValue`.
   *
@@ -101,6 +107,18 @@ class ColorSensor(fieldShape: Shape,
             nextValue: () => Option[Iterator[Byte]]) =
     this(fieldShape, nextValue, () => {}, 0.0)
 
+  /** Create a sensor of the given Shape whose input is written in place by `fill`. */
+  def this(fieldShape: Shape, fill: (ByteBuffer) => Boolean,
+           resetHook: () => Unit,
+           desiredFramesPerSecond: Double) =
+    this(fieldShape, InPlaceSensorInput.pipelined(fill), resetHook, desiredFramesPerSecond)
+
+  /** Create a sensor of the given Shape whose input is written in place by `fill`, with no reset hook and no
+    * frames-per-second pacing.
+    */
+  def this(fieldShape: Shape, fill: (ByteBuffer) => Boolean) =
+    this(fieldShape, InPlaceSensorInput.pipelined(fill), () => {}, 0.0)
+
   /** Create a 2D sensor. */
   def this(rows: Int, columns: Int, nextValue: () => Option[Iterator[Byte]],
            resetHook: () => Unit = () => {},
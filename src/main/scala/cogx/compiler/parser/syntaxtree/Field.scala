@@ -1900,6 +1900,41 @@ abstract class Field private[cogx] (val operation: Operation,
     * both ComplexFields and ComplexScalarFields. */
   def toGenericComplexField = CogFunctions.toGenericComplexField(this)
 
+  /** Convert a scalar or vector field to half (Float16) storage, halving its
+    * memory footprint and the bandwidth needed to read it.
+    *
+    * @return The converted field.
+    */
+  def toFloat16 = CogFunctions.toFloat16(this)
+
+  /** Convert a scalar or vector field to Uint8 storage, rounding to nearest and
+    * saturating to [0, 255].
+    *
+    * @return The converted field.
+    */
+  def toUint8 = CogFunctions.toUint8(this)
+
+  /** Convert a scalar or vector field to Uint16 storage, rounding to nearest and
+    * saturating to [0, 65535].
+    *
+    * @return The converted field.
+    */
+  def toUint16 = CogFunctions.toUint16(this)
+
+  /** Convert a scalar or vector field to Int32 storage, rounding to nearest and
+    * saturating to the range of an Int.
+    *
+    * @return The converted field.
+    */
+  def toInt32 = CogFunctions.toInt32(this)
+
+  /** Convert a half (Float16) or integer field back to a Float32 scalar or
+    * vector field.
+    *
+    * @return The converted field.
+    */
+  def toFloat32 = CogFunctions.toFloat32(this)
+
   /** Takes the DCT (discrete cosine transform) of a 2D field, producing a
     * field with the same shape as the input.
     *
@@ -2199,6 +2234,10 @@ object Field extends CogFunctionAPI with SemanticError {
         }
       case Uint8Pixel =>
         new ColorField(opcode, in, fieldType)
+      case Float16 =>
+        new Float16Field(opcode, in, fieldType)
+      case Uint8 | Uint16 | Int32 =>
+        new IntegerField(opcode, in, fieldType)
       case _ =>
         throw new RuntimeException("not done yet")
     }
@@ -2235,6 +2274,10 @@ object Field extends CogFunctionAPI with SemanticError {
         }
       case Uint8Pixel =>
         new ColorField(operation, resultType)
+      case Float16 =>
+        new Float16Field(operation, resultType)
+      case Uint8 | Uint16 | Int32 =>
+        new IntegerField(operation, resultType)
       case x =>
         throw new Exception("Unsupported element type: " + x)
     }
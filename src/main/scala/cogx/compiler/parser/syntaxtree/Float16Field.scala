@@ -0,0 +1,49 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.compiler.parser.syntaxtree
+
+import cogx.compiler.parser.semantics.SemanticError
+import cogx.compiler.CompilerError
+import cogx.platform.types.{Opcode, FieldType}
+import cogx.platform.types.ElementTypes.Float16
+
+/** A scalar or vector field stored as halves (Float16), which takes half the
+  * memory and half the bandwidth of the Float32 field it was converted from.
+  *
+  * A Float16Field is storage only: the one operation that accepts it is
+  * `toFloat32`, which converts it back for computation. The conversions are
+  * merged into the kernels on either side of them, so a Float16Field passed
+  * between two kernels costs no extra kernel launches, and the kernels read
+  * and write halves while computing in float.
+  *
+  * @param operation The operation that creates this field.
+  * @param resultType Type of the field.
+  *
+  * @author Dick Carter
+  */
+class Float16Field(operation: Operation,
+                   resultType: FieldType)
+        extends Field(operation, resultType)
+        with CompilerError
+        with SemanticError
+{
+  def this(opcode: Opcode, inputs: Array[Field], fieldType: FieldType) =
+    this(Operation(opcode, inputs, fieldType), fieldType)
+
+  require(resultType.elementType == Float16)
+  require(resultType.tensorOrder <= 1)
+}
@@ -0,0 +1,52 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.compiler.parser.syntaxtree
+
+import cogx.compiler.parser.semantics.SemanticError
+import cogx.compiler.CompilerError
+import cogx.platform.types.{Opcode, FieldType}
+import cogx.compiler.codegenerator.common.FieldPolicies.isIntegerField
+
+/** A scalar or vector field of integers (Uint8, Uint16 or Int32), such as a
+  * label map, a histogram of bin indices, or a raw camera frame, stored in 1,
+  * 2 or 4 bytes per number.
+  *
+  * Like a Float16Field, an IntegerField is storage only: the one operation
+  * that accepts it is `toFloat32`, which converts it back for computation.
+  * Values are rounded to nearest and saturated to the range of the integer
+  * type when the field is written, and the conversions are merged into the
+  * kernels on either side of them. Int32 values beyond 2^24 in magnitude lose
+  * precision once converted to Float32.
+  *
+  * @param operation The operation that creates this field.
+  * @param resultType Type of the field.
+  *
+  * @author Dick Carter
+  */
+class IntegerField(operation: Operation,
+                   resultType: FieldType)
+        extends Field(operation, resultType)
+        with CompilerError
+        with SemanticError
+{
+  def this(opcode: Opcode, inputs: Array[Field], fieldType: FieldType) =
+    this(Operation(opcode, inputs, fieldType), fieldType)
+
+  require(isIntegerField(resultType))
+  require(resultType.tensorOrder <= 1)
+}
@@ -17,7 +17,10 @@
 package cogx.compiler.parser.syntaxtree
 
 import cogx.cogmath.hypercircuit.{Hyperedge, Hypernode}
+import cogx.compiler.parser.op.{ToFloat32Op, YUVToColorFieldOp}
+import cogx.compiler.parser.semantics.SemanticError
 import cogx.platform.types.{FieldType, Opcode}
+import cogx.compiler.codegenerator.common.FieldPolicies.isStorageField
 
 /** A node in the syntax tree.
   *
@@ -33,6 +36,11 @@ class Operation(private[this] var  _opcode: Opcode, _inputs: Array[Field], field
   /** The opcode for the operation. */
   def opcode: Opcode = _opcode
 
+  // Float16 and integer fields are storage only, so the only operations that
+  // may read them are conversions to Float32 (or, for YUV planes, to color).
+  if (!Operation.readsStorageFields(_opcode) && _inputs.exists(in => isStorageField(in.fieldType)))
+    Operation.storageInputError(_opcode, _inputs.map(_.fieldType))
+
   /** Remove reference to the possible large Opcode instance (constant opcode functions may have data references). */
   def releaseResources() { _opcode = null.asInstanceOf[Opcode] }
 
@@ -55,10 +63,21 @@ class Operation(private[this] var  _opcode: Opcode, _inputs: Array[Field], field
 
 }
 
-object Operation {
+object Operation extends SemanticError {
   def apply(opcode: Opcode, inputs: Array[Field], fieldTypes: Array[FieldType]) =
     new Operation(opcode, inputs, fieldTypes)
 
   def apply(opcode: Opcode, inputs: Array[Field], fieldType: FieldType) =
     new Operation(opcode, inputs, Array(fieldType))
+
+  /** True if `opcode` converts Float16 or integer inputs to a computable type. */
+  private def readsStorageFields(opcode: Opcode): Boolean = opcode match {
+    case ToFloat32Op => true
+    case op: YUVToColorFieldOp => true
+    case _ => false
+  }
+
+  private def storageInputError(opcode: Opcode, inputTypes: Array[FieldType]): Nothing =
+    error("'" + opcode + "' cannot read Float16 or integer fields, which must first be converted with toFloat32:\n" +
+      inputTypes.mkString("   inputs: ", ", ", ""))
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.compiler.parser.syntaxtree
+
+import java.nio.{Buffer, ByteBuffer, IntBuffer, ShortBuffer}
+
+import cogx.platform.types.FieldType
+import cogx.platform.types.ElementTypes.{ElementType, Int32, Uint16, Uint8}
+import cogx.compiler.parser.op.{InPlaceSensorInput, PipelinedSensorOp}
+import cogx.compiler.parser.semantics.SemanticError
+import cogx.cogmath.geometry.Shape
+
+import scala.reflect.ClassTag
+
+/** A pipelined sensor of raw 8, 16 or 32-bit integer data, such as the frames
+  * of a camera or depth sensor, which is transferred to the GPU in its packed
+  * form rather than as floats.
+  *
+  * The sensor is an IntegerField whose element type is set by the buffer its
+  * `fill` function writes: a ByteBuffer for Uint8 data, a ShortBuffer for
+  * Uint16 data (values above 32767 are written as the equivalent negative
+  * Shorts), or an IntBuffer for Int32 data. `fill` is passed that buffer,
+  * positioned at 0, as a view of the CPU memory of the sensor's field, and
+  * writes the next input into it in row-major order; the tensors of a vector
+  * sensor are laid out as planes, the first number of every tensor, then the
+  * second, and so on. `fill` returns false, leaving the buffer untouched, if
+  * no new input is available. See Sensor for pipelining, reset hooks and
+  * frame rates.
+  *
+  * Only the packed data crosses the bus. It is expanded to Float32 on the
+  * GPU by `toFloat32(sensor, scale, offset)` (or plain `toFloat32(sensor)`),
+  * which is merged into the kernels that consume it, e.g.
+  * {{{
+  *   val depth = new RawSensor[ShortBuffer](Shape(480, 640), buffer => camera.read(buffer))
+  *   val meters = toFloat32(depth, 0.001f, 0f)
+  * }}}
+  *
+  * @param fieldShape The shape of the field produced by this input.
+  * @param fill Function that writes the next input into the buffer it's given,
+  *        returning false if there is none.
+  * @param resetHook Unit function to be executed upon reset
+  * @param desiredFramesPerSecond Optional parameter that specifies a desired
+  *        frame rate for a synchronous sensor, throttling the sensor if it's
+  *        too fast, gracefully degrading if it's not. If 0, the sensor will
+  *        run as fast as possible.
+  * @param tensorShape The shape of the tensors of the field: Shape() (the
+  *        default) for a scalar sensor, Shape(n) for a vector sensor.
+  *
+  * @author Dick Carter
+  */
+class RawSensor[B <: Buffer](fieldShape: Shape,
+                             val fill: (B) => Boolean,
+                             val resetHook: () => Unit = () => {},
+                             val desiredFramesPerSecond: Double = 0.0,
+                             tensorShape: Shape = Shape())
+                            (implicit bufferClass: ClassTag[B])
+  extends IntegerField(Sensor.shapeToZeroInitOp(fieldShape), Array[Field](),
+    new FieldType(fieldShape, tensorShape, RawSensor.elementType(bufferClass)))
+  with SemanticError
+  with RestoreHooks
+{
+  val op = PipelinedSensorOp(InPlaceSensorInput.pipelined(fill), resetHook, desiredFramesPerSecond)
+
+  // As with Sensor, the restore hooks of the user's subclass are linked to the
+  // field driven by the SensorKernel, which does the saving.
+  val sensor = new IntegerField(op, Array[Field](),
+        new FieldType(fieldShape, tensorShape, RawSensor.elementType(bufferClass))) with RestoreHooks {
+    override def restoreParameters: String = RawSensor.this.restoreParameters
+    override def restoringClass = RawSensor.this.restoringClass
+  }
+  this <== sensor
+}
+
+object RawSensor {
+  /** The element type of the field of a raw sensor whose input is written to
+    * buffers of class `bufferClass`.
+    */
+  private[cogx] def elementType(bufferClass: ClassTag[_]): ElementType = {
+    val clazz = bufferClass.runtimeClass
+    if (clazz == classOf[ByteBuffer])
+      Uint8
+    else if (clazz == classOf[ShortBuffer])
+      Uint16
+    else if (clazz == classOf[IntBuffer])
+      Int32
+    else
+      throw new RuntimeException("raw sensors are filled through a ByteBuffer, ShortBuffer or IntBuffer, not " +
+              clazz.getSimpleName)
+  }
+}
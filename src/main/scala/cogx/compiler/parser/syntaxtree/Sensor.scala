@@ -16,6 +16,8 @@
 
 package cogx.compiler.parser.syntaxtree
 
+import java.nio.FloatBuffer
+
 import cogx.platform.types.FieldType
 import cogx.platform.types.ElementTypes.Float32
 import cogx.compiler.parser.op._
@@ -54,6 +56,12 @@ import scala.reflect.ClassTag
   * put into taking the primary constructor private, with only `nextValue` functions of certain forms allowed (not
   * the generic () => Option[_]).
   *
+  * Instead of `nextValue`, a sensor may be given a `fill` function that writes each new input directly
+  * into the CPU memory of the sensor's field, avoiding the per-element cost of an iterator as well as any
+  * intermediate array. `fill` is passed a FloatBuffer, positioned at 0, of the field's values in
+  * row-major order. A pipelined sensor's `fill` returns false, leaving the buffer untouched, if no
+  * new input is available.
+  *
   * NOTE: if the user wishes to optimize input using, for example, multiple threads or double-buffering,
   * that must be done in the implementation of the function `nextValue`.
   *
@@ -109,6 +117,12 @@ class Sensor(fieldShape: Shape,
             nextValue: () => Option[Iterator[Float]]) =
     this(fieldShape, nextValue, () => {}, 0.0)
 
+  /** Create a sensor of the given Shape whose input is written in place by `fill`. */
+  def this(fieldShape: Shape, fill: (FloatBuffer) => Boolean,
+           resetHook: () => Unit = () => {},
+           desiredFramesPerSecond: Double = 0.0) =
+    this(fieldShape, InPlaceSensorInput.pipelined(fill), resetHook, desiredFramesPerSecond)
+
   /** Create a 0D sensor. */
   def this(nextValue: () => Option[Iterator[Float]],
            resetHook: () => Unit,
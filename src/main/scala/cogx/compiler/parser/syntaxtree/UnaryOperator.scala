@@ -105,6 +105,14 @@ object UnaryOperator extends SemanticError with Logarithm {
           typeError(operation, inType)
         if (inType.tensorShape.points != 3)
           typeError(operation, inType)
+      case op: YUVToColorFieldOp =>
+        requireFieldDim(inType, 2)
+        if (inType.elementType != Uint8 || inType.tensorOrder != 0)
+          typeError(operation, inType)
+        if (inType.rows % 3 != 0 || inType.columns % 2 != 0)
+          error(op.format + " planes must hold an image with an even number of rows and columns, " +
+                "i.e. have a multiple of 3 rows (1.5 times the image's) and an even number of columns, not " +
+                inType.fieldShape)
       case op: ColorPlaneOp =>
         requireFieldDim(inType, 2)
         if (!isColorField(inType))
@@ -246,6 +254,15 @@ object UnaryOperator extends SemanticError with Logarithm {
       case RealToComplexOp =>
         if (!isRealField(inType))
           typeError(operation, inType)
+      case ToFloat16Op =>
+        if (!isRealField(inType) || inType.tensorOrder > 1)
+          typeError(operation, inType)
+      case ToUint8Op | ToUint16Op | ToInt32Op =>
+        if (!isRealField(inType) || inType.tensorOrder > 1)
+          typeError(operation, inType)
+      case ToFloat32Op =>
+        if (!isStorageField(inType))
+          typeError(operation, inType)
       case op: ComplexToRealOp =>
         if (!isComplexField(inType))
           typeError(operation, inType)
@@ -282,6 +299,8 @@ object UnaryOperator extends SemanticError with Logarithm {
         new FieldType(inType.fieldShape, Shape(), Float32)
       case VectorFieldToColorFieldOp =>
         new FieldType(inType.fieldShape, Shape(3), Uint8Pixel)
+      case op: YUVToColorFieldOp =>
+        new FieldType(Shape(inType.rows * 2 / 3, inType.columns), Shape(3), Uint8Pixel)
       case ColorFieldToVectorFieldOp =>
         new FieldType(inType.fieldShape, Shape(3), Float32)
       case op: ColorPlaneOp =>
@@ -352,6 +371,11 @@ object UnaryOperator extends SemanticError with Logarithm {
       case op: FieldReductionOp =>
         inType.resize(Shape())
       case RealToComplexOp => toComplex(inType)
+      case ToFloat16Op => new FieldType(inType.fieldShape, inType.tensorShape, Float16)
+      case ToUint8Op => new FieldType(inType.fieldShape, inType.tensorShape, Uint8)
+      case ToUint16Op => new FieldType(inType.fieldShape, inType.tensorShape, Uint16)
+      case ToInt32Op => new FieldType(inType.fieldShape, inType.tensorShape, Int32)
+      case ToFloat32Op => new FieldType(inType.fieldShape, inType.tensorShape, Float32)
       case op: ComplexToRealOp => toReal(inType)
       case default =>
         inType
@@ -16,15 +16,18 @@
 
 package cogx.compiler.parser.syntaxtree
 
+import java.nio.FloatBuffer
+
 import cogx.compiler.parser.op._
 import cogx.compiler.parser.semantics.SemanticError
 import cogx.cogmath.geometry.Shape
 import cogx.platform.cpumemory.readerwriter.ScalarFieldReader
 import cogx.platform.types.ElementTypes.Float32
 import cogx.platform.types.FieldType
-import Actuator.wrap
+import Actuator.{wrap, wrapBuffer}
 
 import scala.reflect.ClassTag
+import scala.reflect.runtime.universe.TypeTag
 
 /** An output from a Cog computation, called an actuator.
   *
@@ -108,6 +111,7 @@ object UnpipelinedActuator extends SemanticError {
 
   import Actuator.ScalarFieldReaderFunc
   import Actuator.IteratorOfFloatFunc
+  import Actuator.FloatBufferFunc
 
   // 0D or 1D scalar field actuator factory methods
 
@@ -125,12 +129,7 @@ object UnpipelinedActuator extends SemanticError {
             output: Array[Float],
             resetHook: () => Unit): UnpipelinedActuator = {
     checkType(source, output)
-    def update(iterator: Iterator[Float]) {
-      val columns = output.length
-      for (col <- 0 until columns)
-        output(col) = iterator.next()
-    }
-    new UnpipelinedActuator(UnpipelinedActuatorOp(wrap(update), resetHook), source)
+    new UnpipelinedActuator(UnpipelinedActuatorOp((reader: ScalarFieldReader) => reader.get(output), resetHook), source)
   }
 
   /** Create an actuator for a 0D or 1D scalar field `source` that writes the
@@ -161,13 +160,7 @@ object UnpipelinedActuator extends SemanticError {
             output: Array[Array[Float]],
             resetHook: () => Unit): UnpipelinedActuator = {
     checkType(source, output)
-    def update(iterator: Iterator[Float]) {
-      val rows = output.length
-      val columns = output(0).length
-      for (row <- 0 until rows; col <- 0 until columns)
-        output(row)(col) = iterator.next()
-    }
-    new UnpipelinedActuator(UnpipelinedActuatorOp(wrap(update), resetHook), source)
+    new UnpipelinedActuator(UnpipelinedActuatorOp((reader: ScalarFieldReader) => reader.get(output), resetHook), source)
   }
 
   /** Create an actuator for a 2D scalar field `source` that writes the
@@ -198,14 +191,7 @@ object UnpipelinedActuator extends SemanticError {
   def apply(source: Field, output: Array[Array[Array[Float]]],
             resetHook: () => Unit): UnpipelinedActuator = {
     checkType(source, output)
-    def update(iterator: Iterator[Float]) {
-      val layers = output.length
-      val rows = output(0).length
-      val columns = output(0)(0).length
-      for (layer <- 0 until layers; row <- 0 until rows; col <- 0 until columns)
-        output(layer)(row)(col) = iterator.next()
-    }
-    new UnpipelinedActuator(UnpipelinedActuatorOp(wrap(update), resetHook), source)
+    new UnpipelinedActuator(UnpipelinedActuatorOp((reader: ScalarFieldReader) => reader.get(output), resetHook), source)
   }
 
   /** Create an actuator for a 3D scalar field `source` that writes the
@@ -284,6 +270,41 @@ object UnpipelinedActuator extends SemanticError {
   def apply(source: Field, update: IteratorOfFloatFunc)(implicit tt: ClassTag[IteratorOfFloatFunc]): UnpipelinedActuator =
     apply(source, update, () => {})
 
+  /** Create an actuator for a nD scalar field `source` that invokes a
+    * callback function 'newOutput' that is passed a read-only FloatBuffer
+    * view of the field's values in row-major order. The view is of the
+    * actuator's CPU memory, so no copy is made, and it is valid only for the
+    * duration of the callback.
+    *
+    * Reset supplied: YES
+    *
+    * Implicit TypeTag included to disambiguate the signature from those using Function1[Iterator[Float],Unit]
+    * and Function1[ScalarFieldReader,Unit]
+    *
+    * @param source The field to written output to an array each clock cycle.
+    * @param update A callback that is passed a view of the new values.
+    * @param resetHook An optional callback function that is called upon reset.
+    * @return An actuator that writes `source` to `output` each cycle.
+    */
+  def apply(source: Field, update: FloatBufferFunc, resetHook: () => Unit)(implicit tt: TypeTag[FloatBufferFunc]) =
+    new UnpipelinedActuator(UnpipelinedActuatorOp(wrapBuffer(update), resetHook), source)
+
+  /** Create an actuator for a nD scalar field `source` that invokes a
+    * callback function 'newOutput' that is passed a read-only FloatBuffer
+    * view of the field's values in row-major order.
+    *
+    * Reset supplied: NO
+    *
+    * Implicit TypeTag included to disambiguate the signature from those using Function1[Iterator[Float],Unit]
+    * and Function1[ScalarFieldReader,Unit]
+    *
+    * @param source The field to written output to an array each clock cycle.
+    * @param update A callback that is passed a view of the new values.
+    * @return An actuator that writes `source` to `output` each cycle.
+    */
+  def apply(source: Field, update: FloatBufferFunc)(implicit tt: TypeTag[FloatBufferFunc]): UnpipelinedActuator =
+    apply(source, update, () => {})
+
   /** Type checking for Actuator creation.
    *
     * Verifies that `source` is a scalar type, and that the shape of `source`
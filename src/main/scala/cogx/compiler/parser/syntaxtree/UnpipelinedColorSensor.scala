@@ -16,9 +16,11 @@
 
 package cogx.compiler.parser.syntaxtree
 
+import java.nio.ByteBuffer
+
 import cogx.platform.types.FieldType
 import cogx.platform.types.ElementTypes.Uint8Pixel
-import cogx.compiler.parser.op.UnpipelinedColorSensorOp
+import cogx.compiler.parser.op.{InPlaceSensorInput, UnpipelinedColorSensorOp}
 import cogx.compiler.parser.semantics.SemanticError
 import cogx.cogmath.geometry.Shape
 
@@ -46,6 +48,10 @@ import cogx.cogmath.geometry.Shape
   * Both types of sensors supply their next input by `nextValue` function which (optionally) returns an
   * iterator of the values of the new input in row-major order.
   *
+  * Instead of `nextValue`, a sensor may be given a `fill` function, as described for [[UnpipelinedSensor]].
+  * Here `fill` is passed a ByteBuffer holding 4 bytes per pixel (red, green, blue, then an alpha of 0xff)
+  * in row-major order.
+  *
   * NOTE: if the user wishes to optimize input using, for example, multiple threads or double-buffering,
   * that must be done in the implementation of the function `nextValue`.
   *
@@ -87,6 +93,18 @@ class UnpipelinedColorSensor private[cogx] (fieldShape: Shape, op: UnpipelinedCo
   def this(fieldShape: Shape, nextValue: () => Iterator[Byte]) =
     this(fieldShape, UnpipelinedColorSensorOp(nextValue, () => {}, 0.0))
 
+  /** Create a sensor of the given Shape whose input is written in place by `fill`. */
+  def this(fieldShape: Shape, fill: (ByteBuffer) => Unit,
+           resetHook: () => Unit,
+           desiredFramesPerSecond: Double) =
+    this(fieldShape, InPlaceSensorInput.unpipelined(fill), resetHook, desiredFramesPerSecond)
+
+  /** Create a sensor of the given Shape whose input is written in place by `fill`, with no reset hook and no
+    * frames-per-second pacing.
+    */
+  def this(fieldShape: Shape, fill: (ByteBuffer) => Unit) =
+    this(fieldShape, InPlaceSensorInput.unpipelined(fill), () => {}, 0.0)
+
   /** Create a 2D sensor. */
   def this(rows: Int, columns: Int, nextValue: () => Iterator[Byte], resetHook: () => Unit = () => {},
            desiredFramesPerSecond: Double = 0.0) =
@@ -0,0 +1,54 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.compiler.parser.syntaxtree
+
+import java.nio.Buffer
+
+import cogx.platform.types.FieldType
+import cogx.compiler.parser.op.{InPlaceSensorInput, UnpipelinedSensorOp}
+import cogx.compiler.parser.semantics.SemanticError
+import cogx.cogmath.geometry.Shape
+
+import scala.reflect.ClassTag
+
+/** An unpipelined sensor of raw 8, 16 or 32-bit integer data. This is the
+  * unpipelined version of RawSensor, which describes the buffers `fill` is
+  * given; here `fill` must always write the next input.
+  *
+  * @param fieldShape The shape of the field produced by this input.
+  * @param fill Function that writes the next input into the buffer it's given.
+  * @param resetHook Unit function to be executed upon reset
+  * @param desiredFramesPerSecond Optional parameter that specifies a desired
+  *        frame rate for a synchronous sensor, throttling the sensor if it's
+  *        too fast, gracefully degrading if it's not. If 0, the sensor will
+  *        run as fast as possible.
+  * @param tensorShape The shape of the tensors of the field: Shape() (the
+  *        default) for a scalar sensor, Shape(n) for a vector sensor.
+  *
+  * @author Dick Carter
+  */
+class UnpipelinedRawSensor[B <: Buffer](fieldShape: Shape,
+                                        fill: (B) => Unit,
+                                        resetHook: () => Unit = () => {},
+                                        desiredFramesPerSecond: Double = 0.0,
+                                        tensorShape: Shape = Shape())
+                                       (implicit bufferClass: ClassTag[B])
+  extends IntegerField(UnpipelinedSensorOp(InPlaceSensorInput.unpipelined(fill), resetHook, desiredFramesPerSecond),
+    Array[Field](), new FieldType(fieldShape, tensorShape, RawSensor.elementType(bufferClass)))
+  with SemanticError
+  with RestoreHooks
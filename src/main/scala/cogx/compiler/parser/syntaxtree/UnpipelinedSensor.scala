@@ -16,9 +16,11 @@
 
 package cogx.compiler.parser.syntaxtree
 
+import java.nio.FloatBuffer
+
 import cogx.platform.types.FieldType
 import cogx.platform.types.ElementTypes.Float32
-import cogx.compiler.parser.op.{SensorOp, UnpipelinedSensorOp}
+import cogx.compiler.parser.op.{InPlaceSensorInput, SensorOp, UnpipelinedSensorOp}
 import cogx.compiler.parser.semantics.SemanticError
 import cogx.cogmath.geometry.Shape
 
@@ -54,6 +56,11 @@ import scala.reflect.ClassTag
   * put into taking the primary constructor private, with only `nextValue` functions of certain forms allowed (not
   * the generic () => _).
   *
+  * Instead of `nextValue`, a sensor may be given a `fill` function that writes each new input directly
+  * into the CPU memory of the sensor's field, avoiding the per-element cost of an iterator as well as any
+  * intermediate array. `fill` is passed a FloatBuffer, positioned at 0, of the field's values in
+  * row-major order.
+  *
   * NOTE: if the user wishes to optimize input using, for example, multiple threads or double-buffering,
   * that must be done in the implementation of the function `nextValue`.
   *
@@ -100,6 +107,12 @@ class UnpipelinedSensor private[cogx] (fieldShape: Shape, op: UnpipelinedSensorO
   def this(fieldShape: Shape, nextValue: () => Iterator[Float]) =
     this(fieldShape, UnpipelinedSensorOp(nextValue, () => {}, 0.0))
 
+  /** Create a sensor of the given Shape whose input is written in place by `fill`. */
+  def this(fieldShape: Shape, fill: (FloatBuffer) => Unit,
+           resetHook: () => Unit = () => {},
+           desiredFramesPerSecond: Double = 0.0) =
+    this(fieldShape, InPlaceSensorInput.unpipelined(fill), resetHook, desiredFramesPerSecond)
+
   /** Create a 0D sensor. */
   def this(nextValue: () => Iterator[Float],
            resetHook: () => Unit,
@@ -16,9 +16,11 @@
 
 package cogx.compiler.parser.syntaxtree
 
+import java.nio.FloatBuffer
+
 import cogx.platform.types.FieldType
 import cogx.platform.types.ElementTypes.Float32
-import cogx.compiler.parser.op.UnpipelinedVectorSensorOp
+import cogx.compiler.parser.op.{InPlaceSensorInput, UnpipelinedVectorSensorOp}
 import cogx.compiler.parser.semantics.SemanticError
 import cogx.cogmath.geometry.Shape
 import cogx.cogmath.algebra.real.Vector
@@ -47,6 +49,10 @@ import cogx.cogmath.algebra.real.Vector
   * Both types of sensors supply their next input by `nextValue` function which (optionally) returns an
   * iterator of the values of the new input in row-major order.
   *
+  * Instead of `nextValue`, a sensor may be given a `fill` function, as described for [[UnpipelinedSensor]].
+  * Here `fill` is passed a FloatBuffer holding one plane per vector element: the field's values of
+  * element 0 in row-major order, then those of element 1, and so on.
+  *
   * NOTE: if the user wishes to optimize input using, for example, multiple threads or double-buffering,
   * that must be done in the implementation of the function `nextValue`.
   *
@@ -98,6 +104,12 @@ class UnpipelinedVectorSensor private[cogx] (fieldShape: Shape,
   def this(fieldShape: Shape, tensorShape: Shape, nextValue: () => Iterator[Vector]) =
     this(fieldShape, tensorShape, UnpipelinedVectorSensorOp(nextValue, () => {}, 0.0))
 
+  /** Create a vector sensor of the given Shape whose input is written in place by `fill`. */
+  def this(fieldShape: Shape, tensorShape: Shape, fill: (FloatBuffer) => Unit,
+           resetHook: () => Unit = () => {},
+           desiredFramesPerSecond: Double = 0.0) =
+    this(fieldShape, tensorShape, InPlaceSensorInput.unpipelined(fill), resetHook, desiredFramesPerSecond)
+
   /** Feedback to inputs is not allowed. */
   override def <==(that: Field) {
     feedbackError("feedback to sensors is not allowed")
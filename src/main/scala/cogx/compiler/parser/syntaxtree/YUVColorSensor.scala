@@ -0,0 +1,70 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.compiler.parser.syntaxtree
+
+import java.nio.ByteBuffer
+
+import cogx.platform.types.{FieldType, YUVFormat}
+import cogx.platform.types.ElementTypes.Uint8Pixel
+import cogx.compiler.parser.op.YUVToColorFieldOp
+import cogx.cogmath.geometry.Shape
+
+/** A pipelined color sensor whose frames arrive as planar YUV 4:2:0 (NV12 or
+  * I420), the native output of most cameras and video decoders.
+  *
+  * Rather than converting each frame to RGB on the CPU and transferring 4
+  * bytes per pixel, `fill` writes the frame's planes as is, 1.5 bytes per
+  * pixel, into the CPU memory of a Uint8 RawSensor (`planes`). The conversion
+  * to color runs on the GPU in the kernel that produces this field, which has
+  * the same layout as the field of a ColorSensor:
+  * {{{
+  *   val camera = new YUVColorSensor(480, 640, NV12, buffer => decoder.nextFrame(buffer))
+  * }}}
+  * `fill` is passed a ByteBuffer, positioned at 0, of `rows * columns * 3 / 2`
+  * bytes: the Y plane followed by the chroma plane(s) of `format`. It returns
+  * false, leaving the buffer untouched, if no new frame is available. See
+  * Sensor for pipelining, reset hooks and frame rates.
+  *
+  * @param planes The raw sensor holding the YUV planes of each frame.
+  * @param format The plane layout of the frames.
+  * @param fieldShape The shape of the color field produced by this input.
+  *
+  * @author Dick Carter
+  */
+class YUVColorSensor private (val planes: RawSensor[ByteBuffer], val format: YUVFormat, fieldShape: Shape)
+  extends ColorField(YUVToColorFieldOp(format), Array[Field](planes),
+    new FieldType(fieldShape, Shape(3), Uint8Pixel))
+{
+  /** Create a `rows` x `columns` sensor (both even) of frames in `format`.
+    *
+    * @param rows The rows of the images produced by this input.
+    * @param columns The columns of the images produced by this input.
+    * @param format The plane layout (NV12 or I420) that `fill` writes.
+    * @param fill Function that writes the planes of the next frame into the
+    *        buffer it's given, returning false if there is none.
+    * @param resetHook Unit function to be executed upon reset
+    * @param desiredFramesPerSecond Optional parameter that specifies a desired
+    *        frame rate for a synchronous sensor, throttling the sensor if it's
+    *        too fast, gracefully degrading if it's not. If 0, the sensor will
+    *        run as fast as possible.
+    */
+  def this(rows: Int, columns: Int, format: YUVFormat, fill: (ByteBuffer) => Boolean,
+           resetHook: () => Unit = () => {},
+           desiredFramesPerSecond: Double = 0.0) =
+    this(new RawSensor[ByteBuffer](format.planesShape(rows, columns), fill, resetHook, desiredFramesPerSecond),
+      format, Shape(rows, columns))
+}
@@ -135,6 +135,10 @@ trait CogXInterface
   type ComplexVectorField = cogx.compiler.parser.syntaxtree.ComplexVectorField
   val  ComplexVectorField = cogx.compiler.parser.syntaxtree.ComplexVectorField
 
+  type Float16Field = cogx.compiler.parser.syntaxtree.Float16Field
+
+  type IntegerField = cogx.compiler.parser.syntaxtree.IntegerField
+
   //---------------------------------------------------------------------------
   // Field access on the CPU
   //---------------------------------------------------------------------------
@@ -171,6 +175,13 @@ trait CogXInterface
   val  BorderValid = cogx.platform.types.BorderValid
   val  BorderFull = cogx.platform.types.BorderFull
 
+  //---------------------------------------------------------------------------
+  // Plane layouts of YUV 4:2:0 images
+  //---------------------------------------------------------------------------
+  type YUVFormat = cogx.platform.types.YUVFormat
+  val  NV12 = cogx.platform.types.NV12
+  val  I420 = cogx.platform.types.I420
+
   //---------------------------------------------------------------------------
   // Options for convolution / crossCorrelation sampling policy
   //---------------------------------------------------------------------------
@@ -218,6 +229,9 @@ trait CogXInterface
   type UnpipelinedColorSensor = cogx.compiler.parser.syntaxtree.UnpipelinedColorSensor
   type VectorSensor = cogx.compiler.parser.syntaxtree.VectorSensor
   type UnpipelinedVectorSensor = cogx.compiler.parser.syntaxtree.UnpipelinedVectorSensor
+  type RawSensor[B <: java.nio.Buffer] = cogx.compiler.parser.syntaxtree.RawSensor[B]
+  type UnpipelinedRawSensor[B <: java.nio.Buffer] = cogx.compiler.parser.syntaxtree.UnpipelinedRawSensor[B]
+  type YUVColorSensor = cogx.compiler.parser.syntaxtree.YUVColorSensor
 
   type Actuator = cogx.compiler.parser.syntaxtree.Actuator
   val  Actuator = cogx.compiler.parser.syntaxtree.Actuator
@@ -235,6 +249,9 @@ trait CogXInterface
 
   type ComputeGraph = cogx.runtime.ComputeGraph
   val  ComputeGraph = cogx.runtime.ComputeGraph
+  type ProbeSubscription = cogx.runtime.ProbeSubscription
+  type MetricsSnapshot = cogx.runtime.metrics.MetricsSnapshot
+  type CompileReport = cogx.compiler.CompileReport
 
   // Get a string describing the underlying hardware platform.
   def platformDescription: String = cogx.platform.opencl.OpenCLPlatform.descriptor
@@ -47,6 +47,8 @@ object Cog {
   var profile = setBoolean("profile")
   /** Number of steps between writing profile statistics to the console. */
   var profileSize = setInt("profileSize", 10000)
+  /** Keep per-kernel latency histograms and step-phase timings, read through ComputeGraph.metrics. */
+  var metrics = setBoolean("metrics")
   /** Set this true for additional compiler information. This deletes any
     * cached programs, forcing a recompilation that will provide the information.
     * This should always be set false except when debugging.
@@ -76,13 +78,26 @@ object Cog {
   /** Enables the cpu kernel Akka actors to share threads, rather than use a custom dispatcher that gives each actor
     * its own thread.  The system has not been extensively tested with this set to "true" and so may deadlock. */
   var cpuKernelThreadSharing = setBoolean("cpuKernelThreadSharing")
+  /** Run cpu kernels on a shared work-stealing pool, each step being submitted when its input events complete,
+    * rather than giving each kernel an actor (and thread) that blocks waiting on its inputs.  Off by default until
+    * it has seen wider use. */
+  var cpuKernelExecutor = setBoolean("cpuKernelExecutor")
+  /** Number of threads in the cpu kernel executor's pool, with 0 meaning one per available processor. */
+  var cpuKernelThreads = setInt("cpuKernelThreads", default=0)
   /** Allow the kernels to execute in a different order from which they were submitted to the GPU command queues.
     * This will result in bigger model GPU memory usage with sadly no performance boost on current OpenCL platforms. */
   var outOfOrderExecution = setBoolean("outOfOrderExecution")
+  /** Number of command queues per device used to launch kernels.  With more than one, kernels on independent
+    * branches of the circuit may overlap, but field buffers can't be shared as aggressively. */
+  var executionQueues = setInt("executionQueues", default=1)
   /** Enable virtual field registers to share OpenCl buffers */
   val bufferSharing = setBoolean("bufferSharing", default=true)
   /** Enable cpu DirectBuffer memory to be pinned. Only verified to work with NVidia, so leave off by default. */
   val pinnedBuffers = setBoolean("pinnedBuffers", default=false)
+  /** Idle cpu field memory (in MB) each allocator keeps for reuse; the least recently released beyond this is freed. */
+  var fieldMemoryPoolMB = setInt("fieldMemoryPoolMB", default=1024)
+  /** Record where each cpu field memory is allocated, reporting those never released when a ComputeGraph is released. */
+  var fieldMemoryLeakTracking = setBoolean("fieldMemoryLeakTracking", default=false)
   /** Enable warning about user CPU Operators having apply() invoked multiple times- bad if they have mutable state. */
   val checkUserOperators = setBoolean("checkUserOperators", default=true)
   /** The InOrderSharedLatchAllocator before Cog 4.3.6 mishandled some models.  Alert the user if they were effected. */
@@ -110,6 +125,13 @@ object Cog {
   var forceProfiling = setBoolean("forceProfiling", default=false)
   /** Directs the profiler to nuke the profiler cache. */
   var deleteProfilerCache = setBoolean("deleteProfilerCache", default=false)
+  /** Number of threads used by the JVM backend (-Dcog.device=jvm), with 0 meaning one per available processor. */
+  var jvmThreads = setInt("jvmThreads", default=0)
+  /** Have step(count) run its steps back-to-back in the GPU supervisor, rather than issuing one Step request per step. */
+  var batchedStepping = setBoolean("batchedStepping", default=true)
+  /** Launch each step on the GPU before the previous step has completed, overlapping the host's per-step work with
+    * kernel execution.  Actuators may still be running when step() returns; field reads always see the latest step. */
+  var pipelinedStepping = setBoolean("pipelinedStepping", default=false)
   /** Release version, is not automatically discernible from the release jar manifest */
   val defaultReleaseVersion = "5.0.0"
 
@@ -0,0 +1,102 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.platform.checkpoint
+
+import java.nio.ByteBuffer
+import java.security.MessageDigest
+
+/** An ObjectSaver that stores nothing, but accumulates an MD5 digest of
+  * everything written to it, names included. Saving an object's state to a
+  * DigestSaver fingerprints that state, letting delta checkpoints skip state
+  * that hasn't changed since it was last saved.
+  *
+  * @author Dick Carter
+  */
+private[cogx] class DigestSaver extends ObjectSaver {
+  private val digester = MessageDigest.getInstance("MD5")
+  /** Staging area for converting arrays of primitives to bytes. */
+  private val buffer = ByteBuffer.allocate(DigestSaver.BufferBytes)
+
+  /** The digest, as a hex string, of all that has been written. */
+  def digest: String = digester.digest.map("%02x".format(_)).mkString
+
+  /** Digest the contents of `buffer`, leaving it empty. */
+  private def flush() {
+    buffer.flip()
+    digester.update(buffer)
+    buffer.clear()
+  }
+
+  /** Digest the name of a value, and the value's length if it's an array. */
+  private def writeName(name: String, length: Int = -1) {
+    digester.update(name.getBytes("UTF-8"))
+    buffer.putInt(length)
+    flush()
+  }
+
+  /** Digest `length` numbers, each of `bytes` bytes, put into `buffer` by `put`. */
+  private def writeNumbers(length: Int, bytes: Int)(put: (Int) => Unit) {
+    var i = 0
+    while (i < length) {
+      if (buffer.remaining < bytes)
+        flush()
+      put(i)
+      i += 1
+    }
+    flush()
+  }
+
+  def writeInt(name: String, i32: Int) { writeIntArray(name, Array(i32)) }
+  def writeIntArray(name: String, i32Array: Array[Int]) {
+    writeName(name, i32Array.length)
+    writeNumbers(i32Array.length, 4)(i => buffer.putInt(i32Array(i)))
+  }
+  def writeLong(name: String, i64: Long) { writeLongArray(name, Array(i64)) }
+  def writeLongArray(name: String, i64Array: Array[Long]) {
+    writeName(name, i64Array.length)
+    writeNumbers(i64Array.length, 8)(i => buffer.putLong(i64Array(i)))
+  }
+  def writeFloat(name: String, f: Float) { writeFloatArray(name, Array(f)) }
+  def writeFloatArray(name: String, fArray: Array[Float]) {
+    writeName(name, fArray.length)
+    writeNumbers(fArray.length, 4)(i => buffer.putFloat(fArray(i)))
+  }
+  def writeDouble(name: String, d: Double) { writeDoubleArray(name, Array(d)) }
+  def writeDoubleArray(name: String, dArray: Array[Double]) {
+    writeName(name, dArray.length)
+    writeNumbers(dArray.length, 8)(i => buffer.putDouble(dArray(i)))
+  }
+  def writeString(name: String, s: String) { writeStringArray(name, Array(s)) }
+  def writeStringArray(name: String, sArray: Array[String]) {
+    writeName(name, sArray.length)
+    sArray.foreach(s => writeName(s, s.length))
+  }
+  def writeObject(name: String, saveable: Saveable) {
+    writeName(name)
+    saveable.save(this)
+  }
+  def writeObjectArray(name: String, saveables: Array[_ <: Saveable]) {
+    writeName(name, saveables.length)
+    saveables.foreach(_.save(this))
+  }
+  def close() { }
+}
+
+private[cogx] object DigestSaver {
+  /** Size of the staging buffer for arrays. */
+  private val BufferBytes = 64 * 1024
+}
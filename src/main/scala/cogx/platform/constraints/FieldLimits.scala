@@ -29,6 +29,8 @@ trait FieldLimits {
   /** Maximum supported tensor order for tensors in field. */
   val MaxTensorOrder = 2
 
-  /** Maximum size of a field in bytes for fields that need to be accessed by the CPU. */
+  /** Maximum size in bytes of a single NIO buffer. CPU memories of larger
+    * (Float32) fields are split into segments (see SegmentedBuffer).
+    */
   val MaxDirectBufferSizeBytes: Long = Int.MaxValue.toLong
 }
\ No newline at end of file
@@ -18,7 +18,11 @@ package cogx.platform.cpumemory
 
 import cogx.platform.types._
 import com.jogamp.common.nio.Buffers
-import java.nio.{ByteOrder, ByteBuffer, Buffer}
+import java.io.File
+import java.nio.{ByteOrder, ByteBuffer, Buffer, FloatBuffer}
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.atomic.AtomicLong
 import cogx.platform.opencl.OpenCLParallelCommandQueue
 import com.jogamp.opencl.CLBuffer
 import com.jogamp.opencl.CLMemory.{Map, Mem}
@@ -39,23 +43,33 @@ abstract class AbstractFieldMemory(val fieldType: FieldType, val bufferType: Buf
         extends FieldMemoryLayout
         with FieldReader
 {
-  /** The actual memory for the field. */
+  /** True if the field is too big for a single NIO buffer, in which case its
+    * data is held in `segmentedBuffer` and there is no `directBuffer`.
+    */
+  val isSegmented: Boolean =
+    longBufferSizeBytes > math.min(MaxDirectBufferSizeBytes, AbstractFieldMemory.segmentationThresholdBytes)
+
+  /** The actual memory for the field, null for a segmented field memory. */
   protected var _byteBuffer: ByteBuffer = {
     // NIO buffers must be less than 2GB in size because their capacity, limit, position, etc. are
     // Int fields.  One might think that FloatBuffers could be 4X bigger, but such is not the case since
-    // they are created as ByteBuffer.asFloatBuffer.  If we're asking here to create a ByteBuffer >= 2GB
-    // in size, it's time to throw an exception, which we do here by referencing 'bufferSizeBytes', which
-    // returns the size as an Int, but only if this is possible
-    bufferType match {
-      case PinnedDirectBuffer =>
-        AbstractFieldMemory.allocatePinnedDirectByteBuffer(bufferSizeBytes, commandQueue)
-      case DirectBuffer =>
-        AbstractFieldMemory.allocateDirectByteBuffer(bufferSizeBytes)
-      case IndirectBuffer =>
-        AbstractFieldMemory.allocateIndirectByteBuffer(bufferSizeBytes)
-    }
+    // they are created as ByteBuffer.asFloatBuffer.  Bigger fields are held in a SegmentedBuffer.
+    if (isSegmented)
+      null
+    else
+      AbstractFieldMemory.allocateByteBuffer(0L, bufferSizeBytes, bufferType, commandQueue)
   }
 
+  /** The memory for a field too big for a single NIO buffer, otherwise null. */
+  protected var _segmentedBuffer: SegmentedBuffer =
+    if (isSegmented)
+      new SegmentedBuffer(longBufferSizeBytes, AbstractFieldMemory.segmentBytes,
+        (offsetBytes, bytes) => AbstractFieldMemory.allocateByteBuffer(offsetBytes, bytes, bufferType, commandQueue))
+    else
+      null
+
+  /** The segments holding the data of a segmented field memory (see isSegmented). */
+  private[cogx] def segmentedBuffer: SegmentedBuffer = _segmentedBuffer
 
   protected var _directBuffer: Buffer = null
 
@@ -69,37 +83,71 @@ abstract class AbstractFieldMemory(val fieldType: FieldType, val bufferType: Buf
     */
   def directBuffer: Buffer
 
+  /** Read the float at `index` of a Float32 field memory, segmented or not. */
+  protected final def floatAt(index: Long): Float =
+    if (_segmentedBuffer == null)
+      _directBuffer.asInstanceOf[FloatBuffer].get(index.toInt)
+    else
+      _segmentedBuffer.getFloat(index)
+
+  /** Write `value` to the float at `index` of a Float32 field memory, segmented or not. */
+  protected final def putFloatAt(index: Long, value: Float) {
+    if (_segmentedBuffer == null)
+      _directBuffer.asInstanceOf[FloatBuffer].put(index.toInt, value)
+    else
+      _segmentedBuffer.putFloat(index, value)
+  }
+
+  /** Read all the floats of a Float32 field memory, padding included, with bulk copies. */
+  protected final def paddedFloats: Array[Float] = {
+    val array = new Array[Float](bufferSize)
+    if (_segmentedBuffer == null)
+      BulkCopy.get(_directBuffer.asInstanceOf[FloatBuffer], 0, array, 0, bufferSize)
+    else
+      _segmentedBuffer.get(0L, array, 0, bufferSize)
+    array
+  }
+
   /** Copy the data in `this` to another field memory.
     *
     * @param that Field memory to receive a copy of the data in this.
     */
   def copyTo(that: AbstractFieldMemory) {
     require(this.fieldType == that.fieldType)
-    val sourceBuf = this._byteBuffer.duplicate() // makes this routine thread-safe
-    that._byteBuffer.clear  // prepare for writing
-    sourceBuf.rewind // prepare for reading
-    that._byteBuffer.put(sourceBuf)
-    that._byteBuffer.flip   // writing done, prepare for reading
+    if (isSegmented)
+      this._segmentedBuffer.copyTo(that._segmentedBuffer)
+    else {
+      // The copy works through duplicates, so neither buffer's position moves.
+      BulkCopy.copy(this._byteBuffer, that._byteBuffer)
+      that._byteBuffer.clear
+    }
   }
 
   private var _destroyed = false
   def destroyed = _destroyed
 
+  /** Free the memory holding the field's data. Direct and file-mapped
+    * buffers are freed immediately (see DirectBufferCleaner), so this must
+    * only be called once nothing can touch the memory again. Pinned buffers
+    * were mapped by the OpenCL runtime, which owns their memory, so those are
+    * only dropped.
+    */
   private[cpumemory] def destroyDirectBuffer() {
-    if (_byteBuffer != null) {
-      // Note: DirectBuffer memory exhaustion problems can often be solved through a JVM arg such as:
-      //
-      // -XX:MaxDirectMemorySize=20g
-
-      // By removing our references to the ByteBuffers below, we can let the garbage collector
-      // destroy those fairly lightweight heap objects, thereby triggering a release of
-      // the underlying non-heap storage.  There might be a lurking timing issue though,
-      // as an exhaustion of non-heap direct buffer memory may not trigger the needed
-      // heap-memory garbage collection.  Below would be the best location to insert a
-      // "direct buffer cleaner" if needed, such as:
-//      DirectBufferCleaner(_byteBuffer)
+    if (_byteBuffer != null || _segmentedBuffer != null) {
+      // Direct buffers are freed here rather than left to the garbage collector, since an exhaustion
+      // of non-heap direct buffer memory may not trigger the heap-memory garbage collection needed
+      // to reclaim them.
+      val buffers = if (_segmentedBuffer != null) _segmentedBuffer.segments.toSeq else Seq(_byteBuffer)
       _byteBuffer = null
+      _segmentedBuffer = null
       _directBuffer = null
+      bufferType match {
+        case DirectBuffer | MappedBuffer(_, _, _) =>
+          buffers.foreach(DirectBufferCleaner.free(_))
+        case _ =>
+      }
+      if (AbstractFieldMemory.isOffHeap(bufferType))
+        AbstractFieldMemory.offHeap.addAndGet(-longBufferSizeBytes)
     }
     _destroyed = true
   }
@@ -109,6 +157,84 @@ abstract class AbstractFieldMemory(val fieldType: FieldType, val bufferType: Buf
 }
 
 object AbstractFieldMemory {
+  /** Bytes of direct and pinned buffers allocated for field memories and not yet freed. */
+  private[cpumemory] val offHeap = new AtomicLong
+
+  /** Field memories bigger than this are segmented even though they would fit a single NIO buffer.
+    * Only tests lower this, so that the segmented code paths can be run on small fields.
+    */
+  private[cpumemory] var segmentationThresholdBytes = Long.MaxValue
+
+  /** Size in bytes (a power of two) of each segment but the last of a segmented field memory. */
+  private[cpumemory] var segmentBytes = SegmentedBuffer.DefaultSegmentBytes
+
+  /** Bytes of off-heap (direct or pinned) memory held by all live field memories. */
+  def offHeapBytes: Long = offHeap.get
+
+  /** True if buffers of type `bufferType` are held outside the Java heap and
+    * count towards -XX:MaxDirectMemorySize (or pinned host memory).
+    */
+  private[cpumemory] def isOffHeap(bufferType: BufferType) =
+    bufferType == DirectBuffer || bufferType == PinnedDirectBuffer
+
+  /** Allocates a ByteBuffer of type `bufferType` with native ordering.
+    *
+    * @param offsetBytes Byte offset of the buffer within the field memory,
+    *        non-zero only for the later segments of a segmented memory.
+    * @param bytes Number of bytes in the buffer
+    * @param bufferType Type of buffer to allocate.
+    * @param commandQueue Command queue needed for pinned buffers.
+    * @return A byte buffer of the requested type.
+    */
+  private[cpumemory] def allocateByteBuffer(offsetBytes: Long, bytes: Int, bufferType: BufferType,
+                                            commandQueue: OpenCLParallelCommandQueue): ByteBuffer =
+  {
+    val buffer = bufferType match {
+      case PinnedDirectBuffer =>
+        allocatePinnedDirectByteBuffer(bytes, commandQueue)
+      case DirectBuffer =>
+        allocateDirectByteBuffer(bytes)
+      case IndirectBuffer =>
+        allocateIndirectByteBuffer(bytes)
+      case MappedBuffer(file, fileOffsetBytes, writable) =>
+        mapFileRegion(file, fileOffsetBytes + offsetBytes, bytes, writable)
+    }
+    if (isOffHeap(bufferType))
+      offHeap.addAndGet(bytes)
+    buffer
+  }
+
+  /** Maps a region of a file into memory as a ByteBuffer with native ordering.
+    *
+    * The file is closed once mapped; the mapping remains valid until it is
+    * unmapped by destroyDirectBuffer().
+    *
+    * @param file The file to map.
+    * @param offsetBytes Byte offset of the region within the file.
+    * @param bytes Number of bytes in the region.
+    * @param writable True for a read-write mapping (extending or creating the
+    *        file if need be), false for a read-only mapping of an existing file.
+    * @return A mapped byte buffer.
+    */
+  private[cpumemory] def mapFileRegion(file: File, offsetBytes: Long, bytes: Int, writable: Boolean): ByteBuffer = {
+    val channel =
+      if (writable)
+        FileChannel.open(file.toPath, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)
+      else
+        FileChannel.open(file.toPath, StandardOpenOption.READ)
+    try {
+      if (!writable && channel.size < offsetBytes + bytes)
+        throw new RuntimeException(s"File $file holds ${channel.size} bytes, too few for $bytes bytes " +
+          s"of field data at offset $offsetBytes.")
+      val mode = if (writable) FileChannel.MapMode.READ_WRITE else FileChannel.MapMode.READ_ONLY
+      val buffer = channel.map(mode, offsetBytes, bytes)
+      buffer.order(ByteOrder.nativeOrder)
+      buffer
+    }
+    finally
+      channel.close()
+  }
+
   /** Allocates a direct ByteBuffer with native ordering.
     *
     * @param bytes Number of bytes in the buffer
@@ -119,20 +245,19 @@ object AbstractFieldMemory {
       // Buffers documentation claims this always allocates native order.
       Buffers.newDirectByteBuffer(bytes)
     } catch {
-      case e: com.jogamp.opencl.CLException =>
-        println(e.toString)
+      case e: OutOfMemoryError =>
+        // Field memories free their buffers when destroyed, but direct buffers dropped elsewhere
+        // are only reclaimed when the garbage collector finds them.
         System.gc()
         try {
           Buffers.newDirectByteBuffer(bytes)
         } catch {
-          case x: com.jogamp.opencl.CLException =>
-            println(x.toString)
-            System.gc()
-            Buffers.newDirectByteBuffer(bytes)
+          case x: OutOfMemoryError =>
+            val error = new OutOfMemoryError(s"Cannot allocate a direct buffer of $bytes bytes, with " +
+              s"${offHeapBytes} bytes already held by field memories (see -XX:MaxDirectMemorySize).")
+            error.initCause(x)
+            throw error
         }
-      case x: Throwable =>
-        println(x.toString)
-        throw x
     }
   }
 
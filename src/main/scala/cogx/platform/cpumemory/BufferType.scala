@@ -16,6 +16,8 @@
 
 package cogx.platform.cpumemory
 
+import java.io.File
+
 /** Types of Java Buffers used to hold AbstractFieldMemory data.
   *
   * @author Greg Snider
@@ -41,4 +43,21 @@ case object DirectBuffer extends BufferType
   * care.
   */
 private[cogx]
-case object PinnedDirectBuffer extends BufferType
\ No newline at end of file
+case object PinnedDirectBuffer extends BufferType
+
+/** A buffer mapped from a region of a file (see FileChannel.map), off the
+  * heap. Its pages are read from the file lazily, on first touch, and are
+  * shared through the OS page cache with other mappings of the file, even
+  * those of other processes, so large data sets need not be copied into heap
+  * or direct memory. The region holds the field in the memory's own layout
+  * (see FieldMemoryLayout) with native byte order, as left by a writable
+  * mapping.
+  *
+  * @param file The file holding the field data.
+  * @param offsetBytes Byte offset of the field data within the file.
+  * @param writable True for a read-write mapping whose writes go to the file,
+  *        false for a read-only mapping whose writes throw a
+  *        ReadOnlyBufferException.
+  */
+private[cogx]
+case class MappedBuffer(file: File, offsetBytes: Long, writable: Boolean) extends BufferType
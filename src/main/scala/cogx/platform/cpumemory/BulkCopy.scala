@@ -0,0 +1,138 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.platform.cpumemory
+
+import java.nio.{ByteBuffer, FloatBuffer}
+
+import cogx.utilities.ParallelLoop
+
+/** Bulk transfers between field memory buffers and Scala arrays.
+  *
+  * Every transfer is made with the NIO bulk get/put calls, one per (padded)
+  * row for row-structured transfers, so the JVM can use memcpy-like block
+  * moves. Large transfers are split across the ParallelLoop fork-join pool, each
+  * task working through its own duplicate of the buffer so that the buffer's
+  * position is never disturbed. Transfers smaller than FloatsPerTask run on
+  * the calling thread.
+  *
+  * @author Dick Carter
+  */
+private[cogx]
+object BulkCopy {
+
+  /** Floats moved by one task (1 MB); big enough that task overhead is negligible. */
+  val FloatsPerTask = 256 * 1024
+
+  /** Copy `length` floats from `src`, starting at `srcIndex`, into `dst` starting at `dstIndex`. */
+  def put(src: Array[Float], srcIndex: Int, dst: FloatBuffer, dstIndex: Int, length: Int) {
+    ParallelLoop(length, FloatsPerTask) { (from, until) =>
+      val buffer = dst.duplicate
+      buffer.position(dstIndex + from)
+      buffer.put(src, srcIndex + from, until - from)
+    }
+  }
+
+  /** Copy `length` floats from `src`, starting at `srcIndex`, into `dst` starting at `dstIndex`. */
+  def get(src: FloatBuffer, srcIndex: Int, dst: Array[Float], dstIndex: Int, length: Int) {
+    ParallelLoop(length, FloatsPerTask) { (from, until) =>
+      val buffer = src.duplicate
+      buffer.position(srcIndex + from)
+      buffer.get(dst, dstIndex + from, until - from)
+    }
+  }
+
+  /** Copy all the bytes of `src` to `dst`, which must be at least as large. */
+  def copy(src: ByteBuffer, dst: ByteBuffer) {
+    val length = src.capacity
+    require(dst.capacity >= length, s"BulkCopy.copy() overrun: $length bytes into ${dst.capacity}")
+    ParallelLoop(length, 4 * FloatsPerTask) { (from, until) =>
+      val source = src.duplicate
+      source.limit(until).position(from)
+      val destination = dst.duplicate
+      destination.position(from)
+      destination.put(source)
+    }
+  }
+
+  /** Copy `rowCount` rows of `columns` floats into `dst`, the rows of which
+    * start every `dstRowStride` floats from `dstIndex`. Any padding at the end
+    * of a row in `dst` is zeroed.
+    *
+    * @param src Supplies the array holding each row, by row index.
+    */
+  def putRows(src: (Int) => Array[Float], rowCount: Int, columns: Int,
+              dst: FloatBuffer, dstIndex: Int, dstRowStride: Int)
+  {
+    val padding = new Array[Float](dstRowStride - columns)
+    forRows(rowCount, dstRowStride) { (from, until) =>
+      val buffer = dst.duplicate
+      buffer.position(dstIndex + from * dstRowStride)
+      for (row <- from until until) {
+        val data = src(row)
+        require(data.length == columns,
+          s"Mismatched column array in bulk copy, expecting $columns, saw ${data.length}.")
+        buffer.put(data)
+        if (padding.length > 0)
+          buffer.put(padding)
+      }
+    }
+  }
+
+  /** Copy `rowCount` rows of `columns` floats from `src`, the rows of which
+    * start every `srcRowStride` floats from `srcIndex`, skipping any padding.
+    *
+    * @param dst Supplies the array to receive each row, by row index.
+    */
+  def getRows(src: FloatBuffer, srcIndex: Int, srcRowStride: Int,
+              dst: (Int) => Array[Float], rowCount: Int, columns: Int)
+  {
+    forRows(rowCount, srcRowStride) { (from, until) =>
+      val buffer = src.duplicate
+      for (row <- from until until) {
+        val data = dst(row)
+        require(data.length == columns,
+          s"Mismatched column array in bulk copy, expecting $columns, saw ${data.length}.")
+        buffer.position(srcIndex + row * srcRowStride)
+        buffer.get(data)
+      }
+    }
+  }
+
+  /** Copy `rowCount` rows of `columns` floats from `src`, the rows of which
+    * start every `srcRowStride` floats from `srcIndex`, to consecutive
+    * locations of `dst` starting at `dstIndex`, thereby removing any padding.
+    */
+  def getRows(src: FloatBuffer, srcIndex: Int, srcRowStride: Int,
+              dst: Array[Float], dstIndex: Int, rowCount: Int, columns: Int)
+  {
+    if (srcRowStride == columns)
+      get(src, srcIndex, dst, dstIndex, rowCount * columns)
+    else
+      forRows(rowCount, srcRowStride) { (from, until) =>
+        val buffer = src.duplicate
+        for (row <- from until until) {
+          buffer.position(srcIndex + row * srcRowStride)
+          buffer.get(dst, dstIndex + row * columns, columns)
+        }
+      }
+  }
+
+  /** Run `body` over pieces of [0, rowCount), each of about FloatsPerTask floats. */
+  private def forRows(rowCount: Int, rowStride: Int)(body: (Int, Int) => Unit) {
+    ParallelLoop(rowCount, math.max(1, FloatsPerTask / math.max(1, rowStride)))(body)
+  }
+}
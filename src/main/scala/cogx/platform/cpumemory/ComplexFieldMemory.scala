@@ -84,12 +84,7 @@ final class ComplexFieldMemory private[cpumemory] (fieldType: FieldType,
   }
 
   /** Read the entire field as a flat array; used only for testing. */
-  private[cogx] def readAsPaddedArray: Array[Float] = {
-    val array = new Array[Float](bufferSize)
-    for (i <- 0 until bufferSize)
-      array(i) = directBuffer.get(i)
-    array
-  }
+  private[cogx] def readAsPaddedArray: Array[Float] = paddedFloats
 
   /** Write `out` to a 0D vector field. */
   def write(out: Complex) {
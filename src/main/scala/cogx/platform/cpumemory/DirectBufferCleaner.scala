@@ -0,0 +1,94 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.platform.cpumemory
+
+import java.lang.reflect.Method
+import java.nio.ByteBuffer
+
+/** Frees the native memory of a direct or file-mapped ByteBuffer immediately,
+  * rather than whenever the garbage collector gets around to collecting the
+  * buffer object.
+  *
+  * The JDK has no public API for this. On Java 9 and later it's done by
+  * sun.misc.Unsafe.invokeCleaner, on Java 8 by the buffer's own Cleaner; both
+  * are found by reflection so that this compiles against either. If neither
+  * is available, buffers are left to the garbage collector as before.
+  *
+  * The freed buffer, and any view or duplicate of it, must never be touched
+  * again: the JVM does not guard against access to freed native memory.
+  *
+  * @author Dick Carter
+  */
+private[cogx]
+object DirectBufferCleaner {
+
+  /** The function that frees a buffer on this JVM, if there is one. */
+  private val cleaner: Option[(ByteBuffer) => Unit] = java9Cleaner orElse java8Cleaner
+
+  /** True if buffers can be freed on this JVM. */
+  def available: Boolean = cleaner.isDefined
+
+  /** Free the native memory of `buffer`, which must be a direct buffer that
+    * owns its memory (not a slice, duplicate or view of another buffer).
+    *
+    * @return True if the memory was freed, false if it's left to the garbage collector.
+    */
+  def free(buffer: ByteBuffer): Boolean = cleaner match {
+    case Some(clean) if buffer != null && buffer.isDirect =>
+      try {
+        clean(buffer)
+        true
+      }
+      catch {
+        case e: Exception => false
+      }
+    case _ =>
+      false
+  }
+
+  /** The cleaner of Java 9+: Unsafe.invokeCleaner(buffer). */
+  private def java9Cleaner: Option[(ByteBuffer) => Unit] =
+    try {
+      val unsafeClass = Class.forName("sun.misc.Unsafe")
+      val invokeCleaner = unsafeClass.getMethod("invokeCleaner", classOf[ByteBuffer])
+      val theUnsafe = unsafeClass.getDeclaredField("theUnsafe")
+      theUnsafe.setAccessible(true)
+      val unsafe = theUnsafe.get(null)
+      Some((buffer: ByteBuffer) => invokeCleaner.invoke(unsafe, buffer))
+    }
+    catch {
+      case e: Exception => None
+    }
+
+  /** The cleaner of Java 8: ((DirectBuffer) buffer).cleaner().clean(). */
+  private def java8Cleaner: Option[(ByteBuffer) => Unit] =
+    try {
+      val cleanerMethod: Method = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner")
+      val cleanMethod: Method = Class.forName("sun.misc.Cleaner").getMethod("clean")
+      Some((buffer: ByteBuffer) => {
+        val bufferCleaner = cleanerMethod.invoke(buffer)
+        // Slices, duplicates and views have no cleaner; their memory belongs to another buffer.
+        if (bufferCleaner == null)
+          throw new IllegalArgumentException("buffer does not own its memory")
+        cleanMethod.invoke(bufferCleaner)
+      })
+    }
+    catch {
+      case e: Exception => None
+    }
+}
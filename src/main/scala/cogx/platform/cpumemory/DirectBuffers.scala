@@ -91,8 +91,9 @@ object DirectBuffers {
 
   /** Allocate a direct buffer for communication with the GPU.
     *
-    * This will allocate a pinned, direct buffer if small enough (< 2GB, a
-    * limitation of OpenCL), otherwise an unpinned, direct buffer.
+    * This will allocate a pinned, direct buffer, which must be smaller than
+    * 2GB (a limitation of OpenCL and of NIO buffers). Larger field memories
+    * are segmented (see SegmentedBuffer), allocating each segment here.
     *
     * @param commandQueue CommandQueue that will use
     * @param bytes Number of bytes in the buffer
@@ -104,23 +105,21 @@ object DirectBuffers {
   def allocate(commandQueue: CLCommandQueue,
                bytes: Long, toGPU: Boolean): ByteBuffer =
   {
-    if (bytes <= MaxPinnedBytes) {
-      val context = commandQueue.getContext
-      commandQueue.synchronized  {
-        if (toGPU) {
-          // Create a "half" buffer with CPU memory but no GPU memory.
-          val clBuffer = context.createBuffer(bytes.toInt, ToGPUPinnedBuffer)
-          // Get the byte buffer.
-          commandQueue.putMapBuffer(clBuffer, CLMemory.Map.WRITE, true)
-        } else {
-          // Create a "half" buffer with CPU memory but no GPU memory.
-          val clBuffer = context.createBuffer(bytes.toInt, FromGPUPinnedBuffer)
-          // Get the byte buffer.
-          commandQueue.putMapBuffer(clBuffer, CLMemory.Map.READ, true)
-        }
+    require(bytes <= MaxPinnedBytes,
+      s"Direct buffer of $bytes bytes exceeds the 2GB limit; larger field memories must be segmented")
+    val context = commandQueue.getContext
+    commandQueue.synchronized  {
+      if (toGPU) {
+        // Create a "half" buffer with CPU memory but no GPU memory.
+        val clBuffer = context.createBuffer(bytes.toInt, ToGPUPinnedBuffer)
+        // Get the byte buffer.
+        commandQueue.putMapBuffer(clBuffer, CLMemory.Map.WRITE, true)
+      } else {
+        // Create a "half" buffer with CPU memory but no GPU memory.
+        val clBuffer = context.createBuffer(bytes.toInt, FromGPUPinnedBuffer)
+        // Get the byte buffer.
+        commandQueue.putMapBuffer(clBuffer, CLMemory.Map.READ, true)
       }
-    } else {
-      throw new RuntimeException("Direct buffers larger than 2GB not yet supported")
     }
   }
 }
\ No newline at end of file
@@ -16,25 +16,101 @@
 
 package cogx.platform.cpumemory
 
+import java.io.File
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+import scala.collection.JavaConverters._
+
+import cogx.parameters.Cog
 import cogx.platform.types._
 import cogx.platform.types.ElementTypes._
 import cogx.platform.opencl.OpenCLParallelCommandQueue
-import scala.collection.mutable
-import scala.collection.mutable.ArrayBuffer
+
+/** Counters of a FieldMemory allocator's pool.
+  *
+  * @param hits Allocations satisfied by an idle memory from the pool.
+  * @param misses Allocations that created a new memory.
+  * @param evictions Idle memories freed to keep the pool within its budget.
+  * @param idleBytes Bytes held by idle memories waiting in the pool for reuse.
+  * @param residentBytes Bytes held by all live memories created by the
+  *        allocator, idle or in use. For file-mapped memories this is the
+  *        size of the mapping; the OS decides how much of it is in RAM.
+  * @param offHeapResidentBytes The part of residentBytes held in direct
+  *        (possibly pinned) buffers, outside the Java heap.
+  */
+case class FieldMemoryPoolStats(hits: Long, misses: Long, evictions: Long, idleBytes: Long,
+                                residentBytes: Long, offHeapResidentBytes: Long)
+{
+  /** Fraction of allocations satisfied from the pool. */
+  def hitRate: Double = if (hits + misses == 0) 0.0 else hits.toDouble / (hits + misses)
+}
+
+/** A field memory that was allocated but never released, found by leak
+  * tracking (see Cog.fieldMemoryLeakTracking).
+  *
+  * @param fieldType The type of the memory's field.
+  * @param bufferType The type of buffer holding the memory's data.
+  * @param bytes Bytes held by the memory.
+  * @param allocationSite The stack of the thread that allocated the memory.
+  */
+case class FieldMemoryLeak(fieldType: FieldType, bufferType: BufferType, bytes: Long,
+                           allocationSite: Seq[StackTraceElement])
+{
+  override def toString =
+    s"$bytes bytes of $bufferType for $fieldType, allocated at:" + allocationSite.mkString("\n    ", "\n    ", "")
+}
 
 /** A class for producing a field memory from a field type.
+  *
+  * Released memories are pooled for reuse by later allocations of the same
+  * field type and buffer type (for mapped memories, the same mapping of the
+  * same file region). Each such pairing has its own lock, so
+  * allocations of different types don't contend. The pool holds at most
+  * `budgetBytes` of idle memory: a release that takes it over the budget
+  * frees the least recently released idle memories until it is back within
+  * it. Memory in use is never freed by the pool, whatever the budget.
+  * Freed direct and file-mapped memory is returned to the OS immediately,
+  * not when the garbage collector next runs.
+  *
+  * With Cog.fieldMemoryLeakTracking set, the allocator remembers where each
+  * memory was allocated, and destroyAll reports the memories still in use,
+  * i.e. never released back to the pool.
+  *
+  * @param budgetBytes The most idle memory (in bytes) to keep for reuse.
   *
   * @author Greg Snider
   */
 
-class FieldMemory private {
+class FieldMemory private (val budgetBytes: Long) {
+
+  /** An idle memory in the pool, with its size and the order of its release. */
+  private case class IdleMemory(memory: AbstractFieldMemory, bytes: Long, releaseNumber: Long)
 
-  private val indirectPool =
-    new mutable.HashMap[FieldType, ArrayBuffer[AbstractFieldMemory]]
-  private val directPool =
-    new mutable.HashMap[FieldType, ArrayBuffer[AbstractFieldMemory]]
-  private val pinnedPool =
-    new mutable.HashMap[FieldType, ArrayBuffer[AbstractFieldMemory]]
+  /** The idle memories of one field type and buffer type, least recently
+    * released first. Guarded by its own lock.
+    */
+  private class Bucket {
+    val idle = new java.util.ArrayDeque[IdleMemory]
+  }
+
+  private val buckets = new ConcurrentHashMap[(BufferType, FieldType), Bucket]
+
+  /** Numbers releases so that the least recently released memory can be found. */
+  private val releases = new AtomicLong
+  private val hits = new AtomicLong
+  private val misses = new AtomicLong
+  private val evictions = new AtomicLong
+  private val idleBytes = new AtomicLong
+  private val residentBytes = new AtomicLong
+  private val offHeapResidentBytes = new AtomicLong
+
+  /** Allocation sites of the live memories created by this allocator, if tracking leaks. */
+  private val allocationSites: ConcurrentHashMap[AbstractFieldMemory, Throwable] =
+    if (Cog.fieldMemoryLeakTracking) new ConcurrentHashMap[AbstractFieldMemory, Throwable] else null
+
+  /** Serializes evictions, which must look across all the buckets. */
+  private val evictionLock = new Object
 
   /** Create a field memory backed by an indirect buffer.
     *
@@ -65,6 +141,50 @@ class FieldMemory private {
     allocate(fieldType, PinnedDirectBuffer, commandQueue)
   }
 
+  /** Create a field memory backed by a region of a file mapped into memory.
+    *
+    * The field data is paged in from the file as it's touched and is shared
+    * with other mappings of the file through the OS page cache, so a large
+    * constant field or data set can be used without first being copied into
+    * heap or direct memory. The region holds the field in the memory's
+    * layout, as left by an earlier writable mapping, e.g. one filled by
+    * `copyTo` from another memory of the same field type.
+    *
+    * @param fieldType The type of the desired field memory.
+    * @param file The file holding the field data.
+    * @param offsetBytes Byte offset of the field data within the file.
+    * @param writable True to map the region read-write (creating or extending
+    *        the file if need be), false to map an existing region read-only.
+    * @return The mapped field memory, which may be upcast to the appropriate
+    *         class based on fieldType.
+    */
+  def mapped(fieldType: FieldType, file: File, offsetBytes: Long = 0L, writable: Boolean = false) =
+    allocate(fieldType, MappedBuffer(file, offsetBytes, writable))
+
+  /** The counters of this allocator's pool. */
+  def stats = FieldMemoryPoolStats(hits.get, misses.get, evictions.get, idleBytes.get,
+    residentBytes.get, offHeapResidentBytes.get)
+
+  /** The bucket for memories of `fieldType` and `bufferType`, created if need be. */
+  private def bucket(bufferType: BufferType, fieldType: FieldType): Bucket = {
+    val key = (bufferType, fieldType)
+    val existing = buckets.get(key)
+    if (existing != null)
+      existing
+    else {
+      val created = new Bucket
+      val raced = buckets.putIfAbsent(key, created)
+      if (raced != null) raced else created
+    }
+  }
+
+  /** Account for the creation (positive `bytes`) or freeing (negative) of memory. */
+  private def addResident(bufferType: BufferType, bytes: Long) {
+    residentBytes.addAndGet(bytes)
+    if (bufferType == DirectBuffer || bufferType == PinnedDirectBuffer)
+      offHeapResidentBytes.addAndGet(bytes)
+  }
+
   /** Allocate an AbstractFieldMemory from the pool.
     *
     * @param fieldType The type of the desired memory.
@@ -75,48 +195,69 @@ class FieldMemory private {
   private def allocate(fieldType: FieldType,
                        bufferType: BufferType, commandQueue: OpenCLParallelCommandQueue = null): AbstractFieldMemory =
   {
-    var memory: AbstractFieldMemory = null
-    val pool = bufferType match {
-      case IndirectBuffer => indirectPool
-      case DirectBuffer => directPool
-      case PinnedDirectBuffer => pinnedPool
+    val pool = bucket(bufferType, fieldType)
+    // Take the most recently released memory, the one most likely to still be in the caches.
+    val reused = pool.synchronized { pool.idle.pollLast() }
+    if (reused != null) {
+      hits.incrementAndGet()
+      idleBytes.addAndGet(-reused.bytes)
+      reused.memory
     }
-    synchronized {
-      if (!pool.contains(fieldType))
-        pool(fieldType) = new ArrayBuffer[AbstractFieldMemory]
-      val bucket = pool(fieldType)
-      if (bucket.size == 0) {
-        val memory =     fieldType.elementType match {
-          case Uint8Pixel =>
-            new ColorFieldMemory(fieldType, bufferType, commandQueue)
-          case Complex32 =>
-            fieldType.tensorShape.dimensions match {
-              case 0 =>
-                new ComplexFieldMemory(fieldType, bufferType, commandQueue)
-              case 1 =>
-                new ComplexVectorFieldMemory(fieldType, bufferType, commandQueue)
-              case x =>
-                throw new RuntimeException("unsupported tensor dimensions: " + x)
-            }
-          case Float32 =>
-            fieldType.tensorShape.dimensions match {
-              case 0 =>
-                new ScalarFieldMemory(fieldType, bufferType, commandQueue)
-              case 1 =>
-                new VectorFieldMemory(fieldType, bufferType, commandQueue)
-              case 2 =>
-                new MatrixFieldMemory(fieldType, bufferType, commandQueue)
-              case x =>
-                throw new RuntimeException("unsupported tensor dimensions: " + x)
-            }
-          case x =>
-            throw new RuntimeException("unsupported field element type: " + x)
-        }
-        bucket += memory
+    else {
+      misses.incrementAndGet()
+      val layout = new FieldMemoryLayoutImpl(fieldType)
+      if (layout.longBufferSizeBytes > layout.MaxDirectBufferSizeBytes && fieldType.elementType != Float32)
+        throw new RuntimeException(s"Fields larger than ${layout.MaxDirectBufferSizeBytes} bytes must have " +
+          s"Float32 elements, saw $fieldType (${layout.longBufferSizeBytes} bytes).")
+      val memory = fieldType.elementType match {
+        case Uint8Pixel =>
+          new ColorFieldMemory(fieldType, bufferType, commandQueue)
+        case Complex32 =>
+          fieldType.tensorShape.dimensions match {
+            case 0 =>
+              new ComplexFieldMemory(fieldType, bufferType, commandQueue)
+            case 1 =>
+              new ComplexVectorFieldMemory(fieldType, bufferType, commandQueue)
+            case x =>
+              throw new RuntimeException("unsupported tensor dimensions: " + x)
+          }
+        case Float32 =>
+          fieldType.tensorShape.dimensions match {
+            case 0 =>
+              new ScalarFieldMemory(fieldType, bufferType, commandQueue)
+            case 1 =>
+              new VectorFieldMemory(fieldType, bufferType, commandQueue)
+            case 2 =>
+              new MatrixFieldMemory(fieldType, bufferType, commandQueue)
+            case x =>
+              throw new RuntimeException("unsupported tensor dimensions: " + x)
+          }
+        case Float16 =>
+          fieldType.tensorShape.dimensions match {
+            case 0 =>
+              new Float16ScalarFieldMemory(fieldType, bufferType, commandQueue)
+            case 1 =>
+              new Float16VectorFieldMemory(fieldType, bufferType, commandQueue)
+            case x =>
+              throw new RuntimeException("unsupported tensor dimensions: " + x)
+          }
+        case Uint8 | Uint16 | Int32 =>
+          fieldType.tensorShape.dimensions match {
+            case 0 =>
+              new IntegerScalarFieldMemory(fieldType, bufferType, commandQueue)
+            case 1 =>
+              new IntegerVectorFieldMemory(fieldType, bufferType, commandQueue)
+            case x =>
+              throw new RuntimeException("unsupported tensor dimensions: " + x)
+          }
+        case x =>
+          throw new RuntimeException("unsupported field element type: " + x)
       }
-      memory = bucket.remove(0)
+      addResident(bufferType, memory.longBufferSizeBytes)
+      if (allocationSites != null)
+        allocationSites.put(memory, new Throwable("FieldMemory allocation site"))
+      memory
     }
-    memory
   }
 
   /** Release a field memory back to the pool.
@@ -124,16 +265,47 @@ class FieldMemory private {
     * @param memory The field memory to be released.
     */
   def release(memory: AbstractFieldMemory) {
-    val pool = memory.bufferType match {
-      case IndirectBuffer => indirectPool
-      case DirectBuffer => directPool
-      case PinnedDirectBuffer => pinnedPool
+    val pool = buckets.get((memory.bufferType, memory.fieldType))
+    require(pool != null, "released field memory was not created in the pool")
+    val bytes = memory.longBufferSizeBytes
+    pool.synchronized {
+      pool.idle.addLast(IdleMemory(memory, bytes, releases.incrementAndGet()))
     }
-    synchronized {
-      require(pool.contains(memory.fieldType),
-        "released field memory was not created in the pool")
-      val bucket: ArrayBuffer[AbstractFieldMemory] = pool(memory.fieldType)
-      bucket += memory
+    if (idleBytes.addAndGet(bytes) > budgetBytes)
+      evict()
+  }
+
+  /** Free the least recently released idle memories until the pool is within its budget. */
+  private def evict(): Unit = evictionLock.synchronized {
+    var done = false
+    while (!done && idleBytes.get > budgetBytes) {
+      // The oldest memory of each bucket is at its head, so the oldest overall is the oldest of these.
+      var oldestBucket: Bucket = null
+      var oldestRelease = Long.MaxValue
+      val iterator = buckets.values.iterator
+      while (iterator.hasNext) {
+        val pool = iterator.next()
+        val head = pool.synchronized { pool.idle.peekFirst() }
+        if (head != null && head.releaseNumber < oldestRelease) {
+          oldestBucket = pool
+          oldestRelease = head.releaseNumber
+        }
+      }
+      if (oldestBucket == null)
+        done = true
+      else {
+        // An allocation may have taken the memory since we looked, in which case look again.
+        val victim = oldestBucket.synchronized {
+          val head = oldestBucket.idle.peekFirst()
+          if (head != null && head.releaseNumber == oldestRelease) oldestBucket.idle.pollFirst() else null
+        }
+        if (victim != null) {
+          idleBytes.addAndGet(-victim.bytes)
+          addResident(victim.memory.bufferType, -victim.bytes)
+          evictions.incrementAndGet()
+          destroy(victim.memory)
+        }
+      }
     }
   }
 
@@ -152,14 +324,59 @@ class FieldMemory private {
     */
   private[cogx]
   def destroyAll() {
-    val pools = Array(indirectPool, directPool, pinnedPool)
-    for (pool <- pools) {
-      for (arrayBuffer <- pool.values)
-        for (memory <- arrayBuffer)
-          memory.destroyDirectBuffer()
-      pool.clear()
+    val iterator = buckets.values.iterator
+    while (iterator.hasNext) {
+      val pool = iterator.next()
+      val idle = pool.synchronized {
+        val all = pool.idle.toArray(new Array[IdleMemory](0))
+        pool.idle.clear()
+        all
+      }
+      for (idleMemory <- idle) {
+        idleBytes.addAndGet(-idleMemory.bytes)
+        addResident(idleMemory.memory.bufferType, -idleMemory.bytes)
+        destroy(idleMemory.memory)
+      }
+    }
+    buckets.clear()
+    if (allocationSites != null) {
+      val leaked = leaks
+      if (leaked.nonEmpty)
+        FieldMemory.Log.warn(s"${leaked.length} field memories (${leaked.map(_.bytes).sum} bytes) " +
+          "were never released:" + leaked.map("\n  " + _).mkString)
     }
   }
+
+  /** Free the buffers of a memory no longer held by anyone. */
+  private def destroy(memory: AbstractFieldMemory) {
+    if (allocationSites != null)
+      allocationSites.remove(memory)
+    memory.destroyDirectBuffer()
+  }
+
+  /** The memories created by this allocator that are in use, i.e. have not
+    * been released back to the pool. Empty unless Cog.fieldMemoryLeakTracking
+    * was set when the allocator was created.
+    */
+  def leaks: Seq[FieldMemoryLeak] =
+    if (allocationSites == null)
+      Seq()
+    else {
+      val idle = java.util.Collections.newSetFromMap(new java.util.IdentityHashMap[AbstractFieldMemory, java.lang.Boolean])
+      val iterator = buckets.values.iterator
+      while (iterator.hasNext) {
+        val pool = iterator.next()
+        pool.synchronized {
+          val idleIterator = pool.idle.iterator
+          while (idleIterator.hasNext)
+            idle.add(idleIterator.next().memory)
+        }
+      }
+      allocationSites.asScala.toSeq.collect {
+        case (memory, site) if !idle.contains(memory) =>
+          FieldMemoryLeak(memory.fieldType, memory.bufferType, memory.longBufferSizeBytes, site.getStackTrace.toSeq)
+      }
+    }
 }
 
 /** A factory for producing field memory allocators.
@@ -172,7 +389,23 @@ class FieldMemory private {
 object FieldMemory {
   lazy val globalAllocator = FieldMemory()
 
-  def apply(): FieldMemory = new FieldMemory()
+  /** Controls verbosity of allocator diagnostics, such as leak reports. The levels are:
+    * {{{
+    *   0  - disable all logging
+    *   1+ - warnings
+    * }}}
+    */
+  var logLevel = 1
+  private[cpumemory] object Log {
+    private val Prefix = "FieldMemory"
+    def warn(msg: String) { if (logLevel > 0) Console.err.println(Prefix+" [Warn]: "+msg) }
+  }
+
+  /** An allocator whose pool keeps up to Cog.fieldMemoryPoolMB of idle memory. */
+  def apply(): FieldMemory = new FieldMemory(Cog.fieldMemoryPoolMB * 1024L * 1024L)
+
+  /** An allocator whose pool keeps up to `budgetBytes` of idle memory. */
+  def apply(budgetBytes: Long): FieldMemory = new FieldMemory(budgetBytes)
 
   /** Create a field memory backed by an indirect buffer.
     *
@@ -200,6 +433,18 @@ object FieldMemory {
   private[cogx]
   def pinned(fieldType: FieldType, commandQueue: OpenCLParallelCommandQueue) = globalAllocator.pinned(fieldType, commandQueue)
 
+  /** Create a field memory backed by a region of a file mapped into memory.
+    *
+    * @param fieldType The type of the desired field memory.
+    * @param file The file holding the field data.
+    * @param offsetBytes Byte offset of the field data within the file.
+    * @param writable True to map the region read-write, false for read-only.
+    * @return The mapped field memory, which may be upcast to the appropriate
+    *         class based on fieldType.
+    */
+  def mapped(fieldType: FieldType, file: File, offsetBytes: Long = 0L, writable: Boolean = false) =
+    globalAllocator.mapped(fieldType, file, offsetBytes, writable)
+
   /** Release a field memory back to the pool.
     *
     * @param memory The field memory to be released.
@@ -209,6 +454,11 @@ object FieldMemory {
   /** Create a copy of `memory` */
   def copy(memory: AbstractFieldMemory) = globalAllocator.copy(memory)
 
+  /** Bytes of off-heap (direct or pinned) memory held by the field memories
+    * of all allocators, in use or idle in their pools.
+    */
+  def offHeapBytes: Long = AbstractFieldMemory.offHeapBytes
+
   /** Destroy all field memories in the cache.
     *
     * This should only be done when you're sure there are no useful
@@ -0,0 +1,179 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.platform.cpumemory
+
+import cogx.cogmath.algebra.real.Vector
+import cogx.platform.types.FieldType
+import cogx.platform.types.ElementTypes.Float16
+import java.nio.ShortBuffer
+import cogx.platform.opencl.OpenCLParallelCommandQueue
+import cogx.platform.cpumemory.readerwriter.{VectorFieldWriter, VectorFieldReader, FieldReader}
+
+/** CPU memory for a vector field stored as halves (Float16).
+  *
+  * The layout is that of VectorFieldMemory, with 2-byte numbers converted to
+  * and from Float on every read and write (see HalfFloat). Only fields that
+  * fit a single NIO buffer are supported.
+  *
+  * @param fieldType Type of the field.
+  * @param bufferType Type of Java Buffer used to hold data in the field.
+  * @param commandQueue Command queue needed to create pinned buffers.
+  *
+  * @author Dick Carter
+  */
+final class Float16VectorFieldMemory private[cpumemory] (fieldType: FieldType,
+                                                   bufferType: BufferType,
+                                                   commandQueue: OpenCLParallelCommandQueue = null)
+        extends AbstractFieldMemory(fieldType, bufferType, commandQueue)
+        with VectorFieldReader
+        with VectorFieldWriter
+{
+  require(tensorOrder == 1)
+  require(elementType == Float16)
+  require(!isSegmented, "Float16 fields must fit in a single buffer: " + fieldType)
+  if (bufferType == PinnedDirectBuffer)
+    require(commandQueue != null)
+
+  /** Byte buffer cast to appropriate buffer type to handle endianness. */
+  _directBuffer = _byteBuffer.asShortBuffer
+
+  /** The direct buffer for this memory, a ShortBuffer view of _byteBuffer
+    * holding the bits of the halves.
+    */
+  def directBuffer: ShortBuffer = _directBuffer.asInstanceOf[ShortBuffer]
+
+  /** Index of the first number of the tensor at (`layer`, `row`, `col`). */
+  private def index(layer: Int, row: Int, col: Int): Int = (layer * rows + row) * paddedColumns + col
+
+  /** Read the single value in a 0D vector field into `out`. */
+  def read(out: Vector) {
+    require(dimensions == 0)
+    readTensor(0, out.asArray)
+  }
+
+  /** Read the value at (`col`) in a 1D vector field into `out`. */
+  def read(col: Int, out: Vector) {
+    require(dimensions == 1)
+    readTensor(col, out.asArray)
+  }
+
+  /** Read the value at (`row`, `col`) in a 2D vector field into `out`. */
+  def read(row: Int, col: Int, out: Vector) {
+    require(dimensions == 2)
+    readTensor(index(0, row, col), out.asArray)
+  }
+
+  /** Read the value at (`layer`, `row`, `col`) in a 3D vector field into `out`. */
+  def read(layer: Int, row: Int, col: Int, out: Vector) {
+    require(dimensions == 3)
+    readTensor(index(layer, row, col), out.asArray)
+  }
+
+  /** Read the entire field as a flat array of floats; used only for testing. */
+  private[cogx] def readAsPaddedArray: Array[Float] = {
+    val array = new Array[Float](bufferSize)
+    HalfFloat.get(directBuffer, 0, array, 0, bufferSize)
+    array
+  }
+
+  /** Read a tensor from the field memory into an array.
+    *
+    * @param startIndex Index in direct buffer for the start of the tensor.
+    * @param to Array where tensor is to be written.
+    */
+  private def readTensor(startIndex: Int, to: Array[Float]) {
+    var index = startIndex
+    for (i <- 0 until tensorShape.points) {
+      to(i) = HalfFloat.toFloat(directBuffer.get(index))
+      index += pageSize
+    }
+  }
+
+  /** Write a tensor from an array into the field memory.
+    *
+    * @param startIndex Index in direct buffer for the start of the tensor.
+    * @param from Array where tensor is to be read
+    */
+  private def writeTensor(startIndex: Int, from: Array[Float]) {
+    var index = startIndex
+    for (i <- 0 until tensorShape.points) {
+      directBuffer.put(index, HalfFloat.fromFloat(from(i)))
+      index += pageSize
+    }
+  }
+
+  /** Write `out` to a 0D vector field. */
+  def write(out: Vector) {
+    require(dimensions == 0)
+    writeTensor(0, out.asArray)
+  }
+
+  /** Write `out` to a 1D vector field at (`col`). */
+  def write(col: Int, out: Vector) {
+    require(dimensions == 1)
+    writeTensor(col, out.asArray)
+  }
+
+  /** Write `out` to a 2D vector field at (`row`, `col`). */
+  def write(row: Int, col: Int, out: Vector) {
+    require(dimensions == 2)
+    writeTensor(index(0, row, col), out.asArray)
+  }
+
+  /** Write `out` to a 3D vector field at (`row`, `col`). */
+  def write(layer: Int, row: Int, col: Int, out: Vector) {
+    require(dimensions == 3)
+    writeTensor(index(layer, row, col), out.asArray)
+  }
+
+  /** Fill memory with values produced by an iterator, in row-major order. */
+  def write(values: Iterator[Vector]) {
+    synchronized {
+      for (point <- 0 until fieldType.fieldShape.points)
+        writeTensor(point, values.next().asArray)
+    }
+  }
+
+  /** Compute the L-infinity norm on the difference of `this` and `that`.
+    *
+    * @param that AbstractFieldMemory to compare to `this`
+    * @return L-infinity error
+    */
+  def compareLinf(that: FieldReader): Float = {
+    require(fieldType.fieldShape == that.fieldType.fieldShape && tensorShape == that.fieldType.tensorShape)
+    require(that.isInstanceOf[VectorFieldReader])
+    val other = that.asInstanceOf[VectorFieldReader]
+    val v1 = Vector(tensorShape(0), _ => 0f)
+    val v2 = Vector(tensorShape(0), _ => 0f)
+    var err = 0f
+    for (layer <- 0 until layers; row <- 0 until rows; col <- 0 until columns) {
+      dimensions match {
+        case 0 => read(v1); other.read(v2)
+        case 1 => read(col, v1); other.read(col, v2)
+        case 2 => read(row, col, v1); other.read(row, col, v2)
+        case 3 => read(layer, row, col, v1); other.read(layer, row, col, v2)
+      }
+      err = err.max((v1 - v2).abs.reduce(_.max(_)))
+    }
+    err
+  }
+
+  /** Print out the field for debugging. */
+  def print() {
+    throw new RuntimeException("not implemented yet")
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.platform.cpumemory
+
+import java.nio.ShortBuffer
+
+import cogx.utilities.ParallelLoop
+
+/** Conversions between floats and the IEEE 754 binary16 ("half") numbers
+  * held by Float16 field memories.
+  *
+  * Conversions to half round to nearest, ties to even, as does vstore_half
+  * in the OpenCL kernels, so a value converted on the host matches one
+  * converted on the device. Values too large for a half become infinities,
+  * values too small become (signed) zero, with subnormal halves in between.
+  *
+  * @author Dick Carter
+  */
+private[cogx]
+object HalfFloat {
+
+  /** The half closest to `value`. */
+  def fromFloat(value: Float): Short = {
+    val bits = java.lang.Float.floatToRawIntBits(value)
+    val sign = (bits >>> 16) & 0x8000
+    val exponent = (bits >>> 23) & 0xff
+    val mantissa = bits & 0x7fffff
+    // The exponent re-biased for a half.
+    val halfExponent = exponent - 127 + 15
+    val magnitude =
+      if (exponent == 0xff) {
+        // Infinity, or NaN (kept quiet and non-zero).
+        if (mantissa == 0) 0x7c00 else 0x7c00 | 0x200 | (mantissa >>> 13)
+      }
+      else if (halfExponent >= 0x1f)
+        0x7c00
+      else if (halfExponent <= 0) {
+        // Subnormal half (or zero), with the float's hidden bit made explicit.
+        if (halfExponent < -10) 0 else roundedShift(mantissa | 0x800000, 14 - halfExponent)
+      }
+      else {
+        // Rounding may carry into the exponent, correctly yielding infinity at the top of the range.
+        roundedShift((halfExponent << 23) | mantissa, 13)
+      }
+    (sign | magnitude).toShort
+  }
+
+  /** The float equal to the half `value`. */
+  def toFloat(value: Short): Float = {
+    val bits = value & 0xffff
+    val sign = (bits & 0x8000) << 16
+    val exponent = (bits >>> 10) & 0x1f
+    val mantissa = bits & 0x3ff
+    val floatBits =
+      if (exponent == 0x1f)
+        sign | 0x7f800000 | (mantissa << 13)
+      else if (exponent != 0)
+        sign | ((exponent - 15 + 127) << 23) | (mantissa << 13)
+      else if (mantissa == 0)
+        sign
+      else {
+        // Subnormal half, which is a normal float: shift the mantissa up to its hidden bit.
+        var floatExponent = 1 - 15 + 127
+        var normalized = mantissa
+        while ((normalized & 0x400) == 0) {
+          normalized <<= 1
+          floatExponent -= 1
+        }
+        sign | (floatExponent << 23) | ((normalized & 0x3ff) << 13)
+      }
+    java.lang.Float.intBitsToFloat(floatBits)
+  }
+
+  /** `value` shifted right by `shift` bits (1 to 30), rounded to nearest even. */
+  private def roundedShift(value: Int, shift: Int): Int = {
+    val truncated = value >>> shift
+    val remainder = value & ((1 << shift) - 1)
+    val halfway = 1 << (shift - 1)
+    if (remainder > halfway || (remainder == halfway && (truncated & 1) == 1))
+      truncated + 1
+    else
+      truncated
+  }
+
+  /** Convert `length` floats from `src`, starting at `srcIndex`, into halves in `dst` starting at `dstIndex`. */
+  def put(src: Array[Float], srcIndex: Int, dst: ShortBuffer, dstIndex: Int, length: Int) {
+    ParallelLoop(length, BulkCopy.FloatsPerTask) { (from, until) =>
+      var i = from
+      while (i < until) {
+        dst.put(dstIndex + i, fromFloat(src(srcIndex + i)))
+        i += 1
+      }
+    }
+  }
+
+  /** Convert `length` halves from `src`, starting at `srcIndex`, into floats in `dst` starting at `dstIndex`. */
+  def get(src: ShortBuffer, srcIndex: Int, dst: Array[Float], dstIndex: Int, length: Int) {
+    ParallelLoop(length, BulkCopy.FloatsPerTask) { (from, until) =>
+      var i = from
+      while (i < until) {
+        dst(dstIndex + i) = toFloat(src.get(srcIndex + i))
+        i += 1
+      }
+    }
+  }
+}
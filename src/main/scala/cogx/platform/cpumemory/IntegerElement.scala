@@ -0,0 +1,105 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.platform.cpumemory
+
+import java.nio.{Buffer, ByteBuffer, IntBuffer, ShortBuffer}
+import cogx.platform.types.ElementTypes.{ElementType, Int32, Uint16, Uint8}
+
+/** Access to, and conversion of, the numbers of integer (Uint8, Uint16 and
+  * Int32) field memories.
+  *
+  * Floats are converted to integers as OpenCL's convert_<type>_sat_rte does:
+  * rounded to nearest (ties to even), clamped to the type's range, with NaN
+  * mapped to 0. The unsigned types are stored in Java's signed Byte and Short
+  * and are masked back to their unsigned values when read.
+  *
+  * @author Dick Carter
+  */
+private[cogx] object IntegerElement {
+
+  /** True if `elementType` is an integer type that fields can be stored as. */
+  def isIntegerType(elementType: ElementType): Boolean = elementType match {
+    case Uint8 | Uint16 | Int32 => true
+    case _ => false
+  }
+
+  /** The smallest and largest values representable by `elementType`. */
+  def range(elementType: ElementType): (Long, Long) = elementType match {
+    case Uint8 => (0L, 255L)
+    case Uint16 => (0L, 65535L)
+    case Int32 => (Int.MinValue.toLong, Int.MaxValue.toLong)
+    case x => throw new RuntimeException("not an integer element type: " + x)
+  }
+
+  /** Round `value` to nearest, saturate it to the range of `elementType`, and
+    * map NaN to 0.
+    */
+  def saturate(value: Float, elementType: ElementType): Int = {
+    val (low, high) = range(elementType)
+    if (value.isNaN)
+      0
+    else
+      (math.rint(value) max low.toDouble min high.toDouble).toInt
+  }
+
+  /** Saturate `value` to the range of `elementType`. */
+  def saturate(value: Int, elementType: ElementType): Int = {
+    val (low, high) = range(elementType)
+    (value.toLong max low min high).toInt
+  }
+
+  /** The view of `byteBuffer` holding numbers of `elementType`: the buffer
+    * itself, or a ShortBuffer or IntBuffer view of it.
+    */
+  def view(byteBuffer: ByteBuffer, elementType: ElementType): Buffer = elementType match {
+    case Uint8 => byteBuffer
+    case Uint16 => byteBuffer.asShortBuffer
+    case Int32 => byteBuffer.asIntBuffer
+    case x => throw new RuntimeException("not an integer element type: " + x)
+  }
+
+  /** A duplicate of `buffer`, a view created by `view`, sharing its contents
+    * but with its own position and limit.
+    */
+  def duplicate(buffer: Buffer): Buffer = buffer match {
+    case bytes: ByteBuffer => bytes.duplicate
+    case shorts: ShortBuffer => shorts.duplicate
+    case ints: IntBuffer => ints.duplicate
+    case x => throw new RuntimeException("not an integer buffer: " + x)
+  }
+
+  /** The integer at `index` of `buffer`, a view created by `view`. */
+  def get(buffer: Buffer, elementType: ElementType, index: Int): Int = elementType match {
+    case Uint8 => buffer.asInstanceOf[ByteBuffer].get(index) & 0xff
+    case Uint16 => buffer.asInstanceOf[ShortBuffer].get(index) & 0xffff
+    case Int32 => buffer.asInstanceOf[IntBuffer].get(index)
+    case x => throw new RuntimeException("not an integer element type: " + x)
+  }
+
+  /** Write `value`, which must be in range for `elementType`, to `index` of
+    * `buffer`, a view created by `view`.
+    */
+  def put(buffer: Buffer, elementType: ElementType, index: Int, value: Int) {
+    elementType match {
+      case Uint8 => buffer.asInstanceOf[ByteBuffer].put(index, value.toByte)
+      case Uint16 => buffer.asInstanceOf[ShortBuffer].put(index, value.toShort)
+      case Int32 => buffer.asInstanceOf[IntBuffer].put(index, value)
+      case x => throw new RuntimeException("not an integer element type: " + x)
+    }
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.platform.cpumemory
+
+import cogx.platform.types.FieldType
+import java.nio.Buffer
+import cogx.platform.opencl.OpenCLParallelCommandQueue
+import cogx.platform.cpumemory.readerwriter.{ScalarFieldWriter, ScalarFieldReader, FieldReader}
+
+/** CPU memory for a scalar field of integers (Uint8, Uint16 or Int32).
+  *
+  * Values are read as Floats and written from Floats like any other
+  * ScalarFieldReader/ScalarFieldWriter. Writes round to the nearest integer
+  * (ties to even) and saturate to the range of the element type, exactly as
+  * the device does with convert_<type>_sat_rte, so a field written on the
+  * CPU reads back the same as one written by a kernel. The raw integers can
+  * also be read and written directly with getInts and writeInts. Only fields
+  * that fit a single NIO buffer are supported.
+  *
+  * @param fieldType Type of the field.
+  * @param bufferType Type of Java Buffer used to hold data in the field.
+  * @param commandQueue Command queue needed to create pinned buffers.
+  *
+  * @author Dick Carter
+  */
+final class IntegerScalarFieldMemory private[cpumemory] (fieldType: FieldType,
+                                                   bufferType: BufferType,
+                                                   commandQueue: OpenCLParallelCommandQueue = null)
+        extends AbstractFieldMemory(fieldType, bufferType, commandQueue)
+        with ScalarFieldReader
+        with ScalarFieldWriter
+{
+  require(tensorOrder == 0)
+  require(IntegerElement.isIntegerType(elementType), "not an integer field: " + fieldType)
+  require(!isSegmented, elementType + " fields must fit in a single buffer: " + fieldType)
+  if (bufferType == PinnedDirectBuffer)
+    require(commandQueue != null)
+
+  /** Byte buffer cast to appropriate buffer type to handle endianness. */
+  _directBuffer = IntegerElement.view(_byteBuffer, elementType)
+
+  /** The direct buffer for this memory: a ByteBuffer, ShortBuffer or
+    * IntBuffer view of _byteBuffer, depending on the element type.
+    */
+  def directBuffer: Buffer = _directBuffer
+
+  /** Index of the number at (`layer`, `row`, `col`). */
+  private def index(layer: Int, row: Int, col: Int): Int = (layer * rows + row) * paddedColumns + col
+
+  /** The integer at `index` of the buffer. */
+  private def number(index: Int): Int = IntegerElement.get(_directBuffer, elementType, index)
+
+  /** Write `value`, which must be in range for the element type, to `index` of the buffer. */
+  private def putNumber(index: Int, value: Int) {
+    IntegerElement.put(_directBuffer, elementType, index, value)
+  }
+
+  /** Round and saturate `value` and write it to `index` of the buffer. */
+  private def putFloat(index: Int, value: Float) {
+    putNumber(index, IntegerElement.saturate(value, elementType))
+  }
+
+  /** An iterator over all values in the field, scanning in row-major order. */
+  def iterator = new Iterator[Float] {
+    private val points = fieldType.fieldShape.points
+    private var i = 0
+    def hasNext = i < points
+    def next(): Float = {
+      val value = number(i).toFloat
+      i += 1
+      value
+    }
+  }
+
+  /** Read the single value in a 0D scalar field. */
+  def read(): Float = {
+    require(dimensions == 0)
+    number(0).toFloat
+  }
+
+  /** Read the value at (`col`) in a 1D scalar field. */
+  def read(col: Int): Float = {
+    require(dimensions == 1)
+    number(col).toFloat
+  }
+
+  /** Read the value at (`row`, `col`) in a 2D scalar field. */
+  def read(row: Int, col: Int): Float = {
+    require(dimensions == 2)
+    number(index(0, row, col)).toFloat
+  }
+
+  /** Read the value at (`layer`, `row`, `col`) in a 3D scalar field. */
+  def read(layer: Int, row: Int, col: Int): Float = {
+    require(dimensions == 3)
+    number(index(layer, row, col)).toFloat
+  }
+
+  /** Read the entire field as a flat array of floats; used only for testing. */
+  private[cogx] def readAsPaddedArray: Array[Float] = {
+    val array = new Array[Float](bufferSize)
+    get(0, array, 0, bufferSize)
+    array
+  }
+
+  /** Read the entire 0D or 1D field into the provided Array[Float]. */
+  def get(dst: Array[Float]) {
+    require(dst.size == bufferSize,
+      s"Mismatched array size in IntegerScalarFieldMemory.get(): expecting $bufferSize, saw ${dst.size}.")
+    get(0, dst, 0, bufferSize)
+  }
+
+  /** Read a portion of the values of the 0D or 1D scalar field into an
+    * Array[Float], starting at the source buffer's `srcIndex` position.
+    */
+  def get(srcIndex: Int, dst: Array[Float]) {
+    get(srcIndex, dst, 0, dst.size)
+  }
+
+  /** Read `length` values of the 0D or 1D scalar field into the `dst`
+    * Array[Float], starting at the source buffer's `srcIndex` position,
+    * and placing the values in the `dst` Array starting at position
+    * `dstIndex`.
+    */
+  def get(srcIndex: Int, dst: Array[Float], dstIndex: Int, length: Int) {
+    require(srcIndex + length <= bufferSize,
+      s"IntegerScalarFieldMemory.get() src buffer overrun: $length values requested, ${bufferSize - srcIndex} available.")
+    require(dstIndex + length <= dst.length,
+      s"IntegerScalarFieldMemory.get() dst buffer overrun: $length locations targeted, ${dst.length - dstIndex} available.")
+    for (i <- 0 until length)
+      dst(dstIndex + i) = number(srcIndex + i).toFloat
+  }
+
+  /** Read the entire 2D field into the provided Array[Array[Float]] */
+  def get(dst: Array[Array[Float]]) {
+    require(dimensions == 2 && dst.size == rows && dst.forall(_.size == columns),
+      s"Mismatched 2D array size in IntegerScalarFieldMemory.get(): expecting (rows, columns) = ($rows, $columns).")
+    for (row <- 0 until rows)
+      get(index(0, row, 0), dst(row), 0, columns)
+  }
+
+  /** Read the entire 3D field into the provided Array[Array[Array[Float]]] */
+  def get(dst: Array[Array[Array[Float]]]) {
+    require(dimensions == 3 && dst.size == layers && dst.forall(layer => layer.size == rows && layer.forall(_.size == columns)),
+      s"Mismatched 3D array size in IntegerScalarFieldMemory.get(): expecting (layers, rows, columns) = " +
+        s"($layers, $rows, $columns).")
+    for (layer <- 0 until layers; row <- 0 until rows)
+      get(index(layer, row, 0), dst(layer)(row), 0, columns)
+  }
+
+  /** Read all the integers of the field, in row-major order, into `dst`. */
+  def getInts(dst: Array[Int]) {
+    require(dst.length == fieldType.fieldShape.points,
+      s"Mismatched array size in IntegerScalarFieldMemory.getInts(): expecting ${fieldType.fieldShape.points}, saw ${dst.length}.")
+    for (i <- 0 until dst.length)
+      dst(i) = number(i)
+  }
+
+  /** Write `value` to a 0D scalar field. */
+  def write(value: Float) {
+    require(dimensions == 0)
+    putFloat(0, value)
+  }
+
+  /** Write `value` at (`col`) in a 1D scalar field. */
+  def write(col: Int, value: Float) {
+    require(dimensions <= 1)
+    putFloat(col, value)
+  }
+
+  /** Write `value` at (`row`, `col`) in a 2D scalar field. */
+  def write(row: Int, col: Int, value: Float) {
+    require(dimensions == 2)
+    putFloat(index(0, row, col), value)
+  }
+
+  /** Write `value` at (`layer`, `row`, `col`) in a 3D scalar field. */
+  def write(layer: Int, row: Int, col: Int, value: Float ) {
+    require(dimensions == 3)
+    putFloat(index(layer, row, col), value)
+  }
+
+  /** Fill memory with values produced by an iterator, in row-major order. */
+  def write(values: Iterator[Float]) {
+    synchronized {
+      for (i <- 0 until fieldType.fieldShape.points)
+        putFloat(i, values.next())
+    }
+  }
+
+  /** Fill memory with the values of `data`, which holds all the values of
+    * the field in row-major order.
+    */
+  def write(data: Array[Float]) {
+    require(data.length == fieldType.fieldShape.points,
+      s"Mismatched array size in IntegerScalarFieldMemory.write(): expecting ${fieldType.fieldShape.points}, saw ${data.length}.")
+    for (i <- 0 until data.length)
+      putFloat(i, data(i))
+  }
+
+  /** Fill memory with the integers of `data`, which holds all the values of
+    * the field in row-major order, saturating any that are out of range.
+    */
+  def writeInts(data: Array[Int]) {
+    require(data.length == fieldType.fieldShape.points,
+      s"Mismatched array size in IntegerScalarFieldMemory.writeInts(): expecting ${fieldType.fieldShape.points}, saw ${data.length}.")
+    for (i <- 0 until data.length)
+      putNumber(i, IntegerElement.saturate(data(i), elementType))
+  }
+
+  /** Compute the L-infinity norm on the difference of `this` and `that`.
+    *
+    * @param that AbstractFieldMemory to compare to `this`
+    * @return L-infinity error
+    */
+  def compareLinf(that: FieldReader): Float = {
+    require(fieldType.fieldShape == that.fieldType.fieldShape && that.fieldType.tensorOrder == 0)
+    require(that.isInstanceOf[ScalarFieldReader])
+    iterator.zip(that.asInstanceOf[ScalarFieldReader].iterator).map(v => (v._1 - v._2).abs).foldLeft(0f)(_ max _)
+  }
+
+  /** Print out the field for debugging. */
+  def print() {
+    println(iterator.map(_.toInt).mkString(" "))
+  }
+}
@@ -46,7 +46,7 @@ final class MatrixFieldMemory private[cpumemory] (fieldType: FieldType,
     require(commandQueue != null)
 
   /** Byte buffer cast to appropriate buffer type to handle endianness. */
-  _directBuffer = _byteBuffer.asFloatBuffer
+  _directBuffer = if (isSegmented) null else _byteBuffer.asFloatBuffer
 
   /** The direct buffer for this memory. This is always a view of _byteBuffer,
     * but upcast to the appropriate subclass of Buffer using, for example,
@@ -73,33 +73,28 @@ final class MatrixFieldMemory private[cpumemory] (fieldType: FieldType,
   /** Read the value at (`row`, `col`) in a 2D matrix field into `out`. */
   def read(row: Int, col: Int, out: Matrix) {
     require(dimensions == 2)
-    readTensor(row * paddedColumns + col, out.asArray)
+    readTensor(row.toLong * paddedColumns + col, out.asArray)
   }
 
   /** Read the value at (`layer`, `row`, `col`) in a 3D matrix field into `out`. */
   def read(layer: Int, row: Int, col: Int, out: Matrix) {
     require(dimensions == 3)
-    readTensor(layer * rows * paddedColumns + row * paddedColumns + col, out.asArray)
+    readTensor((layer.toLong * rows + row) * paddedColumns + col, out.asArray)
   }
 
   /** Read the entire field as a flat array; used only for testing. */
-  private[cogx] def readAsPaddedArray: Array[Float] = {
-    val array = new Array[Float](bufferSize)
-    for (i <- 0 until bufferSize)
-      array(i) = directBuffer.get(i)
-    array
-  }
+  private[cogx] def readAsPaddedArray: Array[Float] = paddedFloats
 
   /** Read a tensor from the field memory into an array.
     *
     * @param startIndex Index in direct buffer for the start of the tensor.
     * @param to Array where tensor is to be written.
     */
-  private def readTensor(startIndex: Int, to: Array[Float]) {
+  private def readTensor(startIndex: Long, to: Array[Float]) {
     var index = startIndex
     for (i <- 0 until tensorShape.points) {
-      to(i) = directBuffer.get(index)
-      index += tensorStride
+      to(i) = floatAt(index)
+      index += longPageSize
     }
   }
 
@@ -108,11 +103,11 @@ final class MatrixFieldMemory private[cpumemory] (fieldType: FieldType,
     * @param startIndex Index in direct buffer for the start of the tensor.
     * @param from Array where tensor is to be read
     */
-  private def writeTensor(startIndex: Int, from: Array[Float]) {
+  private def writeTensor(startIndex: Long, from: Array[Float]) {
     var index = startIndex
     for (i <- 0 until tensorShape.points) {
-      directBuffer.put(index, from(i))
-      index += tensorStride
+      putFloatAt(index, from(i))
+      index += longPageSize
     }
   }
 
@@ -131,13 +126,13 @@ final class MatrixFieldMemory private[cpumemory] (fieldType: FieldType,
   /** Write `out` to a 2D matrix field at (`row`, `col`). */
   def write(row: Int, col: Int, out: Matrix) {
     require(dimensions == 2)
-    writeTensor(row * paddedColumns + col, out.asArray)
+    writeTensor(row.toLong * paddedColumns + col, out.asArray)
   }
 
   /** Write `out` to a 3D matrix field at (`row`, `col`). */
   def write(layer: Int, row: Int, col: Int, out: Matrix) {
     require(dimensions == 3)
-    writeTensor(layer * rows * paddedColumns + row * paddedColumns + col, out.asArray)
+    writeTensor((layer.toLong * rows + row) * paddedColumns + col, out.asArray)
   }
 
   /** Fill memory with values produced by `generator`. */
@@ -44,7 +44,7 @@ final class ScalarFieldMemory private[cpumemory] (fieldType: FieldType,
     require(commandQueue != null)
 
   /** Byte buffer cast to appropriate buffer type to handle endianness. */
-  _directBuffer = _byteBuffer.asFloatBuffer
+  _directBuffer = if (isSegmented) null else _byteBuffer.asFloatBuffer
 
   /** The direct buffer for this memory. This is always a view of _byteBuffer,
     * but upcast to the appropriate subclass of Buffer using, for example,
@@ -59,7 +59,14 @@ final class ScalarFieldMemory private[cpumemory] (fieldType: FieldType,
   /** Fill memory with values produced by an iterator. */
   def write(values: Iterator[Float]) {
     synchronized {
-      dimensions match {
+      if (isSegmented)
+        fillSegmented(Iterator.fill(layers * rows) {
+          val line = new Array[Float](columns)
+          for (col <- 0 until columns)
+            line(col) = values.next()
+          line
+        })
+      else dimensions match {
         case 0 => fill0D(values, directBuffer)
         case 1 => fill1D(values, directBuffer)
         case 2 => fill2D(values, directBuffer)
@@ -71,7 +78,13 @@ final class ScalarFieldMemory private[cpumemory] (fieldType: FieldType,
   /** Fill memory with values from an Array[Float], Array[Array[Float]], etc. */
   def write(data: Array[_]) {
     synchronized {
-      dimensions match {
+      if (isSegmented)
+        fillSegmented(dimensions match {
+          case 1 => Iterator(data.asInstanceOf[Array[Float]])
+          case 2 => data.asInstanceOf[Array[Array[Float]]].iterator
+          case 3 => data.asInstanceOf[Array[Array[Array[Float]]]].iterator.flatMap(_.iterator)
+        })
+      else dimensions match {
         case 0 => fill0D(data.asInstanceOf[Array[Float]], directBuffer)
         case 1 => fill1D(data.asInstanceOf[Array[Float]], directBuffer)
         case 2 => fill2D(data.asInstanceOf[Array[Array[Float]]], directBuffer)
@@ -94,7 +107,9 @@ final class ScalarFieldMemory private[cpumemory] (fieldType: FieldType,
 
   /** An iterator over all values in the field that assumes no column padding, scanning in row-major order. */
   def iterator =
-    if (fieldHasColumnPadding)
+    if (isSegmented)
+      segmentedIterator
+    else if (fieldHasColumnPadding)
       withPaddingIterator
     else
       noPaddingIterator
@@ -114,6 +129,25 @@ final class ScalarFieldMemory private[cpumemory] (fieldType: FieldType,
     }
   }
 
+  /** An iterator over all values of a segmented field, scanning in row-major order. */
+  private def segmentedIterator = new Iterator[Float] {
+    private val line = new Array[Float](columns)
+    private val lines = layers.toLong * rows
+    private var lineIndex = 0L
+    private var column = columns
+    def hasNext = column < columns || lineIndex < lines
+    def next(): Float = {
+      if (column == columns) {
+        segmentedBuffer.get(lineIndex * paddedColumns, line, 0, columns)
+        lineIndex += 1
+        column = 0
+      }
+      val value = line(column)
+      column += 1
+      value
+    }
+  }
+
   /** An iterator over all values in the field that handles column padding, scanning in row-major order. */
   private def withPaddingIterator = new Iterator[Float] {
     private var index = 0
@@ -140,53 +174,52 @@ final class ScalarFieldMemory private[cpumemory] (fieldType: FieldType,
   /** Read the single value in a 0D scalar field. */
   def read(): Float = {
     require(dimensions == 0)
-    directBuffer.get(0)
+    floatAt(0)
   }
 
   /** Read the value at (`col`) in a 1D scalar field. */
   def read(col: Int): Float = {
     require(dimensions == 1)
-    directBuffer.get(col)
+    floatAt(col)
   }
 
   /** Read the value at (`row`, `col`) in a 2D scalar field. */
   def read(row: Int, col: Int): Float = {
     require(dimensions == 2)
-    directBuffer.get(row * paddedColumns + col)
+    floatAt(row.toLong * paddedColumns + col)
   }
 
   /** Read the value at (`layer`, `row`, `col`) in a 3D scalar field. */
   def read(layer: Int, row: Int, col: Int): Float = {
     require(dimensions == 3)
-    directBuffer.get(layer * rows * paddedColumns + row * paddedColumns + col)
+    floatAt((layer.toLong * rows + row) * paddedColumns + col)
   }
 
   /** Read the entire field as a flat array; used only for testing. */
-  private[cogx] def readAsPaddedArray: Array[Float] = {
-    val array = new Array[Float](bufferSize)
-    for (i <- 0 until bufferSize)
-      array(i) = directBuffer.get(i)
-    array
-  }
+  private[cogx] def readAsPaddedArray: Array[Float] = paddedFloats
 
   /** Read the entire 0D or 1D field into the provided Array[Float]. */
   def get(dst: Array[Float]) {
-    val buffer = directBuffer.duplicate
-    buffer.rewind
-    require(dst.size == bufferSize,
-      s"Mismatched array size in ScalarFieldMemory.get(): expecting $bufferSize, saw ${dst.size}.")
-    buffer.get(dst)
+    if (isSegmented)
+      getSegmentedRows(Iterator(dst))
+    else {
+      require(dst.size == bufferSize,
+        s"Mismatched array size in ScalarFieldMemory.get(): expecting $bufferSize, saw ${dst.size}.")
+      BulkCopy.get(directBuffer, 0, dst, 0, bufferSize)
+    }
   }
 
   /** Read a portion of the values of the 0D or 1D scalar field into an
     * Array[Float], starting at the source buffer's `srcIndex` position.
     */
   def get(srcIndex: Int, dst: Array[Float]) {
-    val buffer = directBuffer.duplicate
-    buffer.position(srcIndex)
-    require(srcIndex + dst.size <= bufferSize,
-      s"ScalarFieldMemory.get() buffer overrun: ${dst.size} values requested, ${bufferSize - srcIndex} available.")
-    buffer.get(dst)
+    if (isSegmented)
+      get(srcIndex, dst, 0, dst.size)
+    else {
+      require(srcIndex + dst.size <= bufferSize,
+        s"ScalarFieldMemory.get() buffer overrun: ${dst.size} values requested, ${bufferSize - srcIndex} available.")
+      BulkCopy.get(directBuffer, srcIndex, dst, 0, dst.size)
+    }
   }
 
   /** Read `length` values of the 0D or 1D scalar field into the `dst`
@@ -195,80 +228,92 @@ final class ScalarFieldMemory private[cpumemory] (fieldType: FieldType,
     * `dstIndex`.
     */
   def get(srcIndex: Int, dst: Array[Float], dstIndex: Int, length: Int) {
-    val buffer = directBuffer.duplicate
-    buffer.position(srcIndex)
-    require(srcIndex + length <= bufferSize,
-      s"ScalarFieldMemory.get() src buffer overrun: $length values requested, ${bufferSize - srcIndex} available.")
-    require(dstIndex + length <= dst.length,
-      s"ScalarFieldMemory.get() dst buffer overrun: $length locations targeted, ${dst.length - dstIndex} available.")
-    buffer.get(dst, dstIndex, length)
+    if (isSegmented) {
+      require(dstIndex + length <= dst.length,
+        s"ScalarFieldMemory.get() dst buffer overrun: $length locations targeted, ${dst.length - dstIndex} available.")
+      segmentedBuffer.get(srcIndex, dst, dstIndex, length)
+    }
+    else {
+      require(srcIndex + length <= bufferSize,
+        s"ScalarFieldMemory.get() src buffer overrun: $length values requested, ${bufferSize - srcIndex} available.")
+      require(dstIndex + length <= dst.length,
+        s"ScalarFieldMemory.get() dst buffer overrun: $length locations targeted, ${dst.length - dstIndex} available.")
+      BulkCopy.get(directBuffer, srcIndex, dst, dstIndex, length)
+    }
   }
 
   /** Read the entire 2D field into the provided Array[Array[Float]] */
   def get(dst: Array[Array[Float]]) {
+    if (isSegmented) {
+      require(dst.size == rows, s"Mismatched 2D array size in ScalarFieldMemory.get(): expecting $rows rows, saw ${dst.size}.")
+      getSegmentedRows(dst.iterator)
+    }
+    else
+      getUnsegmented(dst)
+  }
+
+  /** Read the entire 2D field, held in a single NIO buffer, into `dst`. */
+  private def getUnsegmented(dst: Array[Array[Float]]) {
     require(dst.size * paddedColumns == bufferSize,
       s"Mismatched 2D array size in ScalarFieldMemory.get(): expecting (rows, columns) = "  +
         s"(${rows}, ${columns}), saw (${dst.size},${dst(0).size}).")
-    val buffer = directBuffer.duplicate
-    buffer.rewind
-    if (fieldHasColumnPadding) {
-      for (r <- 0 until dst.size) {
-        buffer.position(r*paddedColumns)
-        require(dst(r).size == columns,
-          s"Mismatched column array in ScalarFieldMemory.get(), expecting $columns, saw ${dst(r).size}.")
-        buffer.get(dst(r))
-      }
-    }
-    else {
-      for (r <- 0 until dst.size) {
-        require(dst(r).size == columns,
-          s"Mismatched column array in ScalarFieldMemory.get(), expecting $columns, saw ${dst(r).size}.")
-        buffer.get(dst(r))
-      }
-    }
+    BulkCopy.getRows(directBuffer, 0, paddedColumns, dst(_), rows, columns)
   }
 
   /** Read the entire 3D field into the provided Array[Array[Array[Float]]] */
   def get(dst: Array[Array[Array[Float]]]) {
+    if (isSegmented) {
+      require(dst.size == layers && dst.forall(_.size == rows),
+        s"Mismatched 3D array size in ScalarFieldMemory.get(): expecting (layers, rows) = ($layers, $rows).")
+      getSegmentedRows(dst.iterator.flatMap(_.iterator))
+    }
+    else
+      getUnsegmented(dst)
+  }
+
+  /** Read the entire 3D field, held in a single NIO buffer, into `dst`. */
+  private def getUnsegmented(dst: Array[Array[Array[Float]]]) {
     require(dst.size * dst(0).size * paddedColumns == bufferSize,
       s"Mismatched 3D array size in ScalarFieldMemory.get(): expecting (layers, rows, columns) = "  +
         s"(${layers}, ${rows}, ${columns}), saw (${dst.size},${dst(0).size},${dst(0)(0).size}).")
-    val buffer = directBuffer.duplicate
-    buffer.rewind
-    if (fieldHasColumnPadding) {
-      for (l <- 0 until dst.size) {
-        for (r <- 0 until dst(l).size) {
-          buffer.position(l*r*paddedColumns)
-          require(dst(l)(r).size == columns,
-            s"Mismatched column array in ScalarFieldMemory.get(), expecting $columns, saw ${dst(l)(r).size}.")
-          buffer.get(dst(l)(r))
-        }
-      }
+    BulkCopy.getRows(directBuffer, 0, paddedColumns, row => dst(row / rows)(row % rows), layers * rows, columns)
+  }
+
+  /** Read the rows of a segmented field, in order, into the arrays of `dst`. */
+  private def getSegmentedRows(dst: Iterator[Array[Float]]) {
+    var index = 0L
+    for (row <- dst) {
+      require(row.size == columns,
+        s"Mismatched column array in ScalarFieldMemory.get(), expecting $columns, saw ${row.size}.")
+      segmentedBuffer.get(index, row, 0, columns)
+      index += paddedColumns
     }
-    else {
-      for (l <- 0 until dst.size) {
-        for (r <- 0 until dst(l).size) {
-          require(dst(l)(r).size == columns,
-            s"Mismatched column array in ScalarFieldMemory.get(), expecting $columns, saw ${dst(l)(r).size}.")
-          buffer.get(dst(l)(r))
-        }
-      }
+  }
+
+  /** Write the rows of a segmented field, in order, from the arrays of `src`. */
+  private def fillSegmented(src: Iterator[Array[Float]]) {
+    var index = 0L
+    for (row <- src) {
+      require(row.size == columns,
+        s"Mismatched column array in ScalarFieldMemory.write(), expecting $columns, saw ${row.size}.")
+      segmentedBuffer.put(index, row, 0, columns)
+      index += paddedColumns
     }
   }
 
   /** Read the entire field as a flat array without padding. */
   private[cogx] def readAsUnpaddedArray: Array[Float] = {
-    // Create the unpadded array via a number of bulk gets (perhaps faster?).
-    val bulkCopies = bufferSize / paddedColumns
-    val points = bulkCopies * columns
-    require(points == fieldType.fieldShape.points,
-      "Internal error while unpacking padded FieldMemory")
-    val array = new Array[Float](points)
-    val buf = directBuffer.duplicate() // Makes this method thread-safe
-    buf.rewind()
-    for (i <- 0 until bulkCopies) {
-      buf.position(i*paddedColumns)
-      buf.get(array, i*columns, columns)
+    val array = new Array[Float](fieldType.fieldShape.points)
+    if (isSegmented) {
+      for (i <- 0 until layers * rows)
+        segmentedBuffer.get(i.toLong * paddedColumns, array, i * columns, columns)
+    }
+    else {
+      // Create the unpadded array via a number of bulk gets.
+      val bulkCopies = bufferSize / paddedColumns
+      require(bulkCopies * columns == array.length,
+        "Internal error while unpacking padded FieldMemory")
+      BulkCopy.getRows(directBuffer, 0, paddedColumns, array, 0, bulkCopies, columns)
     }
     array
   }
@@ -276,25 +321,25 @@ final class ScalarFieldMemory private[cpumemory] (fieldType: FieldType,
   /** Write `value` to a 0D scalar field. */
   def write(value: Float) {
     require(dimensions == 0)
-    directBuffer.put(0, value)
+    putFloatAt(0, value)
   }
 
   /** Write `value` at (`col`) in a 1D scalar field. */
   def write(col: Int, value: Float) {
     require(dimensions <= 1)
-    directBuffer.put(col, value)
+    putFloatAt(col, value)
   }
 
   /** Write `value` at (`row`, `col`) in a 2D scalar field. */
   def write(row: Int, col: Int, value: Float) {
     require(dimensions == 2)
-    directBuffer.put(row * paddedColumns + col, value)
+    putFloatAt(row.toLong * paddedColumns + col, value)
   }
 
   /** Write `value` at (`layer`, `row`, `col`) in a 3D scalar field. */
   def write(layer: Int, row: Int, col: Int, value: Float ) {
     require(dimensions == 3)
-    directBuffer.put(layer * rows * paddedColumns + row * paddedColumns + col, value)
+    putFloatAt((layer.toLong * rows + row) * paddedColumns + col, value)
   }
 
 
@@ -369,14 +414,6 @@ final class ScalarFieldMemory private[cpumemory] (fieldType: FieldType,
       to.put(0f)
   }
 
-  /** Optimized helper function for filling N-D ScalarFieldMemories */
-  private def fillColumn(data: Array[Float], to: FloatBuffer, columnLen: Int, paddedColumnLen: Int) {
-    to.put(data)
-    // Fill padding with 0's
-    for(col <- columnLen until paddedColumnLen)
-      to.put(0f)
-  }
-
   /** Fill 1D memory with values produced by an iterator. */
   private def fill1D(values: Iterator[Float], to: FloatBuffer) {
     to.clear
@@ -386,9 +423,7 @@ final class ScalarFieldMemory private[cpumemory] (fieldType: FieldType,
 
   /** Fill 1D memory with values produced by an iterator. */
   private def fill1D(data: Array[Float], to: FloatBuffer) {
-    to.clear
-    fillColumn(data, to, columns, paddedColumns)
-    to.rewind
+    BulkCopy.putRows(row => data, 1, columns, to, 0, paddedColumns)
   }
 
   /** Fill 2D memory with values produced by an iterator. */
@@ -408,10 +443,8 @@ final class ScalarFieldMemory private[cpumemory] (fieldType: FieldType,
 
   /** Fill 2D memory with values produced by an iterator. */
   private def fill2D(data: Array[Array[Float]], to: FloatBuffer) {
-    to.clear
-    for (row <- 0 until rows)
-      fillColumn(data(row), to, columns, paddedColumns)
-    to.rewind
+    require(data.size == rows, s"Mismatched 2D array size in ScalarFieldMemory.write(): expecting $rows rows, saw ${data.size}.")
+    BulkCopy.putRows(data(_), rows, columns, to, 0, paddedColumns)
   }
 
   /** Fill 3D memory with values produced by an iterator. */
@@ -433,13 +466,9 @@ final class ScalarFieldMemory private[cpumemory] (fieldType: FieldType,
 
   /** Fill 3D memory with values produced by an iterator. */
   private def fill3D(data: Array[Array[Array[Float]]], to: FloatBuffer) {
-    to.clear
-    for (layer <- 0 until layers) {
-      for (row <- 0 until rows) {
-        fillColumn(data(layer)(row), to, columns, paddedColumns)
-      }
-    }
-    to.rewind
+    require(data.size == layers && data.forall(_.size == rows),
+      s"Mismatched 3D array size in ScalarFieldMemory.write(): expecting (layers, rows) = ($layers, $rows).")
+    BulkCopy.putRows(row => data(row / rows)(row % rows), layers * rows, columns, to, 0, paddedColumns)
   }
 
   /** Compute the L-infinity norm on the difference of `this` and `that`.
@@ -0,0 +1,135 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.platform.cpumemory
+
+import java.nio.{ByteBuffer, FloatBuffer}
+
+/** A long-indexed store of floats for field memories too big for a single NIO
+  * buffer, whose capacity, limit and position are all Ints (limiting it to
+  * 2GB). The floats are held in a sequence of ByteBuffer segments, each
+  * `segmentBytes` in size except perhaps the last.
+  *
+  * Since `segmentBytes` is a power of two, the segment holding a float and its
+  * offset within that segment are found with a shift and a mask. Segments
+  * are allocated by `allocateSegment`, so they can be heap, direct, pinned or
+  * file-mapped buffers as needed, and are always left with position 0 so that
+  * they can be handed as-is to OpenCL for transfers to and from a device buffer.
+  *
+  * @param sizeBytes Size of the store in bytes, a multiple of 4.
+  * @param segmentBytes Size in bytes of each segment but the last; a power of two.
+  * @param allocateSegment Function returning a native-ordered ByteBuffer for the
+  *        segment at a given byte offset within the store, of a given size in bytes.
+  *
+  * @author Dick Carter
+  */
+private[cogx]
+class SegmentedBuffer(val sizeBytes: Long, val segmentBytes: Int, allocateSegment: (Long, Int) => ByteBuffer) {
+  require(sizeBytes > 0 && sizeBytes % 4 == 0, s"bad segmented buffer size: $sizeBytes bytes")
+  require(segmentBytes >= 4 && Integer.bitCount(segmentBytes) == 1,
+    s"segment size must be a power of two of at least 4 bytes, saw $segmentBytes")
+
+  /** Floats held in each segment but the last. */
+  private val floatsPerSegment = segmentBytes / 4
+  private val segmentShift = Integer.numberOfTrailingZeros(floatsPerSegment)
+  private val offsetMask = floatsPerSegment - 1L
+
+  /** Floats in the store. */
+  val length: Long = sizeBytes / 4
+
+  /** The segments holding the data, in order. */
+  val segments: Array[ByteBuffer] = {
+    val count = ((sizeBytes + segmentBytes - 1) / segmentBytes).toInt
+    Array.tabulate(count) { i =>
+      val offsetBytes = i.toLong * segmentBytes
+      allocateSegment(offsetBytes, math.min(segmentBytes.toLong, sizeBytes - offsetBytes).toInt)
+    }
+  }
+
+  /** Float views of the segments, used for all element access. */
+  private val floatSegments: Array[FloatBuffer] = segments.map(_.asFloatBuffer)
+
+  /** Byte offset of segment `i` within the store. */
+  def segmentOffsetBytes(i: Int): Long = i.toLong * segmentBytes
+
+  /** Read the float at `index`. */
+  def getFloat(index: Long): Float =
+    floatSegments((index >>> segmentShift).toInt).get((index & offsetMask).toInt)
+
+  /** Write `value` to the float at `index`. */
+  def putFloat(index: Long, value: Float) {
+    floatSegments((index >>> segmentShift).toInt).put((index & offsetMask).toInt, value)
+  }
+
+  /** Read `count` floats starting at `index` into `dst`, starting at `dstIndex`. */
+  def get(index: Long, dst: Array[Float], dstIndex: Int, count: Int) {
+    require(index >= 0 && index + count <= length,
+      s"SegmentedBuffer.get() overrun: $count floats requested at $index, $length available.")
+    var from = index
+    var to = dstIndex
+    var remaining = count
+    while (remaining > 0) {
+      // Duplicates keep this thread-safe and leave the segment positions at 0.
+      val segment = floatSegments((from >>> segmentShift).toInt).duplicate
+      val offset = (from & offsetMask).toInt
+      val chunk = math.min(remaining, segment.capacity - offset)
+      segment.position(offset)
+      segment.get(dst, to, chunk)
+      from += chunk
+      to += chunk
+      remaining -= chunk
+    }
+  }
+
+  /** Write `count` floats from `src`, starting at `srcIndex`, to the store starting at `index`. */
+  def put(index: Long, src: Array[Float], srcIndex: Int, count: Int) {
+    require(index >= 0 && index + count <= length,
+      s"SegmentedBuffer.put() overrun: $count floats written at $index, $length available.")
+    var from = srcIndex
+    var to = index
+    var remaining = count
+    while (remaining > 0) {
+      val segment = floatSegments((to >>> segmentShift).toInt).duplicate
+      val offset = (to & offsetMask).toInt
+      val chunk = math.min(remaining, segment.capacity - offset)
+      segment.position(offset)
+      segment.put(src, from, chunk)
+      from += chunk
+      to += chunk
+      remaining -= chunk
+    }
+  }
+
+  /** Copy the contents of this store to `that`, which must have the same layout. */
+  def copyTo(that: SegmentedBuffer) {
+    require(that.sizeBytes == sizeBytes && that.segmentBytes == segmentBytes,
+      "SegmentedBuffer.copyTo(): mismatched buffers")
+    for (i <- segments.indices) {
+      val source = segments(i).duplicate
+      val sink = that.segments(i).duplicate
+      source.rewind
+      sink.rewind
+      sink.put(source)
+    }
+  }
+}
+
+/** Factory for the segmented stores of large field memories. */
+private[cogx]
+object SegmentedBuffer {
+  /** Segment size used for field memories: 1GB, well under the 2GB limit of an NIO buffer. */
+  val DefaultSegmentBytes: Int = 1 << 30
+}
@@ -0,0 +1,284 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.platform.jvm
+
+import java.nio.FloatBuffer
+
+import cogx.compiler.parser.op._
+import cogx.platform.opencl.OpenCLDeviceKernel
+import cogx.platform.types.ElementTypes.Float32
+import cogx.platform.types.{FieldMemoryLayoutImpl, FieldType, Opcode}
+import cogx.utilities.ParallelLoop
+
+/** Executes device kernels (HyperKernels) on the JVM by interpreting their
+  * opcodes as parallel loops over the cpu memory of their field registers.
+  *
+  * Only the point-wise real-valued opcodes, constants and field reductions
+  * are interpreted; anything else (convolution, FFT, merged kernels, ...) is
+  * reported by `unsupportedReason`. As with device kernels run by OpenCL,
+  * inputs are read from the slave buffer of each input register and the result
+  * is written to the master buffer of the output register.
+  *
+  * Inputs may be broadcast to the output in the same ways the HyperKernels
+  * allow: a scalar field drives every tensor element of a same-shaped tensor
+  * field, a 0D field drives every point of the output, and a single-number
+  * field drives everything.
+  *
+  * @author Dick Carter
+  */
+private[cogx]
+object JVMKernelInterpreter {
+
+  /** A function of two floats (Function2 is not specialized for Float, so would box). */
+  private abstract class BinaryFunction {
+    def apply(x: Float, y: Float): Float
+  }
+
+  /** Map a boolean comparison result to Cog's 1f / 0f. */
+  @inline private def bool(b: Boolean): Float = if (b) 1f else 0f
+
+  /** The point-wise function of one input performed by `opcode`, if it has one. */
+  private def unaryFunction(opcode: Opcode): Option[Float => Float] = opcode match {
+    case AbsOp => Some(x => math.abs(x))
+    case AcosOp => Some(x => math.acos(x).toFloat)
+    case AcoshOp => Some(x => math.log(x + math.sqrt(x.toDouble * x - 1)).toFloat)
+    case AsinOp => Some(x => math.asin(x).toFloat)
+    case CosOp => Some(x => math.cos(x).toFloat)
+    case CoshOp => Some(x => math.cosh(x).toFloat)
+    case ExpOp => Some(x => math.exp(x).toFloat)
+    case FilterNaNOp => Some(x => if (java.lang.Float.isNaN(x)) 0f else x)
+    case FloorOp => Some(x => math.floor(x).toFloat)
+    case LogOp => Some(x => math.log(x).toFloat)
+    case ReciprocalOp => Some(x => 1f / x)
+    case RectifyOp => Some(x => math.max(x, 0f))
+    case SignumOp => Some(x => math.signum(x))
+    case SinOp => Some(x => math.sin(x).toFloat)
+    case SinhOp => Some(x => math.sinh(x).toFloat)
+    case SqOp => Some(x => x * x)
+    case SqrtOp => Some(x => math.sqrt(x).toFloat)
+    case TanOp => Some(x => math.tan(x).toFloat)
+    case TanhOp => Some(x => math.tanh(x).toFloat)
+    case UnaryMinusOp => Some(x => -x)
+    case CopyOp(_) => Some(x => x)
+    case AddConstOp(c) => Some(x => x + c)
+    case SubtractConstOp(c) => Some(x => x - c)
+    case MultiplyConstOp(c) => Some(x => x * c)
+    case DivideConstOp(c) => Some(x => x / c)
+    case ModuloConstOp(c) => Some(x => x % c)
+    case GreaterThanConstOp(c) => Some(x => bool(x > c))
+    case GreaterThanEqualsConstOp(c) => Some(x => bool(x >= c))
+    case LessThanConstOp(c) => Some(x => bool(x < c))
+    case LessThanEqualsConstOp(c) => Some(x => bool(x <= c))
+    case EqualsConstOp(c) => Some(x => bool(x == c))
+    case NotEqualsConstOp(c) => Some(x => bool(x != c))
+    case MaxConstOp(c) => Some(x => math.max(x, c))
+    case MinConstOp(c) => Some(x => math.min(x, c))
+    case PowConstOp(e) => Some(x => math.pow(x, e).toFloat)
+    case PownConstOp(n) => Some(x => math.pow(x, n).toFloat)
+    case _ => None
+  }
+
+  /** The point-wise function of two inputs performed by `opcode`, if it has one. */
+  private def binaryFunction(opcode: Opcode): Option[BinaryFunction] = opcode match {
+    case AddOp => Some(new BinaryFunction { def apply(x: Float, y: Float) = x + y })
+    case SubtractOp => Some(new BinaryFunction { def apply(x: Float, y: Float) = x - y })
+    case MultiplyOp => Some(new BinaryFunction { def apply(x: Float, y: Float) = x * y })
+    case DivideOp => Some(new BinaryFunction { def apply(x: Float, y: Float) = x / y })
+    case ModuloOp => Some(new BinaryFunction { def apply(x: Float, y: Float) = x % y })
+    case MaxOp => Some(new BinaryFunction { def apply(x: Float, y: Float) = math.max(x, y) })
+    case MinOp => Some(new BinaryFunction { def apply(x: Float, y: Float) = math.min(x, y) })
+    case Atan2Op => Some(new BinaryFunction { def apply(x: Float, y: Float) = math.atan2(x, y).toFloat })
+    case GreaterThanOp => Some(new BinaryFunction { def apply(x: Float, y: Float) = bool(x > y) })
+    case GreaterThanEqualsOp => Some(new BinaryFunction { def apply(x: Float, y: Float) = bool(x >= y) })
+    case LessThanOp => Some(new BinaryFunction { def apply(x: Float, y: Float) = bool(x < y) })
+    case LessThanEqualsOp => Some(new BinaryFunction { def apply(x: Float, y: Float) = bool(x <= y) })
+    case EqualsOp => Some(new BinaryFunction { def apply(x: Float, y: Float) = bool(x == y) })
+    case NotEqualsOp => Some(new BinaryFunction { def apply(x: Float, y: Float) = bool(x != y) })
+    case _ => None
+  }
+
+  // Ways an input element index is derived from an output element index.  Field memories
+  // are laid out as one "page" (all points of the field) per tensor element, with no padding.
+
+  /** Input has the same type as the output. */
+  private val SameIndex = 0
+  /** Input is a scalar field the same shape as a tensor output: one page drives all. */
+  private val PointIndex = 1
+  /** Input is a 0D field of the output's tensor shape: one tensor drives all points. */
+  private val TensorElementIndex = 2
+  /** Input holds a single number that drives all output elements. */
+  private val SingleIndex = 3
+
+  /** How elements of an input of type `in` map to the elements of an output of type `out`. */
+  private def addressing(in: FieldType, out: FieldType): Option[Int] = {
+    val sameFieldShape = in.fieldShape == out.fieldShape
+    val sameTensorShape = in.tensorShape == out.tensorShape
+    if (sameFieldShape && sameTensorShape)
+      Some(SameIndex)
+    else if (in.fieldShape.points * in.tensorShape.points == 1)
+      Some(SingleIndex)
+    else if (sameFieldShape && in.tensorOrder == 0)
+      Some(PointIndex)
+    else if (in.dimensions == 0 && sameTensorShape)
+      Some(TensorElementIndex)
+    else
+      None
+  }
+
+  /** The index of the input element for output element `i`, given `points` points per page. */
+  @inline private def inputIndex(mode: Int, i: Int, points: Int): Int = mode match {
+    case SameIndex => i
+    case PointIndex => i % points
+    case TensorElementIndex => i / points
+    case _ => 0
+  }
+
+  /** Determine why `kernel` can't be run by this interpreter.
+    *
+    * @param kernel The device kernel to be interpreted.
+    * @return A description of the problem, or None if the kernel can be interpreted.
+    */
+  def unsupportedReason(kernel: OpenCLDeviceKernel): Option[String] = {
+    val inTypes = kernel.inputs.map(_.fieldType)
+    val outTypes = kernel.outputs.map(_.fieldType)
+    def problem(msg: String) = Some(s"$kernel: $msg")
+
+    if (outTypes.length != 1)
+      problem("multi-output kernels not supported")
+    else if (!(inTypes ++ outTypes).forall(_.elementType == Float32))
+      problem("only Float32 fields are supported")
+    else if ((inTypes ++ outTypes).exists(fieldType => new FieldMemoryLayoutImpl(fieldType).longBufferSizeBytes > Int.MaxValue))
+      problem("fields larger than 2GB are not supported")
+    else {
+      val outType = outTypes(0)
+      def broadcastable = inTypes.forall(addressing(_, outType).isDefined)
+      kernel.opcode match {
+        case ConstantScalarOp(_) if inTypes.length == 0 =>
+          None
+        case FieldReduceSumOp | FieldReduceMaxOp | FieldReduceMinOp if inTypes.length == 1 =>
+          // The code generator may reduce in several passes, each producing a field of partial results
+          if (outType.tensorShape == inTypes(0).tensorShape && outType.fieldShape.points <= inTypes(0).fieldShape.points)
+            None
+          else
+            problem("unexpected field reduction result type")
+        case op if inTypes.length == 1 && unaryFunction(op).isDefined =>
+          if (broadcastable) None else problem("input can't be mapped to the output")
+        case op if inTypes.length == 2 && binaryFunction(op).isDefined =>
+          if (broadcastable) None else problem("inputs can't be mapped to the output")
+        case op =>
+          problem(s"opcode $op not supported by the JVM backend")
+      }
+    }
+  }
+
+  /** Run `kernel` once, writing the master buffer of its output register. */
+  def evaluate(kernel: OpenCLDeviceKernel) {
+    unsupportedReason(kernel) match {
+      case Some(reason) => throw new RuntimeException(reason)
+      case None =>
+    }
+    val outType = kernel.outputs(0).fieldType
+    val out = floats(kernel.outputRegister(0).master.cpuMemory.directBuffer)
+    val inputs = Array.tabulate(kernel.inputs.length) { i =>
+      floats(kernel.inputRegister(i).slave.cpuMemory.directBuffer)
+    }
+    val points = outType.fieldShape.points
+    val size = points * outType.tensorShape.points
+
+    kernel.opcode match {
+      case ConstantScalarOp(value) =>
+        ParallelLoop(size) { (from, until) =>
+          var i = from
+          while (i < until) {
+            out.put(i, value)
+            i += 1
+          }
+        }
+      case FieldReduceSumOp => reduce(inputs(0), kernel.inputs(0).fieldType, out, points, 0f)(_ + _)
+      case FieldReduceMaxOp => reduce(inputs(0), kernel.inputs(0).fieldType, out, points, Float.NegativeInfinity)(math.max)
+      case FieldReduceMinOp => reduce(inputs(0), kernel.inputs(0).fieldType, out, points, Float.PositiveInfinity)(math.min)
+      case op if inputs.length == 1 =>
+        val f = unaryFunction(op).get
+        val in = inputs(0)
+        val mode = addressing(kernel.inputs(0).fieldType, outType).get
+        ParallelLoop(size) { (from, until) =>
+          var i = from
+          while (i < until) {
+            out.put(i, f(in.get(inputIndex(mode, i, points))))
+            i += 1
+          }
+        }
+      case op =>
+        val f = binaryFunction(op).get
+        val (in0, in1) = (inputs(0), inputs(1))
+        val mode0 = addressing(kernel.inputs(0).fieldType, outType).get
+        val mode1 = addressing(kernel.inputs(1).fieldType, outType).get
+        ParallelLoop(size) { (from, until) =>
+          var i = from
+          while (i < until) {
+            out.put(i, f(in0.get(inputIndex(mode0, i, points)), in1.get(inputIndex(mode1, i, points))))
+            i += 1
+          }
+        }
+    }
+  }
+
+  /** Reduce each page of `in` (one per tensor element) to `outPoints` partial results in the
+    * corresponding page of `out`, each covering a contiguous run of the input points.  Since the
+    * reductions are associative, a later pass over the partial results finishes the job.
+    */
+  private def reduce(in: FloatBuffer, inType: FieldType, out: FloatBuffer, outPoints: Int, identity: Float)
+                    (op: (Float, Float) => Float) {
+    val inPoints = inType.fieldShape.points
+    def reduceRange(from: Int, until: Int): Float = {
+      var acc = identity
+      var i = from
+      while (i < until) {
+        acc = op(acc, in.get(i))
+        i += 1
+      }
+      acc
+    }
+    for (element <- 0 until inType.tensorShape.points) {
+      val inBase = element * inPoints
+      val outBase = element * outPoints
+      if (outPoints == 1) {
+        // A single result: reduce pieces of the page in parallel, then combine them.
+        val partials = new java.util.concurrent.ConcurrentLinkedQueue[java.lang.Float]
+        ParallelLoop(inPoints) { (from, until) =>
+          partials.add(reduceRange(inBase + from, inBase + until))
+        }
+        var result = identity
+        val iter = partials.iterator
+        while (iter.hasNext)
+          result = op(result, iter.next())
+        out.put(outBase, result)
+      }
+      else {
+        // Many results: each is computed serially, but they are spread over the pool.
+        def start(j: Int) = inBase + (j.toLong * inPoints / outPoints).toInt
+        ParallelLoop(outPoints, grain = 1) { (firstResult, lastResult) =>
+          for (j <- firstResult until lastResult)
+            out.put(outBase + j, reduceRange(start(j), start(j + 1)))
+        }
+      }
+    }
+  }
+
+  /** View the Buffer of a Float32 field memory as floats. */
+  private def floats(buffer: java.nio.Buffer): FloatBuffer = buffer.asInstanceOf[FloatBuffer]
+}
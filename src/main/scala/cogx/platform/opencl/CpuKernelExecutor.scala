@@ -0,0 +1,152 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.platform.opencl
+
+import java.util.concurrent.{ForkJoinPool, TimeUnit}
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory
+import java.util.concurrent.atomic.AtomicInteger
+
+import cogx.parameters.Cog
+import com.jogamp.opencl.CLEvent.ExecutionStatus
+import com.jogamp.opencl.{CLEventListener, CLUserEvent, CLEvent}
+
+/** Runs the steps of CPU kernels on a bounded work-stealing pool shared by all
+  * circuits, in place of one CPUKernelActor (and thread) per kernel.
+  *
+  * A step is not handed to the pool until all of its start events have
+  * completed: a completion callback is registered on each event, and the
+  * callback that brings the count of outstanding events to zero submits the
+  * step. No pool thread ever blocks waiting on the GPU, so the pool can be
+  * sized to the processor count however many sensors, actuators and user
+  * operators the circuits hold. A kernel whose compute() blocks (e.g. a
+  * sensor waiting on a camera) does tie up one pool thread while it waits.
+  *
+  * @author Dick Carter
+  */
+private[cogx]
+object CpuKernelExecutor {
+
+  /** Pool shared by all CPU kernels; sized by Cog.cpuKernelThreads (0 == one thread per processor). */
+  lazy val pool: ForkJoinPool = {
+    poolCreated = true
+    val threads =
+      if (Cog.cpuKernelThreads > 0)
+        Cog.cpuKernelThreads
+      else
+        Runtime.getRuntime.availableProcessors
+    val threadFactory = new ForkJoinWorkerThreadFactory {
+      def newThread(pool: ForkJoinPool) = {
+        val thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool)
+        // Name the threads to aide thread probing tools like jconsole
+        thread.setName("CpuKernelExecutor-" + thread.getPoolIndex)
+        thread
+      }
+    }
+    // Steps are independent tasks that are never joined, so use FIFO (async) mode.
+    new ForkJoinPool(threads, threadFactory, null, true)
+  }
+
+  /** Errors of the kernel steps are reported on stderr unless this is 0. */
+  var logLevel = 1
+  private[opencl] object Log {
+    private val Prefix = "CpuKernelExecutor"
+    def error(msg: String) { if (logLevel > 0) Console.err.println(Prefix+" [Error]: "+msg) }
+    def error(msg: String, e: Throwable) {
+      if (logLevel > 0) {
+        Console.err.println(Prefix+" [Error]: "+msg)
+        e.printStackTrace(Console.err)
+      }
+    }
+  }
+
+  /** True once the pool has been created. */
+  @volatile private var poolCreated = false
+
+  /** Wait (up to `timeoutMillis`) for the pool to have no steps running or
+    * queued, so that the memory the steps use can safely be freed. The pool is
+    * shared, so this also waits for the steps of every other running circuit.
+    *
+    * @return True if the pool went idle, false on timeout.
+    */
+  def awaitQuiescence(timeoutMillis: Long): Boolean =
+    !poolCreated || pool.awaitQuiescence(timeoutMillis, TimeUnit.MILLISECONDS)
+
+  /** Run one step of `kernel` once all of `startTriggers` have completed,
+    * setting `outputTrigger` to COMPLETE (or ERROR) when the step is done.
+    *
+    * @param kernel The kernel to run.
+    * @param startTriggers CLEvents that must complete before the step can start.
+    * @param outputTrigger CLUserEvent signaled when the step finishes.
+    * @param inputRegisters Input field registers with data needed for
+    *        computation.
+    * @param outputRegisters Registers that kernel writes with its result.
+    */
+  def submit(kernel: OpenCLCpuKernel,
+             startTriggers: Seq[CLEvent],
+             outputTrigger: CLUserEvent,
+             inputRegisters: Array[OpenCLFieldRegister],
+             outputRegisters: Array[OpenCLFieldRegister])
+  {
+    val step = new PendingStep(kernel, startTriggers.length, outputTrigger,
+      inputRegisters, outputRegisters)
+    if (startTriggers.length == 0)
+      pool.execute(step)
+    else
+      startTriggers.foreach(_.registerCallback(step))
+  }
+
+  /** A kernel step waiting for `triggerCount` events before it can run.
+    *
+    * OpenCL invokes the completion callbacks on threads of its own choosing,
+    * so the callback does nothing beyond counting and submitting the step.
+    */
+  private class PendingStep(kernel: OpenCLCpuKernel,
+                            triggerCount: Int,
+                            outputTrigger: CLUserEvent,
+                            inputRegisters: Array[OpenCLFieldRegister],
+                            outputRegisters: Array[OpenCLFieldRegister])
+    extends Runnable with CLEventListener
+  {
+    private val pendingTriggers = new AtomicInteger(triggerCount)
+    /** Set if any start event terminated abnormally (negative status). */
+    @volatile private var inputFailed = false
+
+    def eventStateChanged(event: CLEvent, status: Int) {
+      if (status < 0)
+        inputFailed = true
+      if (pendingTriggers.decrementAndGet() == 0)
+        pool.execute(this)
+    }
+
+    /** Compute the step; this mirrors the handling of Step in CPUKernelActor. */
+    def run() {
+      if (inputFailed) {
+        Log.error("CPU kernel " + kernel + " not run: an input failed")
+        outputTrigger.setStatus(ExecutionStatus.ERROR)
+      }
+      else try {
+        kernel.computeStep(inputRegisters, outputRegisters)
+        outputTrigger.setComplete()
+      }
+      catch {
+        case e: Exception =>
+          Log.error("CPU kernel " + kernel + " failed", e)
+          outputTrigger.setStatus(ExecutionStatus.ERROR)
+      }
+    }
+  }
+}
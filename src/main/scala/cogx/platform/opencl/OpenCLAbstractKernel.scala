@@ -19,8 +19,12 @@ package cogx.platform.opencl
 import cogx.platform.types.KernelCodeTypes.CogOpenCL
 import com.jogamp.opencl._
 import cogx.platform.types.{VirtualFieldRegister, FieldType, AbstractKernel, Opcode}
+import cogx.platform.opencl.OpenCLEventCache._
+import cogx.runtime.metrics.KernelMetrics
 import cogx.utilities.Stats
 
+import scala.collection.mutable
+
 /** Base for OpenCL kernels (both device and CPU) that provides for the
   * binding of buffers to the inputs and outputs of those kernels, and for
   * instantiation of those kernels so they can executed.
@@ -127,6 +131,40 @@ abstract class OpenCLAbstractKernel(opcode: Opcode,
   /** Accumulator of microsecond kernel execution times, if profiled */
   lazy val stats = new Stats(" us")
 
+  /** Measurements kept for the ComputeGraph's metrics registry, null if Cog.metrics is off. */
+  @volatile private[cogx] var metrics: KernelMetrics = null
+
+  /** Events from the previous step that must also trigger before this kernel
+    * can start. Empty unless steps are pipelined (see GPUSupervisor).
+    */
+  private[cogx] var priorStepTriggers = Array[CLEvent]()
+
+  /** `done` event lists of earlier steps, oldest first, kept alive while
+    * steps are pipelined because later steps may still be waiting on them.
+    */
+  private val retainedTriggers = new mutable.Queue[CLEventList]
+
+  /** Keep the current step's `done` event for use by the next step, giving
+    * this kernel a fresh event list for its next launch.
+    */
+  private[cogx] def retainOutputTrigger() {
+    retainedTriggers.enqueue(outputTrigger)
+    outputTrigger = new CLEventList(CLEventFactory, 1)
+  }
+
+  /** The `done` event of the most recently retained step. */
+  private[cogx] def retainedDone: CLEvent = retainedTriggers.last.getEvent(0)
+
+  /** Check the completion of the most recently retained step (see phase2Clock). */
+  private[cogx] def checkRetainedTrigger() {
+    checkCompletion(retainedTriggers.last)
+  }
+
+  /** Release the events of the oldest retained step. */
+  private[cogx] def releaseRetainedTrigger() {
+    retainedTriggers.dequeue().release()
+  }
+
   /** Called by OpenCLDevice. Instantiates the kernel for execution on a device
     * (if it's a GPU kernel) or on the CPU.
     */
@@ -179,7 +217,15 @@ abstract class OpenCLAbstractKernel(opcode: Opcode,
     * and initialize resources for next computation cycle. Must be called after
     * the done event is complete.
     */
-  private[cogx] def phase2Clock(): Unit
+  private[cogx] final def phase2Clock() {
+    checkCompletion(outputTrigger)
+    outputTrigger.release()
+  }
+
+  /** Check that the computation signalled by the event in `trigger` completed
+    * correctly, recording its execution time if profiled.
+    */
+  protected def checkCompletion(trigger: CLEventList): Unit
 
   /** Get the input register for input `inputIndex`. */
   final def inputRegister(inputIndex: Int): OpenCLFieldRegister =
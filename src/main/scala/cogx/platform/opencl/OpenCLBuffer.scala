@@ -29,6 +29,7 @@ import com.jogamp.opencl.CLImageFormat.{ChannelOrder, ChannelType}
 import cogx.platform.opencl.OpenCLEventCache._
 import com.jogamp.opencl.CLException.CLMemObjectAllocationFailureException
 import com.jogamp.opencl.llb.CL
+import cogx.runtime.metrics.TraceRecorder
 
 /** OpenCL buffers that hold fields. Each field consists of an optional
   * CPU (host) part and a GPU (device) part. See base class for a more
@@ -41,9 +42,13 @@ import com.jogamp.opencl.llb.CL
   * class is to tease away any notion of the FieldType.  This may not be totally feasible
   * since "image" memories and "buffer" memories can not be shared even if they are the same size.
   *
+  * A buffer created without a command queue is "host resident": it has no GPU part and its
+  * cpuMemory is always the authoritative copy of the field, so reads and writes involve no
+  * transfers.  Such buffers are used by the JVM backend, which runs without any OpenCL devices.
+  *
   * @param gpuBufferCapacityBytes The maximum size field this buffer can hold in GPU memory.
   * @param cpuUseFieldType Type of the field held in the buffer (as viewed from the CPU)
-  * @param commandQueue OpenCL command queue available to this buffer.
+  * @param commandQueue OpenCL command queue available to this buffer, null for a host-resident buffer.
   * @param requestedBufferType The type of buffer to attempt to allocate.
   * @param fieldMemoryAllocator The allocator to use for the cpu-side memory.
   *
@@ -84,8 +89,16 @@ class OpenCLBuffer private[opencl]
   /** Actual cpu memory type: heap, non-heap pageable or non-heap pinned. */
   private var bufferType = requestedBufferType
 
+  require(!requestedBufferType.isInstanceOf[MappedBuffer], "OpenCL buffers cannot use file-mapped cpu memory")
+
+  /** A buffer with no command queue lives only in cpuMemory (no GPU part, no transfers). */
+  private val hostResident = commandQueue == null
+
   private def clContext = commandQueue.clContext
 
+  /** Type of the field held in the buffer, as viewed from the CPU. */
+  private[cogx] def fieldType: FieldType = cpuUseFieldType
+
   private val cpuAndGPUSizesMatch = {
     val cpuSizeBytes = new FieldMemoryLayoutImpl(cpuUseFieldType).longBufferSizeBytes
     if (cpuSizeBytes > gpuBufferCapacityBytes)
@@ -97,7 +110,7 @@ class OpenCLBuffer private[opencl]
   /** Memory on the CPU side, lazily instantiated. */
   def cpuMemory: AbstractFieldMemory = clMemoryLock.synchronized {
     if (_cpuMemory == null) {
-      _cpuMemory = requestedBufferType match {
+      _cpuMemory = (requestedBufferType: @unchecked) match {
         case PinnedDirectBuffer =>
           require(commandQueue != null, "need command queue for pinned buffer")
           try {
@@ -118,9 +131,9 @@ class OpenCLBuffer private[opencl]
         case IndirectBuffer =>
           fieldMemoryAllocator.indirect(cpuUseFieldType)
       }
-      /** Attach the NIO buffer to a clMemory if it already exists. */
-      if (!isImage2dBuffer && _deviceBuffer != null)
-        _deviceBuffer = _deviceBuffer.cloneWith[FloatBuffer](_cpuMemory.directBuffer.asInstanceOf[FloatBuffer])
+      /** Attach the NIO buffer to a clMemory if it already exists (segmented memories have none). */
+      if (!isImage2dBuffer && _deviceBuffer != null && !_cpuMemory.isSegmented)
+        _deviceBuffer = _deviceBuffer.cloneWith[Buffer](_cpuMemory.directBuffer)
     }
     _cpuMemory
   }
@@ -152,11 +165,19 @@ class OpenCLBuffer private[opencl]
         // Since the buffer size *can't* be represented by an unsigned int, we use reflection
         // to bypass the standard JOCL interface (implementation dependent, so probably fragile).
         OpenCLBuffer.createLargeBuffer(clContext, gpuBufferCapacityBytes, Mem.READ_WRITE)
+      } else if (_cpuMemory != null && _cpuMemory.isSegmented) {
+        // The cpu memory is too big for a single NIO buffer, so it's transferred a segment
+        // at a time (see copyToGPU()) and the clMemory has no CPU-side component.
+        OpenCLBuffer.createLargeBuffer(clContext, gpuBufferCapacityBytes, Mem.READ_WRITE)
       } else if (_cpuMemory != null && cpuAndGPUSizesMatch) {
         clContext.createBuffer(cpuMemory.directBuffer, Mem.READ_WRITE)
       } else {
-        val gpuMemOnly = clContext.createBuffer(toIntBufferSizeBytes(gpuBufferCapacityBytes), Mem.READ_WRITE)
-        gpuMemOnly.cloneWith[FloatBuffer](_cpuMemory.directBuffer.asInstanceOf[FloatBuffer])
+        val gpuMemOnly =
+          if (gpuBufferCapacityBytes > Int.MaxValue.toLong)
+            OpenCLBuffer.createLargeBuffer(clContext, gpuBufferCapacityBytes, Mem.READ_WRITE)
+          else
+            clContext.createBuffer(toIntBufferSizeBytes(gpuBufferCapacityBytes), Mem.READ_WRITE)
+        gpuMemOnly.cloneWith[Buffer](_cpuMemory.directBuffer)
       }
     }
     _deviceBuffer
@@ -205,16 +226,35 @@ class OpenCLBuffer private[opencl]
 
   /** Read the field. Synchronized to avoid unnecessary duplication of reads */
   def read: AbstractFieldMemory = cpuMemoryValidLock.synchronized {
-    if (!_cpuMemoryValid) {
+    if (!_cpuMemoryValid && !hostResident) {
+      val traceStart = TraceRecorder.startNanos
       if (isImage2dBuffer)
         copyImage2dFromGPU()
       else
         copyFromGPU()
       _cpuMemoryValid = true
+      if (traceStart != 0L)
+        TraceRecorder.endSpan("transfer", "read " + toString, traceStart)
     }
     cpuMemory
   }
 
+  /** Copy the field into `to`, a field memory of the same type that is not
+    * this buffer's cpuMemory, without disturbing the cpuMemory cache. The
+    * copy is complete on return.
+    *
+    * @param to The field memory receiving the field data.
+    */
+  private[cogx] def readInto(to: AbstractFieldMemory): Unit = cpuMemoryValidLock.synchronized {
+    require(to.fieldType == cpuUseFieldType, s"$toString readInto: field type mismatch: ${to.fieldType}")
+    if (_cpuMemoryValid || hostResident || isImage2dBuffer)
+      read.copyTo(to)
+    else if (to.isSegmented)
+      copySegmentsFromGPU(to.segmentedBuffer)
+    else
+      commandQueue.putReadBuffer(deviceBuffer.asInstanceOf[CLBuffer[_]].cloneWith(to.directBuffer))
+  }
+
   /** Write the field synchronously to the GPU, blocking until complete. */
   def write: Unit =  {
     if (Verbose)
@@ -222,10 +262,15 @@ class OpenCLBuffer private[opencl]
     // If we're writing from cpu memory to the gpu, the cpu memory BETTER
     // be valid. It's the caller's resonsibility to ensure that.
     _cpuMemoryValid = true
-    if (isImage2dBuffer)
-      copyImage2dToGPU()
-    else
-      copyToGPU()
+    if (!hostResident) {
+      val traceStart = TraceRecorder.startNanos
+      if (isImage2dBuffer)
+        copyImage2dToGPU()
+      else
+        copyToGPU()
+      if (traceStart != 0L)
+        TraceRecorder.endSpan("transfer", "write " + toString, traceStart)
+    }
     if (Verbose)
       println(toString + ".write DONE")
   }
@@ -257,10 +302,14 @@ class OpenCLBuffer private[opencl]
   private def isComplexBuffer =
     cpuUseFieldType.elementType == Complex32
 
-  /** Release OpenCL buffer resource (garbage collector gets direct buffer). */
+  /** Release OpenCL buffer resource, returning the cpu memory to its allocator's pool. */
   private[cogx] def release(): Unit = clMemoryLock.synchronized {
     if (_deviceBuffer != null  && !_deviceBuffer.isReleased)
       _deviceBuffer.release()
+    if (_cpuMemory != null) {
+      fieldMemoryAllocator.release(_cpuMemory)
+      _cpuMemory = null
+    }
   }
 
   /** An CLEventList to hold completion events for asynchronous CPU -> GPU data transfers. */
@@ -277,7 +326,9 @@ class OpenCLBuffer private[opencl]
     // the "libsleep.so" library which forces the polling NVIDIA driver to sleep periodically.  One theory then
     // on the cause of the hanging is that an Actor thread of the runtime is scheduled to the same core
     // as a presumably higher-priority NVIDIA driver thread that polls continuously.
-    if (bufferType == PinnedDirectBuffer) {
+    if (cpuMemory.isSegmented)
+      copySegmentsToGPU(cpuMemory.segmentedBuffer)
+    else if (bufferType == PinnedDirectBuffer) {
       commandQueue.putWriteBufferAsync(deviceBuffer.asInstanceOf[CLBuffer[_]], copyToGPUEventList)
       copyToGPUEventList.waitForEvents()
       checkStatus(copyToGPUEventList, "copyToGPU")
@@ -310,7 +361,9 @@ class OpenCLBuffer private[opencl]
     // non-blocking form of the putReadBuffer call (even though the completion event is waited for immediately).
     // We only use the non-blocking putReadBuffer call with pinned buffers since the runtime was
     // seen to deadlock when used with pageable direct buffers.  See copyToGPU() for further comments.
-    if (bufferType == PinnedDirectBuffer) {
+    if (cpuMemory.isSegmented)
+      copySegmentsFromGPU(cpuMemory.segmentedBuffer)
+    else if (bufferType == PinnedDirectBuffer) {
       commandQueue.putReadBufferAsync(deviceBuffer.asInstanceOf[CLBuffer[_]], copyFromGPUEventList)
       copyFromGPUEventList.waitForEvents()
       checkStatus(copyFromGPUEventList, "copyFromGPU")
@@ -320,6 +373,20 @@ class OpenCLBuffer private[opencl]
       commandQueue.putReadBuffer(deviceBuffer.asInstanceOf[CLBuffer[_]])
   }
 
+  /** Copy the segments of a field too big for a single NIO buffer to the GPU memory, blocking until completion. */
+  private def copySegmentsToGPU(from: SegmentedBuffer) {
+    val clBuffer = deviceBuffer.asInstanceOf[CLBuffer[_]]
+    for (i <- from.segments.indices)
+      commandQueue.putWriteBuffer(clBuffer, from.segmentOffsetBytes(i), from.segments(i))
+  }
+
+  /** Copy the GPU memory into the segments of a field too big for a single NIO buffer, blocking until completion. */
+  private def copySegmentsFromGPU(to: SegmentedBuffer) {
+    val clBuffer = deviceBuffer.asInstanceOf[CLBuffer[_]]
+    for (i <- to.segments.indices)
+      commandQueue.putReadBuffer(clBuffer, to.segmentOffsetBytes(i), to.segments(i))
+  }
+
   // The copying of image memories is treated a bit differently than buffer memories in that the blocking
   // form of the copy is never used withing the OpenCLParallelCommandQueue implementation.  The reason for
   // this is that the JOCL image copy interface is not thread safe and needs synchronization barriers.  Thus,
@@ -338,87 +405,6 @@ class OpenCLBuffer private[opencl]
   /** Debugging string. */
   override def toString: String =
     "OpenCLBuffer" + id
-
-  //////////////////////////////////////////////////////////////////////////////
-  //
-  // The remaining methods may not be needed anymore
-  //
-  //////////////////////////////////////////////////////////////////////////////
-
-
-  /** Debug flag. */
-  val VerboseCopy = false
-  /** Enable multiple threads to perform copies for big fields */
-  val ParallelCopy = true
-  /** To protect OS, limit the number of threads any copy can use */
-  val MaxCopyThreads = 8   // This setting should be 1 or more
-  /** Minimum field elements before additional copy threads get created */
-  val FloatsPerCopy = 1024L * 1024  // represents about 1 msec of work
-
-  /** Copy data "from" --> "to". */
-  /*
-  protected def copyFloatToBuffer(from: Array[Float], to: CLMemory[FloatBuffer]) {
-    if (VerboseCopy)
-      println("Copy CPU --> GPU: " + from.length + " Floats.")
-    to.getBuffer.put(from)
-    to.getBuffer.rewind
-  }
-  */
-
-  /** Copy data "from" --> "to". */
-  /*
-  protected def copyBufferToFloat(from: CLMemory[FloatBuffer], to: Array[Float]) {
-    if (VerboseCopy)
-      println("Copy CPU <-- GPU: " + to.length + " Floats.")
-    val buffer = from.getBuffer
-    buffer.get(to)
-    buffer.rewind
-  }
-  */
-
-  /** Copy data "from" --> "to". */
-  /*
-  protected def copyFloatToDirectBuffer(from: Array[Float], toDirect: FloatBuffer) {
-    if (VerboseCopy)
-      println("Copy CPU --> Direct Memory: " + from.length + " Floats.")
-    //    val startTime = java.lang.System.nanoTime()
-    if (ParallelCopy)
-      copyFloatToDirectBufferParallel(from, toDirect)
-    else
-      toDirect.put(from)
-    //    val endTime = java.lang.System.nanoTime()
-    //    val durationMS = (endTime - startTime) / 1000000.0
-    //    println("Copy took " + durationMS + " ms")
-    toDirect.rewind
-  }
-  */
-
-  /** Uses scala futures to spread out copy job over multiple threads */
-  /*
-  private def copyFloatToDirectBufferParallel(from: Array[Float], toDirect: FloatBuffer) {
-
-    def partialCopy(buffer: FloatBuffer, startIndex: Int, untilIndex: Int) {
-      buffer.position(startIndex)
-      val copyLength = untilIndex - startIndex
-      buffer.put(from, startIndex, copyLength)
-    }
-    val totalLength = from.length.toLong
-    val desiredThreads = 1 + totalLength/FloatsPerCopy
-    val numCopyThreads = math.min(desiredThreads, MaxCopyThreads).toInt
-
-    throw new RuntimeException("Code needs to be ported to Akka actors.")
-  }
-  */
-
-  /** Copy data "from" --> "to". */
-  /*
-  protected def copyDirectBufferToFloat(fromDirect: FloatBuffer, to: Array[Float]) {
-    if (VerboseCopy)
-      println("Copy CPU <-- GPU: " + to.length + " Floats.")
-    fromDirect.get(to)
-    fromDirect.rewind
-  }
-  */
 }
 
 /** Companion object for OpenCLBuffer.
@@ -434,6 +420,18 @@ object OpenCLBuffer {
     bufferCount
   }
 
+  /** Create a host-resident buffer (no GPU part) holding a field of type `fieldType`.
+    *
+    * @param fieldType The type of the field held in the buffer.
+    * @param bufferType The type of cpu memory to allocate (pinned memory needs a device, so is illegal here).
+    * @param fieldMemoryAllocator The allocator to use for the cpu-side memory.
+    */
+  def hostResident(fieldType: FieldType, bufferType: BufferType, fieldMemoryAllocator: FieldMemory): OpenCLBuffer = {
+    require(bufferType != PinnedDirectBuffer, "pinned buffers require an OpenCL command queue")
+    val sizeBytes = new FieldMemoryLayoutImpl(fieldType).longBufferSizeBytes
+    new OpenCLBuffer(sizeBytes, fieldType, null, bufferType, fieldMemoryAllocator)
+  }
+
   /** Create a buffer that can have a size greater than Int.MaxValue, using reflection to get
     * around the unfortunate use of Int's in the JOCL wrapping of the OpenCL interface.  The
     * JOCL code that is side-stepped is the following:
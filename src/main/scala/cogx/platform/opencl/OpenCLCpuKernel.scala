@@ -22,6 +22,7 @@ import com.jogamp.opencl.CLEvent.ExecutionStatus
 import com.jogamp.opencl._
 import cogx.platform.types.{VirtualFieldRegister, FieldType, Opcode}
 import cogx.platform.opencl.OpenCLEventCache._
+import cogx.runtime.metrics.TraceRecorder
 import akka.actor.ActorRef
 
 /** Base class for a kernel which runs on the CPU.
@@ -47,7 +48,9 @@ abstract class OpenCLCpuKernel(opcode: Opcode,
   val kernelType: KernelType = UnrestorableKernelType
   /** Input events that must happen before computation can start. */
   private val inputTriggers = new Array[CLEvent](in.length)
-  /** Actor which runs this kernel, only used if `needActor` is true. */
+  /** Actor which runs this kernel, only used if `needActor` is true. Kernels
+    * needing an actor that have not had one injected run on the CpuKernelExecutor.
+    */
   private var kernelActor: ActorRef = null
 
   val hasActor = needActor && !Cog.profile
@@ -72,13 +75,21 @@ abstract class OpenCLCpuKernel(opcode: Opcode,
     // Collect all events that must be triggered before execution can begin.
     for (i <- 0 until in.length)
       inputTriggers(i) = in(i).source.asInstanceOf[OpenCLAbstractKernel].done.getEvent(0)
+    val startTriggers =
+      if (priorStepTriggers.length == 0)
+        inputTriggers
+      else
+        inputTriggers ++ priorStepTriggers
 
     val inputRegs = inputRegisters.toArray
 
-    if (hasActor) {
+    if (hasActor && kernelActor == null) {
+      // Run on the shared executor once the start triggers complete.
+      CpuKernelExecutor.submit(this, startTriggers, userEvent, inputRegs, outputRegisters)
+    } else if (hasActor) {
       // Run in actor.
       val message =
-        Step(inputTriggers,
+        Step(startTriggers,
           userEvent,
           inputRegs,
           outputRegisters)
@@ -86,7 +97,7 @@ abstract class OpenCLCpuKernel(opcode: Opcode,
     } else {
       // Run in-line.
       // Wait until input triggers occur.
-      waitForEvents(inputTriggers)
+      awaitStartTriggers(startTriggers)
 
       val startTime =
         if (Cog.profile && needActor)
@@ -100,7 +111,7 @@ abstract class OpenCLCpuKernel(opcode: Opcode,
 
       // This should be similar handling of the compute() call as found in the CpuKernelActor code
       try {
-        compute(inputRegs, outputRegisters)
+        computeStep(inputRegs, outputRegisters)
         // Fire output events to enable computation by consumers
         userEvent.setComplete()
       }
@@ -117,12 +128,11 @@ abstract class OpenCLCpuKernel(opcode: Opcode,
     }
   }
 
-  /** Check the result of the computation, making sure it completed correctly,
-    * and initialize resources for next computation cycle. Must be called after
-    * the done event is complete.
+  /** Check the result of the computation, making sure it completed correctly.
+    * Must be called after the done event is complete.
     */
-  final def phase2Clock() {
-    val event = outputTrigger.getEvent(0)
+  protected final def checkCompletion(trigger: CLEventList) {
+    val event = trigger.getEvent(0)
     try {
       // event.getStatus() may throw a CLException if the error is unknown
       event.getStatus match {
@@ -140,7 +150,34 @@ abstract class OpenCLCpuKernel(opcode: Opcode,
         throw new RuntimeException(toString + " " + name +
           " fails by throwing exception: " + e)
     }
-    outputTrigger.release()
+  }
+
+  /** Perform the computation of one step, recording its duration if metrics
+    * are kept. Used by all the ways a step may be run (in-line, in an actor,
+    * or on the CpuKernelExecutor).
+    */
+  private[cogx] def computeStep(in: Array[OpenCLFieldRegister], out: Array[OpenCLFieldRegister]) {
+    val kernelMetrics = metrics
+    val trace = TraceRecorder.active
+    val startNanos = if (kernelMetrics != null || trace != null) System.nanoTime() else 0L
+    compute(in, out)
+    if (kernelMetrics != null || trace != null) {
+      val endNanos = System.nanoTime()
+      if (kernelMetrics != null)
+        kernelMetrics.recordExecution((endNanos - startNanos) / 1000.0)
+      if (trace != null)
+        trace.hostSpan("cpu", opcode.toString + "_" + id, startNanos, endNanos)
+    }
+  }
+
+  /** Block until `startTriggers` have completed, tracing the stall if a
+    * trace is being recorded.
+    */
+  private[cogx] def awaitStartTriggers(startTriggers: Seq[CLEvent]) {
+    val traceStart = TraceRecorder.startNanos
+    waitForEvents(startTriggers)
+    if (traceStart != 0L)
+      TraceRecorder.endSpan("wait", "inputs of " + opcode.toString + "_" + id, traceStart)
   }
 
   /** Reset / initialize the kernel state.  */
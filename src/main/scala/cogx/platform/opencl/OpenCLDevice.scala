@@ -43,7 +43,7 @@ class OpenCLDevice private[opencl](val clDevice: CLDevice,
   /** Buffers for this device. */
   private var fieldBuffers = new IdentityHashSet[OpenCLBuffer]
   /** Command queue used to hold all commands to the device. */
-  val commandQueue = new OpenCLParallelCommandQueue(this, profilerUse || Cog.profile)
+  val commandQueue = new OpenCLParallelCommandQueue(this, profilerUse || Cog.profile || Cog.metrics)
   /** Compiled program to run on this device. */
   private var _program: OpenCLProgram = null// = new OpenCLProgram(this)
   /** Kernels which run on the CPU (but which require GPU buffers). */
@@ -62,6 +62,12 @@ class OpenCLDevice private[opencl](val clDevice: CLDevice,
     _program
   }
 
+  /** The program of this device if it has been built, without creating one if there is none. */
+  def builtProgram: Option[OpenCLProgram] = {
+    val existing = _program
+    if (existing != null && existing.isBuilt) Some(existing) else None
+  }
+
   // Still developing a solution for the following problem:
   //
   // Suppose you are compiling and running multiple compute graphs simultaneously.  You wouldn't want the profiling
@@ -20,8 +20,9 @@ import cogx.parameters.Cog
 import cogx.platform.checkpoint.{Saveable, ObjectSaver}
 import cogx.platform.types.KernelTypes.{DeviceKernelType, KernelType}
 import cogx.runtime.ComputeGraphSaverState
+import cogx.runtime.metrics.TraceRecorder
 import com.jogamp.opencl._
-import cogx.platform.types.{VirtualFieldRegister, FieldType, Opcode}
+import cogx.platform.types.{FieldMemoryLayoutImpl, VirtualFieldRegister, FieldType, Opcode}
 import cogx.platform.opencl.OpenCLEventCache._
 
 import scala.collection.mutable
@@ -52,11 +53,45 @@ abstract class OpenCLDeviceKernel(opcode: Opcode,
   private val inputTriggers = new Array[CLEvent](in.length)
   /** Output event triggered when computation finished. */
   outputTrigger = new CLEventList(CLEventFactory, 1)
+  /** Index of the device's execution queue that this kernel is launched on
+    * (assigned by the GPUSupervisor, see QueueAssignment).
+    */
+  private[cogx] var executionQueue = 0
 
   /** Create a short string for debugging. */
   override def toString: String =
     "OpenCLDeviceKernel_" + id + "(" + opcode.toString + ")"
 
+  /** Estimated global memory bytes read by one execution: each distinct input
+    * buffer read once. This is the compulsory traffic; re-reads of an input
+    * (as by a convolution) are assumed to hit in cache or local memory.
+    */
+  private[cogx] def estimatedBytesRead: Long = {
+    val distinctInputs = new mutable.ArrayBuffer[VirtualFieldRegister]
+    for (input <- inputs; if !distinctInputs.exists(_ eq input))
+      distinctInputs += input
+    distinctInputs.map(input => new FieldMemoryLayoutImpl(input.fieldType).longBufferSizeBytes).sum
+  }
+
+  /** Estimated global memory bytes written by one execution: each output buffer written once. */
+  private[cogx] def estimatedBytesWritten: Long =
+    resultTypes.map(new FieldMemoryLayoutImpl(_).longBufferSizeBytes).sum
+
+  /** Estimated arithmetic ops performed by one execution, 0 if no estimate is available. */
+  private[cogx] def estimatedOps: Long = 0L
+
+  /** The bandwidth and arithmetic rate achieved by an execution taking
+    * `usecs`, based on the estimates above, e.g. "12.1 GB/s, 3.02 GFLOP/s".
+    */
+  private[cogx] def achievedRates(usecs: Double): String =
+    if (usecs <= 0.0)
+      ""
+    else {
+      val gbPerSec = (estimatedBytesRead + estimatedBytesWritten) / usecs / 1000.0
+      val gflopsPerSec = estimatedOps / usecs / 1000.0
+      "%.1f GB/s, %.2f GFLOP/s".format(gbPerSec, gflopsPerSec)
+    }
+
   /** Reset / initialize the kernel state.  */
   final def reset() {
   }
@@ -77,7 +112,15 @@ abstract class OpenCLDeviceKernel(opcode: Opcode,
     // "readyForGPURead".  Some data-set-copying smarts can be built into
     // the registers as they ask their source-kernel for their "doneness".  -RJC
     for (i <- 0 until in.length) {
-      inputTriggers(i) = in(i).source.asInstanceOf[OpenCLAbstractKernel].done.getEvent(0)
+      val source = in(i).source.asInstanceOf[OpenCLAbstractKernel]
+      inputTriggers(i) = source.done.getEvent(0)
+      // A producer on another execution queue must have its queue flushed
+      // before we wait on it.
+      source match {
+        case producer: OpenCLDeviceKernel if producer.executionQueue != executionQueue =>
+          commandQueue.flushExecutionQueue(producer.executionQueue)
+        case _ =>
+      }
     }
 
     // Attach the input and output buffers to the kernel. These can be changed
@@ -90,7 +133,9 @@ abstract class OpenCLDeviceKernel(opcode: Opcode,
 
     // Create the event list that the kernel must wait on before executing
     val waitFor =
-      if (inputTriggers.size > 0)
+      if (priorStepTriggers.length > 0)
+        new CLEventList(CLEventFactory, inputTriggers ++ priorStepTriggers: _*)
+      else if (inputTriggers.size > 0)
         new CLEventList(CLEventFactory, inputTriggers: _*)
       else
         null.asInstanceOf[CLEventList]
@@ -100,11 +145,11 @@ abstract class OpenCLDeviceKernel(opcode: Opcode,
   }
 
   /** Check the result of the computation, making sure it completed correctly,
-    * and initialize resources for next computation cycle. Must be called after
-    * the done event is complete.
+    * recording its execution time if profiled. Must be called after the done
+    * event is complete.
     */
-  final def phase2Clock() {
-    val event = outputTrigger.getEvent(0)
+  protected final def checkCompletion(trigger: CLEventList) {
+    val event = trigger.getEvent(0)
     try {
       // event.getStatus() may throw a CLException if the error is unknown
       event.getStatus match {
@@ -121,6 +166,17 @@ abstract class OpenCLDeviceKernel(opcode: Opcode,
               val endNanos = event.getProfilingInfo(CLEvent.ProfilingCommand.END)
               val durationUsecs = (endNanos - startNanos) / 1000.0
               stats.addSample(durationUsecs)
+              if (metrics != null) {
+                val submitNanos = event.getProfilingInfo(CLEvent.ProfilingCommand.SUBMIT)
+                metrics.recordExecution(durationUsecs)
+                metrics.recordLaunchOverhead(math.max(0L, startNanos - submitNanos) / 1000.0)
+              }
+              val trace = TraceRecorder.active
+              if (trace != null) {
+                val submitNanos = event.getProfilingInfo(CLEvent.ProfilingCommand.SUBMIT)
+                trace.deviceSpan(clDevice.getName + " (" + clDevice.getID + ")", executionQueue,
+                  opcode.toString + "_" + id, submitNanos, startNanos, endNanos, System.nanoTime())
+              }
             }
           }
         case other =>
@@ -133,7 +189,6 @@ abstract class OpenCLDeviceKernel(opcode: Opcode,
         throw new RuntimeException(toString + " " + name +
           " fails by throwing exception: " + e)
     }
-    outputTrigger.release()
   }
 
   /** Legacy routine used to debug strange (non-causal) NVIDIA profiling times circa 2014. */
@@ -196,19 +251,19 @@ abstract class OpenCLDeviceKernel(opcode: Opcode,
             0L, 0L, 0L,
             parms.globalColumns, parms.globalRows, parms.globalLayers,
             parms.localColumns, parms.localRows, parms.localLayers,
-            conditionsForLaunch, done)
+            conditionsForLaunch, done, executionQueue)
         case 2 =>
           commandQueue.put2DRangeKernel(clKernel,
             0L, 0L,
             parms.globalColumns, parms.globalRows,
             parms.localColumns, parms.localRows,
-            conditionsForLaunch, done)
+            conditionsForLaunch, done, executionQueue)
         case 1 =>
           commandQueue.put1DRangeKernel(clKernel,
             0L,
             parms.globalColumns,
             parms.localColumns,
-            conditionsForLaunch, done)
+            conditionsForLaunch, done, executionQueue)
         case x =>
           require(requirement = false,
             "Illegal dimensions for launchKernel: " + x)
@@ -19,6 +19,7 @@ package cogx.platform.opencl
 import cogx.parameters.Cog
 import com.jogamp.opencl._
 import java.nio.ByteBuffer
+import com.jogamp.common.nio.PointerBuffer
 import cogx.platform.opencl.OpenCLEventCache._
 
 /** A command queue with the same interface (more or less) as a CLCommandQueue,
@@ -51,8 +52,17 @@ class OpenCLParallelCommandQueue (device: OpenCLDevice, _profile: Boolean = true
   private val readQueue = createCommandQueue()
   /** Command queue for CPU -> GPU copies (i.e. GPU writes). */
   private val writeQueue = createCommandQueue()
-  /** Command queue for asynchronous kernel execution. There will be more... */
-  private val executionQueue = createCommandQueue()
+  /** Number of command queues for asynchronous kernel execution. */
+  val executionQueueCount = math.max(1, Cog.executionQueues)
+  /** Command queues for asynchronous kernel execution. Kernels on different
+    * queues are ordered only by the events they wait on.
+    */
+  private val executionQueues = Array.fill(executionQueueCount)(createCommandQueue())
+  /** True if kernels may execute in an order other than that in which they
+    * were enqueued, either within a raw command queue or across the
+    * execution queues.
+    */
+  val concurrentExecution = outOfOrderExecution || executionQueueCount > 1
   /** The CLContext in which the CommandQueue lives. */
   def clContext: CLContext = device.clContext
 
@@ -62,14 +72,15 @@ class OpenCLParallelCommandQueue (device: OpenCLDevice, _profile: Boolean = true
       readQueue.release()
     if (!writeQueue.isReleased)
       writeQueue.release()
-    if (!executionQueue.isReleased)
-      executionQueue.release()
+    for (executionQueue <- executionQueues)
+      if (!executionQueue.isReleased)
+        executionQueue.release()
   }
 
   /** Wait until all command queues finish. Not recommended. Superset of flush
     * functionality. */
   def finish() {
-    executionQueue.finish()
+    executionQueues.foreach(_.finish())
     readQueue.finish()
     writeQueue.finish()
   }
@@ -77,24 +88,35 @@ class OpenCLParallelCommandQueue (device: OpenCLDevice, _profile: Boolean = true
   /** Ensure that all enqueued commands will be submitted to the device, but
     * don't wait for their completion (or their submission for that matter). */
   def flush() {
-    executionQueue.flush()
+    executionQueues.foreach(_.flush())
     readQueue.flush()
     writeQueue.flush()
   }
 
+  /** Submit the commands of one execution queue to the device. A kernel that
+    * waits on an event from another execution queue must have that queue
+    * flushed first, since OpenCL does not guarantee that a command queue
+    * submits its work otherwise.
+    *
+    * @param queue Index of the execution queue to flush.
+    */
+  def flushExecutionQueue(queue: Int) {
+    executionQueues(queue).flush()
+  }
+
   /** Synchronous, blocking call to get the byte buffer for `buffer`. */
   def putMapBuffer(buffer: CLBuffer[_], flag: CLMemory.Map): ByteBuffer = readQueue.synchronized {
     readQueue.putMapBuffer(buffer, flag, true)
   }
 
-  /** Launch 1D `kernel` asynchronously when `condition` triggers, triggering
-    * `events`. The `events` parameter must be an empty CLEventList of length
-    * 1; this will be filled in with the output event that will be triggered
-    * when execution completes.
+  /** Launch 1D `kernel` asynchronously on execution queue `queue` when
+    * `condition` triggers, triggering `events`. The `events` parameter must be
+    * an empty CLEventList of length 1; this will be filled in with the output
+    * event that will be triggered when execution completes.
     */
   def put1DRangeKernel(kernel: CLKernel, globalWorkOffset: Long,
                        globalWorkSize: Long, localWorkSize: Long,
-                       condition: CLEventList, events: CLEventList)
+                       condition: CLEventList, events: CLEventList, queue: Int)
   {
     // I've commented out these flushes for two reasons:
     // 1. We're not using OpenCL buffers across multiple devices, since
@@ -112,47 +134,47 @@ class OpenCLParallelCommandQueue (device: OpenCLDevice, _profile: Boolean = true
     // Flush required by OpenCL 1.1 spec to sync multiple command queues since
     // devices are allowed to cache state.
     //    readWriteQueue.flush
-    executionQueue.put1DRangeKernel(kernel, globalWorkOffset,
+    executionQueues(queue).put1DRangeKernel(kernel, globalWorkOffset,
       globalWorkSize, localWorkSize, condition, events)
   }
 
-  /** Launch 2D `kernel` asynchronously when `condition` triggers, triggering
-    * `events`. The `events` parameter must be an empty CLEventList of length
-    * 1; this will be filled in with the output event that will be triggered
-    * when execution completes.
+  /** Launch 2D `kernel` asynchronously on execution queue `queue` when
+    * `condition` triggers, triggering `events`. The `events` parameter must be
+    * an empty CLEventList of length 1; this will be filled in with the output
+    * event that will be triggered when execution completes.
     */
   def put2DRangeKernel(kernel: CLKernel, globalWorkOffsetX: Long,
                        globalWorkOffsetY: Long, globalWorkSizeX: Long,
                        globalWorkSizeY: Long, localWorkSizeX: Long,
                        localWorkSizeY: Long,
-                       condition: CLEventList, events: CLEventList)
+                       condition: CLEventList, events: CLEventList, queue: Int)
   {
     // Flush required by OpenCL 1.1 spec to sync multiple command queues since
     // devices are allowed to cache state.
     //    readWriteQueue.flush
-    executionQueue.put2DRangeKernel(kernel, globalWorkOffsetX,
+    executionQueues(queue).put2DRangeKernel(kernel, globalWorkOffsetX,
       globalWorkOffsetY, globalWorkSizeX,
       globalWorkSizeY, localWorkSizeX,
       localWorkSizeY,
       condition, events)
   }
 
-  /** Launch 3D `kernel` asynchronously when `condition` triggers, triggering
-    * `events`. The `events` parameter must be an empty CLEventList of length
-    * 1; this will be filled in with the output event that will be triggered
-    * when execution completes.
+  /** Launch 3D `kernel` asynchronously on execution queue `queue` when
+    * `condition` triggers, triggering `events`. The `events` parameter must be
+    * an empty CLEventList of length 1; this will be filled in with the output
+    * event that will be triggered when execution completes.
     */
   def put3DRangeKernel(kernel: CLKernel, globalWorkOffsetX: Long,
                        globalWorkOffsetY: Long, globalWorkOffsetZ: Long,
                        globalWorkSizeX: Long, globalWorkSizeY: Long,
                        globalWorkSizeZ: Long, localWorkSizeX: Long,
                        localWorkSizeY: Long, localWorkSizeZ: Long,
-                       condition: CLEventList, events: CLEventList)
+                       condition: CLEventList, events: CLEventList, queue: Int)
   {
     // Flush required by OpenCL 1.1 spec to sync multiple command queues since
     // devices are allowed to cache state.
     //    readWriteQueue.flush
-    executionQueue.put3DRangeKernel(kernel, globalWorkOffsetX,
+    executionQueues(queue).put3DRangeKernel(kernel, globalWorkOffsetX,
       globalWorkOffsetY, globalWorkOffsetZ,
       globalWorkSizeX, globalWorkSizeY,
       globalWorkSizeZ, localWorkSizeX,
@@ -170,6 +192,39 @@ class OpenCLParallelCommandQueue (device: OpenCLDevice, _profile: Boolean = true
     writeQueue.putWriteBuffer(deviceBuffer, false, outputEvent)
   }
 
+  /** CL_TRUE, for the blocking low-level transfers below. */
+  private val Blocking = 1
+  /** No wait list or output event, for the low-level transfers below. */
+  private val NoEvents: PointerBuffer = null
+
+  /** Blocking write of `hostBuffer` into `deviceBuffer` starting at byte
+    * `offsetBytes`. The JOCL CLBuffer interface can't express offsets of 2GB
+    * or more, so this goes through the low-level binding; it is used to
+    * transfer segmented field memories one segment at a time.
+    *
+    * @param deviceBuffer Buffer which will receive the host data.
+    * @param offsetBytes Byte offset within `deviceBuffer` of the write.
+    * @param hostBuffer Direct buffer whose entire contents are written.
+    */
+  def putWriteBuffer(deviceBuffer: CLBuffer[_], offsetBytes: Long, hostBuffer: ByteBuffer) {
+    val status = clContext.getCL.clEnqueueWriteBuffer(writeQueue.ID, deviceBuffer.ID, Blocking,
+      offsetBytes, hostBuffer.capacity, hostBuffer, 0, NoEvents, NoEvents)
+    CLException.checkForError(status, s"can not write $offsetBytes+${hostBuffer.capacity} bytes of buffer")
+  }
+
+  /** Blocking read into `hostBuffer` from `deviceBuffer` starting at byte
+    * `offsetBytes`; the counterpart of the offset form of putWriteBuffer.
+    *
+    * @param deviceBuffer Buffer which will be copied to host.
+    * @param offsetBytes Byte offset within `deviceBuffer` of the read.
+    * @param hostBuffer Direct buffer whose entire contents are overwritten.
+    */
+  def putReadBuffer(deviceBuffer: CLBuffer[_], offsetBytes: Long, hostBuffer: ByteBuffer) {
+    val status = clContext.getCL.clEnqueueReadBuffer(readQueue.ID, deviceBuffer.ID, Blocking,
+      offsetBytes, hostBuffer.capacity, hostBuffer, 0, NoEvents, NoEvents)
+    CLException.checkForError(status, s"can not read $offsetBytes+${hostBuffer.capacity} bytes of buffer")
+  }
+
   /** Read a CLBuffer (Device --> CPU), returning when the read is complete.
     *
     * @param deviceBuffer Buffer which will be copied to host.
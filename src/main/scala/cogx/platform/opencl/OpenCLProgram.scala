@@ -64,6 +64,23 @@ class OpenCLProgram(device: OpenCLDevice, profilerUse: Boolean) {
   /** The built program for this device. */
   private var builtProgram: CLProgram = null
 
+  /** Time taken to assemble the source and create and build the program, in nanoseconds. */
+  @volatile private var _buildNanos = 0L
+  /** Length in chars of the source of the built program. */
+  @volatile private var _sourceLength = 0L
+
+  /** Has the program been built? */
+  def isBuilt: Boolean = synchronized { builtProgram != null }
+
+  /** Time taken to assemble the source and create and build the program, in nanoseconds (0 if not yet built). */
+  def buildNanos: Long = _buildNanos
+
+  /** Length in chars of the source of the built program (0 if not yet built). */
+  def sourceLength: Long = _sourceLength
+
+  /** The number of unique kernels in the program. */
+  def kernelCount: Int = synchronized { sources.size }
+
   // Normally we want the output of this class to pertain to the user's model program, not the various
   // small programs the compile-time Profiler creates.
   private val silent = profilerUse
@@ -76,6 +93,7 @@ class OpenCLProgram(device: OpenCLDevice, profilerUse: Boolean) {
   def getProgram(resourceDescriptor: () => String = () => ""): CLProgram = {
     synchronized {
       if (builtProgram == null) {
+        val buildStart = System.nanoTime()
         val timer = new Timer
         if (Cog.verboseOpenCLPlatform && !silent) {
           print("OpenCLPlatform.getProgram.  Building source string...")
@@ -166,6 +184,8 @@ class OpenCLProgram(device: OpenCLDevice, profilerUse: Boolean) {
         if (Cog.verboseOpenCLResources && !silent)
           print(resourceDescriptor())
 
+        _sourceLength = sourceString.length
+        _buildNanos = System.nanoTime() - buildStart
         builtProgram = program
       }
     }
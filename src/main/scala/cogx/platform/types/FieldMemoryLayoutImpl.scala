@@ -199,7 +199,7 @@ trait FieldMemoryLayout
 
   /** Number of "numbers" in each tensor in the field. */
   val longNumbersInTensor: Long = elementType match {
-    case Float32 =>
+    case Float32 | Float16 | Uint8 | Uint16 | Int32 =>
       // One number for each element of the tensor.
       tensorShape.longPoints
     case Complex32 =>
@@ -216,6 +216,9 @@ trait FieldMemoryLayout
   /** Number of bytes in a single-precision floating point number. */
   private val BytesPerFloat = 4
 
+  /** Number of bytes in a half-precision floating point number. */
+  private val BytesPerHalf = 2
+
   /** Number of bytes in each "number" of the element. */
   val bytesPerNumber = elementType match {
     case Float32 =>
@@ -224,6 +227,15 @@ trait FieldMemoryLayout
     case Complex32 =>
       // Each complex scalar has two numbers, real and imaginary, but each number is a float.
       BytesPerFloat
+    case Float16 =>
+      // One number for each element of the tensor, at half the size of a float.
+      BytesPerHalf
+    case Uint8 =>
+      1
+    case Uint16 =>
+      2
+    case Int32 =>
+      4
     case Uint8Pixel =>
       /** An image has 4 numbers: RGBA, but each number is a byte */
       1
@@ -0,0 +1,47 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.platform.types
+
+import cogx.cogmath.geometry.Shape
+
+/** The plane layout of a planar YUV 4:2:0 image, as produced by most cameras
+  * and video decoders. Both layouts hold a full resolution luma (Y) plane
+  * followed by chroma (U and V) subsampled by 2 in each dimension, 1.5 bytes
+  * per pixel in all, and differ only in how the chroma is stored.
+  *
+  * @param name The conventional (fourcc) name of the layout.
+  *
+  * @author Dick Carter
+  */
+sealed abstract class YUVFormat(val name: String) {
+  /** The shape of the 2D Uint8 field holding the planes of a `rows` x
+    * `columns` image: the bytes of the planes in order, `columns` to a row.
+    */
+  def planesShape(rows: Int, columns: Int): Shape = {
+    require(rows > 0 && columns > 0 && rows % 2 == 0 && columns % 2 == 0,
+      name + " images must have an even number of rows and columns, not " + rows + " x " + columns)
+    Shape(rows * 3 / 2, columns)
+  }
+
+  override def toString = name
+}
+
+/** The Y plane followed by a single plane of interleaved U, V pairs. */
+case object NV12 extends YUVFormat("NV12")
+
+/** The Y plane followed by the U plane, then the V plane. */
+case object I420 extends YUVFormat("I420")
@@ -17,29 +17,37 @@
 package cogx.runtime
 
 import _root_.akka.actor.{ActorSystem, TypedActor, TypedProps}
+import cogx.cogmath.collection.IdentityHashMap
 import cogx.compiler.codegenerator.opencl.cpukernels.RecurrentFieldKernel
+import cogx.compiler.parser.op.NulleryOpcode
 import cogx.compiler.parser.syntaxtree._
 import cogx.compiler.codegenerator.KernelCircuit
 import cogx.compiler.codegenerator.opencl.generator.OpenCLCodeGenerator
 import cogx.platform.checkpoint._
 import cogx.platform.opencl._
 import cogx.compiler.optimizer.KernelCircuitOptimizer
+import cogx.compiler.{CompilePhaseTiming, CompileReport, OptimizerPassTiming, ProgramBuildTiming}
 import cogx.platform.cpumemory.AbstractFieldMemory
 import cogx.runtime.checkpoint.hdf5.{Hdf5ObjectRestorer, Hdf5ObjectSaver}
 import cogx.runtime.checkpoint.javaserialization.{JavaObjectRestorer, JavaObjectSaver}
 import cogx.runtime.debugger.{ProbedCircuit, ProbedField, UserFieldNames}
-import java.util.concurrent.Semaphore
+import java.util.UUID
+import java.util.concurrent.{Semaphore, TimeoutException}
 
 import cogx.platform.types._
-import cogx.runtime.execution.{CircuitEvaluator, CogActorSystem, Profiler}
+import cogx.runtime.execution.{CircuitEvaluator, CogActorSystem, JVMCircuitEvaluator, Profiler}
 import java.lang.reflect.{InvocationTargetException, UndeclaredThrowableException}
 
 import cogx.platform.cpumemory.readerwriter.FieldReader
 import cogx.compiler.codegenerator.opencl.fragments.HyperKernel
 import cogx.parameters.Cog
 import cogx.runtime.allocation.AllocationMode
+import cogx.runtime.metrics.{MetricsRegistry, MetricsSnapshot, TraceRecorder}
 
+import scala.collection.mutable
 import scala.collection.mutable.ArrayBuffer
+import scala.concurrent.Future
+import scala.concurrent.duration._
 
 /** A Cog computation graph.
   *
@@ -115,6 +123,10 @@ class ComputeGraph(val optimize: Boolean = true,
     case None => AllocationMode.default
   }
 
+  /** Kernel and step-phase timings, kept only if Cog.metrics is set. */
+  private lazy val metricsRegistry: Option[MetricsRegistry] =
+    if (Cog.metrics) Some(new MetricsRegistry) else None
+
   /** Evaluator that can execute the compiled circuit. */
   private lazy val evaluator: EvaluatorInterface =  {
     // Touch circuit to force its lazy instantiation. If this throws an
@@ -123,7 +135,13 @@ class ComputeGraph(val optimize: Boolean = true,
 
     val profileSize = if (Cog.profile) Cog.profileSize else 0
 
-    var typedProps = TypedProps(classOf[EvaluatorInterface], new CircuitEvaluator(circuit, platform, mode, profileSize))
+    var typedProps = mode match {
+      case AllocationMode.JVM =>
+        TypedProps(classOf[EvaluatorInterface], new JVMCircuitEvaluator(circuit, profileSize, metricsRegistry))
+      case _ =>
+        TypedProps(classOf[EvaluatorInterface],
+          new CircuitEvaluator(circuit, platform, mode, profileSize, metricsRegistry))
+    }
 
     // If we're not sharing threads, then add our Cog-custom dispatcher
     if (!Cog.threadSharing)
@@ -137,6 +155,19 @@ class ComputeGraph(val optimize: Boolean = true,
     ta
   }
 
+  /** Durations of the phases of compileCircuit, in order. */
+  private val compilePhases = new ArrayBuffer[CompilePhaseTiming]
+
+  /** Duration and effect of each optimizer run made by compileCircuit. */
+  private val optimizerPassTimings = new ArrayBuffer[OptimizerPassTiming]
+
+  /** Run `phase`, recording its duration as the compile phase `name`. */
+  private def timePhase(name: String, kernelsBefore: Int, kernelsAfter: => Int)(phase: => Unit) {
+    val start = System.nanoTime()
+    phase
+    compilePhases += CompilePhaseTiming(name, (System.nanoTime() - start) / 1e9, kernelsBefore, kernelsAfter)
+  }
+
   /** The number of HyperKernels in the circuit, useful for merger testing. */
   private[cogx] def hyperkernelCount =
     circuit.filteredSize(_.isInstanceOf[HyperKernel])
@@ -156,8 +187,19 @@ class ComputeGraph(val optimize: Boolean = true,
     case AllocationMode.SingleGPU(deviceIndex) => platform.devices(deviceIndex).kernelCodeGenParams
     case AllocationMode.MultiGPU => platform.kernelCodeGenParams
     case AllocationMode.Cluster => platform.kernelCodeGenParams
+    case AllocationMode.JVM => JVMKernelCodeGenParams
   }
 
+  /** Code gen params for the JVM backend, which has no device limits to speak of. The HyperKernels
+    * are interpreted rather than compiled, so these only steer the choice among kernel variants.
+    */
+  private def JVMKernelCodeGenParams =
+    OpenCLKernelCodeGenParams(
+      maxMemAllocSize = Runtime.getRuntime.maxMemory,
+      maxConstantBufferSize = 64 * 1024L,
+      localMemSize = 32 * 1024L,
+      warpSize = 1)
+
   /** The compile-time profiler used by the code generator and optimizers. */
   lazy val profiler = new Profiler(profilerPlatform, mode, actorSystem, forceProfiling)
 
@@ -176,38 +218,54 @@ class ComputeGraph(val optimize: Boolean = true,
     if (Verbose)
       println("ComputeGraph: compiling circuit")
     // Bind user names for Fields to syntax tree nodes.
-    UserFieldNames.extract(this)
+    timePhase("user field names", 0, 0) {
+      UserFieldNames.extract(this)
+    }
     if (Verbose)
       println("ComputeGraph: generating code")
+    // Creating the code generator opens the OpenCL platform, so time that separately.
+    timePhase("code generator setup", 0, 0) {
+      codeGenerator
+    }
     // Generate a kernel circuit for the syntax tree. This will mark each
     // field in the syntax tree with the kernel that represents it.
+    val codeGenStart = System.nanoTime()
     val circuit = codeGenerator.generateCircuit(syntaxTree)
+    compilePhases += CompilePhaseTiming("code generation", (System.nanoTime() - codeGenStart) / 1e9, 0, circuit.size)
     if (Verbose)
       println("ComputeGraph: marking probes")
 
     // Mark probes on circuit nodes (kernels) from the probe marks on the
     // corresponding fields. Note that sensors, actuators, constants and
     // recurrences are automatically probed.
-    syntaxTree.traversePostorder {
-      operation => {
-        operation.outputs.foreach( field => {
-          val virtualFieldRegister = field.getVirtualFieldRegister
-          virtualFieldRegister.name = field.name
-          if (field.isProbed || field.hasRecurrence ||
-            userProbeAllRequest || !optimize)
-            virtualFieldRegister.markProbed
-
-          field.recurrence match {
-            case Some(field) => field.getVirtualFieldRegister.markProbed
-            case None =>
-          }
-        })
+    val kernelsBeforeOptimization = circuit.size
+    timePhase("probe marking", kernelsBeforeOptimization, kernelsBeforeOptimization) {
+      syntaxTree.traversePostorder {
+        operation => {
+          operation.outputs.foreach( field => {
+            val virtualFieldRegister = field.getVirtualFieldRegister
+            virtualFieldRegister.name = field.name
+            if (field.isProbed || field.hasRecurrence ||
+              userProbeAllRequest || !optimize)
+              virtualFieldRegister.markProbed
+
+            field.recurrence match {
+              case Some(field) => field.getVirtualFieldRegister.markProbed
+              case None =>
+            }
+          })
+        }
       }
     }
     if (!userProbeAllRequest && optimize) {
       if (Verbose)
         println("ComputeGraph: optimizing")
-      KernelCircuitOptimizer.optimize(circuit, kernelCodeGenParams, profiler)
+      val optimizerStart = System.nanoTime()
+      // The JVM backend interprets HyperKernels by opcode, so it can't run merged kernels.
+      KernelCircuitOptimizer.optimize(circuit, kernelCodeGenParams, profiler, report = true,
+        kernelMerging = mode != AllocationMode.JVM, passTimings = optimizerPassTimings)
+      compilePhases += CompilePhaseTiming("optimization", (System.nanoTime() - optimizerStart) / 1e9,
+        kernelsBeforeOptimization, circuit.size)
     }
     if (VerbosePrint)
       circuit.print
@@ -277,6 +335,37 @@ class ComputeGraph(val optimize: Boolean = true,
     time
   }
 
+  /** Step the computation `steps` cycles while recording a timeline of the
+    * work done, then write the timeline to `file` in the Chrome trace-event
+    * format, for viewing with chrome://tracing or https://ui.perfetto.dev
+    * (synchronous call).
+    *
+    * The timeline shows the clock phases of each step, device kernels by
+    * execution queue, CPU kernel computations, CPU kernels blocked on their
+    * inputs, and buffer transfers between host and device. Device kernels
+    * are only timed if the command queues are profiled, i.e. if Cog.profile
+    * or Cog.metrics was set when the ComputeGraph was created. Only one
+    * ComputeGraph may be traced at a time.
+    *
+    * @param steps Number of steps to trace.
+    * @param file Name of the trace file to write, conventionally ending in ".json".
+    * @return the number of steps taken from the last reset
+    */
+  def trace(steps: Long, file: String): Long = {
+    require(steps > 0L, "Non-positive trace step count seen: " + steps)
+    // Create the evaluator beforehand, so its startup is not traced.
+    evaluator
+    val recorder = new TraceRecorder
+    TraceRecorder.start(recorder)
+    val time =
+      try
+        step(steps)
+      finally
+        TraceRecorder.stop()
+    recorder.write(new java.io.File(file))
+    time
+  }
+
   /** Reset the computation to an initial state defined by the user (synchronous
     * call).
     *
@@ -330,11 +419,127 @@ class ComputeGraph(val optimize: Boolean = true,
   /** Read a field (user access to the field data).
     */
   def read(field: Field): FieldReader = {
+    readVirtualRegister(probedRegister(field))
+  }
+
+  /** Read a field without waiting for the data (asynchronous call).
+    *
+    * The reader holds the field as it was after the last step requested
+    * before this call. The read is queued behind any steps in progress, and
+    * the caller may go on stepping while it completes.
+    *
+    * @param field The field to read; it must be probed.
+    * @return Future completed with a reader holding the field data.
+    */
+  def readAsync(field: Field): Future[FieldReader] = {
+    import actorSystem.dispatcher
+    readAll(field).map(_.head)
+  }
+
+  /** Read several fields without waiting for the data (asynchronous call).
+    *
+    * All the readers hold the fields as they were at the same step boundary,
+    * after the last step requested before this call. The device reads for the
+    * fields are issued together, and the caller may go on stepping while they
+    * complete.
+    *
+    * @param fields The fields to read; each must be probed.
+    * @return Future completed with readers holding the field data, in the
+    *         order of `fields`.
+    */
+  def readAll(fields: Field*): Future[Seq[FieldReader]] = {
+    val virtualFieldRegisters = fields.map(probedRegister(_))
+    try {
+      evaluator.readFields(virtualFieldRegisters)
+    } catch {
+      // Either of the following 2 exceptions mask the underlying cause.
+      case e: UndeclaredThrowableException =>
+        throw e.getCause
+      case e: InvocationTargetException =>
+        throw e.getCause
+    }
+  }
+
+  /** Have `field` read at the end of every `everyNSteps`-th step after reset,
+    * passing the data and the simulation time to `callback`.
+    *
+    * Unlike polling with read, the reads fall exactly on the chosen steps,
+    * the reads of all subscriptions due at a step are made together, and the
+    * callbacks run on a thread of their own rather than the caller's. The
+    * reader is only valid until the callback returns.
+    *
+    * @param field The field to read; it must be probed.
+    * @param everyNSteps The period, in steps, of the reads.
+    * @param callback Called with a reader holding the field data and the
+    *        simulation time at which it was read.
+    * @return The subscription, which may be cancelled.
+    */
+  def subscribe(field: Field, everyNSteps: Long)(callback: (FieldReader, Long) => Unit): ProbeSubscription =
+    subscribeAll(Seq(field), everyNSteps)((readers, time) => callback(readers.head, time))
+
+  /** Have several fields read together at the end of every `everyNSteps`-th
+    * step after reset, passing the data and the simulation time to `callback`
+    * (see subscribe).
+    *
+    * @param fields The fields to read; each must be probed.
+    * @param everyNSteps The period, in steps, of the reads.
+    * @param callback Called with readers holding the field data, in the order
+    *        of `fields`, and the simulation time at which they were read.
+    * @return The subscription, which may be cancelled.
+    */
+  def subscribeAll(fields: Seq[Field], everyNSteps: Long)
+                  (callback: (Seq[FieldReader], Long) => Unit): ProbeSubscription =
+  {
+    val subscription = new ProbeSubscription(fields.map(probedRegister(_)), everyNSteps, callback)
+    evaluator.subscribe(subscription)
+    subscription
+  }
+
+  /** The kernel execution times and step-phase durations measured since the
+    * last reset, with p50/p99/max latencies per kernel (requires Cog.metrics,
+    * e.g. -Dcog.metrics=true). The snapshot may be exported with its toJson
+    * and toCsv methods.
+    */
+  def metrics: MetricsSnapshot = {
+    evaluator
+    metricsRegistry match {
+      case Some(registry) => registry.snapshot
+      case None => throw new RuntimeException("Metrics not enabled: set Cog.metrics before creating the evaluator")
+    }
+  }
+
+  /** Throw away the measurements made so far (see metrics). They are also
+    * discarded on reset.
+    */
+  def resetMetrics() {
+    metricsRegistry.foreach(_.reset())
+  }
+
+  /** A breakdown of the time spent compiling this graph: each phase of circuit
+    * compilation, each optimizer run with the kernel counts before and after
+    * it, the time spent selecting kernel variants and the time spent building
+    * the OpenCL programs. This compiles the circuit if that has not been done;
+    * the program builds appear once the graph has been reset or stepped.
+    */
+  def compileReport: CompileReport = {
+    circuit
+    val programBuilds =
+      if (mode == AllocationMode.JVM)
+        Seq()
+      else
+        platform.devices.toSeq.flatMap(device => device.builtProgram.map(program =>
+          ProgramBuildTiming(device.toString, program.kernelCount, program.sourceLength, program.buildNanos / 1e9)))
+    CompileReport(compilePhases.toList, optimizerPassTimings.toList,
+      profiler.variantSelectionNanos / 1e9, programBuilds)
+  }
+
+  /** The virtual field register driving `field`, which the user must have probed. */
+  private def probedRegister(field: Field): VirtualFieldRegister = {
     val virtualFieldRegister = field.getVirtualFieldRegister
     require (virtualFieldRegister != null, s"Compiler error: null virtual field register seen for field $field")
     require (virtualFieldRegister.probed, s"Attempted read of non-probed field $field." +
       s"  Add 'probe(${field.name})' within the ComputeGraph to correct this problem.")
-    readVirtualRegister(virtualFieldRegister)
+    virtualFieldRegister
   }
 
   /** Read a field given the name.  Used typically for restored compute graphs that no longer have fields.
@@ -444,15 +649,19 @@ class ComputeGraph(val optimize: Boolean = true,
 
   /** Release all resources for this (and ALL) compute graphs.
     *
-    * This attempts to minimize memory leaks due to the JVM garbage
-    * collector not being able to handle direct memory very well.
+    * Once the graph's actors have shut down and its CPU kernels have finished
+    * running, the direct buffers of the graph's field memories are freed
+    * rather than left to the JVM garbage collector, which handles direct
+    * memory poorly. Field memories still in use, such as field data read from
+    * the graph, are left alone; with -Dcog.fieldMemoryLeakTracking they are
+    * reported along with where they were allocated.
+    * FieldMemory.offHeapBytes gives the direct memory held by all graphs.
     *
-    * After release of a ComputeGraph, we still have references to the Direct Buffers
-    * from singleton objects like HyperCircuit, which prevents the direct buffer freeing
-    * from being immediately successful.  Making a new ComputeGraph should overwrite those
-    * references, thus freeing up the direct memory for the next ComputeGraph.  Making a tiny
-    * ComputeGraph and releasing it between 'real' ComputeGraphs would be one hack at the user
-    * level to combat direct buffer freeing problems.
+    * CPU kernels of all graphs share one pool, so release also waits for the
+    * kernel steps of any other graph that is running. If the actors or the
+    * kernels have not stopped within a minute, nothing is freed explicitly:
+    * a kernel may still be writing the memory, so the graph's OpenCL
+    * resources and field memories are left to the garbage collector.
     */
   def release {
     synchronized {
@@ -462,16 +671,34 @@ class ComputeGraph(val optimize: Boolean = true,
         syntaxTree = null
       }
       actorSystem.shutdown
+      // Shutdown is asynchronous: wait for it, and for any CPU kernel steps
+      // still running, before freeing the native memory they may be using.
+      val actorsStopped =
+        try {
+          actorSystem.awaitTermination(ComputeGraph.ReleaseTimeout)
+          true
+        }
+        catch {
+          case e: TimeoutException =>
+            ComputeGraph.Log.warn("actors still running " + ComputeGraph.ReleaseTimeout + " after release")
+            false
+        }
+      val kernelsStopped = CpuKernelExecutor.awaitQuiescence(ComputeGraph.ReleaseTimeout.toMillis)
+      if (!kernelsStopped)
+        ComputeGraph.Log.warn("CPU kernels still running " + ComputeGraph.ReleaseTimeout + " after release")
       // Releasing OpenCL resources also removes pointers so that OpenCL
       // memory objects could, in principle, be reclaimed by the garbage
       // collector.
-      // The platform currently owns the fieldmemory allocator, so will
-      // attempt to reclaim direct buffer memory
-      // In practice, though, direct buffers are very difficult
-      // to reclaim, so we do a direct buffer "cleaning" here. A hack, but
-      // widely done.
-      platform.release()
-      profilerPlatform.release()
+      // The platform currently owns the fieldmemory allocator, and its
+      // release frees the direct buffer memory of the graph's buffers.
+      if (mode != AllocationMode.JVM) {
+        if (actorsStopped && kernelsStopped) {
+          platform.release()
+          profilerPlatform.release()
+        }
+        else
+          ComputeGraph.Log.warn("leaving the graph's OpenCL resources and field memory to the garbage collector")
+      }
       System.gc
     }
   }
@@ -519,6 +746,19 @@ class ComputeGraph(val optimize: Boolean = true,
     */
   private var _description: Option[String] = None
 
+  /** The id of the last full checkpoint written by `write`, on which delta
+    * checkpoints build.
+    */
+  private var baseCheckpointId: Option[String] = None
+
+  /** The number of delta checkpoints written since the last full checkpoint. */
+  private var deltaCheckpoints = 0
+
+  /** Digests of the states of the recurrences as of the last checkpoint, by
+    * the id of the field that drives them.
+    */
+  private var savedRecurrenceDigests = Map[Int, String]()
+
   /** Write the compute graph to a file with the given checkpoint technology (e.g. hdf5) */
   def write(filename: String,
             checkpointerType: CheckpointerType = ComputeGraph.defaultCheckpointerType): Unit = {
@@ -528,15 +768,106 @@ class ComputeGraph(val optimize: Boolean = true,
       case Hdf5CheckpointerType => new Hdf5ObjectSaver(suffixedFilename) with ComputeGraphSaverState
       case JavaCheckpointerType => new JavaObjectSaver(suffixedFilename) with ComputeGraphSaverState
     }
+    val checkpointId = UUID.randomUUID.toString
+    saver.checkpointId = Some(checkpointId)
     try {
       ComputeGraph.Log.info("Saving ComputeGraph to file "+filename)
       saver.writeObject("ComputeGraph", this)
+      baseCheckpointId = Some(checkpointId)
+      deltaCheckpoints = 0
+      savedRecurrenceDigests = saver.recurrenceDigests.toMap
     } finally {
       ComputeGraph.Log.debug("Saving operation complete. Closing saver.")
       saver.close()
     }
   }
 
+  /** Write a delta checkpoint of the compute graph to a file: the states of
+    * just the recurrences that have changed since the graph's last checkpoint,
+    * full or delta. Constant fields and unchanged recurrences aren't written,
+    * so the size and write time of a delta scale with how much of the graph's
+    * state changes between checkpoints, not with the size of the graph
+    * (though every recurrence is still read from the GPU to find the changes).
+    *
+    * Deltas build on the last full checkpoint written by `write` on this
+    * ComputeGraph instance, which must exist, and are restored on top of it,
+    * in the order they were written, by ComputeGraph.readFromFiles.
+    *
+    * @param filename The name of the file to write.
+    * @param checkpointerType The checkpointing technology, which must be that
+    *        of the full checkpoint.
+    */
+  def writeDelta(filename: String,
+                 checkpointerType: CheckpointerType = ComputeGraph.defaultCheckpointerType): Unit = {
+    val checkpointId = baseCheckpointId.getOrElse(throw new RuntimeException(
+      "ComputeGraph.writeDelta: no full checkpoint of this graph to build on, see ComputeGraph.write"))
+    val suffixedFilename = checkpointerType.addSuffixIfAbsent(filename)
+    val kernels = circuit.flatten.toArray
+    val vfrToIndex = new IdentityHashMap[VirtualFieldRegister, Int]
+    numberFieldRegisters(kernels, vfrToIndex)
+
+    // Recurrences driven by the same field share its state, so each is read once.
+    val digests = mutable.HashMap[Int, String]()
+    val changed = ArrayBuffer[RecurrenceDelta]()
+    kernels.foreach {
+      case kernel: RecurrentFieldKernel if !kernel.isSensorPipelineRegister =>
+        val fieldIndex = vfrToIndex(kernel.recurrence)
+        if (!digests.contains(fieldIndex)) {
+          val state = kernel.readState(this)
+          val digest = kernel.stateDigest(state)
+          digests(fieldIndex) = digest
+          if (savedRecurrenceDigests.get(fieldIndex) != Some(digest))
+            changed += new RecurrenceDelta(fieldIndex, kernel, state)
+        }
+      case _ =>
+    }
+
+    val deltaIndex = deltaCheckpoints + 1
+    /** A saver object for the chosen serialization approach. */
+    val saver = checkpointerType match {
+      case Hdf5CheckpointerType => new Hdf5ObjectSaver(suffixedFilename)
+      case JavaCheckpointerType => new JavaObjectSaver(suffixedFilename)
+    }
+    try {
+      ComputeGraph.Log.info("Saving delta checkpoint " + deltaIndex + " of ComputeGraph (" + changed.length +
+              " of " + digests.size + " recurrences changed) to file " + filename)
+      saver.writeObject(ComputeGraph.DeltaKey, new Saveable {
+        def save(saver: ObjectSaver) {
+          saver.writeString(ComputeGraph.CheckpointIdKey, checkpointId)
+          saver.writeInt(ComputeGraph.DeltaIndexKey, deltaIndex)
+          saver.writeObjectArray("recurrences", changed.toArray)
+        }
+      })
+    } finally {
+      saver.close()
+    }
+    deltaCheckpoints = deltaIndex
+    savedRecurrenceDigests = digests.toMap
+  }
+
+  /** Number the virtual field registers of `kernels` in the order in which
+    * they're first encountered, the numbering used by checkpoints.
+    *
+    * @param kernels The kernels of the circuit, leaf nodes before roots.
+    * @param vfrToIndex Map filled in with the number of each register.
+    * @return The registers, in numbered order.
+    */
+  private def numberFieldRegisters(kernels: Array[AbstractKernel],
+                                   vfrToIndex: IdentityHashMap[VirtualFieldRegister, Int]): Array[VirtualFieldRegister] = {
+    val vfrs = ArrayBuffer[VirtualFieldRegister]()
+    kernels.foreach(kernel => {
+      val ios = kernel.inputs ++ kernel.outputs
+      ios.foreach(reg =>
+        if (!vfrToIndex.isDefinedAt(reg)) {
+          val nextIndex = vfrs.length
+          vfrToIndex(reg) = nextIndex
+          vfrs += reg
+        }
+      )
+    })
+    vfrs.toArray
+  }
+
   /** Write this compute graph instance with the facilities offered by an
     * ObjectSaver.
     */
@@ -566,6 +897,7 @@ class ComputeGraph(val optimize: Boolean = true,
     saver.writeString("releaseVersion", Cog.releaseVersion)
     saver.writeString("name", computeGraphName)
     for (desc <- _description) saver.writeString(ComputeGraph.UserDescriptionKey, desc)
+    for (id <- checkpointId) saver.writeString(ComputeGraph.CheckpointIdKey, id)
 
     // Get the kernels, leaf nodes before roots
     val kernels = circuit.flatten.toArray
@@ -587,18 +919,7 @@ class ComputeGraph(val optimize: Boolean = true,
 
     // Number the virtual field registers (vfr's).
     // Retain a map of vfr's to their numeric ID.
-    val vfrs = ArrayBuffer[VirtualFieldRegister]()
-    kernels.foreach(kernel => {
-      val ios = kernel.inputs ++ kernel.outputs
-      ios.foreach(reg =>
-        if (!vfrToIndex.isDefinedAt(reg)) {
-          val nextIndex = vfrs.length
-          vfrToIndex(reg) = nextIndex
-          vfrs += reg
-        }
-      )
-    })
-    val virtualFieldRegisters = vfrs.toArray
+    val virtualFieldRegisters = numberFieldRegisters(kernels, vfrToIndex)
     saver.writeObjectArray("fields", virtualFieldRegisters)
 
     // Exposing the ComputeGraph is a bit of overkill, but RecurrenceFieldKernels
@@ -632,10 +953,16 @@ object ComputeGraph extends RestoreFactory {
     def error(msg: String) { if (logLevel > 0) println(Prefix+" [Error]: "+msg) }
   }
 
+  /** How long release waits for the graph's actors and CPU kernels to stop. */
+  private val ReleaseTimeout = 60.seconds
+
   val defaultCheckpointerType = Hdf5CheckpointerType
   private val ComputeGraphFileSpecMajorVersionKey = "computeGraphFileSpecMajorVersion"
   private val ComputeGraphFileSpecMinorVersionKey = "computeGraphFileSpecMinorVersion"
   private val UserDescriptionKey                  = "description"
+  private val CheckpointIdKey                     = "checkpointId"
+  private val DeltaKey                            = "ComputeGraphDelta"
+  private val DeltaIndexKey                       = "deltaIndex"
 
   /** Create a ComputeGraph from a representation read from a file.
     *
@@ -644,7 +971,24 @@ object ComputeGraph extends RestoreFactory {
     * @return The created ComputeGraph, suitable for further stepping.
     */
   def readFromFile(filename: String,
-                   checkpointerType: CheckpointerType = defaultCheckpointerType): ComputeGraph = {
+                   checkpointerType: CheckpointerType = defaultCheckpointerType): ComputeGraph =
+    readFromFiles(filename, Seq(), checkpointerType)
+
+  /** Create a ComputeGraph from a full checkpoint and the delta checkpoints
+    * written after it (see ComputeGraph.writeDelta). The restored graph's
+    * recurrences take the latest state found in the checkpoints.
+    *
+    * @param filename The name of the file holding the full checkpoint.
+    * @param deltaFilenames The names of the files holding the delta
+    *        checkpoints, in the order they were written; these must start
+    *        with the first delta after the full checkpoint, and may stop at
+    *        any later one.
+    * @param checkpointerType The checkpointing technology, e.g. hdf5, java, etc.
+    * @return The created ComputeGraph, suitable for further stepping.
+    */
+  def readFromFiles(filename: String,
+                    deltaFilenames: Seq[String],
+                    checkpointerType: CheckpointerType = defaultCheckpointerType): ComputeGraph = {
     val suffixedFilename = checkpointerType.addSuffixIfAbsent(filename)
     /** A restorer object for the chosen serialization approach. */
     val restorer = checkpointerType match {
@@ -654,9 +998,18 @@ object ComputeGraph extends RestoreFactory {
     Log.info("Restoring graph from file: "+filename)
     var cg: ComputeGraph = null
     try {
+      for (deltaFilename <- deltaFilenames) {
+        val suffixedDeltaFilename = checkpointerType.addSuffixIfAbsent(deltaFilename)
+        Log.info("Replaying delta checkpoint from file: "+deltaFilename)
+        restorer.deltaRestorers += (checkpointerType match {
+          case Hdf5CheckpointerType => new Hdf5ObjectRestorer(suffixedDeltaFilename)
+          case JavaCheckpointerType => new JavaObjectRestorer(suffixedDeltaFilename)
+        })
+      }
       cg = restorer.readRestorable("ComputeGraph", ComputeGraph).asInstanceOf[ComputeGraph]
     } finally {
       Log.debug("Closing restorer.")
+      restorer.deltaRestorers.foreach(_.close())
       restorer.close()
     }
     cg
@@ -679,6 +1032,8 @@ object ComputeGraph extends RestoreFactory {
     val name            = restorer.readString("name")
     Log.debug("Looking for user description (of graph)...")
     val userDescription = restorer.readOptionalString(UserDescriptionKey)
+    Log.debug("Looking for checkpoint id...")
+    val checkpointId    = restorer.readOptionalString(CheckpointIdKey)
 
     //    // Could take version-specific actions like this
     //    fileSpecMajor match {
@@ -705,6 +1060,27 @@ object ComputeGraph extends RestoreFactory {
     restorer.readRestorableArray("fields", VirtualFieldRegister).foreach( fieldInfo =>
       fieldInfos += fieldInfo.asInstanceOf[VirtualFieldRegisterInfo]
     )
+    // Replay the delta checkpoints, oldest first, keeping the latest state of each recurrence they hold.
+    // RecurrentFieldKernels restore to these states rather than to the ones in the full checkpoint.
+    for ((delta, i) <- deltaRestorers.zipWithIndex) {
+      val updates = delta.readRestorable(DeltaKey, new RestoreFactory {
+        def restore(deltaRestorer: ObjectRestorer): AnyRef = {
+          val deltaCheckpointId = deltaRestorer.readString(CheckpointIdKey)
+          require(checkpointId == Some(deltaCheckpointId),
+            "delta checkpoint " + (i + 1) + " was not written after this full checkpoint of graph '" + name + "'")
+          val deltaIndex = deltaRestorer.readInt(DeltaIndexKey)
+          require(deltaIndex == i + 1,
+            "expecting delta checkpoint " + (i + 1) + ", found delta checkpoint " + deltaIndex)
+          val factory = RecurrenceDelta.restoreFactory(fieldIndex => fieldInfos(fieldIndex).fieldType)
+          deltaRestorer.readRestorableArray("recurrences", factory)
+        }
+      }).asInstanceOf[Array[AnyRef]]
+      updates.foreach(update => {
+        val (fieldIndex, opcode) = update.asInstanceOf[(Int, NulleryOpcode)]
+        recurrenceUpdates(fieldIndex) = opcode
+      })
+      Log.info("Delta checkpoint " + (i + 1) + " holds the state of " + updates.length + " recurrences")
+    }
     // Read in the kernel-defining data, which will add kernels and virtual field registers to the
     // just-created empty KernelCircuit.
     val kernels = restorer.readRestorableArray("kernels", AbstractKernel).map(_.asInstanceOf[AbstractKernel])
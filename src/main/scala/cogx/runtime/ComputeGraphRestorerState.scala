@@ -18,10 +18,13 @@ package cogx.runtime
 
 import cogx.cogmath.collection.IdentityHashMap
 import cogx.compiler.codegenerator.KernelCircuit
+import cogx.compiler.parser.op.NulleryOpcode
 import cogx.compiler.parser.syntaxtree.SyntaxTree
+import cogx.platform.checkpoint.ObjectRestorer
 import cogx.platform.opencl.KernelSourceCode
 import cogx.platform.types.{AbstractKernel, VirtualFieldRegister, VirtualFieldRegisterInfo}
 
+import scala.collection.mutable
 import scala.collection.mutable.ArrayBuffer
 
 /** The KernelCircuit is a "web of objects" that must be restored in a particular order that requires some
@@ -38,6 +41,10 @@ trait ComputeGraphRestorerState {
   val vfrs = new ArrayBuffer[VirtualFieldRegister]()
   /** An empty HashMap from AbstractKernels (RecurrentFieldKernels actually) and the vfr index of the Recurrence */
   val recurrences = new IdentityHashMap[AbstractKernel, Int]
+  /** Restorers of the delta checkpoints to be replayed on the restored graph, oldest first. */
+  val deltaRestorers = new ArrayBuffer[ObjectRestorer]()
+  /** The latest states of recurrences found in the delta checkpoints, by the id of the field that drives them. */
+  val recurrenceUpdates = mutable.HashMap[Int, NulleryOpcode]()
   /** The kernelCircuit that is created by the restore process. */
   val restoredCircuit = new KernelCircuit()
   /** A partial syntax tree with only actuators and sensors created during the restore process (Scala runtime only) */
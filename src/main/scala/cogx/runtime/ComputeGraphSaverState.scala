@@ -34,4 +34,8 @@ trait ComputeGraphSaverState {
   val vfrToIndex = new IdentityHashMap[VirtualFieldRegister, Int]
   /** The compute graph being saved (gives access to FieldReaders through the only allowed path). */
   var computeGraph: ComputeGraph = null
+  /** The id written to a full checkpoint, which the delta checkpoints built on it must match. */
+  var checkpointId: Option[String] = None
+  /** Digests of the states of the saved recurrences, by the id of the field that drives them. */
+  val recurrenceDigests = mutable.HashMap[Int, String]()
 }
@@ -20,6 +20,8 @@ import cogx.platform.types.{VirtualFieldRegister, AbstractKernel}
 import cogx.platform.cpumemory.AbstractFieldMemory
 import akka.actor.ActorRef
 
+import scala.concurrent.Future
+
 /** Interface to an Evaluator, an object that executes a computation specified
   * in a ComputeGraph.
   *
@@ -94,6 +96,23 @@ trait EvaluatorInterface {
                 to: AbstractFieldMemory,
                 done: (AbstractFieldMemory) => Unit)
 
+  /** Read several fields, all as of the same step, returning without waiting
+    * for the field data (asynchronous call).
+    *
+    * @param virtualFieldRegisters The field registers of the fields being read.
+    * @return Future completed with memories holding the field data, in the
+    *         order of `virtualFieldRegisters`; the memories belong to the
+    *         caller.
+    */
+  def readFields(virtualFieldRegisters: Seq[VirtualFieldRegister]): Future[Seq[AbstractFieldMemory]]
+
+  /** Add a probe subscription, whose fields are then read at the end of every
+    * `subscription.everyNSteps`-th step (asynchronous call).
+    *
+    * @param subscription The subscription to add.
+    */
+  def subscribe(subscription: ProbeSubscription): Unit
+
   /** Print out evaluator for debugging. */
   def print: Unit
 
@@ -0,0 +1,54 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.runtime
+
+import cogx.platform.cpumemory.readerwriter.FieldReader
+import cogx.platform.types.VirtualFieldRegister
+
+/** A standing request, made through ComputeGraph.subscribe, to have some
+  * fields read at the end of every `everyNSteps`-th step and handed to a
+  * callback.
+  *
+  * The evaluator reads the fields of all subscriptions due at a step with one
+  * request, and calls the callbacks in step order on a delivery thread of its
+  * own, so a slow callback delays later deliveries but never the stepping.
+  * The readers passed to the callback are only valid until it returns; a
+  * callback that wants to keep the data must copy it.
+  *
+  * @param registers The virtual field registers of the subscribed fields.
+  * @param everyNSteps The period, in steps, of the reads.
+  * @param callback Called with readers for the fields (in the order of
+  *        `registers`) and the simulation time at which they were read.
+  *
+  * @author Dick Carter
+  */
+class ProbeSubscription private[cogx] (private[cogx] val registers: Seq[VirtualFieldRegister],
+                                       val everyNSteps: Long,
+                                       private[cogx] val callback: (Seq[FieldReader], Long) => Unit)
+{
+  require(everyNSteps > 0, "Illegal subscription period: " + everyNSteps)
+
+  @volatile private var _cancelled = false
+
+  /** Stop deliveries; a delivery already under way may still complete. */
+  def cancel() {
+    _cancelled = true
+  }
+
+  /** True once cancel() has been called. */
+  def cancelled: Boolean = _cancelled
+}
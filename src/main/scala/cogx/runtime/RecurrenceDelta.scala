@@ -0,0 +1,58 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.runtime
+
+import cogx.compiler.codegenerator.opencl.cpukernels.RecurrentFieldKernel
+import cogx.platform.checkpoint.{ObjectRestorer, ObjectSaver, RestoreFactory, Saveable}
+import cogx.platform.cpumemory.readerwriter.FieldReader
+import cogx.platform.types.FieldType
+
+/** The state of one recurrence in a delta checkpoint, identified (as in a
+  * full checkpoint) by the id of the field that drives it.
+  *
+  * @param fieldIndex The id of the field driving the recurrence.
+  * @param kernel The kernel of the recurrence.
+  * @param state The state of the recurrence, as read by kernel.readState.
+  *
+  * @author Dick Carter
+  */
+private[runtime]
+class RecurrenceDelta(fieldIndex: Int, kernel: RecurrentFieldKernel, state: FieldReader) extends Saveable {
+  def save(saver: ObjectSaver) {
+    saver.writeInt("recurrenceField", fieldIndex)
+    kernel.saveState(saver, state)
+  }
+}
+
+/** Factory for reading the recurrence states of a delta checkpoint.
+  *
+  * @author Dick Carter
+  */
+private[runtime]
+object RecurrenceDelta {
+  /** A factory restoring each saved recurrence state as a (field id, opcode)
+    * pair, where the opcode initializes the recurrence to that state.
+    *
+    * @param fieldType The types of the fields of the checkpointed graph, by id.
+    */
+  def restoreFactory(fieldType: (Int) => FieldType) = new RestoreFactory {
+    def restore(restorer: ObjectRestorer): AnyRef = {
+      val fieldIndex = restorer.readInt("recurrenceField")
+      (fieldIndex, RecurrentFieldKernel.restoreState(restorer, fieldType(fieldIndex)))
+    }
+  }
+}
@@ -130,6 +130,9 @@ object AllocateCluster {
 
       case AllocationMode.Cluster =>
         throw new NotImplementedError("CLuster mode not implemented yet")
+
+      case AllocationMode.JVM =>
+        throw new RuntimeException("Internal error: JVM mode circuits are run by the JVMCircuitEvaluator, not a Cluster.")
     }
 
     val cluster = new Cluster(headNode, computeNodes)
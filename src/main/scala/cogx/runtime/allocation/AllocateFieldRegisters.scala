@@ -17,10 +17,10 @@
 package cogx.runtime.allocation
 
 import cogx.compiler.codegenerator.KernelCircuit
-import cogx.platform.opencl.{OpenCLAbstractKernel, OpenCLDevice, OpenCLFieldRegister}
+import cogx.platform.opencl.{OpenCLAbstractKernel, OpenCLBuffer, OpenCLDevice, OpenCLFieldRegister}
 import cogx.compiler.codegenerator.opencl.cpukernels._
 import cogx.cogmath.collection.IdentityHashSet
-import cogx.platform.cpumemory.{BufferType, DirectBuffer}
+import cogx.platform.cpumemory.{BufferType, DirectBuffer, FieldMemory}
 import cogx.platform.types.{FieldMemoryLayoutImpl, FieldType, VirtualFieldRegister}
 
 import scala.collection.mutable.ArrayBuffer
@@ -91,14 +91,15 @@ object AllocateFieldRegisters {
      * systems may wish to only enqueue kernels that are not blocked on inputs from other GPUs,
      * and so may prefer a dynamic enqueue order.
      *
-     * If the kernel enqueue order is statically known and if the OpenCL queue is not
-     * out-of-order, then a more aggressive latch sharing can be achieved by the InOrderSharedLatchAllocator.
+     * If the kernel enqueue order is statically known and if the kernels can't execute concurrently (an
+     * out-of-order OpenCL queue, or more than one execution queue per device), then a more aggressive latch
+     * sharing can be achieved by the InOrderSharedLatchAllocator.
      * Otherwise, the more conservative sharing produced by the OutOfOrderSharedLatchAllocator is used.
      */
 
     val latchAllocator = kernelEnqueueOrder match {
       case Some(enqueueOrder) =>
-        if (device.commandQueue.outOfOrderExecution)
+        if (device.commandQueue.concurrentExecution)
           new OutOfOrderSharedLatchAllocator
         else
           new InOrderSharedLatchAllocator(enqueueOrder)
@@ -161,6 +162,48 @@ object AllocateFieldRegisters {
   }
 
 
+  /** Allocate host-resident field registers (no OpenCL device) for all kernels in a circuit,
+    * as needed by the JVM backend.
+    *
+    * Recurrences are allocated flip-flops shared with their drivers, as above. Everything else
+    * gets its own latch: buffer sharing would save memory, but the host has plenty and the
+    * latch-sharing analysis is tied to OpenCL command queue ordering.
+    *
+    * @param circuit All kernels in this circuit will be allocated field registers.
+    * @param bufferType The type of cpu memory to allocate (pinned buffers are not possible).
+    * @param fieldMemoryAllocator The allocator that supplies the cpu memory.
+    */
+  def hostResident(circuit: KernelCircuit, bufferType: BufferType, fieldMemoryAllocator: FieldMemory) {
+    val recurrenceDrivers = new IdentityHashSet[VirtualFieldRegister]
+    circuit.traversePostorder {
+      _ match {
+        case kernel: RecurrentFieldKernel =>
+          recurrenceDrivers += kernel.recurrence
+        case kernel =>
+      }
+    }
+
+    def buffer(fieldType: FieldType) =
+      OpenCLBuffer.hostResident(fieldType, bufferType, fieldMemoryAllocator)
+
+    circuit.traversePostorder {
+      _ match {
+        case kernel: RecurrentFieldKernel =>
+          require(kernel.outputs.length == 1)
+          val fieldType = kernel.outputs(0).fieldType
+          val register = new OpenCLFieldRegister(buffer(fieldType), buffer(fieldType))
+          kernel.outputs(0).bindRegister(register)
+          kernel.recurrence.bindRegister(register)
+        case kernel: OpenCLAbstractKernel =>
+          kernel.outputs.foreach( virtualRegister =>
+            if (!recurrenceDrivers.contains(virtualRegister))
+              virtualRegister.bindRegister(new OpenCLFieldRegister(buffer(virtualRegister.fieldType)))
+          )
+        case _ => throw new RuntimeException("Unexpected kernel type.")
+      }
+    }
+  }
+
   /** Allocate a FieldRegister and OpenCL Buffer for this kernel on the device */
   def allocateFieldLatch(device: OpenCLDevice, cpuUseFieldType: FieldType, bufferType: BufferType) = {
     val gpuBufferCapacityBytes = new FieldMemoryLayoutImpl(cpuUseFieldType).longBufferSizeBytes
@@ -28,12 +28,16 @@ object AllocationMode {
   case object MultiGPU extends AllocationMode
   /** Mode for multiple machines, all their devices. */
   case object Cluster extends AllocationMode
+  /** Mode for single machine, no OpenCL: kernels run as multithreaded JVM code on the host. */
+  case object JVM extends AllocationMode
   /** Determine the allocation mode if none was specified explicitly: uses JVM System Property cog.device */
   def default: AllocationMode = {
     Option(System.getProperty("cog.device")) match {
       case Some("all") =>
         Console.err.println("[AllocateCluster] Warning: Operating in experimental multi-GPU mode.")
         AllocationMode.MultiGPU
+      case Some("jvm") =>
+        AllocationMode.JVM
       case _ =>
         AllocationMode.SingleGPU(System.getProperty("cog.device","0").toInt) // Default mode
     }
@@ -17,7 +17,7 @@
 package cogx.runtime.execution
 
 import akka.actor.{ActorRef, Actor}
-import cogx.platform.opencl.{OpenCLCpuSingleOutputKernel, OpenCLCpuKernel}
+import cogx.platform.opencl.OpenCLCpuKernel
 import cogx.platform.opencl.OpenCLCpuKernel.Step
 import cogx.utilities.AnnotateThread
 import com.jogamp.opencl.CLEvent.ExecutionStatus
@@ -36,15 +36,10 @@ class CPUKernelActor(kernel: OpenCLCpuKernel, replyTo: ActorRef) extends Actor {
   def receive = {
     case Step(inputTriggers, outputTrigger, inputRegisters, outputRegisters) =>
 
-      kernel.waitForEvents(inputTriggers)
+      kernel.awaitStartTriggers(inputTriggers)
 
       try {
-        kernel match {
-          case singleOutputKernel: OpenCLCpuSingleOutputKernel =>
-            singleOutputKernel.compute(inputRegisters, outputRegisters(0))
-          case _ =>
-            kernel.compute(inputRegisters, outputRegisters)
-        }
+        kernel.computeStep(inputRegisters, outputRegisters)
         outputTrigger.setComplete()
       }
       catch {
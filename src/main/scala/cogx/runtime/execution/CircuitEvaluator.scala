@@ -16,6 +16,7 @@
 
 package cogx.runtime.execution
 
+import cogx.parameters.Cog
 import cogx.platform.opencl.OpenCLPlatform
 import cogx.utilities.AnnotateThread
 
@@ -26,12 +27,13 @@ import akka.actor._
 import akka.pattern.ask
 import akka.util.Timeout
 
-import scala.concurrent.Await
+import scala.concurrent.{Await, Future}
 import concurrent.duration._
-import cogx.runtime.{EvaluatorInterface, FieldID}
+import cogx.runtime.{EvaluatorInterface, FieldID, ProbeSubscription}
 import akka.actor.TypedActor.{PostStop, PreStart, Receiver}
 import cogx.platform.types.VirtualFieldRegister
 import cogx.runtime.allocation.AllocationMode
+import cogx.runtime.metrics.MetricsRegistry
 
 /** Object interface to the evaluation system. This uses an Akka "TypedActor"
   * to glue the world of objects to the world of actors.
@@ -78,9 +80,11 @@ import cogx.runtime.allocation.AllocationMode
   * @param platform The platform upon which the circuit is evaluated.
   * @param mode The specific machines and devices upon which the circuit is evaluated.
   * @param profileSize How often to print out profiling statistics (0 == never)
+  * @param metrics Registry recording kernel and step-phase timings, if enabled.
   */
 private[cogx]
-class CircuitEvaluator(circuit: KernelCircuit, platform: OpenCLPlatform, mode: AllocationMode, profileSize: Int)
+class CircuitEvaluator(circuit: KernelCircuit, platform: OpenCLPlatform, mode: AllocationMode, profileSize: Int,
+                       metrics: Option[MetricsRegistry] = None)
         extends EvaluatorInterface
         with PreStart
         with PostStop
@@ -89,7 +93,7 @@ class CircuitEvaluator(circuit: KernelCircuit, platform: OpenCLPlatform, mode: A
   import SupervisorMessages._
   /** Actor which supervises the entire computation. */
   private val clusterSupervisor =
-    CogActorSystem.createActor(TypedActor.context, Props(new ClusterSupervisor(circuit, platform, mode, profileSize)),
+    CogActorSystem.createActor(TypedActor.context, Props(new ClusterSupervisor(circuit, platform, mode, profileSize, metrics)),
       name="ClusterSupervisor")
 
   /** How long to wait before assuming something has crashed. */
@@ -111,6 +115,9 @@ class CircuitEvaluator(circuit: KernelCircuit, platform: OpenCLPlatform, mode: A
   /** Flag recording an implicit reset, so we know to ignore an explicit one that follows. */
   private var circuitHasBeenReset = false
 
+  /** Probe subscriptions, whose fields are read at the end of selected steps. */
+  private val subscriptions = new ProbeSubscriptions(platform.fieldMemoryAllocator.release)
+
   // We no longer reset the computation implicitly to put it in a valid initial state.
   // Instead, we wait for the first user command and (if it's not a reset) perform an implicit reset then.
 
@@ -167,21 +174,58 @@ class CircuitEvaluator(circuit: KernelCircuit, platform: OpenCLPlatform, mode: A
       case e: Exception => //println("CircuitEvaluator.Await sees exception " + e)
         throw e
     }
+    subscriptions.capture(time)(readFields)
     time
   }
 
   /** Step the computation `count` cycles Does not alter running state.
     * (synchronous call).
     *
+    * Unless Cog.batchedStepping is turned off, the steps are requested with a
+    * single StepN message, so the per-step cost of an `ask` and its Await is
+    * paid once for the whole batch. If a step fails, the simulation time
+    * still reflects the steps that were completed before the failure. A batch
+    * is split at any step whose end a probe subscription must capture.
+    *
     * @return The simulation time after the step completes.
     */
   @throws(classOf[Exception])
   def step(count: Long): Long = {
-    for (i <- 0L until count)
-      step
+    if (!Cog.batchedStepping) {
+      for (i <- 0L until count)
+        step
+    }
+    else if (count > 0) {
+      if (!circuitHasBeenReset)
+        reset
+      var stepsRemaining = count
+      while (stepsRemaining > 0) {
+        val batchSize = math.min(stepsRemaining, subscriptions.stepsUntilCapture(time))
+        val batchTimeout = Timeout(timeout.duration * batchSize)
+        val future = clusterSupervisor.ask(StepN(batchSize))(batchTimeout)
+        Await.result(future, batchTimeout.duration) match {
+          case StepNDone(steps, e) =>
+            time += steps
+            e match {
+              case Some(exception) =>
+                println(s"CircuitEvaluator sees error in StepN after $steps steps: $exception")
+                throw exception
+              case None =>
+            }
+          case x => throw new Exception("Unexpected message: " + x)
+        }
+        stepsRemaining -= batchSize
+        subscriptions.capture(time)(readFields)
+      }
+    }
     time
   }
 
+  /** Add a probe subscription (asynchronous call). */
+  def subscribe(subscription: ProbeSubscription) {
+    subscriptions.add(subscription)
+  }
+
   /** Start the computation running until `stop` is called (asynchronous call) */
   def run {
     running = true
@@ -225,21 +269,8 @@ class CircuitEvaluator(circuit: KernelCircuit, platform: OpenCLPlatform, mode: A
   {
     if (!circuitHasBeenReset)
       reset
-    val kernel = virtualFieldRegister.source
-    val kernelOutput = virtualFieldRegister.sourceOutputIndex match {
-      case Some(i) => i
-      case None =>
-        throw new RuntimeException("Compiler error: missing output field register.")
-    }
     synchronized {
-      val fieldID = {
-        kernel.aliases match {
-          case Some(aliases) =>
-            require(aliases.size == 1, s"Multiple copies of kernel ${kernel.name} exist; which to probe?")
-            FieldID(aliases.head, kernelOutput)
-          case None => FieldID(kernel.id, kernelOutput)
-        }
-      }
+      val fieldID = fieldIDOf(virtualFieldRegister)
 
       val future = clusterSupervisor ? ProbeField(fieldID)
       Await.result(future, timeout.duration) match {
@@ -267,22 +298,9 @@ class CircuitEvaluator(circuit: KernelCircuit, platform: OpenCLPlatform, mode: A
   {
     if (!circuitHasBeenReset)
       reset
-    val kernel = virtualFieldRegister.source
-    val kernelOutput = virtualFieldRegister.sourceOutputIndex match {
-      case Some(i) => i
-      case None =>
-        throw new RuntimeException("Compiler error: missing output field register.")
-    }
     var memory: AbstractFieldMemory = null
     synchronized {
-      val fieldID = {
-        kernel.aliases match {
-          case Some(aliases) =>
-            require(aliases.size == 1, s"Multiple copies of kernel ${kernel.name} exist; which to probe?")
-            FieldID(aliases.head, kernelOutput)
-          case None => FieldID(kernel.id, kernelOutput)
-        }
-      }
+      val fieldID = fieldIDOf(virtualFieldRegister)
 
       val future = clusterSupervisor ? ProbeField(fieldID)
       Await.result(future, timeout.duration) match {
@@ -296,12 +314,56 @@ class CircuitEvaluator(circuit: KernelCircuit, platform: OpenCLPlatform, mode: A
     done(memory)
   }
 
+  /** Read several fields, all as of the same step, returning without waiting
+    * for the field data (asynchronous call).
+    *
+    * The request is queued behind any step already requested, and steps
+    * requested afterwards are queued behind it, so the caller may continue
+    * stepping while the read completes.
+    *
+    * @param virtualFieldRegisters The field registers of the fields being read.
+    * @return Future completed with memories holding the field data, in the
+    *         order of `virtualFieldRegisters`.
+    */
+  def readFields(virtualFieldRegisters: Seq[VirtualFieldRegister]): Future[Seq[AbstractFieldMemory]] = {
+    import TypedActor.dispatcher
+    if (!circuitHasBeenReset)
+      reset
+    val fieldIDs = virtualFieldRegisters.map(fieldIDOf(_))
+    (clusterSupervisor ? ProbeFields(fieldIDs)).map {
+      case ProbeFieldsData(ids, data) =>
+        require(fieldIDs == ids)
+        data
+      case e: Exception => throw e
+      case x => throw new Exception("Unexpected message: " + x)
+    }
+  }
+
+  /** The identifier of the field driven by `virtualFieldRegister`, as known
+    * to the supervisors.
+    */
+  private def fieldIDOf(virtualFieldRegister: VirtualFieldRegister): FieldID = {
+    val kernel = virtualFieldRegister.source
+    val kernelOutput = virtualFieldRegister.sourceOutputIndex match {
+      case Some(i) => i
+      case None =>
+        throw new RuntimeException("Compiler error: missing output field register.")
+    }
+    kernel.aliases match {
+      case Some(aliases) =>
+        require(aliases.size == 1, s"Multiple copies of kernel ${kernel.name} exist; which to probe?")
+        FieldID(aliases.head, kernelOutput)
+      case None => FieldID(kernel.id, kernelOutput)
+    }
+  }
+
   override def preStart() {
     // Add Cog function to thread name to aide thread probing tools like jconsole
     AnnotateThread(getClass.getSimpleName)
   }
 
   override def postStop() {
+    subscriptions.shutdown()
   }
 
   /** This is needed so `this` can do a "death watch" on the computeGraphActor
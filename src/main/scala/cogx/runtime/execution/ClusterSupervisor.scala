@@ -19,6 +19,8 @@ package cogx.runtime.execution
 import akka.actor.{Actor, ActorRef, Props}
 import cogx.compiler.codegenerator.KernelCircuit
 import cogx.platform.opencl.OpenCLPlatform
+import cogx.runtime.FieldID
+import cogx.runtime.metrics.MetricsRegistry
 import cogx.runtime.resources.ComputeNode
 import cogx.utilities.AnnotateThread
 
@@ -38,13 +40,20 @@ import cogx.runtime.allocation.{AllocateCluster, AllocationMode}
   * actors. When the children have completed, this supervisor will respond
   * with a `ResetDone` to the parent.
   *
-  * 3. The parent is not allowed to send a `Step` or `Reset` request to this
-  * supervisor until any previous `Step` or `Reset` command has completed and
-  * and has been acknowledged with a `StepDone` or `ResetDone` response.
+  * 3. In response to a `StepN(count)` request, the supervisor will advance
+  * the computation `count` steps and then respond with a single `StepNDone`
+  * reporting how many steps were completed. A circuit placed on a single GPU
+  * runs the steps back-to-back in its GPUSupervisor; otherwise the GPUs must
+  * exchange proxied fields each cycle, so this supervisor steps its children
+  * one `Step` at a time.
   *
-  * 4. The `ProbeField` request is legal at all times.
+  * 4. The parent is not allowed to send a `Step`, `StepN` or `Reset` request to
+  * this supervisor until any previous command has completed and has been
+  * acknowledged with a `StepDone`, `StepNDone` or `ResetDone` response.
   *
-  * 5. The `FieldData` message is legal at all times.
+  * 5. The `ProbeField` and `ProbeFields` requests are legal at all times.
+  *
+  * 6. The `FieldData` message is legal at all times.
   *
   * @author Greg Snider
   *
@@ -52,9 +61,11 @@ import cogx.runtime.allocation.{AllocateCluster, AllocationMode}
   * @param platform The platform upon which the circuit is evaluated.
   * @param mode The specific machines and devices upon which the circuit is evaluated.
   * @param profileSize How often to print out profiling statistics (0 == never)
+  * @param metrics Registry recording kernel and step-phase timings, if enabled.
   */
 private[runtime]
-class ClusterSupervisor(circuit: KernelCircuit, platform: OpenCLPlatform, mode: AllocationMode, profileSize: Int)
+class ClusterSupervisor(circuit: KernelCircuit, platform: OpenCLPlatform, mode: AllocationMode, profileSize: Int,
+                        metrics: Option[MetricsRegistry])
         extends Actor
 {
   import SupervisorMessages._
@@ -96,6 +107,15 @@ class ClusterSupervisor(circuit: KernelCircuit, platform: OpenCLPlatform, mode:
   /** Circuit initialization error, saved to be passed back in response to the first user command. */
   var initError: Option[Exception] = None
 
+  /** True if the whole circuit runs on one GPU, so StepN can be passed down intact. */
+  var batchableSteps = false
+
+  /** Steps of the current StepN request not yet completed (for step-at-a-time execution). */
+  var stepsRemaining = 0L
+
+  /** Steps of the current StepN request completed so far. */
+  var stepsDone = 0L
+
   /** Message handling. */
   def receive = {
     case Step =>
@@ -111,11 +131,53 @@ class ClusterSupervisor(circuit: KernelCircuit, platform: OpenCLPlatform, mode:
       }
 
     case StepDone(e) =>
+      busyChildren -= 1
+      if (lastError == None)
+        lastError = e
+      if (busyChildren == 0) {
+        if (stepsRemaining == 0)
+          requestor ! StepDone(lastError)
+        else {
+          // This step is part of a StepN request being executed one step at a time
+          stepsRemaining -= 1
+          if (lastError == None)
+            stepsDone += 1
+          if (stepsRemaining > 0 && lastError == None)
+            stepChildren()
+          else {
+            stepsRemaining = 0
+            requestor ! StepNDone(stepsDone, lastError)
+          }
+        }
+      }
+
+    case StepN(count) =>
+      initError match {
+        case Some(e) =>
+          sender ! StepNDone(0L, initError)
+        case None =>
+          requestor = sender
+          require(busyChildren == 0, "protocol failure: StepN request while busy")
+          lastError = None
+          stepsDone = 0L
+          if (count == 0)
+            requestor ! StepNDone(0L, None)
+          else if (batchableSteps) {
+            busyChildren = nodeSupervisors.length
+            nodeSupervisors.foreach(_ ! StepN(count))
+          }
+          else {
+            stepsRemaining = count
+            stepChildren()
+          }
+      }
+
+    case StepNDone(steps, e) =>
       busyChildren -= 1
       if (lastError == None)
         lastError = e
       if (busyChildren == 0)
-        requestor ! StepDone(lastError)
+        requestor ! StepNDone(steps, lastError)
 
     case Reset =>
       initError match {
@@ -148,6 +210,18 @@ class ClusterSupervisor(circuit: KernelCircuit, platform: OpenCLPlatform, mode:
           child forward ProbeField(id)
       }
 
+    case ProbeFields(ids) =>
+      initError match {
+        case Some(e) =>
+          sender ! initError.get
+        case None =>
+          def child(id: FieldID) = kernelIDToChild.get(id.kernelID) match {
+            case Some(kernel) => kernel
+            case None => throw new RuntimeException(s"Internal compiler error: probed field $id is unprobeable.")
+          }
+          ProbeFieldsRouter(ids, child, sender)
+      }
+
     case msg @ FieldData(id, data) =>
       initError match {
         case Some(e) =>
@@ -170,6 +244,13 @@ class ClusterSupervisor(circuit: KernelCircuit, platform: OpenCLPlatform, mode:
       throw new Exception("unexpected message: " + x)
   }
 
+  /** Issue a single Step to all children (part of a StepN request). */
+  private def stepChildren() {
+    lastError = None
+    busyChildren = nodeSupervisors.length
+    nodeSupervisors.foreach(_ ! Step)
+  }
+
   /** Allocate all resources needed to implement the circuit. */
   override def preStart() {
     // Add Cog function to thread name to aide thread probing tools like jconsole
@@ -180,9 +261,10 @@ class ClusterSupervisor(circuit: KernelCircuit, platform: OpenCLPlatform, mode:
     try {
       val cluster = AllocateCluster(circuit, platform, mode)
       val computeNodes: Seq[ComputeNode] = cluster.computeNodes
+      batchableSteps = computeNodes.map(_.gpus.length).sum == 1
       nodeSupervisors = computeNodes.zipWithIndex.map {
         case (node, idx) =>
-          CogActorSystem.createActor(context, Props(new ComputeNodeSupervisor(node, platform, profileSize)),
+          CogActorSystem.createActor(context, Props(new ComputeNodeSupervisor(node, platform, profileSize, metrics)),
             name="ComputeNodeSupervisor-"+idx)
       }
       for (i <- 0 until computeNodes.length) {
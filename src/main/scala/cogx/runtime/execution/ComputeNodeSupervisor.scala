@@ -23,6 +23,7 @@ import cogx.runtime.resources.ComputeNode
 import cogx.platform.opencl.OpenCLPlatform
 import cogx.runtime.allocation.circuit.{InputProxyKernel, OutputProxyKernel}
 import cogx.runtime.FieldID
+import cogx.runtime.metrics.MetricsRegistry
 
 /** Actor which supervises all GPU computation on a compute node.
   *
@@ -38,22 +39,29 @@ import cogx.runtime.FieldID
   * actors. When the children have completed, this supervisor will respond
   * with a `ResetDone` to the parent.
   *
-  * 3. The parent is not allowed to send a `Step` or `Reset` request to this
-  * supervisor until any previous `Step` or `Reset` command has completed and
-  * and has been acknowledged with a `StepDone` or `ResetDone` response.
+  * 3. A `StepN(count)` request is passed on to the children, each of which
+  * runs `count` steps without further messaging. When they have all replied,
+  * this supervisor responds with a `StepNDone` carrying the smallest number
+  * of steps completed by any child.
   *
-  * 4. The `ProbeField` request is legal at all times.
+  * 4. The parent is not allowed to send a `Step`, `StepN` or `Reset` request to
+  * this supervisor until any previous command has completed and has been
+  * acknowledged with a `StepDone`, `StepNDone` or `ResetDone` response.
   *
-  * 5. The `FieldData` message is legal at all times.
+  * 5. The `ProbeField` and `ProbeFields` requests are legal at all times.
+  *
+  * 6. The `FieldData` message is legal at all times.
   *
   * @param computeNode The compute node managed by this actor.
   * @param platform The platform upon which the circuit is evaluated.
   * @param profileSize How often to print out profiling statistics (0 == never)
+  * @param metrics Registry recording kernel and step-phase timings, if enabled.
   *
   * @author Greg Snider
   */
 private[runtime]
-class ComputeNodeSupervisor(computeNode: ComputeNode, platform: OpenCLPlatform, profileSize: Int)
+class ComputeNodeSupervisor(computeNode: ComputeNode, platform: OpenCLPlatform, profileSize: Int,
+                            metrics: Option[MetricsRegistry])
         extends Actor
 {
   import SupervisorMessages._
@@ -82,6 +90,9 @@ class ComputeNodeSupervisor(computeNode: ComputeNode, platform: OpenCLPlatform,
   /** In accumulating errors from ComputeNodeSupervisors, remember just one (the last). */
   var lastError: Option[Exception] = None
 
+  /** Steps of the current StepN request completed by all children. */
+  var stepsDone = 0L
+
   /** Message handling. */
   def receive = {
     case Step =>
@@ -98,6 +109,21 @@ class ComputeNodeSupervisor(computeNode: ComputeNode, platform: OpenCLPlatform,
         context.parent ! StepDone(lastError)
       }
 
+    case StepN(count) =>
+      require(busyChildren == 0, "protocol failure: StepN request while busy")
+      lastError = None
+      stepsDone = count
+      busyChildren = gpuSupervisors.length
+      gpuSupervisors.foreach(_ ! StepN(count))
+
+    case StepNDone(steps, e) =>
+      busyChildren -= 1
+      if (lastError == None)
+        lastError = e
+      stepsDone = math.min(stepsDone, steps)
+      if (busyChildren == 0)
+        context.parent ! StepNDone(stepsDone, lastError)
+
     case Reset =>
       require(busyChildren == 0, "protocol failure: Reset request while busy")
       lastError = None
@@ -115,6 +141,9 @@ class ComputeNodeSupervisor(computeNode: ComputeNode, platform: OpenCLPlatform,
       val child = kernelIDToChild(id.kernelID)
       child forward msg
 
+    case ProbeFields(ids) =>
+      ProbeFieldsRouter(ids, id => kernelIDToChild(id.kernelID), sender)
+
     case msg @ FieldData(id, data) =>
       for (target <- proxyRoutes(id))
         target forward msg
@@ -137,7 +166,7 @@ class ComputeNodeSupervisor(computeNode: ComputeNode, platform: OpenCLPlatform,
         require(gpu.circuit != null, "GPU is lacking a bound circuit")
         val device = platform.devices(gpu.deviceIndex)
         CogActorSystem.createActor(context,
-          Props(new GPUSupervisorActor(device, gpu, profileSize)), name="GPUSupervisorActor-"+idx)
+          Props(new GPUSupervisorActor(device, gpu, profileSize, metrics)), name="GPUSupervisorActor-"+idx)
     }
     for (i <- 0 until computeNode.gpus.length) {
       computeNode.gpus(i).circuit.traversePostorder {
@@ -27,17 +27,21 @@ import scala.collection.mutable
 import cogx.platform.cpumemory.{AbstractFieldMemory, DirectBuffer, PinnedDirectBuffer}
 import cogx.runtime.FieldID
 import cogx.runtime.resources.GPU
+import cogx.runtime.allocation.circuit.{InputProxyKernel, OutputProxyKernel}
+import cogx.runtime.metrics.{MetricsRegistry, TraceRecorder}
+import cogx.utilities.Stats
 
 /** Actor which supervises computation of a kernel circuit on a GPU.
   *
   * @param device OpenCL GPU managed by this supervisor.
   * @param gpu An object that allows late binding of the orderedKernels sequence (for multinode)
   * @param profileSize How often to print out profiling statistics (0 == never)
+  * @param metrics Registry recording kernel and step-phase timings, if enabled.
   *
   * @author Greg Snider
   */
 private[runtime]
-class GPUSupervisor(device: OpenCLDevice, gpu: GPU, profileSize: Int)
+class GPUSupervisor(device: OpenCLDevice, gpu: GPU, profileSize: Int, metrics: Option[MetricsRegistry])
 {
   // Bring `circuit` and `orderedKernels` into scope. */
   import gpu._
@@ -73,12 +77,39 @@ class GPUSupervisor(device: OpenCLDevice, gpu: GPU, profileSize: Int)
     else
       DirectBuffer
 
+  /** Wall-clock time of each step in usec, kept only when profiling. */
+  private val stepStats = new Stats(" us")
+
+  /** Launch each step before the previous one has completed (Cog.pipelinedStepping).
+    * Circuits split over several GPUs exchange fields through proxy kernels on every
+    * step, so they are never pipelined.
+    */
+  private val pipelined = Cog.pipelinedStepping && !orderedKernels.exists(kernel =>
+    kernel.isInstanceOf[InputProxyKernel] || kernel.isInstanceOf[OutputProxyKernel])
+
+  /** CPU kernels, whose host-side work must finish before registers are clocked for the next step. */
+  private lazy val cpuKernels = orderedKernels.filter(_.isInstanceOf[OpenCLCpuKernel])
+
+  /** For each kernel of `orderedKernels`, the previous-step kernels it waits on when pipelined
+    * (lazy since it needs the field registers).
+    */
+  private lazy val priorStepDependencies: Seq[Seq[OpenCLAbstractKernel]] = PipelineDependencies(orderedKernels)
+
+  /** True if a pipelined step has been launched, but not yet checked for completion. */
+  private var stepInFlight = false
+
+  /** True if the events of a completed, checked pipelined step are still retained. */
+  private var checkedStepRetained = false
+
   /** Pre start initialization and allocation. */
   def preStart() {
 
     // Add Cog function to thread name to aide thread probing tools like jconsole
     AnnotateThread(getClass.getSimpleName + "-" + gpu.deviceIndex)
 
+    // Spread the device kernels over the execution queues.
+    QueueAssignment(orderedKernels, device.commandQueue.executionQueueCount)
+
     // Allocate registers for the fields.
     AllocateFieldRegisters(circuit, device, Some(orderedKernels), bufferType)
 
@@ -98,15 +129,21 @@ class GPUSupervisor(device: OpenCLDevice, gpu: GPU, profileSize: Int)
                   x.getClass.toString)
       }
     }
+
+    // Have the kernels record their execution times, if metrics are enabled.
+    for (registry <- metrics; kernel <- orderedKernels)
+      registry.register(kernel)
   }
 
   /** Post stop deallocation. */
   def postStop() {
     // TO DO XXX   deallocate field registers, uninstall / deinstantiate kernels
+    drain()
   }
 
   /** Reset the computation to its initial state. */
   def reset() {
+    drain()
     for (kernel <- orderedKernels)
       kernel.reset()
 
@@ -116,21 +153,46 @@ class GPUSupervisor(device: OpenCLDevice, gpu: GPU, profileSize: Int)
     // inputs to the outputs so that every buffer contains valid data as a
     // result of being reset.
     evaluate()
+    drain()
 
     // Are we profiling this execution? If so, then reset the stats upon KernelCircuit reset (erases first evaluate)
-    if (device.commandQueue.profile)
+    if (device.commandQueue.profile) {
       for (kernel <- orderedKernels)
         kernel.stats.reset()
+      stepStats.reset()
+    }
+    metrics.foreach(_.reset())
   }
 
   /** Advance the computation by one step. */
 //  def evaluate(): Unit = device.lock.synchronized {
   def evaluate() {
+    // Phase boundaries are timed for the metrics registry and any trace being recorded.
+    val trace = TraceRecorder.active
+    val timed = metrics.isDefined || trace != null
+    val stepStartNanos = if (profileSize > 0 || timed) System.nanoTime() else 0L
+
+    // When pipelined, the previous step may still be running. Its CPU kernels
+    // work on the registers from the host, so they must finish before the
+    // registers are clocked. The step before that is known to be complete.
+    if (stepInFlight) {
+      device.waitForEvents(cpuKernels.map(_.done.getEvent(0)))
+      releaseCheckedStep()
+    }
 
     // Clock output registers, mark masters invalid since we're about to
     // overwrite them
     for (kernel <- orderedKernels)
       kernel.phase0Clock()
+    val launchStartNanos = if (timed) System.nanoTime() else 0L
+
+    // Kernels of this step wait on any conflicting kernels of the step in flight.
+    if (stepInFlight) {
+      for (kernel <- orderedKernels)
+        kernel.retainOutputTrigger()
+      for ((kernel, dependencies) <- orderedKernels zip priorStepDependencies)
+        kernel.priorStepTriggers = dependencies.map(_.retainedDone).toArray
+    }
 
     // Keep a queue of the last 2 kernels to aide error reporting for launch failures
     var lastKernel: OpenCLAbstractKernel = null
@@ -185,7 +247,38 @@ class GPUSupervisor(device: OpenCLDevice, gpu: GPU, profileSize: Int)
     // hidden behind the subsequent WaitForEvents.    -RJC
 
     device.commandQueue.flush()
+    val waitStartNanos = if (timed) System.nanoTime() else 0L
 
+    if (pipelined)
+      completePreviousStep()
+    else
+      completeStep()
+
+    if (profileSize > 0)
+      stepStats.addSample((System.nanoTime() - stepStartNanos) / 1000.0)
+
+    if (timed) {
+      val stepEndNanos = System.nanoTime()
+      for (registry <- metrics) {
+        registry.recordPhase("clock", (launchStartNanos - stepStartNanos) / 1000.0)
+        registry.recordPhase("launch", (waitStartNanos - launchStartNanos) / 1000.0)
+        registry.recordPhase("wait", (stepEndNanos - waitStartNanos) / 1000.0)
+        registry.recordPhase("step", (stepEndNanos - stepStartNanos) / 1000.0)
+      }
+      if (trace != null) {
+        trace.hostSpan("phase", "step", stepStartNanos, stepEndNanos)
+        trace.hostSpan("phase", "phase0Clock", stepStartNanos, launchStartNanos)
+        trace.hostSpan("phase", "phase1Clock", launchStartNanos, waitStartNanos)
+        trace.hostSpan("phase", "phase2Clock (wait and check)", waitStartNanos, stepEndNanos)
+      }
+    }
+
+    // Print out kernel statistics every 'ProfileSize' cycles
+    printProfile()
+  }
+
+  /** Wait for the step just launched to complete and check its kernels. */
+  private def completeStep() {
     // Wait for roots to finish. Actuators run as CPU kernels, so even though
     // all GPU processes have completed at this point, actuators may not have.
 
@@ -203,9 +296,50 @@ class GPUSupervisor(device: OpenCLDevice, gpu: GPU, profileSize: Int)
     // We now have to release all events in all kernels.
     for (kernel <- orderedKernels)
       kernel.phase2Clock()
+  }
 
-    // Print out kernel statistics every 'ProfileSize' cycles
+  /** Pipelined stepping: with the step just launched now queued behind it,
+    * wait for the previous step (if any) to complete and check its kernels.
+    * Its events stay alive until the next step is launched, since CPU kernel
+    * actors of the new step may not yet have waited on them.
+    */
+  private def completePreviousStep() {
+    if (stepInFlight) {
+      device.waitForEvents(orderedKernels.map(_.retainedDone))
+      for (kernel <- orderedKernels) {
+        kernel.checkRetainedTrigger()
+        kernel.priorStepTriggers = Array()
+      }
+      checkedStepRetained = true
+    }
+    stepInFlight = true
+  }
 
+  /** Release the events of the last checked pipelined step, if still held. */
+  private def releaseCheckedStep() {
+    if (checkedStepRetained) {
+      for (kernel <- orderedKernels)
+        kernel.releaseRetainedTrigger()
+      checkedStepRetained = false
+    }
+  }
+
+  /** Complete any pipelined step still in flight, so the registers hold the
+    * result of the last step and no events are retained.
+    */
+  private def drain() {
+    if (stepInFlight) {
+      stepInFlight = false
+      device.waitForEvents(orderedKernels.map(_.done.getEvent(0)))
+      releaseCheckedStep()
+      for (kernel <- orderedKernels)
+        kernel.phase2Clock()
+    }
+    releaseCheckedStep()
+  }
+
+  /** Print out kernel statistics for kernels that have accumulated `profileSize` samples. */
+  private def printProfile() {
     // CommandQueues for this device should already have profiling enabled.
 
     // When the Profiler uses this class, the CommandQueues will have profiling enabled, but
@@ -226,8 +360,10 @@ class GPUSupervisor(device: OpenCLDevice, gpu: GPU, profileSize: Int)
         val numDeviceKernels = slowToFastDeviceKernels.size
         if (numDeviceKernels > 0) {
           println("Device kernels: ")
-          for (kernel <- slowToFastDeviceKernels)
-            println("  " + kernel.stats + " | " + kernel)
+          for (kernel <- slowToFastDeviceKernels) {
+            val rates = kernel.asInstanceOf[OpenCLDeviceKernel].achievedRates(kernel.stats.avg)
+            println("  " + kernel.stats + " | " + rates + " | " + kernel)
+          }
           println
         }
         if (slowToFastCpuKernels.size > 0) {
@@ -274,12 +410,37 @@ class GPUSupervisor(device: OpenCLDevice, gpu: GPU, profileSize: Int)
           printf("Estimated kernel launch overhead = %.1f%%\n\n",
             100.0 * totalKernelLaunchOverheadUsecs / cycleTimeEstimateUsecs)
 
+        printf("Measured step time = %s\n\n", stepStats)
+        printQueueOccupancy(slowToFastDeviceKernels.map(_.asInstanceOf[OpenCLDeviceKernel]))
+
         slowToFastKernels.foreach(_.stats.reset())
+        stepStats.reset()
       }
     }
 
   }
 
+  /** Print, for each execution queue, the fraction of the average step time
+    * that the queue spends executing its kernels. Occupancies summing to more
+    * than 100% show kernels overlapping on the device.
+    *
+    * @param deviceKernels The profiled device kernels.
+    */
+  private def printQueueOccupancy(deviceKernels: Seq[OpenCLDeviceKernel]) {
+    val queues = device.commandQueue.executionQueueCount
+    val stepUsecs = stepStats.avg
+    if (queues > 1 && stepUsecs > 0.0) {
+      println("Execution queue occupancy: ")
+      for (queue <- 0 until queues) {
+        val queueKernels = deviceKernels.filter(_.executionQueue == queue)
+        val busyUsecs = queueKernels.map(_.stats.avg).foldLeft(0.0)(_ + _)
+        printf("  queue %d: %d kernels, busy %.1f usec per step (%.1f%%)\n",
+          queue, queueKernels.size, busyUsecs, 100.0 * busyUsecs / stepUsecs)
+      }
+      println
+    }
+  }
+
   /** Install a kernel so it can be executed. */
   private def installKernel(kernel: AbstractKernel) {
     kernel match {
@@ -299,14 +460,40 @@ class GPUSupervisor(device: OpenCLDevice, gpu: GPU, profileSize: Int)
     * @return The field in a CPU memory buffer.
     */
   def readField(fieldID: FieldID): AbstractFieldMemory = {
+    drain()
+    val buffer = outputBuffer(fieldID)
+    val memory = device.platform.fieldMemoryAllocator.copy(buffer.read.asInstanceOf[AbstractFieldMemory])
+    memory
+  }
+
+  /** Read several fields into CPU memory, all as of the last completed step.
+    *
+    * Each field is read from the device straight into the memory returned
+    * (rather than via the buffer's cpuMemory). The memory is ordinary direct
+    * memory, even with pinned field buffers, since the caller owns it and
+    * need not release it.
+    *
+    * @param fieldIDs Unique identifiers of the fields.
+    * @return The fields in CPU memory buffers, in the order of `fieldIDs`.
+    */
+  def readFields(fieldIDs: Seq[FieldID]): Seq[AbstractFieldMemory] = {
+    drain()
+    val allocator = device.platform.fieldMemoryAllocator
+    fieldIDs.map { fieldID =>
+      val buffer = outputBuffer(fieldID)
+      val memory = allocator.direct(buffer.fieldType)
+      buffer.readInto(memory)
+      memory
+    }
+  }
+
+  /** The buffer holding the (latest step's) value of a field. */
+  private def outputBuffer(fieldID: FieldID): OpenCLBuffer = {
     val kernel = idToKernel.get(fieldID.kernelID) match {
       case Some(_kernel) => _kernel
       case None => throw new RuntimeException(s"Internal compiler error: read of field $fieldID is not possible.")
     }
     val kernelOutput = fieldID.kernelOutput
-    val buffer =
-      kernel.asInstanceOf[OpenCLAbstractKernel].outputRegister(kernelOutput).slave
-    val memory = device.platform.fieldMemoryAllocator.copy(buffer.read.asInstanceOf[AbstractFieldMemory])
-    memory
+    kernel.asInstanceOf[OpenCLAbstractKernel].outputRegister(kernelOutput).slave
   }
 }
\ No newline at end of file
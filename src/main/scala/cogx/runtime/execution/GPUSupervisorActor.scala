@@ -16,9 +16,11 @@
 
 package cogx.runtime.execution
 
-import akka.actor.{Props, Actor}
+import akka.actor.{Props, Actor, Status}
+import cogx.parameters.Cog
 import cogx.platform.opencl._
 import cogx.runtime.allocation.circuit.{OutputProxyKernel, InputProxyKernel}
+import cogx.runtime.metrics.MetricsRegistry
 import cogx.runtime.resources.GPU
 
 /** Actor which supervises computation of a kernel circuit on a GPU.
@@ -26,24 +28,30 @@ import cogx.runtime.resources.GPU
   * @param device OpenCL GPU managed by this supervisor.
   * @param gpu An object that allows late binding of the orderedKernels sequence (for multinode)
   * @param profileSize How often to print out profiling statistics (0 == never)
+  * @param metrics Registry recording kernel and step-phase timings, if enabled.
   *
   * @author Greg Snider
   */
 private[runtime]
-class GPUSupervisorActor(device: OpenCLDevice, gpu: GPU, profileSize: Int)
+class GPUSupervisorActor(device: OpenCLDevice, gpu: GPU, profileSize: Int, metrics: Option[MetricsRegistry])
   extends Actor
 {
   import SupervisorMessages._
 
   /** Create the non-actor GPUSupervisor that performs all the work. */
-  val gpuSupervisor = new GPUSupervisor(device, gpu, profileSize)
+  val gpuSupervisor = new GPUSupervisor(device, gpu, profileSize, metrics)
 
-  /** CPU kernels that need actors for their execution. */
+  /** CPU kernels that need actors for their execution. None do if they are
+    * run by the CpuKernelExecutor instead.
+    */
   private val cpuActorKernels: Seq[OpenCLCpuKernel] = {
     val cpuKernels: Seq[OpenCLCpuKernel] =
       gpu.orderedKernels.filter(x => x.isInstanceOf[OpenCLCpuKernel]).
         map(_.asInstanceOf[OpenCLCpuKernel])
-    cpuKernels.filter(_.hasActor)
+    if (Cog.cpuKernelExecutor)
+      Seq()
+    else
+      cpuKernels.filter(_.hasActor)
   }
 
   /** Responses to messages. */
@@ -56,6 +64,20 @@ class GPUSupervisorActor(device: OpenCLDevice, gpu: GPU, profileSize: Int)
         case e: Exception => sender ! StepDone(Some(e))
       }
 
+    case StepN(count) =>
+      // The steps run back-to-back with no messaging in between. Any error
+      // ends the batch, and the reply says how many steps were completed.
+      var stepsDone = 0L
+      try {
+        while (stepsDone < count) {
+          gpuSupervisor.evaluate()
+          stepsDone += 1
+        }
+        sender ! StepNDone(stepsDone, None)
+      } catch {
+        case e: Exception => sender ! StepNDone(stepsDone, Some(e))
+      }
+
     case Reset =>
       try {
         gpuSupervisor.reset()
@@ -69,6 +91,14 @@ class GPUSupervisorActor(device: OpenCLDevice, gpu: GPU, profileSize: Int)
       val memory = gpuSupervisor.readField(id)
       sender ! ProbeData(id, memory)
 
+    case ProbeFields(ids) =>
+      // Failures are returned to the asker, whose future then fails.
+      try
+        sender ! ProbeFieldsData(ids, gpuSupervisor.readFields(ids))
+      catch {
+        case e: Exception => sender ! Status.Failure(e)
+      }
+
     ///////////////////////////////////////////////////////////////////////////
     // GPU Supervisors don't need to handle the FieldData message. In fact,
     // as implemented, they can't handle it. The problem is that while the
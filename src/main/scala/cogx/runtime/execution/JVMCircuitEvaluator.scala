@@ -0,0 +1,365 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.runtime.execution
+
+import akka.actor.ActorRef
+import akka.actor.TypedActor.{PostStop, PreStart, Receiver}
+import cogx.compiler.codegenerator.KernelCircuit
+import cogx.platform.cpumemory.{AbstractFieldMemory, FieldMemory, IndirectBuffer}
+import cogx.platform.jvm.JVMKernelInterpreter
+import cogx.platform.opencl.{OpenCLAbstractKernel, OpenCLCpuKernel, OpenCLDeviceKernel, OpenCLFieldRegister}
+import cogx.platform.types.{AbstractKernel, VirtualFieldRegister}
+import cogx.runtime.{EvaluatorInterface, ProbeSubscription}
+import cogx.runtime.allocation.AllocateFieldRegisters
+import cogx.runtime.metrics.{MetricsRegistry, TraceRecorder}
+import cogx.utilities.AnnotateThread
+
+import scala.collection.mutable
+import scala.concurrent.Future
+
+/** Evaluator for the JVM backend (AllocationMode.JVM): runs a kernel circuit on
+  * the host with no OpenCL platform or devices.
+  *
+  * All field registers live in host memory. Each step, the kernels are run in
+  * schedule order on the evaluator's thread: CPU kernels through their usual
+  * `compute` method, and device kernels (HyperKernels) by the
+  * JVMKernelInterpreter, which spreads each kernel over the cores with a
+  * fork-join pool. There is thus no need for the supervisor hierarchy of the
+  * OpenCL CircuitEvaluator, but the step/run/reset/read protocol seen by the
+  * ComputeGraph is the same.
+  *
+  * @param circuit The DAG of kernels to be evaluated.
+  * @param profileSize How often to print out profiling statistics (0 == never)
+  * @param metrics Registry recording kernel and step-phase timings, if enabled.
+  *
+  * @author Dick Carter
+  */
+private[cogx]
+class JVMCircuitEvaluator(circuit: KernelCircuit, profileSize: Int, metrics: Option[MetricsRegistry] = None)
+        extends EvaluatorInterface
+        with PreStart
+        with PostStop
+        with Receiver
+{
+  import SupervisorMessages._
+
+  /** Allocator of the host memory holding the fields. */
+  private val fieldMemoryAllocator = FieldMemory()
+
+  /** Kernels ordered so that they can be executed bottom-up. */
+  private val orderedKernels: Seq[OpenCLAbstractKernel] = Schedule(circuit)
+
+  /** Map of kernel ID to kernel. */
+  private val idToKernel = new mutable.HashMap[Int, AbstractKernel] {
+    for (kernel <- orderedKernels)
+      this(kernel.id) = kernel
+  }
+
+  /** True when running, false when idle. */
+  private var running = false
+
+  /** Current simulation time. */
+  private var time = 0L
+
+  /** When we want to message ourselves, who do we send to? */
+  private var myActor: ActorRef = null
+
+  /** Flag recording an implicit reset, so we know to ignore an explicit one that follows. */
+  private var circuitHasBeenReset = false
+
+  /** Probe subscriptions, whose fields are read at the end of selected steps. */
+  private val subscriptions = new ProbeSubscriptions(fieldMemoryAllocator.release)
+
+  /** One action per kernel (in schedule order) that performs its computation
+    * for a step.  Creating this checks that every kernel can be run on the JVM
+    * and allocates the field registers.
+    */
+  private lazy val kernelActions: Array[() => Unit] = {
+    val problems = orderedKernels.collect {
+      case k: OpenCLDeviceKernel => JVMKernelInterpreter.unsupportedReason(k)
+    }.flatten
+    if (problems.nonEmpty)
+      throw new RuntimeException("Circuit cannot be run by the JVM backend:\n  " + problems.mkString("\n  "))
+
+    AllocateFieldRegisters.hostResident(circuit, IndirectBuffer, fieldMemoryAllocator)
+
+    for (registry <- metrics; kernel <- orderedKernels)
+      registry.register(kernel)
+
+    orderedKernels.map {
+      case k: OpenCLCpuKernel =>
+        val in = Array.tabulate[OpenCLFieldRegister](k.inputs.length)(k.inputRegister(_))
+        val out = Array.tabulate[OpenCLFieldRegister](k.outputs.length)(k.outputRegister(_))
+        () => k.compute(in, out)
+      case k: OpenCLDeviceKernel =>
+        () => JVMKernelInterpreter.evaluate(k)
+      case x =>
+        throw new RuntimeException("Illegal AbstractKernel class: " + x.getClass.toString)
+    }.toArray
+  }
+
+  /** Advance the computation by one step. */
+  private def evaluate() {
+    val trace = TraceRecorder.active
+    val stepStartNanos = if (metrics.isDefined || trace != null) System.nanoTime() else 0L
+    for (kernel <- orderedKernels)
+      kernel.phase0Clock()
+    val actions = kernelActions
+    if (profileSize > 0 || metrics.isDefined || trace != null) {
+      val computeStartNanos = System.nanoTime()
+      for (i <- 0 until actions.length) {
+        val start = System.nanoTime()
+        actions(i)()
+        val end = System.nanoTime()
+        val usecs = (end - start) / 1000.0
+        if (profileSize > 0)
+          orderedKernels(i).stats.addSample(usecs)
+        val kernelMetrics = orderedKernels(i).metrics
+        if (kernelMetrics != null)
+          kernelMetrics.recordExecution(usecs)
+        if (trace != null) {
+          val kernel = orderedKernels(i)
+          val category = if (kernel.isInstanceOf[OpenCLDeviceKernel]) "device" else "cpu"
+          trace.hostSpan(category, kernel.opcode.toString + "_" + kernel.id, start, end)
+        }
+      }
+      val stepEndNanos = System.nanoTime()
+      for (registry <- metrics) {
+        registry.recordPhase("clock", (computeStartNanos - stepStartNanos) / 1000.0)
+        registry.recordPhase("compute", (stepEndNanos - computeStartNanos) / 1000.0)
+        registry.recordPhase("step", (stepEndNanos - stepStartNanos) / 1000.0)
+      }
+      if (trace != null) {
+        trace.hostSpan("phase", "step", stepStartNanos, stepEndNanos)
+        trace.hostSpan("phase", "phase0Clock", stepStartNanos, computeStartNanos)
+      }
+      if (profileSize > 0)
+        printProfile()
+    }
+    else {
+      var i = 0
+      while (i < actions.length) {
+        actions(i)()
+        i += 1
+      }
+    }
+  }
+
+  /** Print out kernel statistics every `profileSize` steps. */
+  private def printProfile() {
+    val kernelsWithSamples = orderedKernels.filter(kernel =>
+      kernel.stats.totalSamples > 0 && kernel.stats.totalSamples % profileSize == 0)
+    if (kernelsWithSamples.nonEmpty) {
+      println("************ JVM kernel execution times (taken over " + profileSize + " steps) ************")
+      println()
+      for (kernel <- kernelsWithSamples.sortWith(_.stats.avg > _.stats.avg))
+        println("  " + kernel.stats + " | " + kernel)
+      val totalAvgUsecs = kernelsWithSamples.map(_.stats.avg).foldLeft(0.0)(_ + _)
+      printf("Total avg execution time of %d kernels = %.1f usec (sim freq = %.1f Hz)\n\n",
+        kernelsWithSamples.size, totalAvgUsecs, 1000000.0 / totalAvgUsecs)
+      kernelsWithSamples.foreach(_.stats.reset())
+    }
+  }
+
+  /** Reset the computation to an initial state defined by the user
+    * (synchronous call).
+    *
+    * @return Zero (the simulation time after reset).
+    */
+  @throws(classOf[Exception])
+  def reset: Long = {
+    if (circuitHasBeenReset)
+      running = false
+    time = 0L
+    kernelActions
+    for (kernel <- orderedKernels)
+      kernel.reset()
+    // As with the GPUSupervisor, a single evaluation "primes" the buffers for feedback.
+    evaluate()
+    if (profileSize > 0)
+      orderedKernels.foreach(_.stats.reset())
+    metrics.foreach(_.reset())
+    circuitHasBeenReset = true
+    time
+  }
+
+  /** Step the computation one cycle. Does not alter running state.
+    * (synchronous call).
+    *
+    * @return The simulation time after the step completes.
+    */
+  @throws(classOf[Exception])
+  def step: Long = {
+    if (!circuitHasBeenReset)
+      reset
+    evaluate()
+    time += 1
+    subscriptions.capture(time)(readFields)
+    time
+  }
+
+  /** Step the computation `count` cycles Does not alter running state.
+    * (synchronous call).
+    *
+    * @return The simulation time after the step completes.
+    */
+  @throws(classOf[Exception])
+  def step(count: Long): Long = {
+    for (i <- 0L until count)
+      step
+    time
+  }
+
+  /** Add a probe subscription (asynchronous call). */
+  def subscribe(subscription: ProbeSubscription) {
+    subscriptions.add(subscription)
+  }
+
+  /** Start the computation running until `stop` is called (asynchronous call) */
+  def run {
+    running = true
+    myActor ! Run
+  }
+
+  def print {
+    println("typed actor: " + getClass.getSimpleName)
+    orderedKernels.foreach(kernel => println("  " + kernel))
+  }
+
+  /** Stop the computation, returning the simulation time (synchronous call). */
+  @throws(classOf[Exception])
+  def stop: Long = {
+    running = false
+    time
+  }
+
+  /** Get the current simulation time, in cycles.
+    *
+    * @param done Callback routine that passes the simulation time as a
+    *        parameter.
+    */
+  def time(done: (Long) => Unit) {
+    done(time)
+  }
+
+  /** Find the host buffer holding the latest value of a field. */
+  private def fieldData(virtualFieldRegister: VirtualFieldRegister): AbstractFieldMemory = {
+    val kernelOutput = virtualFieldRegister.sourceOutputIndex match {
+      case Some(i) => i
+      case None =>
+        throw new RuntimeException("Compiler error: missing output field register.")
+    }
+    val kernel = idToKernel.get(virtualFieldRegister.source.id) match {
+      case Some(_kernel) => _kernel.asInstanceOf[OpenCLAbstractKernel]
+      case None => throw new RuntimeException(s"Internal compiler error: read of field $virtualFieldRegister is not possible.")
+    }
+    kernel.outputRegister(kernelOutput).slave.read
+  }
+
+  /** Read a field, calling `done` when the field data is available.
+    *
+    * @param virtualFieldRegister Virtual field register driving the field
+    * @param to Pre-allocated field memory, passed to the `done` function, that
+    *        receives the read field data.
+    * @param done Callback which returns memory holding the field data; this
+    *        memory must be released before this field can be read again.
+    */
+  def readField(virtualFieldRegister: VirtualFieldRegister,
+                to: AbstractFieldMemory,
+                done: (AbstractFieldMemory) => Unit)
+  {
+    if (!circuitHasBeenReset)
+      reset
+    synchronized {
+      fieldData(virtualFieldRegister).copyTo(to)
+    }
+    done(to)
+  }
+
+  /** Read a field, calling `done` when the field data is available.
+    *
+    * @param virtualFieldRegister Virtual field register driving the field
+    * @param done Callback which returns memory holding the field data; this
+    *        memory must be released before this field can be read again.
+    */
+  def readField(virtualFieldRegister: VirtualFieldRegister,
+                done: (AbstractFieldMemory) => Unit)
+  {
+    if (!circuitHasBeenReset)
+      reset
+    val memory = synchronized {
+      fieldMemoryAllocator.copy(fieldData(virtualFieldRegister))
+    }
+    done(memory)
+  }
+
+  /** Read several fields, all as of the same step. The fields are copied
+    * before returning, so the future is already complete.
+    *
+    * @param virtualFieldRegisters The field registers of the fields being read.
+    * @return Future holding memories with the field data, in the order of
+    *         `virtualFieldRegisters`.
+    */
+  def readFields(virtualFieldRegisters: Seq[VirtualFieldRegister]): Future[Seq[AbstractFieldMemory]] = {
+    if (!circuitHasBeenReset)
+      reset
+    val memories = synchronized {
+      virtualFieldRegisters.map(vfr => fieldMemoryAllocator.copy(fieldData(vfr)))
+    }
+    Future.successful(memories)
+  }
+
+  override def preStart() {
+    // Add Cog function to thread name to aide thread probing tools like jconsole
+    AnnotateThread(getClass.getSimpleName)
+  }
+
+  override def postStop() {
+    subscriptions.shutdown()
+    fieldMemoryAllocator.destroyAll()
+  }
+
+  /** Runs the computation by stepping, then messaging itself to keep running,
+    * exactly as the CircuitEvaluator does (so `stop` can get through).
+    */
+  @throws(classOf[Exception])
+  def onReceive(message: Any, sender: ActorRef) {
+    message match {
+      case Run =>
+        if (running) {
+          try {
+            step
+            myActor ! Run
+          }
+          catch {
+            case e: Exception =>
+              running = false
+              println("JVMCircuitEvaluator stopping (further stepping not possible) cause: " + e)
+              throw e
+          }
+        }
+      case other =>
+        println("^^^^^^^^^^^^^   JVMCircuitEvaluator: message received: " + other)
+    }
+  }
+
+  /** Informs this actor of its identity for self-messaging */
+  def tellIdentity(me: ActorRef) {
+    myActor = me
+    AnnotateThread(myActor.toString)
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.runtime.execution
+
+import cogx.cogmath.collection.{IdentityHashMap, IdentityHashSetDeterministic}
+import cogx.compiler.codegenerator.opencl.cpukernels.{ConstantFieldKernel, RecurrentFieldKernel}
+import cogx.platform.opencl.{OpenCLAbstractKernel, OpenCLBuffer}
+
+import scala.collection.mutable.ArrayBuffer
+
+/** Finds, for pipelined stepping, the kernels of one step that each kernel
+  * of the following step must wait for.
+  *
+  * Within a step, a kernel waits only on the kernels driving its inputs. When
+  * step N+1 is launched before step N has finished, a kernel must also wait
+  * for any step-N kernel that could conflict with it through a shared buffer:
+  * one that writes a buffer the kernel reads or writes, or one that reads a
+  * buffer the kernel writes. Buffers are compared by identity after
+  * allocation, so latches shared by several fields and the two halves of a
+  * flip-flop are handled without special cases.
+  *
+  * RecurrentFieldKernels and ConstantFieldKernels do no work during a step
+  * (the recurrence's driver writes the flip-flop, and constants are written
+  * at reset), so they are treated as writing nothing. This keeps them from
+  * stalling the launch loop, since they run in-line on the supervisor's
+  * thread; the kernels reading a recurrence instead wait directly on the
+  * previous step's driver.
+  *
+  * @author Dick Carter
+  */
+private[runtime]
+object PipelineDependencies {
+
+  /** Find the previous-step dependencies of each kernel.
+    *
+    * @param orderedKernels The kernels of a circuit, with their field
+    *        registers already allocated.
+    * @return For each kernel of `orderedKernels` (same order), the kernels
+    *        whose previous-step execution it must wait for.
+    */
+  def apply(orderedKernels: Seq[OpenCLAbstractKernel]): Seq[Seq[OpenCLAbstractKernel]] = {
+    val readers = new IdentityHashMap[OpenCLBuffer, ArrayBuffer[OpenCLAbstractKernel]]
+    val writers = new IdentityHashMap[OpenCLBuffer, ArrayBuffer[OpenCLAbstractKernel]]
+    def record(map: IdentityHashMap[OpenCLBuffer, ArrayBuffer[OpenCLAbstractKernel]],
+               buffers: Seq[OpenCLBuffer], kernel: OpenCLAbstractKernel) {
+      for (buffer <- buffers)
+        map.getOrElseUpdate(buffer, new ArrayBuffer[OpenCLAbstractKernel]) += kernel
+    }
+    for (kernel <- orderedKernels) {
+      record(readers, buffersRead(kernel), kernel)
+      record(writers, buffersWritten(kernel), kernel)
+    }
+    orderedKernels.map { kernel =>
+      val dependencies = new IdentityHashSetDeterministic[OpenCLAbstractKernel]
+      val written = buffersWritten(kernel)
+      for (buffer <- buffersRead(kernel) ++ written)
+        writers.get(buffer).foreach(_.foreach(dependencies += _))
+      for (buffer <- written)
+        readers.get(buffer).foreach(_.foreach(dependencies += _))
+      dependencies.toSeq
+    }
+  }
+
+  /** Buffers (both halves of any flip-flop) that `kernel` may read in a step. */
+  private def buffersRead(kernel: OpenCLAbstractKernel): Seq[OpenCLBuffer] =
+    (0 until kernel.inputs.length).flatMap { i =>
+      val register = kernel.inputRegister(i)
+      Seq(register.master, register.slave).distinct
+    }
+
+  /** Buffers (both halves of any flip-flop) that `kernel` may write in a step. */
+  private def buffersWritten(kernel: OpenCLAbstractKernel): Seq[OpenCLBuffer] = kernel match {
+    case k: RecurrentFieldKernel => Seq()
+    case k: ConstantFieldKernel => Seq()
+    case k =>
+      (0 until k.outputs.length).flatMap { i =>
+        val register = k.outputRegister(i)
+        Seq(register.master, register.slave).distinct
+      }
+  }
+}
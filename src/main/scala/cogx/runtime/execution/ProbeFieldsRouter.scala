@@ -0,0 +1,69 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.runtime.execution
+
+import akka.actor.{ActorContext, ActorRef}
+import akka.pattern.{ask, pipe}
+import akka.util.Timeout
+import cogx.runtime.FieldID
+
+import scala.concurrent.Future
+import scala.concurrent.duration._
+
+/** Passes a `ProbeFields` request down the supervisor hierarchy.
+  *
+  * A request whose fields are all produced under one child is forwarded
+  * intact. Otherwise each child is asked for its share of the fields and the
+  * replies are combined into a single `ProbeFieldsData`, in the original
+  * order, for the requestor. Since requests only reach the supervisors while
+  * they're between steps, the combined reply still describes a single step.
+  *
+  * @author Dick Carter
+  */
+private[runtime]
+object ProbeFieldsRouter {
+  import SupervisorMessages._
+
+  /** How long to wait for a child's share of the fields. */
+  implicit val timeout = Timeout(300 seconds)
+
+  /** Route a `ProbeFields(ids)` request received from `requestor`.
+    *
+    * @param ids The fields requested.
+    * @param childOf The child supervisor producing a field.
+    * @param requestor The sender of the request, who receives the reply.
+    * @param context The context of the routing supervisor.
+    */
+  def apply(ids: Seq[FieldID], childOf: FieldID => ActorRef, requestor: ActorRef)
+           (implicit context: ActorContext)
+  {
+    val idsByChild = ids.distinct.groupBy(childOf)
+    if (idsByChild.size == 1)
+      idsByChild.head._1.tell(ProbeFields(ids), requestor)
+    else {
+      import context.dispatcher
+      val replies = idsByChild.toSeq.map {
+        case (child, childIDs) => (child ? ProbeFields(childIDs)).mapTo[ProbeFieldsData]
+      }
+      val combined = Future.sequence(replies).map { childData =>
+        val dataByID = childData.flatMap(reply => reply.ids zip reply.data).toMap
+        ProbeFieldsData(ids, ids.map(dataByID))
+      }
+      combined pipeTo requestor
+    }
+  }
+}
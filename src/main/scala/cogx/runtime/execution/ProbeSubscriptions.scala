@@ -0,0 +1,124 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.runtime.execution
+
+import java.util.concurrent.{Executors, ThreadFactory, TimeUnit}
+
+import cogx.platform.cpumemory.AbstractFieldMemory
+import cogx.platform.types.VirtualFieldRegister
+import cogx.runtime.ProbeSubscription
+
+import scala.collection.mutable.ArrayBuffer
+import scala.concurrent.{ExecutionContext, Future}
+import scala.util.{Failure, Success}
+
+/** The probe subscriptions of an evaluator.
+  *
+  * The evaluator asks how many steps it may take before some subscription is
+  * due, so that it can end a batch of steps there, and then calls `capture`
+  * after the step. All fields due at that step are read with a single
+  * `readFields` request, and the callbacks are run on a single delivery
+  * thread so each subscription sees its data in step order. Apart from that
+  * delivery, the class must only be used from the evaluator's thread.
+  *
+  * @param release Returns a field memory produced by `readFields` to its
+  *        allocator once the callbacks are done with it.
+  *
+  * @author Dick Carter
+  */
+private[runtime]
+class ProbeSubscriptions(release: AbstractFieldMemory => Unit) {
+
+  /** The active subscriptions. */
+  private val subscriptions = new ArrayBuffer[ProbeSubscription]
+
+  /** Runs the callbacks, created only if a subscription is made. */
+  private lazy val deliveryExecutor = Executors.newSingleThreadExecutor(new ThreadFactory {
+    def newThread(r: Runnable) = {
+      val thread = new Thread(r, "ProbeSubscriptionDelivery")
+      thread.setDaemon(true)
+      thread
+    }
+  })
+
+  private lazy val deliveryContext = ExecutionContext.fromExecutorService(deliveryExecutor)
+
+  /** True if `shutdown` need do anything. */
+  private var deliveryStarted = false
+
+  /** Add a subscription. */
+  def add(subscription: ProbeSubscription) {
+    subscriptions += subscription
+  }
+
+  /** Number of steps that can be taken from simulation time `time` before
+    * some subscription is due (Long.MaxValue if there are none).
+    */
+  def stepsUntilCapture(time: Long): Long = {
+    removeCancelled()
+    if (subscriptions.isEmpty)
+      Long.MaxValue
+    else
+      subscriptions.map(s => s.everyNSteps - time % s.everyNSteps).min
+  }
+
+  /** Read the fields of all subscriptions due at simulation time `time` and
+    * deliver them. Returns once the read has been requested.
+    *
+    * @param time The simulation time of the step just completed.
+    * @param readFields Reads fields, all as of the current step.
+    */
+  def capture(time: Long)(readFields: Seq[VirtualFieldRegister] => Future[Seq[AbstractFieldMemory]]) {
+    removeCancelled()
+    val due = subscriptions.filter(time % _.everyNSteps == 0).toList
+    if (due.nonEmpty) {
+      deliveryStarted = true
+      val registers = due.flatMap(_.registers).distinct
+      readFields(registers).onComplete {
+        case Success(memories) =>
+          val memoryOf = registers.zip(memories).toMap
+          for (subscription <- due if !subscription.cancelled) {
+            try
+              subscription.callback(subscription.registers.map(memoryOf), time)
+            catch {
+              case e: Exception =>
+                println(s"Probe subscription callback at step $time sees exception: $e")
+            }
+          }
+          memories.foreach(release)
+        case Failure(e) =>
+          println(s"Probe subscription read at step $time fails: $e")
+      }(deliveryContext)
+    }
+  }
+
+  /** Finish any deliveries under way and stop the delivery thread. */
+  def shutdown() {
+    if (deliveryStarted) {
+      deliveryExecutor.shutdown()
+      deliveryExecutor.awaitTermination(10, TimeUnit.SECONDS)
+    }
+  }
+
+  private def removeCancelled() {
+    if (subscriptions.exists(_.cancelled)) {
+      val active = subscriptions.filterNot(_.cancelled)
+      subscriptions.clear()
+      subscriptions ++= active
+    }
+  }
+}
@@ -18,6 +18,7 @@ package cogx.runtime.execution
 
 import java.time.{Instant, LocalDateTime, ZoneId}
 import java.time.format.DateTimeFormatter
+import java.util.concurrent.atomic.AtomicLong
 
 import akka.actor.{ActorSystem, TypedActor, TypedProps}
 import cogx.cogmath.geometry.Shape
@@ -39,14 +40,15 @@ import scala.collection.mutable.ArrayBuffer
 
 /** Provides kernel profiling information to aid code generators and optimizers.
   *
-  * @param platform The OpenCL platform (with queues enabled for profiling) to use for timing the kernels.
+  * @param platform The OpenCL platform (with queues enabled for profiling) to use for timing the kernels,
+  *                 created only when first needed.
   * @param mode A description of which device(s) will be used to run the ComputeGraph.
   * @param actorSystem The Akka actor system to use when creating Actors for profiling.
   * @param forceProfiling Should profiling always be performed even if prior cached profiling samples exist.
   *
   * @author Dick Carter
   */
-class Profiler(platform: OpenCLPlatform, mode: AllocationMode, actorSystem: ActorSystem, forceProfiling: Boolean) {
+class Profiler(platform: => OpenCLPlatform, mode: AllocationMode, actorSystem: ActorSystem, forceProfiling: Boolean) {
 
   // An id to create unique names for the Profiler evaluator actors
   private var _id = 0
@@ -56,7 +58,13 @@ class Profiler(platform: OpenCLPlatform, mode: AllocationMode, actorSystem: Acto
     _id
   }
 
-  val deviceName = mode match {
+  /** Total time spent selecting kernel variants, including any cache lookups. */
+  private val _variantSelectionNanos = new AtomicLong
+
+  /** Total time (in nanoseconds) this profiler has spent selecting kernel variants. */
+  def variantSelectionNanos: Long = _variantSelectionNanos.get
+
+  lazy val deviceName = mode match {
     case SingleGPU(deviceIndex: Int) => platform.devices(deviceIndex).fullNameNoSpaces
     case _ => throw new RuntimeException("Profiler sees multi-GPU platform, aborting.")
   }
@@ -136,8 +144,9 @@ class Profiler(platform: OpenCLPlatform, mode: AllocationMode, actorSystem: Acto
     val inputFieldTypes = inputs.map(_.fieldType)
     val numVariants = variantNames.length
 
-    // Don't bother to profile a variant if it's the only one.
-    if (numVariants == 1)
+    // Don't bother to profile a variant if it's the only one.  The JVM backend has no
+    // device to time the variants on, so it takes the first (the generators' default).
+    if (numVariants == 1 || mode == AllocationMode.JVM)
       return 0
 
     val start = System.nanoTime()
@@ -186,6 +195,7 @@ class Profiler(platform: OpenCLPlatform, mode: AllocationMode, actorSystem: Acto
     // Update file so other apps on the same node see the profiled kernel (still a racy proposition currently).
     Profiler.sync(deviceName)
 
+    _variantSelectionNanos.addAndGet(System.nanoTime() - start)
     bestVariant
   }
   /** Creates the circuit-driving input kernels and L2-cache-flushing kernel to surround a KernelCircuit completed
@@ -0,0 +1,69 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.runtime.execution
+
+import cogx.platform.opencl.{OpenCLAbstractKernel, OpenCLDeviceKernel}
+
+/** Spreads the device kernels of a schedule over a device's execution queues
+  * so that kernels on independent branches of the circuit can run
+  * concurrently.
+  *
+  * The kernels are still enqueued in schedule order, and every kernel waits
+  * on the events of the kernels that drive it, so any assignment is correct;
+  * the assignment only determines how much overlap is possible. Kernels are
+  * grouped into chains: a kernel is placed on the queue of one of its inputs
+  * if that input was the last kernel put on its queue, so the chain needs no
+  * cross-queue wait. A kernel that can't extend a chain (a source kernel, or
+  * the second consumer of a fan-out) starts a new chain on the queue with the
+  * fewest kernels.
+  *
+  * Since each queue receives its kernels in (topological) schedule order, no
+  * kernel can wait on a kernel that sits behind it in some queue, so the
+  * queues cannot deadlock.
+  *
+  * @author Dick Carter
+  */
+private[runtime]
+object QueueAssignment {
+
+  /** Assign each device kernel in `orderedKernels` to one of `queues`
+    * execution queues by setting its `executionQueue` field.
+    *
+    * @param orderedKernels The kernels in the order they will be enqueued.
+    * @param queues The number of execution queues available on the device.
+    */
+  def apply(orderedKernels: Seq[OpenCLAbstractKernel], queues: Int) {
+    require(queues > 0, "Illegal execution queue count: " + queues)
+    val lastKernelOnQueue = new Array[OpenCLDeviceKernel](queues)
+    val kernelsOnQueue = new Array[Int](queues)
+    for (kernel <- orderedKernels) kernel match {
+      case deviceKernel: OpenCLDeviceKernel =>
+        val chainToExtend = deviceKernel.inputs.map(_.source).collectFirst {
+          case input: OpenCLDeviceKernel if lastKernelOnQueue(input.executionQueue) eq input =>
+            input.executionQueue
+        }
+        val queue = chainToExtend match {
+          case Some(q) => q
+          case None => kernelsOnQueue.indexOf(kernelsOnQueue.min)
+        }
+        deviceKernel.executionQueue = queue
+        lastKernelOnQueue(queue) = deviceKernel
+        kernelsOnQueue(queue) += 1
+      case _ =>
+    }
+  }
+}
@@ -32,6 +32,12 @@ object SupervisorMessages {
   /** Response (up) that Step request is done. */
   case class StepDone(e: Option[Exception])
 
+  /** Request (down) to advance simulation `count` steps before replying. */
+  case class StepN(count: Long)
+
+  /** Response (up) that StepN request is done, having completed `steps` steps. */
+  case class StepNDone(steps: Long, e: Option[Exception])
+
   /** Request used internally by Evaluator to implement running. */
   case object Run
 
@@ -47,6 +53,12 @@ object SupervisorMessages {
   /** Response (up) with current state of field. */
   case class  ProbeData(id: FieldID, data: AbstractFieldMemory)
 
+  /** Request (down) for current state of several fields, all as of the same step. */
+  case class  ProbeFields(ids: Seq[FieldID])
+
+  /** Response (up) with current state of several fields, in the order requested. */
+  case class  ProbeFieldsData(ids: Seq[FieldID], data: Seq[AbstractFieldMemory])
+
   /** Field data exchanged between distributed actors. */
   case class  FieldData(id: FieldID, data: AbstractFieldMemory)
 
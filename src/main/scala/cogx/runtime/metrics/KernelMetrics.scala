@@ -0,0 +1,66 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.runtime.metrics
+
+import cogx.utilities.LatencyHistogram
+
+/** The measurements kept for one kernel by a MetricsRegistry.
+  *
+  * Samples are recorded by whichever thread finishes the kernel (the GPU
+  * supervisor for device kernels, an executor or actor thread for CPU
+  * kernels) and read by the thread taking a snapshot, hence the locking.
+  *
+  * @param id The kernel's ID.
+  * @param opcode The kernel's operation, as a string.
+  * @param name The names of the fields the kernel produces.
+  * @param kind "device" or "cpu".
+  *
+  * @author Dick Carter
+  */
+private[cogx]
+class KernelMetrics(val id: Int, val opcode: String, val name: String, val kind: String) {
+
+  /** Execution times, in usec. */
+  private val latency = new LatencyHistogram
+
+  /** For device kernels, time from submission to the device until the start
+    * of execution, in usec.
+    */
+  private val launchOverhead = new LatencyHistogram
+
+  /** Record one execution of the kernel. */
+  def recordExecution(usecs: Double): Unit = synchronized {
+    latency.addSample(usecs)
+  }
+
+  /** Record the launch overhead of one execution of a device kernel. */
+  def recordLaunchOverhead(usecs: Double): Unit = synchronized {
+    launchOverhead.addSample(usecs)
+  }
+
+  /** The current measurements. */
+  def snapshot: KernelMetricsSnapshot = synchronized {
+    KernelMetricsSnapshot(id, opcode, name, kind, latency.count, latency.mean,
+      latency.percentile(0.5), latency.percentile(0.99), latency.max, launchOverhead.mean)
+  }
+
+  /** Throw away all the samples. */
+  def reset(): Unit = synchronized {
+    latency.reset()
+    launchOverhead.reset()
+  }
+}
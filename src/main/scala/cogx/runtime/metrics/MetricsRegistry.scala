@@ -0,0 +1,77 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.runtime.metrics
+
+import cogx.platform.opencl.{OpenCLAbstractKernel, OpenCLDeviceKernel}
+import cogx.utilities.LatencyHistogram
+
+import scala.collection.mutable
+
+/** Per-kernel and per-step-phase measurements of a running ComputeGraph,
+  * kept when Cog.metrics is set.
+  *
+  * The supervisors attach a KernelMetrics to each kernel they run and record
+  * the phases of each step. Unlike the profile printed every Cog.profileSize
+  * steps, the measurements accumulate until reset and may be read at any time
+  * through ComputeGraph.metrics. When metrics are off no registry exists, so
+  * the only cost is a null check per kernel execution.
+  *
+  * @author Dick Carter
+  */
+private[cogx]
+class MetricsRegistry {
+
+  /** Metrics of every registered kernel, by kernel ID. */
+  private val kernels = new mutable.LinkedHashMap[Int, KernelMetrics]
+
+  /** Durations of the phases of a step, in usec, by phase name. */
+  private val phases = new mutable.LinkedHashMap[String, LatencyHistogram]
+
+  /** Attach metrics to `kernel` (once), so its executions are recorded. */
+  def register(kernel: OpenCLAbstractKernel): Unit = synchronized {
+    if (kernel.metrics == null) {
+      val kind = kernel match {
+        case k: OpenCLDeviceKernel => "device"
+        case _ => "cpu"
+      }
+      val metrics = new KernelMetrics(kernel.id, kernel.opcode.toString, kernel.name, kind)
+      kernels(kernel.id) = metrics
+      kernel.metrics = metrics
+    }
+  }
+
+  /** Record the duration of one phase of a step, e.g. "launch". */
+  def recordPhase(phase: String, usecs: Double): Unit = synchronized {
+    phases.getOrElseUpdate(phase, new LatencyHistogram).addSample(usecs)
+  }
+
+  /** The current measurements. */
+  def snapshot: MetricsSnapshot = synchronized {
+    val phaseSnapshots = phases.toSeq.map {
+      case (phase, histogram) =>
+        PhaseMetricsSnapshot(phase, histogram.count, histogram.mean,
+          histogram.percentile(0.5), histogram.percentile(0.99), histogram.max)
+    }
+    MetricsSnapshot(kernels.values.toSeq.map(_.snapshot), phaseSnapshots)
+  }
+
+  /** Throw away all the measurements, keeping the registrations. */
+  def reset(): Unit = synchronized {
+    kernels.values.foreach(_.reset())
+    phases.values.foreach(_.reset())
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.runtime.metrics
+
+/** The measurements of one kernel at the time of a snapshot. Times are in usec.
+  *
+  * @param id The kernel's ID.
+  * @param opcode The kernel's operation.
+  * @param name The names of the fields the kernel produces.
+  * @param kind "device" for kernels run by OpenCL, "cpu" for kernels run on the host.
+  * @param count The number of executions measured.
+  * @param meanUsecs Mean execution time.
+  * @param p50Usecs Median execution time.
+  * @param p99Usecs 99th percentile execution time.
+  * @param maxUsecs Longest execution time.
+  * @param launchOverheadUsecs Mean time a device kernel spent between
+  *        submission to the device and the start of execution (0 for CPU
+  *        kernels).
+  */
+case class KernelMetricsSnapshot(id: Int, opcode: String, name: String, kind: String,
+                                 count: Long, meanUsecs: Double, p50Usecs: Double,
+                                 p99Usecs: Double, maxUsecs: Double, launchOverheadUsecs: Double)
+
+/** The durations of one phase of a step at the time of a snapshot. Times are in usec.
+  *
+  * The phases recorded by the GPU supervisor are "clock" (clocking the field
+  * registers), "launch" (enqueueing the kernels), "wait" (waiting for the
+  * step to complete and checking its kernels) and "step" (the whole step).
+  * The JVM evaluator records "compute" (running the kernels) in place of
+  * "launch" and "wait".
+  */
+case class PhaseMetricsSnapshot(phase: String, count: Long, meanUsecs: Double,
+                                p50Usecs: Double, p99Usecs: Double, maxUsecs: Double)
+
+/** A snapshot of the metrics of a ComputeGraph (see Cog.metrics).
+  *
+  * @param kernels The measurements of each kernel.
+  * @param phases The measurements of each phase of a step.
+  *
+  * @author Dick Carter
+  */
+case class MetricsSnapshot(kernels: Seq[KernelMetricsSnapshot], phases: Seq[PhaseMetricsSnapshot]) {
+
+  /** Mean time per step spent executing device kernels, in usec. */
+  def deviceUsecsPerStep: Double = usecsPerStep("device")
+
+  /** Mean time per step spent executing CPU kernels, in usec. */
+  def cpuUsecsPerStep: Double = usecsPerStep("cpu")
+
+  private def usecsPerStep(kind: String) =
+    kernels.filter(_.kind == kind).map(_.meanUsecs).foldLeft(0.0)(_ + _)
+
+  /** The snapshot as a JSON object with "kernels" and "phases" arrays. */
+  def toJson: String = {
+    def quote(s: String) = {
+      val escaped = new StringBuilder
+      for (c <- s) c match {
+        case '"' => escaped ++= "\\\""
+        case '\\' => escaped ++= "\\\\"
+        case c if c < ' ' => escaped ++= "\\" + "u%04x".format(c.toInt)
+        case c => escaped += c
+      }
+      "\"" + escaped + "\""
+    }
+    def number(x: Double) = "%.3f".formatLocal(java.util.Locale.US, x)
+    val kernelObjects = kernels.map(k =>
+      s"""    {"id": ${k.id}, "opcode": ${quote(k.opcode)}, "name": ${quote(k.name)}, "kind": ${quote(k.kind)}, """ +
+        s""""count": ${k.count}, "meanUsecs": ${number(k.meanUsecs)}, "p50Usecs": ${number(k.p50Usecs)}, """ +
+        s""""p99Usecs": ${number(k.p99Usecs)}, "maxUsecs": ${number(k.maxUsecs)}, """ +
+        s""""launchOverheadUsecs": ${number(k.launchOverheadUsecs)}}""")
+    val phaseObjects = phases.map(p =>
+      s"""    {"phase": ${quote(p.phase)}, "count": ${p.count}, "meanUsecs": ${number(p.meanUsecs)}, """ +
+        s""""p50Usecs": ${number(p.p50Usecs)}, "p99Usecs": ${number(p.p99Usecs)}, "maxUsecs": ${number(p.maxUsecs)}}""")
+    "{\n" +
+      s"""  "deviceUsecsPerStep": ${number(deviceUsecsPerStep)},\n""" +
+      s"""  "cpuUsecsPerStep": ${number(cpuUsecsPerStep)},\n""" +
+      "  \"kernels\": [\n" + kernelObjects.mkString(",\n") + "\n  ],\n" +
+      "  \"phases\": [\n" + phaseObjects.mkString(",\n") + "\n  ]\n" +
+      "}\n"
+  }
+
+  /** The snapshot as CSV, one row per kernel and then one per phase (whose
+    * rows leave the kernel-only columns empty).
+    */
+  def toCsv: String = {
+    def quote(s: String) = "\"" + s.replace("\"", "\"\"") + "\""
+    def number(x: Double) = "%.3f".formatLocal(java.util.Locale.US, x)
+    val header = "kind,id,opcode,name,count,meanUsecs,p50Usecs,p99Usecs,maxUsecs,launchOverheadUsecs"
+    val kernelRows = kernels.map(k =>
+      Seq(k.kind, k.id.toString, quote(k.opcode), quote(k.name), k.count.toString, number(k.meanUsecs),
+        number(k.p50Usecs), number(k.p99Usecs), number(k.maxUsecs), number(k.launchOverheadUsecs)).mkString(","))
+    val phaseRows = phases.map(p =>
+      Seq("phase", "", quote(p.phase), "", p.count.toString, number(p.meanUsecs),
+        number(p.p50Usecs), number(p.p99Usecs), number(p.maxUsecs), "").mkString(","))
+    (header +: (kernelRows ++ phaseRows)).mkString("", "\n", "\n")
+  }
+}
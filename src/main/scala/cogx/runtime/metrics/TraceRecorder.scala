@@ -0,0 +1,174 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.runtime.metrics
+
+import java.io.{File, PrintWriter}
+import java.util.concurrent.ConcurrentLinkedQueue
+
+import scala.collection.JavaConverters._
+import scala.collection.mutable
+
+/** Collects a timeline of a window of simulation steps, written out in the
+  * Chrome trace-event format (viewable with chrome://tracing or Perfetto).
+  *
+  * Host-side spans (clock phases, CPU kernel computations, waits on input
+  * events, buffer transfers) are timed with System.nanoTime on the thread that
+  * performs them. Device kernels are timed with the START and END profiling
+  * timestamps of their OpenCL events, which are only available when the
+  * command queues are profiled (Cog.profile or Cog.metrics). Device clocks
+  * are unrelated to the host's, so each device's timestamps are shifted by
+  * the smallest observed difference between the host time at which a kernel
+  * was found complete and the device time at which it ended. Device spans may
+  * therefore appear late by the latency of the supervisor's wait, but never
+  * end after the host saw them end.
+  *
+  * Only one recorder may be active at a time; the hooks in the kernels and
+  * buffers check `TraceRecorder.active`, so tracing costs a volatile read per
+  * event when off.
+  *
+  * @author Dick Carter
+  */
+private[cogx]
+class TraceRecorder {
+  import TraceRecorder._
+
+  /** Host time at which the trace began; trace timestamps are relative to this. */
+  private val originNanos = System.nanoTime()
+
+  private val hostSpans = new ConcurrentLinkedQueue[HostSpan]
+  private val deviceSpans = new ConcurrentLinkedQueue[DeviceSpan]
+
+  /** Record a span of work done by the calling thread. */
+  def hostSpan(category: String, name: String, startNanos: Long, endNanos: Long) {
+    hostSpans.add(HostSpan(category, name, Thread.currentThread.getName, startNanos, endNanos))
+  }
+
+  /** Record the execution of a device kernel.
+    *
+    * @param device Name of the device (one trace process per device).
+    * @param queue Index of the execution queue the kernel ran on.
+    * @param name Name of the kernel.
+    * @param submitNanos Device time the kernel was submitted to the device.
+    * @param startNanos Device time the kernel started.
+    * @param endNanos Device time the kernel ended.
+    * @param hostCompleteNanos Host time at which the kernel was seen complete.
+    */
+  def deviceSpan(device: String, queue: Int, name: String, submitNanos: Long, startNanos: Long,
+                 endNanos: Long, hostCompleteNanos: Long)
+  {
+    deviceSpans.add(DeviceSpan(device, queue, name, submitNanos, startNanos, endNanos, hostCompleteNanos))
+  }
+
+  /** Write the trace to `file` as a JSON object with a "traceEvents" array. */
+  def write(file: File) {
+    val events = new mutable.ArrayBuffer[String]
+    def usecs(nanos: Long) = "%.3f".formatLocal(java.util.Locale.US, nanos / 1000.0)
+    def complete(name: String, category: String, pid: Int, tid: Int, start: Long, end: Long, args: String = "") =
+      events += s"""{"name": ${quote(name)}, "cat": ${quote(category)}, "ph": "X", "pid": $pid, "tid": $tid, """ +
+        s""""ts": ${usecs(start - originNanos)}, "dur": ${usecs(math.max(0L, end - start))}""" +
+        (if (args == "") "}" else s""", "args": {$args}}""")
+    def metadata(kind: String, pid: Int, tid: Int, name: String) =
+      events += s"""{"name": "$kind", "ph": "M", "pid": $pid, "tid": $tid, "args": {"name": ${quote(name)}}}"""
+
+    // The host is process 1, with one trace thread per Java thread.
+    metadata("process_name", HostPid, 0, "Cog host")
+    val threadIds = new mutable.LinkedHashMap[String, Int]
+    for (span <- hostSpans.asScala) {
+      val tid = threadIds.getOrElseUpdate(span.thread, {
+        val tid = threadIds.size + 1
+        metadata("thread_name", HostPid, tid, span.thread)
+        tid
+      })
+      complete(span.name, span.category, HostPid, tid, span.startNanos, span.endNanos)
+    }
+
+    // Each device is a process, with one trace thread per execution queue.
+    val byDevice = deviceSpans.asScala.toSeq.groupBy(_.device).toSeq.sortBy(_._1)
+    for (((device, spans), index) <- byDevice.zipWithIndex) {
+      val pid = HostPid + 1 + index
+      metadata("process_name", pid, 0, device)
+      for (queue <- spans.map(_.queue).distinct.sorted)
+        metadata("thread_name", pid, queue, "execution queue " + queue)
+      val deviceToHost = spans.map(span => span.hostCompleteNanos - span.endNanos).min
+      for (span <- spans)
+        complete(span.name, "device", pid, span.queue, span.startNanos + deviceToHost, span.endNanos + deviceToHost,
+          s""""launchOverheadUsecs": ${usecs(math.max(0L, span.startNanos - span.submitNanos))}""")
+    }
+
+    val writer = new PrintWriter(file, "UTF-8")
+    try {
+      writer.println("{\"displayTimeUnit\": \"ms\", \"traceEvents\": [")
+      writer.println(events.mkString("  ", ",\n  ", ""))
+      writer.println("]}")
+    }
+    finally
+      writer.close()
+  }
+}
+
+private[cogx]
+object TraceRecorder {
+  /** Trace process ID of the host. */
+  private val HostPid = 1
+
+  /** The recorder collecting events, null when not tracing. */
+  @volatile private var _active: TraceRecorder = null
+
+  /** The recorder collecting events, null when not tracing. */
+  def active: TraceRecorder = _active
+
+  /** Make `recorder` the active recorder. */
+  def start(recorder: TraceRecorder): Unit = synchronized {
+    if (_active != null)
+      throw new RuntimeException("A trace is already being recorded")
+    _active = recorder
+  }
+
+  /** Stop recording events. */
+  def stop(): Unit = synchronized {
+    _active = null
+  }
+
+  /** The host time to use as the start of a span, or 0 if not tracing. */
+  def startNanos: Long = if (_active != null) System.nanoTime() else 0L
+
+  /** Record a span on the calling thread that began at `startNanos` (as
+    * returned by TraceRecorder.startNanos) and ends now. Does nothing if
+    * tracing was off at the start of the span or has since stopped.
+    */
+  def endSpan(category: String, name: String, startNanos: Long) {
+    val recorder = _active
+    if (recorder != null && startNanos != 0L)
+      recorder.hostSpan(category, name, startNanos, System.nanoTime())
+  }
+
+  private def quote(s: String) = {
+    val escaped = new StringBuilder
+    for (c <- s) c match {
+      case '"' => escaped ++= "\\\""
+      case '\\' => escaped ++= "\\\\"
+      case c if c < ' ' => escaped ++= "\\" + "u%04x".format(c.toInt)
+      case c => escaped += c
+    }
+    "\"" + escaped + "\""
+  }
+
+  private case class HostSpan(category: String, name: String, thread: String, startNanos: Long, endNanos: Long)
+
+  private case class DeviceSpan(device: String, queue: Int, name: String, submitNanos: Long, startNanos: Long,
+                                endNanos: Long, hostCompleteNanos: Long)
+}
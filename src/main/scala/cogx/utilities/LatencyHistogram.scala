@@ -0,0 +1,111 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.utilities
+
+/** A histogram of latencies (in usec) with logarithmically spaced buckets, from
+  * which percentiles can be estimated in constant space.
+  *
+  * Each power of two is split into `SubBuckets` buckets, so a percentile is
+  * reported to within about 9% of the true value. Samples below 0.1 usec
+  * share the first bucket, and those above about 1.9 hours share the last.
+  * Unlike Stats, nothing is lost by letting the histogram run indefinitely.
+  *
+  * To use:
+  * {{{
+  *   val histogram = new LatencyHistogram
+  *   histogram.addSample(12.5)
+  *   println(histogram.percentile(0.99))
+  * }}}
+  *
+  * @author Dick Carter
+  */
+private[cogx] class LatencyHistogram {
+  import LatencyHistogram._
+
+  private val counts = new Array[Long](Buckets)
+  private var _count = 0L
+  private var sum = 0.0
+  private var _max = 0.0
+
+  /** Incorporate a sample, in usec. */
+  def addSample(usecs: Double) {
+    counts(bucket(usecs)) += 1
+    _count += 1
+    sum += usecs
+    if (usecs > _max)
+      _max = usecs
+  }
+
+  /** The number of samples. */
+  def count: Long = _count
+
+  /** The average of the samples. */
+  def mean: Double = if (_count > 0) sum / _count else 0.0
+
+  /** The largest sample. */
+  def max: Double = _max
+
+  /** An estimate of the `fraction` quantile (e.g. 0.99) of the samples: the
+    * upper bound of the bucket holding it, but no more than the largest sample.
+    */
+  def percentile(fraction: Double): Double = {
+    require(fraction >= 0.0 && fraction <= 1.0, "Illegal percentile fraction: " + fraction)
+    if (_count == 0)
+      0.0
+    else {
+      val rank = math.max(1L, math.ceil(fraction * _count).toLong)
+      var seen = 0L
+      var b = 0
+      while (seen + counts(b) < rank) {
+        seen += counts(b)
+        b += 1
+      }
+      math.min(upperBound(b), _max)
+    }
+  }
+
+  /** Throw away all the samples. */
+  def reset() {
+    java.util.Arrays.fill(counts, 0L)
+    _count = 0L
+    sum = 0.0
+    _max = 0.0
+  }
+}
+
+private[cogx] object LatencyHistogram {
+  /** Buckets per power of two. */
+  val SubBuckets = 8
+  /** Upper bound of the first bucket, in usec. */
+  val MinUsecs = 0.1
+  /** Powers of two covered above MinUsecs (0.1 usec * 2^36 is about 1.9 hours). */
+  val Octaves = 36
+  /** Total number of buckets. */
+  val Buckets = Octaves * SubBuckets + 1
+
+  private val LogStep = math.log(2.0) / SubBuckets
+
+  /** The bucket holding a sample. */
+  private def bucket(usecs: Double): Int =
+    if (usecs <= MinUsecs)
+      0
+    else
+      math.min(Buckets - 1, math.ceil(math.log(usecs / MinUsecs) / LogStep).toInt)
+
+  /** The largest sample held by bucket `b`. */
+  private def upperBound(b: Int): Double = MinUsecs * math.exp(b * LogStep)
+}
@@ -25,7 +25,7 @@ import collection.mutable.HashMap
   * Date: 11/16/12
   */
 
-private [cogx] class MD5 private[MD5] (textBody: String) {
+private [cogx] class MD5 private[cogx] (textBody: String) {
   def digest: String = {
     val digester = MessageDigest.getInstance("MD5")
     digester.update(textBody.getBytes())
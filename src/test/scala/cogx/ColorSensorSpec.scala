@@ -16,6 +16,8 @@
 
 package cogx
 
+import java.nio.ByteBuffer
+
 import org.junit.runner.RunWith
 import org.scalatest.junit.JUnitRunner
 import org.scalatest.FunSuite
@@ -37,11 +39,18 @@ class ColorSensorSpec extends FunSuite  {
   test("2D UnpipelinedColorSensor"){
     new ColorSensorProblemGen(2, pipelined = false, supplyInputAlways = true)
   }
+  test("2D in-place ColorSensor with optional update"){
+    new ColorSensorProblemGen(2, pipelined = true, supplyInputAlways = false, inPlaceSensor = true)
+  }
+  test("2D in-place UnpipelinedColorSensor"){
+    new ColorSensorProblemGen(2, pipelined = false, supplyInputAlways = true, inPlaceSensor = true)
+  }
 }
 
 //test that data can be injected into a ComputeGraph with a VectorSensor and
 //  subsequently read out
-class ColorSensorProblemGen(fieldDims:Int, pipelined: Boolean, supplyInputAlways: Boolean = true){
+class ColorSensorProblemGen(fieldDims:Int, pipelined: Boolean, supplyInputAlways: Boolean = true,
+                            inPlaceSensor: Boolean = false){
   //generate a random field shape given the specified dimensions
   val maxDimSize = 20
   val rng = new Random
@@ -145,10 +154,33 @@ class ColorSensorProblemGen(fieldDims:Int, pipelined: Boolean, supplyInputAlways
     retVal
   }
 
+  // The in-place sensors are handed 4 bytes per pixel, the last being an alpha of 0xff.
+  def putPixels(data: Array[Pixel], buffer: ByteBuffer) {
+    for (p <- data)
+      buffer.put(p.red).put(p.green).put(p.blue).put(0xff.toByte)
+  }
+
+  def optionalFillInput(buffer: ByteBuffer): Boolean = {
+    val supplied = update(time)
+    if (supplied)
+      putPixels(getData(update.state(time)), buffer)
+    time += 1
+    supplied
+  }
+
+  def fillInput(buffer: ByteBuffer) {
+    putPixels(getData(time), buffer)
+    time += 1
+  }
+
   //inject data into a compute graph and initialize it
   val cg = new ComputeGraph{
     val sensor =
-      if (pipelined)
+      if (pipelined && inPlaceSensor)
+        new ColorSensor(fieldShape, optionalFillInput _, resetHook _, 0.0)
+      else if (inPlaceSensor)
+        new UnpipelinedColorSensor(fieldShape, fillInput _, resetHook _, 0.0)
+      else if (pipelined)
         new ColorSensor(fieldShape, optionalNextInput _, resetHook _)
       else
         new UnpipelinedColorSensor(fieldShape, nextInput _, resetHook _)
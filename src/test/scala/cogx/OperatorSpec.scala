@@ -22,6 +22,7 @@ import org.scalatest.MustMatchers
 import org.junit.runner.RunWith
 import cogx.api.ImplicitConversions
 import cogx.helper.{ColorFieldBuilderInterface, ScalarFieldBuilderInterface}
+import cogx.helper.CogFlags.withCogFlag
 import cogx.reference.RefTestInterface
 
 //import cogx.cogmath.algebra.real.Vector
@@ -247,4 +248,41 @@ class OperatorSpec
       require((readVector(in1) + readScalar(in2)) == readVector(summed))
     }
   }
-}
\ No newline at end of file
+
+  /** Many operators interleaved with GPU kernels, run on the CpuKernelExecutor
+    * and again with one CPUKernelActor per operator.
+    */
+  test("operator fan-out on cpu kernel executor") {
+    object negate extends Operator {
+      def compute(in: ScalarFieldReader, out: ScalarFieldWriter) {
+        out.setShape(in.fieldShape)
+        for (row <- 0 until in.rows; col <- 0 until in.columns)
+          out.write(row, col, -in.read(row, col))
+      }
+    }
+    val Branches = 64
+    def run(useExecutor: Boolean): Seq[Float] =
+      withCogFlag(Cog.cpuKernelExecutor, Cog.cpuKernelExecutor_= _, useExecutor) {
+        var result = Seq[Float]()
+        val graph = new ComputeGraph(false) with RefTestInterface {
+          val in = ScalarField(5, 5, (r, c) => (r * 5 + c).toFloat)
+          val branches = Array.tabulate(Branches) { i => negate(negate(in) + i.toFloat) * 2f }
+          val summed = branches.reduceLeft(_ + _)
+          probe(summed)
+        }
+        import graph._
+        withRelease {
+          step(3)
+          val sum = readScalar(summed)
+          result = Seq.tabulate(5, 5)((r, c) => sum.read(r, c)).flatten
+        }
+        result
+      }
+    val onExecutor = run(useExecutor = true)
+    val onActors = run(useExecutor = false)
+    require(onExecutor == onActors)
+    val executorThreads = Thread.getAllStackTraces.keySet.toArray.
+      count(_.asInstanceOf[Thread].getName.startsWith("CpuKernelExecutor"))
+    require(executorThreads <= math.max(Cog.cpuKernelThreads, Runtime.getRuntime.availableProcessors))
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx
+
+import java.nio.{ByteBuffer, IntBuffer, ShortBuffer}
+
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.FunSuite
+
+/** Tests for raw (packed integer) sensors, both pipelined and unpipelined.
+ *
+ * @author Dick Carter
+ */
+@RunWith(classOf[JUnitRunner])
+class RawSensorSpec extends FunSuite  {
+
+  test("2D Uint8 RawSensor") {
+    val (rows, columns) = (5, 7)
+    def pixel(t: Int, r: Int, c: Int) = (r * 40 + c * 3 + t * 11) % 256
+    var time = 0
+    def fill(buffer: ByteBuffer): Boolean = {
+      for (r <- 0 until rows; c <- 0 until columns)
+        buffer.put(pixel(time, r, c).toByte)
+      time += 1
+      true
+    }
+    val cg = new ComputeGraph {
+      val sensor = new RawSensor[ByteBuffer](Shape(rows, columns), fill _)
+      val expanded = toFloat32(sensor, 2f, -1f)
+      probe(sensor, expanded)
+    }
+    import cg._
+    withRelease {
+      reset
+      require(time == 2, "Expected 2 fill() calls, found " + time)
+      for (t <- 1 to 4) {
+        step
+        val raw = read(sensor).asInstanceOf[ScalarFieldReader]
+        val floats = read(expanded).asInstanceOf[ScalarFieldReader]
+        for (r <- 0 until rows; c <- 0 until columns) {
+          require(raw.read(r, c) == pixel(t, r, c))
+          require(floats.read(r, c) == pixel(t, r, c) * 2f - 1f)
+        }
+      }
+    }
+  }
+
+  test("2D Uint16 vector UnpipelinedRawSensor") {
+    val (rows, columns, length) = (4, 6, 3)
+    // Values above 32767 are written as negative Shorts.
+    def value(t: Int, r: Int, c: Int, i: Int) = (r * 1000 + c * 10 + i + t * 20000) % 65536
+    var time = 0
+    def fill(buffer: ShortBuffer) {
+      // The tensors are planar: all the first numbers, then all the second...
+      for (i <- 0 until length; r <- 0 until rows; c <- 0 until columns)
+        buffer.put(value(time, r, c, i).toShort)
+      time += 1
+    }
+    val cg = new ComputeGraph {
+      val sensor = new UnpipelinedRawSensor[ShortBuffer](Shape(rows, columns), fill _, tensorShape = Shape(length))
+      val expanded = toFloat32(sensor)
+      probe(expanded)
+    }
+    import cg._
+    withRelease {
+      reset
+      val out = new Vector(length)
+      for (t <- 1 to 3) {
+        step
+        val floats = read(expanded).asInstanceOf[VectorFieldReader]
+        for (r <- 0 until rows; c <- 0 until columns) {
+          floats.read(r, c, out)
+          for (i <- 0 until length)
+            require(out(i) == value(t, r, c, i))
+        }
+      }
+    }
+  }
+
+  test("1D Int32 RawSensor with optional update") {
+    val columns = 9
+    // Negative values and values beyond the 16-bit range, all exact as floats.
+    def value(state: Int, c: Int) = (c - 4) * 123457 + state
+    var time = 0
+    var state = 0
+    def fill(buffer: IntBuffer): Boolean = {
+      // Only every other call supplies a new input.
+      val supplied = time % 2 == 0
+      if (supplied) {
+        for (c <- 0 until columns)
+          buffer.put(value(state, c))
+        state += 1
+      }
+      time += 1
+      supplied
+    }
+    val cg = new ComputeGraph {
+      val sensor = new RawSensor[IntBuffer](Shape(columns), fill _)
+      val expanded = toFloat32(sensor)
+      probe(sensor, expanded)
+    }
+    import cg._
+    withRelease {
+      reset
+      for (t <- 1 to 4) {
+        step
+        // The sensor is clocked only when fill() supplied an input.
+        val expectedState = t / 2
+        val raw = read(sensor).asInstanceOf[ScalarFieldReader]
+        val floats = read(expanded).asInstanceOf[ScalarFieldReader]
+        for (c <- 0 until columns) {
+          require(raw.read(c) == value(expectedState, c))
+          require(floats.read(c) == value(expectedState, c))
+        }
+      }
+    }
+  }
+
+  test("3D Uint8 vector RawSensor") {
+    val (layers, rows, columns, length) = (3, 4, 5, 2)
+    def value(t: Int, l: Int, r: Int, c: Int, i: Int) = (l * 50 + r * 10 + c + i * 100 + t * 7) % 256
+    var time = 0
+    def fill(buffer: ByteBuffer): Boolean = {
+      for (i <- 0 until length; l <- 0 until layers; r <- 0 until rows; c <- 0 until columns)
+        buffer.put(value(time, l, r, c, i).toByte)
+      time += 1
+      true
+    }
+    val cg = new ComputeGraph {
+      val sensor = new RawSensor[ByteBuffer](Shape(layers, rows, columns), fill _, tensorShape = Shape(length))
+      val expanded = toFloat32(sensor)
+      probe(sensor, expanded)
+    }
+    import cg._
+    withRelease {
+      reset
+      val (raw, out) = (new Vector(length), new Vector(length))
+      for (t <- 1 to 3) {
+        step
+        val rawReader = read(sensor).asInstanceOf[VectorFieldReader]
+        val floats = read(expanded).asInstanceOf[VectorFieldReader]
+        for (l <- 0 until layers; r <- 0 until rows; c <- 0 until columns) {
+          rawReader.read(l, r, c, raw)
+          floats.read(l, r, c, out)
+          for (i <- 0 until length) {
+            require(raw(i) == value(t, l, r, c, i))
+            require(out(i) == value(t, l, r, c, i))
+          }
+        }
+      }
+    }
+  }
+}
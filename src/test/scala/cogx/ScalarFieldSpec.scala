@@ -29,6 +29,8 @@ import cogx.helper.MatrixFieldBuilderInterface
 import cogx.helper.VectorFieldBuilderInterface
 
 import cogx.api.{CogFunctionAPI, ImplicitConversions}
+import cogx.compiler.parser.semantics.SemanticErrorException
+import cogx.platform.cpumemory.{HalfFloat, IntegerElement}
 
 /** Test code for ScalarFields.
  */
@@ -2217,5 +2219,79 @@ class ScalarFieldSpec
     }
   }
 
-}
+  /** Test conversion to and from half (Float16) storage. */
+  test("scalar field / float16") {
+    val (rows, columns) = (13, 17)
+    // Values spanning several binades, including one beyond the half range.
+    def value(r: Int, c: Int) = (r - 6) * 37.123f + c * 0.0131f + (if (r == 0 && c == 0) 1e6f else 0f)
+
+    val graph = new ComputeGraph(Optimize) with RefTestInterface {
+      val a = ScalarField(rows, columns, value _)
+      val half = toFloat16(a * 2f)
+      val back = toFloat32(half) + 1f
+      probe(half, back)
+    }
+
+    import graph._
+    withRelease {
+      step
+      val halfReader = read(half).asInstanceOf[ScalarFieldReader]
+      val backReader = read(back).asInstanceOf[ScalarFieldReader]
+      for (r <- 0 until rows; c <- 0 until columns) {
+        val expected = HalfFloat.toFloat(HalfFloat.fromFloat(value(r, c) * 2f))
+        require(halfReader.read(r, c) == expected)
+        require(backReader.read(r, c) == expected + 1f)
+      }
+      require(halfReader.read(0, 0) == Float.PositiveInfinity)
+    }
+  }
+
+  /** A Float16 field is storage only, so arithmetic on one must be rejected. */
+  test("scalar field / float16 arithmetic rejected") {
+    intercept[SemanticErrorException] {
+      new ComputeGraph(Optimize) {
+        val a = ScalarField(5, 5)
+        val b = toFloat16(a) + 1f
+      }
+    }
+  }
 
+  test("scalar field / integer") {
+    val (rows, columns) = (9, 10)
+    // Values that straddle the Uint8 range, with ties to exercise rounding.
+    def value(r: Int, c: Int) = (r - 2) * 40.5f + c * 0.25f
+
+    val graph = new ComputeGraph(Optimize) with RefTestInterface {
+      val a = ScalarField(rows, columns, value _)
+      val bytes = toUint8(a)
+      val ints = toInt32(a * 1000f)
+      val back = toFloat32(bytes) + toFloat32(ints)
+      probe(bytes, ints, back)
+    }
+
+    import graph._
+    withRelease {
+      step
+      val bytesReader = read(bytes).asInstanceOf[ScalarFieldReader]
+      val intsReader = read(ints).asInstanceOf[ScalarFieldReader]
+      val backReader = read(back).asInstanceOf[ScalarFieldReader]
+      for (r <- 0 until rows; c <- 0 until columns) {
+        val expectedByte = IntegerElement.saturate(value(r, c), Uint8)
+        val expectedInt = IntegerElement.saturate(value(r, c) * 1000f, Int32)
+        require(bytesReader.read(r, c) == expectedByte)
+        require(intsReader.read(r, c) == expectedInt)
+        require(backReader.read(r, c) == expectedByte + expectedInt.toFloat)
+      }
+    }
+  }
+
+  /** Integer fields are storage only, so arithmetic on one must be rejected. */
+  test("scalar field / integer arithmetic rejected") {
+    intercept[SemanticErrorException] {
+      new ComputeGraph(Optimize) {
+        val a = ScalarField(5, 5)
+        val b = toUint8(a) * 2f
+      }
+    }
+  }
+}
@@ -16,6 +16,8 @@
 
 package cogx
 
+import java.nio.FloatBuffer
+
 import org.junit.runner.RunWith
 import org.scalatest.junit.JUnitRunner
 import org.scalatest.FunSuite
@@ -100,11 +102,24 @@ class SensorSpec extends FunSuite  {
   test("3D Array UnpipelinedSensor"){
     new SensorProblemGen(3, pipelined = false, supplyInputAlways = true, arraySensor = true)
   }
+  test("0D in-place Sensor"){
+    new SensorProblemGen(0, pipelined = true, supplyInputAlways = true, inPlaceSensor = true)
+  }
+  test("2D in-place Sensor"){
+    new SensorProblemGen(2, pipelined = true, supplyInputAlways = true, inPlaceSensor = true)
+  }
+  test("3D in-place Sensor with optional update"){
+    new SensorProblemGen(3, pipelined = true, supplyInputAlways = false, inPlaceSensor = true)
+  }
+  test("2D in-place UnpipelinedSensor"){
+    new SensorProblemGen(2, pipelined = false, supplyInputAlways = true, inPlaceSensor = true)
+  }
 }
 
 //test that data can be injected into a ComputeGraph with a VectorSensor and
 //  subsequently read out
-class SensorProblemGen(fieldDims:Int, pipelined: Boolean, supplyInputAlways: Boolean, arraySensor: Boolean = false){
+class SensorProblemGen(fieldDims:Int, pipelined: Boolean, supplyInputAlways: Boolean, arraySensor: Boolean = false,
+                       inPlaceSensor: Boolean = false){
   //generate a random field shape given the specified dimensions
   val maxDimSize = 20
   val rng = new Random
@@ -251,10 +266,27 @@ class SensorProblemGen(fieldDims:Int, pipelined: Boolean, supplyInputAlways: Boo
     retVal
   }
 
+  def optionalFillInput(buffer: FloatBuffer): Boolean = {
+    val supplied = update(time)
+    if (supplied)
+      buffer.put(getData(update.state(time)))
+    time += 1
+    supplied
+  }
+
+  def fillInput(buffer: FloatBuffer) {
+    buffer.put(getData(time))
+    time += 1
+  }
+
   //inject data into a compute graph and initialize it
   val cg = new ComputeGraph{
     val sensor =
-      if (pipelined && arraySensor) {
+      if (pipelined && inPlaceSensor)
+        new Sensor(fieldShape, optionalFillInput _, resetHook _)
+      else if (!pipelined && inPlaceSensor)
+        new UnpipelinedSensor(fieldShape, fillInput _, resetHook _)
+      else if (pipelined && arraySensor) {
         fieldShape.dimensions match {
           case 0 => new Sensor(optionalNextArrayInput _, resetHook _)
           case 1 => new Sensor(fieldShape(0), optionalNextArrayInput _, resetHook _)
@@ -0,0 +1,100 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx
+
+import java.nio.FloatBuffer
+
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.FunSuite
+import org.scalatest.MustMatchers
+import org.junit.runner.RunWith
+
+/** Test code for Actuators whose update functions read a FloatBuffer view of the output.
+  *
+  * @author Dick Carter
+  */
+
+@RunWith(classOf[JUnitRunner])
+class UnpipelinedActuatorWithFloatBufferSpec
+        extends FunSuite
+        with MustMatchers
+{
+  def bufferWriter(a: Array[Float])(buffer: FloatBuffer): Unit = {
+    require(buffer.isReadOnly, "Actuator buffer view must be read-only")
+    require(buffer.remaining == a.length)
+    buffer.get(a)
+  }
+
+  test("1D UnpipelinedActuator") {
+    val output = new Array[Float](7)
+    val graph = new ComputeGraph(optimize = true) {
+      val field = ScalarField(7, (col) => col + 1.234f)
+      UnpipelinedActuator(field, bufferWriter(output) _)
+    }
+    import graph._
+    withRelease {
+      reset
+      for (col <- 0 until output.length)
+        require(output(col) == col + 1.234f)
+      step
+      for (col <- 0 until output.length)
+        require(output(col) == col + 1.234f)
+    }
+  }
+
+  test("2D UnpipelinedActuator with reset") {
+    val Rows = 3
+    val Columns = 5
+    val output = new Array[Float](Rows * Columns)
+    var resets = 0
+    val graph = new ComputeGraph(optimize = true) {
+      val field = ScalarField(Rows, Columns, (row, col) => 5 * row + col)
+      val counter = ScalarField(Rows, Columns)
+      counter <== counter + 1f
+      UnpipelinedActuator(field + counter, bufferWriter(output) _, () => resets += 1)
+    }
+    import graph._
+    withRelease {
+      reset
+      require(resets == 1)
+      for (row <- 0 until Rows; col <- 0 until Columns)
+        require(output(row * Columns + col) == 5 * row + col)
+      step(2)
+      for (row <- 0 until Rows; col <- 0 until Columns)
+        require(output(row * Columns + col) == 5 * row + col + 2)
+    }
+  }
+
+  test("2D pipelined Actuator") {
+    val Rows = 3
+    val Columns = 5
+    val output = new Array[Float](Rows * Columns)
+    val graph = new ComputeGraph(optimize = true) {
+      val field = ScalarField(Rows, Columns, (row, col) => 5 * row + col)
+      Actuator(field, bufferWriter(output) _)
+    }
+    import graph._
+    withRelease {
+      reset
+      // The pipelined actuator presents its initial (all-0) state upon reset.
+      require(output.forall(_ == 0f))
+      step
+      for (row <- 0 until Rows; col <- 0 until Columns)
+        require(output(row * Columns + col) == 5 * row + col)
+    }
+  }
+}
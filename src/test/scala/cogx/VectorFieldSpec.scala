@@ -26,6 +26,7 @@ import cogx.helper.ScalarFieldBuilderInterface
 import cogx.helper.MatrixFieldBuilderInterface
 import cogx.helper.VectorFieldBuilderInterface
 import cogx.api.ImplicitConversions
+import cogx.platform.cpumemory.HalfFloat
 
 /** Test code for VectorFields.
  */
@@ -469,6 +470,45 @@ class VectorFieldSpec extends FunSuite with MustMatchers
     }
   }
 
+  /** Test conversion of vector fields to and from half (Float16) storage. */
+  test("vector field / float16") {
+    val (rows, columns) = (7, 9)
+    // Values spanning several binades; the last element of the 8-vector is beyond the half range.
+    def value(r: Int, c: Int, i: Int) = (r - 3) * 37.123f + c * 0.0131f + i * 5.5f + (if (i == 7) 1e6f else 0f)
+    def vector(length: Int)(r: Int, c: Int) = Vector(length, i => value(r, c, i))
+
+    val graph = new ComputeGraph(Optimize) with RefTestInterface {
+      val a3 = VectorField(rows, columns, vector(3) _)
+      val a8 = VectorField(rows, columns, vector(8) _)
+      val half3 = toFloat16(a3)
+      val half8 = toFloat16(a8)
+      val back3 = toFloat32(half3)
+      val back8 = toFloat32(half8)
+      probe(half3, half8, back3, back8)
+    }
+
+    import graph._
+    withRelease {
+      step
+      for ((half, back, length) <- Seq((half3, back3, 3), (half8, back8, 8))) {
+        val halfReader = read(half).asInstanceOf[VectorFieldReader]
+        val backReader = read(back).asInstanceOf[VectorFieldReader]
+        val halfVector = new Vector(length)
+        val backVector = new Vector(length)
+        for (r <- 0 until rows; c <- 0 until columns) {
+          halfReader.read(r, c, halfVector)
+          backReader.read(r, c, backVector)
+          val expected = Vector(length, i => HalfFloat.toFloat(HalfFloat.fromFloat(value(r, c, i))))
+          require(halfVector === expected)
+          require(backVector === expected)
+        }
+      }
+      val corner = new Vector(8)
+      read(half8).asInstanceOf[VectorFieldReader].read(0, 0, corner)
+      require(corner(7) == Float.PositiveInfinity)
+    }
+  }
+
   /** Test the shift and shiftCyclic operators. */
   test("vector field / shift") {
     val InRows = 9
@@ -16,6 +16,8 @@
 
 package cogx
 
+import java.nio.FloatBuffer
+
 import org.junit.runner.RunWith
 import org.scalatest.junit.JUnitRunner
 import org.scalatest.FunSuite
@@ -64,11 +66,18 @@ class VectorSensorSpec extends FunSuite  {
   test("3D UnpipelinedVectorSensor"){
     new VectorSensorProblemGen(3, pipelined = false, supplyInputAlways = true)
   }
+  test("2D in-place VectorSensor with optional update"){
+    new VectorSensorProblemGen(2, pipelined = true, supplyInputAlways = false, inPlaceSensor = true)
+  }
+  test("3D in-place UnpipelinedVectorSensor"){
+    new VectorSensorProblemGen(3, pipelined = false, supplyInputAlways = true, inPlaceSensor = true)
+  }
 }
 
 //test that data can be injected into a ComputeGraph with a VectorSensor and
 //  subsequently read out
-class VectorSensorProblemGen(fieldDims:Int, pipelined: Boolean, supplyInputAlways: Boolean = true){
+class VectorSensorProblemGen(fieldDims:Int, pipelined: Boolean, supplyInputAlways: Boolean = true,
+                             inPlaceSensor: Boolean = false){
 
   //generate a random field shape given the specified dimensions
   val maxDimSize = 20
@@ -151,10 +160,33 @@ class VectorSensorProblemGen(fieldDims:Int, pipelined: Boolean, supplyInputAlway
     retVal
   }
 
+  // The in-place sensors are handed one plane of the field per vector element.
+  def putPlanes(data: Array[Vector], buffer: FloatBuffer) {
+    for (element <- 0 until vectorSize; point <- 0 until fieldPoints)
+      buffer.put(data(point)(element))
+  }
+
+  def optionalFillInput(buffer: FloatBuffer): Boolean = {
+    val supplied = update(time)
+    if (supplied)
+      putPlanes(getData(update.state(time)), buffer)
+    time += 1
+    supplied
+  }
+
+  def fillInput(buffer: FloatBuffer) {
+    putPlanes(getData(time), buffer)
+    time += 1
+  }
+
   //inject data into a compute graph and initialize it
   val cg = new ComputeGraph{
     val sensor =
-      if (pipelined)
+      if (pipelined && inPlaceSensor)
+        new VectorSensor(fieldShape, tensorShape, optionalFillInput _, resetHook _)
+      else if (inPlaceSensor)
+        new UnpipelinedVectorSensor(fieldShape, tensorShape, fillInput _, resetHook _)
+      else if (pipelined)
         new VectorSensor(fieldShape, tensorShape, optionalNextInput _, resetHook _)
       else
         new UnpipelinedVectorSensor(fieldShape, tensorShape, nextInput _, resetHook _)
@@ -0,0 +1,121 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx
+
+import java.nio.ByteBuffer
+
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.FunSuite
+
+/** Tests for color sensors fed YUV 4:2:0 planes.
+ *
+ * @author Dick Carter
+ */
+@RunWith(classOf[JUnitRunner])
+class YUVColorSensorSpec extends FunSuite  {
+  val (rows, columns) = (6, 8)
+
+  /** The bytes of the Y, U and V planes of frame `t`. */
+  def luma(t: Int, r: Int, c: Int) = (r * 37 + c * 5 + t * 11) % 256
+  def u(t: Int, r: Int, c: Int) = (r * 61 + c * 29 + t * 7 + 50) % 256
+  def v(t: Int, r: Int, c: Int) = (r * 13 + c * 71 + t * 3 + 90) % 256
+
+  /** The BT.601 conversion of pixel (r, c) of frame `t`. */
+  def expectedPixel(t: Int, r: Int, c: Int): Array[Int] = {
+    val y = 1.164f * (luma(t, r, c) - 16)
+    val cb = u(t, r / 2, c / 2) - 128f
+    val cr = v(t, r / 2, c / 2) - 128f
+    def toByte(value: Float) = math.round(math.min(math.max(value, 0f), 255f))
+    Array(toByte(y + 1.596f * cr), toByte(y - 0.392f * cb - 0.813f * cr), toByte(y + 2.017f * cb))
+  }
+
+  /** Write the planes of frame `t` in `format` to `buffer`. */
+  def writePlanes(t: Int, format: YUVFormat, buffer: ByteBuffer) {
+    for (r <- 0 until rows; c <- 0 until columns)
+      buffer.put(luma(t, r, c).toByte)
+    format match {
+      case NV12 =>
+        for (r <- 0 until rows / 2; c <- 0 until columns / 2) {
+          buffer.put(u(t, r, c).toByte)
+          buffer.put(v(t, r, c).toByte)
+        }
+      case I420 =>
+        for (r <- 0 until rows / 2; c <- 0 until columns / 2)
+          buffer.put(u(t, r, c).toByte)
+        for (r <- 0 until rows / 2; c <- 0 until columns / 2)
+          buffer.put(v(t, r, c).toByte)
+    }
+  }
+
+  /** Check the image read from a color field against frame `t`. */
+  def check(t: Int, reader: ColorFieldReader) {
+    val pixel = new Pixel
+    for (r <- 0 until rows; c <- 0 until columns) {
+      reader.read(r, c, pixel)
+      val actual = Array(pixel.redInt, pixel.greenInt, pixel.blueInt)
+      val expected = expectedPixel(t, r, c)
+      // The GPU's rounding of the color channels may differ by 1.
+      require(actual.zip(expected).forall(x => math.abs(x._1 - x._2) <= 1),
+        s"frame $t pixel ($r, $c): expected ${expected.mkString(",")}, found ${actual.mkString(",")}")
+    }
+  }
+
+  test("2D NV12 YUVColorSensor") {
+    var time = 0
+    def fill(buffer: ByteBuffer): Boolean = {
+      writePlanes(time, NV12, buffer)
+      time += 1
+      true
+    }
+    val cg = new ComputeGraph {
+      val sensor = new YUVColorSensor(rows, columns, NV12, fill _)
+      probe(sensor)
+    }
+    import cg._
+    withRelease {
+      reset
+      require(time == 2, "Expected 2 fill() calls, found " + time)
+      for (t <- 1 to 4) {
+        step
+        check(t, read(sensor).asInstanceOf[ColorFieldReader])
+      }
+    }
+  }
+
+  test("2D I420 planes to color field") {
+    var time = 0
+    def fill(buffer: ByteBuffer): Boolean = {
+      writePlanes(time, I420, buffer)
+      time += 1
+      true
+    }
+    val cg = new ComputeGraph {
+      val planes = new RawSensor[ByteBuffer](I420.planesShape(rows, columns), fill _)
+      val image = yuvToColorField(planes, I420)
+      probe(image)
+    }
+    import cg._
+    withRelease {
+      reset
+      for (t <- 1 to 4) {
+        step
+        check(t, read(image).asInstanceOf[ColorFieldReader])
+      }
+    }
+  }
+}
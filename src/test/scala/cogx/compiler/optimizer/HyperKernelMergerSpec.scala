@@ -23,6 +23,7 @@ import org.junit.runner.RunWith
 import cogx.compiler.parser.syntaxtree.{ScalarField, SyntaxTree}
 import cogx.compiler.codegenerator.KernelCircuit
 import cogx.compiler.codegenerator.opencl.generator.OpenCLCodeGenerator
+import cogx.compiler.codegenerator.opencl.fragments.HyperKernel
 
 /** Test code.
   *
@@ -57,6 +58,31 @@ class HyperKernelMergerSpec extends FunSuite with MustMatchers {
 
   }
 
+  test("merged kernel op estimates") {
+    val tree = new SyntaxTree {
+      val a = ScalarField(10, 10)
+      val b = (a * 2f) + 1f
+    }
+    val kernelCircuit: KernelCircuit =
+      (new OpenCLCodeGenerator).generateCircuit(tree)
+    def hyperKernels = {
+      val kernels = new scala.collection.mutable.ArrayBuffer[HyperKernel]
+      kernelCircuit.traversePostorder {
+        case kernel: HyperKernel => kernels += kernel
+        case _ =>
+      }
+      kernels
+    }
+    val opsBeforeMerging = hyperKernels.map(_.estimatedOps).sum
+    require(hyperKernels.length == 2)
+    require(opsBeforeMerging == 2 * 10 * 10)
+    HyperKernelMerger.optimize(kernelCircuit)
+    require(hyperKernels.length == 1)
+    require(hyperKernels.head.estimatedOps == opsBeforeMerging)
+    // The buried field between the two kernels is no longer read or written.
+    require(hyperKernels.head.estimatedBytesWritten == hyperKernels.head.estimatedBytesRead)
+  }
+
   test("All") {
     /*
     val app = new CogFragment {
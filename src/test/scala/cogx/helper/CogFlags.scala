@@ -0,0 +1,47 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.helper
+
+/** Test glue for running code with a Cog parameter temporarily changed.
+  *
+  * @author Dick Carter
+  */
+object CogFlags {
+
+  /** Evaluate `body` with a Cog parameter set to `value`, restoring its
+    * previous value afterwards, even if `body` throws, e.g.
+    * {{{
+    *   withCogFlag(Cog.pipelinedStepping, Cog.pipelinedStepping_= _, true) {
+    *     ...
+    *   }
+    * }}}
+    *
+    * @param get The parameter's current value.
+    * @param set Function that sets the parameter.
+    * @param value Value of the parameter while `body` runs.
+    * @return The result of `body`.
+    */
+  def withCogFlag[T, R](get: => T, set: T => Unit, value: T)(body: => R): R = {
+    val saved = get
+    set(value)
+    try
+      body
+    finally
+      set(saved)
+  }
+}
@@ -0,0 +1,48 @@
+package cogx.performance
+
+import libcog._
+import cogx.helper.CogFlags.withCogFlag
+
+/** A performance-only test of the stepping protocol overhead, comparing
+  * step(count) done as one Step request per step against the batched StepN
+  * request (see Cog.batchedStepping).
+  *
+  * The graphs are kept tiny so that the kernels themselves take only a few
+  * microseconds and the step rate is dominated by the actor messaging.
+  *
+  * @author Dick Carter
+  */
+object BatchedSteppingTest extends App {
+
+  // Some constants effecting the testing
+  val warmUpSteps = 1000
+  val testSteps = 20000
+  val stepsPerCall = 100  // Matches the batching done by ComputeGraph.step(count)
+  val fieldSizes = Seq(1, 16, 256)
+
+  /** Build a small feedback graph and return its step rate in steps/sec. */
+  def stepsPerSecond(fieldSize: Int, batched: Boolean): Double =
+    withCogFlag(Cog.batchedStepping, Cog.batchedStepping_= _, batched) {
+      val cg = new ComputeGraph {
+        val state = ScalarField(fieldSize, fieldSize)
+        val decayed = state * 0.5f + 1f
+        state <== abs(decayed) - 0.25f
+        probe(state)
+      }
+      cg.reset
+      cg.step(warmUpSteps)
+      val start = System.nanoTime()
+      for (i <- 0 until testSteps / stepsPerCall)
+        cg.step(stepsPerCall)
+      val durationSecs = (System.nanoTime() - start) / 1e9
+      cg.release
+      testSteps / durationSecs
+    }
+
+  for (fieldSize <- fieldSizes) {
+    val before = stepsPerSecond(fieldSize, batched = false)
+    val after = stepsPerSecond(fieldSize, batched = true)
+    println(f"Field $fieldSize%d x $fieldSize%d: per-step requests = $before%.0f steps/sec, " +
+      f"batched StepN = $after%.0f steps/sec (speedup = ${after / before}%.2fx)")
+  }
+}
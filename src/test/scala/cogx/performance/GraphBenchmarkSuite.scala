@@ -0,0 +1,216 @@
+package cogx.performance
+
+import java.io.{File, PrintWriter}
+
+import cogx.runtime.allocation.AllocationMode
+import libcog._
+
+import scala.collection.mutable.ArrayBuffer
+import scala.io.Source
+
+/** End-to-end performance of a set of ComputeGraphs shaped like production
+  * workloads, checked against a baseline file so that regressions in the
+  * compiler, the runtime or the generated kernels show up before an upgrade.
+  *
+  * For each graph this measures:
+  *
+  *   compileSecs    code generation, profiling and optimization of the circuit
+  *   profilerSecs   the part of compileSecs spent selecting kernel variants
+  *   firstStepSecs  reset (evaluator, buffer and OpenCL program creation)
+  *                  plus the first step
+  *   stepsPerSec    steady-state step rate after a warm-up
+  *
+  * Profiling results are cached across runs (see Profiler), so profilerSecs
+  * is only meaningful with -Dcog.forceProfiling=true. It is reported but
+  * never flagged as a regression.
+  *
+  * The graphs run on whichever device the OpenCLPlatform selects: a GPU if
+  * there is one, else any OpenCL device, such as that of a CPU OpenCL
+  * implementation (-Dcog.platformFilter picks among several platforms).
+  * Baseline entries are keyed by graph and device name, so one file can hold
+  * baselines for several machines.
+  *
+  * Usage: GraphBenchmarkSuite [baselineFile] [-update]
+  *
+  * With -update the results replace this device's entries in the baseline
+  * file. Otherwise they are compared against them, and the program exits
+  * with status 1 if any graph regressed.
+  *
+  * @author Dick Carter
+  */
+object GraphBenchmarkSuite extends App {
+
+  // Some constants effecting the testing
+  val warmUpSteps = 100
+  val stepsPerCall = 10
+  val minMeasureSecs = 3.0
+  /** Allowed fractional drop in the step rate before it counts as a regression. */
+  val throughputTolerance = 0.10
+  /** Allowed fractional increase in compile and first-step times... */
+  val latencyTolerance = 0.25
+  /** ...provided the increase is also more than this many seconds. */
+  val latencyNoiseSecs = 0.05
+
+  case class Result(graph: String, device: String, compileSecs: Double, profilerSecs: Double,
+                    firstStepSecs: Double, stepsPerSec: Double) {
+    def toCsv = f"$graph,$device,$compileSecs%.4f,$profilerSecs%.4f,$firstStepSecs%.4f,$stepsPerSec%.2f"
+  }
+
+  val CsvHeader = "graph,device,compileSecs,profilerSecs,firstStepSecs,stepsPerSec"
+
+  def parseResult(line: String): Result = {
+    val f = line.split(",").map(_.trim)
+    require(f.length == 6, "Malformed baseline line: " + line)
+    Result(f(0), f(1), f(2).toDouble, f(3).toDouble, f(4).toDouble, f(5).toDouble)
+  }
+
+  /** Stacked convolutions of a multi-plane image with constant filter banks, as in a CNN's forward pass. */
+  def staticConvolution() = new ComputeGraph {
+    var layer: Field = VectorField.random(Shape(128, 128), Shape(8))
+    for (i <- 0 until 3)
+      layer = projectFrame(layer, VectorField.random(Shape(5, 5), Shape(8 * 8)), BorderValid, NoSamplingConvolution)
+    probe(layer)
+  }
+
+  /** As staticConvolution, but with filter banks that change every step, as during training. */
+  def dynamicConvolution() = new ComputeGraph {
+    var layer: Field = VectorField.random(Shape(128, 128), Shape(8))
+    for (i <- 0 until 3) {
+      val filters = VectorField.random(Shape(5, 5), Shape(8 * 8))
+      filters <== filters * 0.999f
+      layer = projectFrame(layer, filters, BorderValid, NoSamplingConvolution)
+    }
+    probe(layer)
+  }
+
+  /** A large-filter convolution forced onto the FFT path. */
+  def fftConvolution() = new ComputeGraph(fftUse = UseFFTAlways) {
+    val image = ScalarField.random(512, 512)
+    val filter = ScalarField.random(31, 31)
+    val smoothed = convolve(image, filter, BorderCyclic)
+    probe(smoothed)
+  }
+
+  /** A diffusion whose state feeds back through a recurrence each step. */
+  def feedbackLoop() = new ComputeGraph {
+    val source = ScalarField.random(512, 512)
+    val state = ScalarField(512, 512)
+    val kernel = ScalarField(3, 3, (r, c) => if (r == 1 && c == 1) 0.5f else 0.0625f)
+    state <== convolve(state, kernel, BorderCyclic) * 0.9f + source
+    probe(state)
+  }
+
+  /** A camera-like sensor, a little processing and an actuator reading the result back each step. */
+  def sensorToActuator() = {
+    val (rows, columns) = (480, 640)
+    val frame = Array.tabulate(rows * columns)(i => (i % 251).toFloat)
+    val output = Array.ofDim[Float](rows, columns)
+    def nextFrame(): Option[Iterator[Float]] = Some(frame.iterator)
+    def resetHook() {}
+    new ComputeGraph {
+      val in = new Sensor(rows, columns, nextFrame _, resetHook _)
+      val smoothed = convolve(in, ScalarField(5, 5, (r, c) => 1f / 25), BorderClamp)
+      UnpipelinedActuator(smoothed * 2f - 1f, output)
+    }
+  }
+
+  val graphs = Seq[(String, () => ComputeGraph)](
+    "staticConvolution" -> staticConvolution _,
+    "dynamicConvolution" -> dynamicConvolution _,
+    "fftConvolution" -> fftConvolution _,
+    "feedbackLoop" -> feedbackLoop _,
+    "sensorToActuator" -> sensorToActuator _
+  )
+
+  def measure(name: String, makeGraph: () => ComputeGraph): Result = {
+    val cg = makeGraph()
+    try {
+      val compileStart = System.nanoTime()
+      cg.probedCircuit // Forces compilation of the circuit, but not the creation of its evaluator
+      val compileSecs = (System.nanoTime() - compileStart) / 1e9
+      val profilerSecs = cg.profiler.variantSelectionNanos / 1e9
+
+      val firstStepStart = System.nanoTime()
+      cg.reset
+      cg.step
+      val firstStepSecs = (System.nanoTime() - firstStepStart) / 1e9
+
+      cg.step(warmUpSteps)
+      var steps = 0L
+      val start = System.nanoTime()
+      while (System.nanoTime() - start < minMeasureSecs * 1e9) {
+        cg.step(stepsPerCall)
+        steps += stepsPerCall
+      }
+      val stepsPerSec = steps / ((System.nanoTime() - start) / 1e9)
+
+      val device = cg.mode match {
+        case AllocationMode.JVM => "JVM"
+        case _ => cg.profiler.deviceName
+      }
+      Result(name, device, compileSecs, profilerSecs, firstStepSecs, stepsPerSec)
+    }
+    finally
+      cg.release
+  }
+
+  /** Descriptions of the ways `result` is worse than `baseline`. */
+  def regressions(result: Result, baseline: Result): Seq[String] = {
+    val problems = new ArrayBuffer[String]
+    def latency(what: String, now: Double, before: Double) =
+      if (now > before * (1 + latencyTolerance) && now - before > latencyNoiseSecs)
+        problems += f"$what $now%.3f sec vs. baseline $before%.3f sec"
+    latency("compile", result.compileSecs, baseline.compileSecs)
+    latency("first step", result.firstStepSecs, baseline.firstStepSecs)
+    if (result.stepsPerSec < baseline.stepsPerSec * (1 - throughputTolerance))
+      problems += f"${result.stepsPerSec}%.1f steps/sec vs. baseline ${baseline.stepsPerSec}%.1f steps/sec"
+    problems
+  }
+
+  val update = args.contains("-update")
+  val baselineFile = new File(args.find(_ != "-update").getOrElse("graph-benchmark-baseline.csv"))
+  val baselines: Seq[Result] =
+    if (baselineFile.exists) {
+      val source = Source.fromFile(baselineFile)
+      try source.getLines.filter(line => line.trim.nonEmpty && line != CsvHeader).map(parseResult).toList
+      finally source.close()
+    }
+    else
+      Seq()
+
+  val results = graphs.map { case (name, makeGraph) =>
+    val result = measure(name, makeGraph)
+    println(f"$name%-20s compile ${result.compileSecs}%8.3f sec (profiler ${result.profilerSecs}%.3f)," +
+      f"  first step ${result.firstStepSecs}%8.3f sec,  ${result.stepsPerSec}%10.1f steps/sec")
+    result
+  }
+
+  if (update) {
+    val devices = results.map(_.device).toSet
+    val kept = baselines.filterNot(baseline => devices.contains(baseline.device))
+    val writer = new PrintWriter(baselineFile)
+    try {
+      writer.println(CsvHeader)
+      (kept ++ results).foreach(result => writer.println(result.toCsv))
+    }
+    finally
+      writer.close()
+    println("Baseline written to " + baselineFile)
+  }
+  else {
+    var regressed = false
+    for (result <- results) {
+      baselines.find(b => b.graph == result.graph && b.device == result.device) match {
+        case Some(baseline) =>
+          for (problem <- regressions(result, baseline)) {
+            println(s"REGRESSION in ${result.graph}: $problem")
+            regressed = true
+          }
+        case None =>
+          println(s"No baseline for ${result.graph} on ${result.device}")
+      }
+    }
+    if (regressed)
+      sys.exit(1)
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.platform.cpumemory
+
+import java.nio.{ByteBuffer, ByteOrder}
+
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.FunSuite
+import org.scalatest.MustMatchers
+import org.junit.runner.RunWith
+
+/** Test code for the bulk copies between field memory buffers and arrays,
+  * using transfers big enough to be split across several tasks.
+  *
+  * @author Dick Carter
+  */
+
+@RunWith(classOf[JUnitRunner])
+class BulkCopySpec extends FunSuite with MustMatchers {
+  import BulkCopy.FloatsPerTask
+
+  /** A few tasks' worth of floats, not a multiple of the task size. */
+  val Length = 3 * FloatsPerTask + 17
+
+  def floatBuffer(floats: Int) =
+    ByteBuffer.allocateDirect(floats * 4).order(ByteOrder.nativeOrder).asFloatBuffer
+
+  test("contiguous put and get") {
+    val src = Array.tabulate(Length)(_.toFloat)
+    val buffer = floatBuffer(Length + 10)
+    BulkCopy.put(src, 0, buffer, 10, Length)
+    require(buffer.position == 0)
+    require(buffer.get(9) == 0f && buffer.get(10) == 0f && buffer.get(Length + 9) == Length - 1)
+    val dst = new Array[Float](Length + 5)
+    BulkCopy.get(buffer, 10, dst, 5, Length)
+    require(buffer.position == 0)
+    require((0 until Length).forall(i => dst(i + 5) == i))
+  }
+
+  test("padded rows") {
+    val (rows, columns, stride) = (FloatsPerTask / 100, 300, 304)
+    val src = Array.tabulate(rows, columns)((r, c) => r * 1000f + c)
+    val buffer = floatBuffer(rows * stride)
+    for (i <- 0 until buffer.capacity)
+      buffer.put(i, -1f)
+    BulkCopy.putRows(src(_), rows, columns, buffer, 0, stride)
+    require(buffer.get(stride * 5 + 7) == 5007f)
+    require((columns until stride).forall(c => buffer.get(stride * (rows - 1) + c) == 0f))
+
+    val dst = Array.ofDim[Float](rows, columns)
+    BulkCopy.getRows(buffer, 0, stride, dst(_), rows, columns)
+    require((0 until rows).forall(r => dst(r) sameElements src(r)))
+
+    val unpadded = new Array[Float](rows * columns)
+    BulkCopy.getRows(buffer, 0, stride, unpadded, 0, rows, columns)
+    require(unpadded sameElements src.flatten)
+    intercept[IllegalArgumentException] {
+      BulkCopy.putRows(r => new Array[Float](columns + 1), rows, columns, buffer, 0, stride)
+    }
+  }
+
+  test("byte copy") {
+    val bytes = 4 * Length
+    val src = ByteBuffer.allocateDirect(bytes)
+    for (i <- 0 until bytes)
+      src.put(i, i.toByte)
+    val dst = ByteBuffer.allocateDirect(bytes)
+    BulkCopy.copy(src, dst)
+    require(src.position == 0 && dst.position == 0)
+    require(src == dst)
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.platform.cpumemory
+
+import cogx.platform.types.FieldType
+import cogx.platform.types.ElementTypes.Float32
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.FunSuite
+import org.scalatest.MustMatchers
+import cogx.cogmath.geometry.Shape
+import org.junit.runner.RunWith
+import cogx.helper.CogFlags.withCogFlag
+import cogx.parameters.Cog
+
+/** Test code.
+  *
+  * @author Dick Carter
+  */
+
+@RunWith(classOf[JUnitRunner])
+class FieldMemoryPoolSpec extends FunSuite with MustMatchers {
+
+  val small = new FieldType(Shape(10, 10), Shape(), Float32)
+  val large = new FieldType(Shape(20, 20), Shape(), Float32)
+  val smallBytes = 10 * 10 * 4L
+  val largeBytes = 20 * 20 * 4L
+
+  test("reuse and counters") {
+    val allocator = FieldMemory(budgetBytes = 1024 * 1024)
+    val a = allocator.direct(small)
+    allocator.release(a)
+    val b = allocator.direct(small)
+    require(b eq a)
+    val c = allocator.indirect(small)
+    require(!(c eq a))
+    val stats = allocator.stats
+    require(stats.hits == 1 && stats.misses == 2)
+    require(stats.residentBytes == 2 * smallBytes)
+    require(stats.offHeapResidentBytes == smallBytes)
+    require(stats.idleBytes == 0)
+    allocator.release(b)
+    allocator.release(c)
+    require(allocator.stats.idleBytes == 2 * smallBytes)
+    allocator.destroyAll()
+    require(allocator.stats.residentBytes == 0)
+  }
+
+  test("least recently released memory is evicted first") {
+    val allocator = FieldMemory(budgetBytes = largeBytes + smallBytes)
+    val first = allocator.direct(small)
+    val second = allocator.direct(large)
+    val third = allocator.direct(small)
+    allocator.release(first)
+    allocator.release(second)
+    require(allocator.stats.evictions == 0)
+    allocator.release(third)
+    val stats = allocator.stats
+    require(stats.evictions == 1)
+    require(stats.idleBytes == largeBytes + smallBytes)
+    require(first.destroyed && !second.destroyed && !third.destroyed)
+    // The survivors are still reused.
+    require(allocator.direct(small) eq third)
+    require(allocator.direct(large) eq second)
+  }
+
+  test("zero budget keeps nothing idle") {
+    val allocator = FieldMemory(budgetBytes = 0)
+    val memory = allocator.direct(small)
+    allocator.release(memory)
+    require(memory.destroyed)
+    require(allocator.stats.residentBytes == 0)
+    require(!(allocator.direct(small) eq memory))
+  }
+
+  test("destroyed direct memory is freed and leaves the off-heap gauge") {
+    val allocator = FieldMemory(budgetBytes = 0)
+    val before = FieldMemory.offHeapBytes
+    val a = allocator.direct(large)
+    require(FieldMemory.offHeapBytes - before == largeBytes)
+    allocator.release(a)  // over the zero budget, so freed at once
+    require(a.destroyed)
+    require(FieldMemory.offHeapBytes == before)
+    allocator.destroyAll()
+  }
+
+  test("leak tracking") {
+    withCogFlag(Cog.fieldMemoryLeakTracking, Cog.fieldMemoryLeakTracking_= _, true) {
+      val allocator = FieldMemory(budgetBytes = 1024 * 1024)
+      val kept = allocator.direct(small)
+      val released = allocator.direct(large)
+      allocator.release(released)
+      val leaks = allocator.leaks
+      require(leaks.length == 1)
+      require(leaks.head.fieldType == small && leaks.head.bytes == smallBytes)
+      require(leaks.head.allocationSite.exists(_.getClassName.contains("FieldMemoryPoolSpec")))
+      allocator.release(kept)
+      require(allocator.leaks.isEmpty)
+      allocator.destroyAll()
+      require(kept.destroyed && released.destroyed)
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.platform.cpumemory
+
+import cogx.cogmath.algebra.real.Vector
+import cogx.cogmath.geometry.Shape
+import cogx.platform.types.FieldType
+import cogx.platform.types.ElementTypes.Float16
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.FunSuite
+import org.scalatest.MustMatchers
+import org.junit.runner.RunWith
+
+/** Test code for half (Float16) field memories and the conversions they use.
+  *
+  * @author Dick Carter
+  */
+
+@RunWith(classOf[JUnitRunner])
+class Float16FieldMemorySpec extends FunSuite with MustMatchers {
+
+  test("half conversions") {
+    // Every half survives a round trip through float.
+    for (bits <- 0 until 65536) {
+      val half = bits.toShort
+      val value = HalfFloat.toFloat(half)
+      if (!value.isNaN)
+        require(HalfFloat.fromFloat(value) == half, "half 0x%04x".format(bits))
+    }
+    require(HalfFloat.toFloat(HalfFloat.fromFloat(1.0f)) == 1.0f)
+    require(HalfFloat.toFloat(HalfFloat.fromFloat(-2.5f)) == -2.5f)
+    require(HalfFloat.toFloat(HalfFloat.fromFloat(65504f)) == 65504f)
+    require(HalfFloat.toFloat(HalfFloat.fromFloat(65520f)) == Float.PositiveInfinity)
+    require(HalfFloat.toFloat(HalfFloat.fromFloat(-1e10f)) == Float.NegativeInfinity)
+    require(HalfFloat.toFloat(HalfFloat.fromFloat(Float.NaN)).isNaN)
+    // Smallest subnormal half, and a value that rounds down to zero.
+    require(HalfFloat.toFloat(HalfFloat.fromFloat(math.pow(2, -24).toFloat)) == math.pow(2, -24).toFloat)
+    require(HalfFloat.toFloat(HalfFloat.fromFloat(math.pow(2, -26).toFloat)) == 0f)
+    // Ties round to even: 2049 lies midway between the halves 2048 and 2050.
+    require(HalfFloat.toFloat(HalfFloat.fromFloat(2049f)) == 2048f)
+    require(HalfFloat.toFloat(HalfFloat.fromFloat(2051f)) == 2052f)
+  }
+
+  test("2D scalar field") {
+    val (rows, columns) = (7, 11)
+    val fieldType = new FieldType(Shape(rows, columns), Shape(), Float16)
+    val memory = new Float16ScalarFieldMemory(fieldType, IndirectBuffer)
+    require(memory.bufferSizeBytes == rows * columns * 2)
+    for (row <- 0 until rows; col <- 0 until columns)
+      memory.write(row, col, row + col / 4f)
+    for (row <- 0 until rows; col <- 0 until columns)
+      require(memory.read(row, col) == row + col / 4f)
+    val array = Array.ofDim[Float](rows, columns)
+    memory.get(array)
+    for (row <- 0 until rows; col <- 0 until columns)
+      require(array(row)(col) == row + col / 4f)
+    require(memory.iterator.toSeq == (0 until rows).flatMap(row => (0 until columns).map(col => row + col / 4f)))
+    // Values not representable as halves are rounded.
+    memory.write(0, 0, 1000.3f)
+    require(memory.read(0, 0) == 1000.5f)
+  }
+
+  test("2D vector field") {
+    val (rows, columns, length) = (5, 6, 3)
+    val fieldType = new FieldType(Shape(rows, columns), Shape(length), Float16)
+    val memory = new Float16VectorFieldMemory(fieldType, IndirectBuffer)
+    def vector(row: Int, col: Int) = Vector(length, i => row * 10 + col + i / 2f)
+    for (row <- 0 until rows; col <- 0 until columns)
+      memory.write(row, col, vector(row, col))
+    val out = new Vector(length)
+    for (row <- 0 until rows; col <- 0 until columns) {
+      memory.read(row, col, out)
+      require(out === vector(row, col))
+    }
+    // The planar layout of the Float32 vector field memories.
+    require(memory.readAsPaddedArray(rows * columns) == vector(0, 0)(1))
+  }
+
+  test("allocation") {
+    val fieldType = new FieldType(Shape(4, 4), Shape(), Float16)
+    val memory = FieldMemory.indirect(fieldType)
+    require(memory.isInstanceOf[Float16ScalarFieldMemory])
+    FieldMemory.release(memory)
+  }
+}
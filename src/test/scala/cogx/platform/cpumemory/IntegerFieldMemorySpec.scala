@@ -0,0 +1,120 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.platform.cpumemory
+
+import cogx.cogmath.algebra.real.Vector
+import cogx.cogmath.geometry.Shape
+import cogx.platform.types.FieldType
+import cogx.platform.types.ElementTypes.{Int32, Uint16, Uint8}
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.FunSuite
+import org.scalatest.MustMatchers
+import org.junit.runner.RunWith
+
+/** Test code for integer (Uint8, Uint16, Int32) field memories.
+  *
+  * @author Dick Carter
+  */
+
+@RunWith(classOf[JUnitRunner])
+class IntegerFieldMemorySpec extends FunSuite with MustMatchers {
+
+  test("saturating conversions") {
+    import IntegerElement.saturate
+    require(saturate(-3.7f, Uint8) == 0)
+    require(saturate(254.6f, Uint8) == 255)
+    require(saturate(1e9f, Uint8) == 255)
+    require(saturate(70000f, Uint16) == 65535)
+    require(saturate(-1e12f, Int32) == Int.MinValue)
+    require(saturate(1e12f, Int32) == Int.MaxValue)
+    require(saturate(Float.NaN, Int32) == 0)
+    // Ties round to even, as convert_<type>_sat_rte does.
+    require(saturate(2.5f, Uint8) == 2)
+    require(saturate(3.5f, Uint8) == 4)
+    require(saturate(-2.5f, Int32) == -2)
+  }
+
+  test("2D scalar fields") {
+    val (rows, columns) = (7, 11)
+    for ((elementType, bytes) <- Seq((Uint8, 1), (Uint16, 2), (Int32, 4))) {
+      val fieldType = new FieldType(Shape(rows, columns), Shape(), elementType)
+      val memory = new IntegerScalarFieldMemory(fieldType, IndirectBuffer)
+      require(memory.bufferSizeBytes == rows * columns * bytes)
+      for (row <- 0 until rows; col <- 0 until columns)
+        memory.write(row, col, row * 20 + col)
+      for (row <- 0 until rows; col <- 0 until columns)
+        require(memory.read(row, col) == row * 20 + col)
+      val array = Array.ofDim[Float](rows, columns)
+      memory.get(array)
+      for (row <- 0 until rows; col <- 0 until columns)
+        require(array(row)(col) == row * 20 + col)
+      val ints = new Array[Int](rows * columns)
+      memory.getInts(ints)
+      require(ints.toSeq == (0 until rows).flatMap(row => (0 until columns).map(col => row * 20 + col)))
+      // Writes round and saturate.
+      memory.write(0, 0, 3.5f)
+      require(memory.read(0, 0) == 4f)
+      memory.write(0, 1, -1f)
+      require(memory.read(0, 1) == (if (elementType == Int32) -1f else 0f))
+    }
+  }
+
+  test("unsigned values above the signed range") {
+    val uint8 = new IntegerScalarFieldMemory(new FieldType(Shape(2), Shape(), Uint8), IndirectBuffer)
+    uint8.writeInts(Array(200, 300))
+    require(uint8.read(0) == 200f && uint8.read(1) == 255f)
+    val uint16 = new IntegerScalarFieldMemory(new FieldType(Shape(2), Shape(), Uint16), IndirectBuffer)
+    uint16.writeInts(Array(60000, -5))
+    require(uint16.read(0) == 60000f && uint16.read(1) == 0f)
+  }
+
+  test("2D vector field") {
+    val (rows, columns, length) = (5, 6, 3)
+    val fieldType = new FieldType(Shape(rows, columns), Shape(length), Uint16)
+    val memory = new IntegerVectorFieldMemory(fieldType, IndirectBuffer)
+    require(memory.bufferSizeBytes == rows * columns * length * 2)
+    def vector(row: Int, col: Int) = Vector(length, i => row * 10000 + col * 10 + i)
+    for (row <- 0 until rows; col <- 0 until columns)
+      memory.write(row, col, vector(row, col))
+    val out = new Vector(length)
+    for (row <- 0 until rows; col <- 0 until columns) {
+      memory.read(row, col, out)
+      require(out === vector(row, col))
+    }
+    // The planar layout of the Float32 vector field memories.
+    val ints = new Array[Int](rows * columns * length)
+    memory.getInts(ints)
+    require(ints(rows * columns) == 1 && ints(rows * columns + 1) == 11)
+    // Writes saturate: 65535 is the largest Uint16.
+    memory.write(0, 0, Vector(70000f, -3f, 2.5f))
+    memory.read(0, 0, out)
+    require(out === Vector(65535f, 0f, 2f))
+  }
+
+  test("allocation") {
+    for (elementType <- Seq(Uint8, Uint16, Int32)) {
+      val fieldType = new FieldType(Shape(4, 4), Shape(), elementType)
+      val memory = FieldMemory.indirect(fieldType)
+      require(memory.isInstanceOf[IntegerScalarFieldMemory])
+      FieldMemory.release(memory)
+      val vectorMemory = FieldMemory.indirect(new FieldType(Shape(4, 4), Shape(2), elementType))
+      require(vectorMemory.isInstanceOf[IntegerVectorFieldMemory])
+      FieldMemory.release(vectorMemory)
+    }
+  }
+}
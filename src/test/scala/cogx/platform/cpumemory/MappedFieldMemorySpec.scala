@@ -0,0 +1,91 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.platform.cpumemory
+
+import java.io.File
+import java.nio.ReadOnlyBufferException
+
+import cogx.cogmath.algebra.real.Vector
+import cogx.platform.types.FieldType
+import cogx.platform.types.ElementTypes.Float32
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.FunSuite
+import org.scalatest.MustMatchers
+import cogx.cogmath.geometry.Shape
+import org.junit.runner.RunWith
+
+/** Test code.
+  *
+  * @author Dick Carter
+  */
+
+@RunWith(classOf[JUnitRunner])
+class MappedFieldMemorySpec extends FunSuite with MustMatchers {
+
+  val scalarType = new FieldType(Shape(13, 17), Shape(), Float32)
+  val vectorType = new FieldType(Shape(5, 7), Shape(3), Float32)
+  val scalarBytes = 13 * 17 * 4L
+
+  def withTempFile(body: File => Unit) {
+    val file = File.createTempFile("MappedFieldMemorySpec", ".bin")
+    try body(file)
+    finally file.delete()
+  }
+
+  test("write through a writable mapping, read through a read-only one") {
+    withTempFile { file =>
+      val writer = FieldMemory(0L)
+      val out = writer.mapped(scalarType, file, writable = true).asInstanceOf[ScalarFieldMemory]
+      out.init((r: Int, c: Int) => r * 100f + c)
+      writer.release(out)
+      writer.destroyAll()
+      require(file.length == scalarBytes)
+
+      val reader = FieldMemory(0L)
+      val in = reader.mapped(scalarType, file).asInstanceOf[ScalarFieldMemory]
+      for (r <- 0 until 13; c <- 0 until 17)
+        require(in.read(r, c) == r * 100f + c)
+      intercept[ReadOnlyBufferException] {
+        in.write(0, 0, 1f)
+      }
+      require(reader.stats.residentBytes == scalarBytes && reader.stats.offHeapResidentBytes == 0)
+    }
+  }
+
+  test("fields at an offset, copied from other memories") {
+    withTempFile { file =>
+      val allocator = FieldMemory()
+      val source = allocator.direct(vectorType).asInstanceOf[VectorFieldMemory]
+      source.init((r: Int, c: Int) => Vector(r.toFloat, c.toFloat, (r * c).toFloat))
+      val offset = scalarBytes
+      source.copyTo(allocator.mapped(vectorType, file, offset, writable = true))
+
+      val mapped = allocator.mapped(vectorType, file, offset).asInstanceOf[VectorFieldMemory]
+      require(mapped.compareLinf(source) == 0f)
+      allocator.destroyAll()
+    }
+  }
+
+  test("region beyond the end of the file") {
+    withTempFile { file =>
+      intercept[RuntimeException] {
+        FieldMemory(0L).mapped(scalarType, file)
+      }
+    }
+  }
+}
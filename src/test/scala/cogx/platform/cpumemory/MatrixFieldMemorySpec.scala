@@ -24,6 +24,7 @@ import org.scalatest.MustMatchers
 import cogx.cogmath.algebra.real.Matrix
 import cogx.cogmath.geometry.Shape
 import org.junit.runner.RunWith
+import Segmentation.withSegmentation
 
 /** Test code.
   *
@@ -166,4 +167,40 @@ class MatrixFieldMemorySpec extends FunSuite with MustMatchers {
               Matrix(Array(9.87f, 1.999f, col), Array(0f, layer, row)))
     }
   }
+
+  /** Check a segmented memory against an unsegmented one holding the same data.
+    * The 32-byte segments are shorter than a row, and tensors straddle segment boundaries.
+    */
+  test("segmented matrix field") {
+    val (layers, rows, columns) = (5, 7, 13)
+    val matrix = new Matrix(2, 3)
+    for (fieldShape <- Seq(Shape(columns), Shape(rows, columns), Shape(layers, rows, columns))) {
+      val fieldType = new FieldType(fieldShape, Shape(2, 3), Float32)
+      val plain = new MatrixFieldMemory(fieldType, IndirectBuffer)
+      var segmented: MatrixFieldMemory = null
+      withSegmentation(32, 32) {
+        segmented = new MatrixFieldMemory(fieldType, IndirectBuffer)
+      }
+      require(!plain.isSegmented && segmented.isSegmented)
+      def value(i: Int) = Matrix(Array(i * 1.5f, -7f, i.toFloat), Array(0.5f, i * -2f, 3f))
+
+      // Single-point writes and reads.
+      for (memory <- Seq(plain, segmented); i <- 0 until fieldShape.points) {
+        val (layer, row, col) = (i / (rows * columns), i / columns % rows, i % columns)
+        fieldShape.dimensions match {
+          case 1 =>
+            memory.write(col, value(i))
+            memory.read(col, matrix)
+          case 2 =>
+            memory.write(row, col, value(i))
+            memory.read(row, col, matrix)
+          case 3 =>
+            memory.write(layer, row, col, value(i))
+            memory.read(layer, row, col, matrix)
+        }
+        require(matrix == value(i))
+      }
+      require(segmented.readAsPaddedArray.toList == plain.readAsPaddedArray.toList)
+    }
+  }
 }
\ No newline at end of file
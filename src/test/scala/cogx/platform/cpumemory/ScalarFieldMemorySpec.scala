@@ -23,6 +23,7 @@ import org.scalatest.FunSuite
 import org.scalatest.MustMatchers
 import cogx.cogmath.geometry.Shape
 import org.junit.runner.RunWith
+import Segmentation.withSegmentation
 
 /** Test code.
   *
@@ -172,4 +173,75 @@ class ScalarFieldMemorySpec extends FunSuite with MustMatchers {
       }
     }
   }
-}
\ No newline at end of file
+
+  /** Check a segmented memory against an unsegmented one holding the same data.
+    * The 32-byte segments are shorter than a row, and rows straddle segment boundaries.
+    */
+  test("segmented scalar field") {
+    val (layers, rows, columns) = (5, 7, 13)
+    for (fieldShape <- Seq(Shape(columns), Shape(rows, columns), Shape(layers, rows, columns))) {
+      val fieldType = new FieldType(fieldShape, Shape(), Float32)
+      val plain = new ScalarFieldMemory(fieldType, IndirectBuffer)
+      var segmented: ScalarFieldMemory = null
+      withSegmentation(32, 32) {
+        segmented = new ScalarFieldMemory(fieldType, IndirectBuffer)
+      }
+      require(!plain.isSegmented && segmented.isSegmented)
+      val points = fieldShape.points
+      def value(i: Int) = i * 1.5f - 7f
+
+      // Iterator writes (fillSegmented), then iteration (segmentedIterator).
+      plain.write(Iterator.tabulate(points)(value))
+      segmented.write(Iterator.tabulate(points)(value))
+      require(segmented.iterator.toList == plain.iterator.toList)
+      require(segmented.readAsUnpaddedArray.toList == plain.readAsUnpaddedArray.toList)
+
+      // Array writes (fillSegmented) and reads (getSegmentedRows).
+      val lines = Array.tabulate(points / columns, columns)((line, col) => value(line * columns + col) + 0.25f)
+      fieldShape.dimensions match {
+        case 1 =>
+          plain.write(lines(0))
+          segmented.write(lines(0))
+          val (plainOut, segmentedOut) = (new Array[Float](columns), new Array[Float](columns))
+          plain.get(plainOut)
+          segmented.get(segmentedOut)
+          require(segmentedOut.toList == plainOut.toList)
+        case 2 =>
+          plain.write(lines)
+          segmented.write(lines)
+          val (plainOut, segmentedOut) = (Array.ofDim[Float](rows, columns), Array.ofDim[Float](rows, columns))
+          plain.get(plainOut)
+          segmented.get(segmentedOut)
+          require(segmentedOut.flatten.toList == plainOut.flatten.toList)
+        case 3 =>
+          val volume = lines.grouped(rows).toArray
+          plain.write(volume)
+          segmented.write(volume)
+          val plainOut = Array.ofDim[Float](layers, rows, columns)
+          val segmentedOut = Array.ofDim[Float](layers, rows, columns)
+          plain.get(plainOut)
+          segmented.get(segmentedOut)
+          require(segmentedOut.flatten.flatten.toList == plainOut.flatten.flatten.toList)
+      }
+      require(segmented.iterator.toList == plain.iterator.toList)
+      require(segmented.readAsUnpaddedArray.toList == plain.readAsUnpaddedArray.toList)
+
+      // Single-point writes and reads.
+      for (i <- 0 until points) {
+        val (layer, row, col) = (i / (rows * columns), i / columns % rows, i % columns)
+        fieldShape.dimensions match {
+          case 1 =>
+            segmented.write(col, -value(i))
+            require(segmented.read(col) == -value(i))
+          case 2 =>
+            segmented.write(row, col, -value(i))
+            require(segmented.read(row, col) == -value(i))
+          case 3 =>
+            segmented.write(layer, row, col, -value(i))
+            require(segmented.read(layer, row, col) == -value(i))
+        }
+      }
+      require(segmented.iterator.toList == List.tabulate(points)(i => -value(i)))
+    }
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.platform.cpumemory
+
+/** Test glue for exercising the segmented field memory code paths on small
+  * fields.
+  *
+  * @author Dick Carter
+  */
+object Segmentation {
+
+  /** Run `body` with field memories of more than `thresholdBytes` held in segments of `segmentBytes`. */
+  def withSegmentation(thresholdBytes: Long, segmentBytes: Int)(body: => Unit) {
+    val (savedThreshold, savedSegmentBytes) =
+      (AbstractFieldMemory.segmentationThresholdBytes, AbstractFieldMemory.segmentBytes)
+    AbstractFieldMemory.segmentationThresholdBytes = thresholdBytes
+    AbstractFieldMemory.segmentBytes = segmentBytes
+    try
+      body
+    finally {
+      AbstractFieldMemory.segmentationThresholdBytes = savedThreshold
+      AbstractFieldMemory.segmentBytes = savedSegmentBytes
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cogx.platform.cpumemory
+
+import java.nio.{ByteBuffer, ByteOrder}
+
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.FunSuite
+import org.scalatest.MustMatchers
+import org.junit.runner.RunWith
+
+/** Test code for the long-indexed store of large field memories, using tiny
+  * segments so that accesses span many of them.
+  *
+  * @author Dick Carter
+  */
+
+@RunWith(classOf[JUnitRunner])
+class SegmentedBufferSpec extends FunSuite with MustMatchers {
+
+  def heapSegment(offsetBytes: Long, bytes: Int) = ByteBuffer.allocate(bytes).order(ByteOrder.nativeOrder)
+
+  /** 27 floats in 16-byte (4 float) segments, the last holding only 3. */
+  def buffer = new SegmentedBuffer(27 * 4, 16, heapSegment)
+
+  test("segments") {
+    val b = buffer
+    require(b.length == 27)
+    require(b.segments.length == 7)
+    require(b.segments.take(6).forall(_.capacity == 16))
+    require(b.segments(6).capacity == 12)
+    require(b.segmentOffsetBytes(6) == 96)
+  }
+
+  test("element access") {
+    val b = buffer
+    for (i <- 0L until b.length)
+      b.putFloat(i, i * 1.5f)
+    for (i <- 0L until b.length)
+      require(b.getFloat(i) == i * 1.5f)
+    // Element 9 is the second float of the third segment.
+    require(b.segments(2).asFloatBuffer.get(1) == 9 * 1.5f)
+  }
+
+  test("bulk access across segments") {
+    val b = buffer
+    val src = Array.tabulate(20)(_.toFloat)
+    b.put(3, src, 0, 20)
+    val dst = new Array[Float](22)
+    b.get(2, dst, 1, 21)
+    require(dst(1) == 0f)
+    for (i <- 0 until 20)
+      require(dst(i + 2) == i.toFloat)
+    intercept[IllegalArgumentException] {
+      b.get(10, dst, 0, 18)
+    }
+  }
+
+  test("copy") {
+    val from = buffer
+    val to = buffer
+    for (i <- 0L until from.length)
+      from.putFloat(i, -i)
+    from.copyTo(to)
+    for (i <- 0L until to.length)
+      require(to.getFloat(i) == -i)
+    intercept[IllegalArgumentException] {
+      from.copyTo(new SegmentedBuffer(27 * 4, 32, heapSegment))
+    }
+  }
+}
@@ -24,6 +24,7 @@ import org.scalatest.MustMatchers
 import cogx.cogmath.geometry.Shape
 import cogx.cogmath.algebra.real.Vector
 import org.junit.runner.RunWith
+import Segmentation.withSegmentation
 
 /** Test code.
   *
@@ -142,4 +143,46 @@ class VectorFieldMemorySpec extends FunSuite with MustMatchers {
       require(vector == Vector(col.toFloat, 0f, row.toFloat))
     }
   }
+
+  /** Check a segmented memory against an unsegmented one holding the same data.
+    * The 32-byte segments are shorter than a row, and tensors straddle segment boundaries.
+    */
+  test("segmented vector field") {
+    val (layers, rows, columns) = (5, 7, 13)
+    val vector = new Vector(3)
+    for (fieldShape <- Seq(Shape(columns), Shape(rows, columns), Shape(layers, rows, columns))) {
+      val fieldType = new FieldType(fieldShape, Shape(3), Float32)
+      val plain = new VectorFieldMemory(fieldType, IndirectBuffer)
+      var segmented: VectorFieldMemory = null
+      withSegmentation(32, 32) {
+        segmented = new VectorFieldMemory(fieldType, IndirectBuffer)
+      }
+      require(!plain.isSegmented && segmented.isSegmented)
+      def value(i: Int) = Vector(i * 1.5f, -7f, i.toFloat)
+
+      // Iterator writes.
+      plain.write(Iterator.tabulate(fieldShape.points)(value))
+      segmented.write(Iterator.tabulate(fieldShape.points)(value))
+      require(segmented.readAsPaddedArray.toList == plain.readAsPaddedArray.toList)
+
+      // Single-point writes and reads.
+      for (i <- 0 until fieldShape.points) {
+        val (layer, row, col) = (i / (rows * columns), i / columns % rows, i % columns)
+        fieldShape.dimensions match {
+          case 1 =>
+            segmented.write(col, value(i) * -1f)
+            segmented.read(col, vector)
+          case 2 =>
+            segmented.write(row, col, value(i) * -1f)
+            segmented.read(row, col, vector)
+          case 3 =>
+            segmented.write(layer, row, col, value(i) * -1f)
+            segmented.read(layer, row, col, vector)
+        }
+        require(vector == value(i) * -1f)
+      }
+      plain.write(Iterator.tabulate(fieldShape.points)(value(_) * -1f))
+      require(segmented.readAsPaddedArray.toList == plain.readAsPaddedArray.toList)
+    }
+  }
 }
\ No newline at end of file
@@ -72,6 +72,10 @@ class Hdf5Spec
     simpleComputeGraphTest(Hdf5CheckpointerType)
   }
 
+  test("save/restore/step ComputeGraph with delta checkpoints") {
+    deltaComputeGraphTest(Hdf5CheckpointerType)
+  }
+
   test("save/restore/step ComputeGraph with UnpipelinedTestSensor") {
     unpipelinedSensorComputeGraphTest(Hdf5CheckpointerType)
   }
@@ -49,6 +49,10 @@ class JavaSerializationSpec
   test("save/restore/step ComputeGraph") {
     simpleComputeGraphTest(JavaCheckpointerType)
   }
+
+  test("save/restore/step ComputeGraph with delta checkpoints") {
+    deltaComputeGraphTest(JavaCheckpointerType)
+  }
   test("save/restore/step ComputeGraph with UnpipelinedTestSensor") {
     unpipelinedSensorComputeGraphTest(JavaCheckpointerType)
   }
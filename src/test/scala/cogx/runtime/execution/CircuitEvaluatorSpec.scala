@@ -26,6 +26,8 @@ import cogx.api.ImplicitConversions
 import cogx.compiler.parser.syntaxtree.ScalarField
 import cogx.runtime.ComputeGraph
 import cogx.platform.cpumemory.readerwriter.ScalarFieldReader
+import cogx.helper.CogFlags.withCogFlag
+import cogx.parameters.Cog
 
 /** Code to test ComputeGraph.step and ComputeGraph.step(N)
   *
@@ -263,4 +265,30 @@ class CircuitEvaluatorSpec
       cgB.release
     }
   }
+
+  /** Test that pipelined stepping (Cog.pipelinedStepping) gives the same results as unpipelined. */
+  test("ComputeGraph pipelined step and step(N)") {
+    withCogFlag(Cog.pipelinedStepping, Cog.pipelinedStepping_= _, true) {
+      val cg = new ComputeGraph{
+        val counter = ScalarField(0f)
+        counter <== counter + 1f
+        // A second recurrence, read through a chain of unmergeable kernels
+        val image = ScalarField(64, 64, (r, c) => r + c.toFloat)
+        image <== image.flip.flip + 1f
+      }
+      try {
+        cg.step
+        cg.read(cg.counter).asInstanceOf[ScalarFieldReader].read() mustBe 1f
+        cg.step(10)
+        cg.read(cg.counter).asInstanceOf[ScalarFieldReader].read() mustBe 11f
+        cg.step(489)
+        cg.read(cg.counter).asInstanceOf[ScalarFieldReader].read() mustBe 500f
+        val image = cg.read(cg.image).asInstanceOf[ScalarFieldReader]
+        for (r <- 0 until 64; c <- 0 until 64)
+          image.read(r, c) mustBe (r + c + 500f)
+      }
+      finally
+        cg.release
+    }
+  }
 }
@@ -0,0 +1,125 @@
+/*
+ * (c) Copyright 2016 Hewlett Packard Enterprise Development LP
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cogx.runtime.execution
+
+import scala.language.reflectiveCalls
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.FunSuite
+import org.scalatest.MustMatchers
+import org.junit.runner.RunWith
+
+import cogx.api.{CogFunctionAPI, ImplicitConversions}
+import cogx.compiler.parser.syntaxtree.ScalarField
+import cogx.runtime.ComputeGraph
+import cogx.runtime.allocation.AllocationMode
+import cogx.platform.cpumemory.readerwriter.ScalarFieldReader
+
+/** Test code for the JVM backend (-Dcog.device=jvm), which needs no OpenCL
+  * platform to run.
+  *
+  * @author Dick Carter
+  */
+
+@RunWith(classOf[JUnitRunner])
+class JVMCircuitEvaluatorSpec
+        extends FunSuite
+        with MustMatchers
+        with ImplicitConversions
+        with CogFunctionAPI
+{
+  /** Create a ComputeGraph (via `makeGraph`) that runs on the JVM backend. */
+  private def jvmGraph[T <: ComputeGraph](makeGraph: => T): T = {
+    val savedDevice = System.getProperty("cog.device")
+    System.setProperty("cog.device", "jvm")
+    try {
+      val cg = makeGraph
+      require(cg.mode == AllocationMode.JVM)
+      cg
+    }
+    finally {
+      if (savedDevice == null)
+        System.clearProperty("cog.device")
+      else
+        System.setProperty("cog.device", savedDevice)
+    }
+  }
+
+  test("step and step(N)") {
+    val cg = jvmGraph(new ComputeGraph {
+      val counter = ScalarField(0f)
+      counter <== counter + 1f
+    })
+
+    try {
+      cg.step
+      cg.read(cg.counter).asInstanceOf[ScalarFieldReader].read() mustBe 1f
+      cg.step(10)
+      cg.read(cg.counter).asInstanceOf[ScalarFieldReader].read() mustBe 11f
+      cg.step(489)
+      cg.read(cg.counter).asInstanceOf[ScalarFieldReader].read() mustBe 500f
+      cg.reset
+      cg.read(cg.counter).asInstanceOf[ScalarFieldReader].read() mustBe 0f
+    }
+    finally
+      cg.release
+  }
+
+  test("point-wise operators and field reduction") {
+    // Big enough that the kernels are split over the fork-join pool
+    val Rows = 300
+    val Columns = 400
+    val cg = jvmGraph(new ComputeGraph {
+      val a = ScalarField(Rows, Columns, (r, c) => ((r * Columns + c) % 100).toFloat)
+      val offset = ScalarField(0.5f)
+      val b = a * 2f + offset
+      val c = max(a, b - 100f)
+      val sum = fieldReduceSum(a)
+      probe(b, c, sum)
+    })
+
+    try {
+      cg.step
+      val b = cg.read(cg.b).asInstanceOf[ScalarFieldReader]
+      val c = cg.read(cg.c).asInstanceOf[ScalarFieldReader]
+      for (row <- 0 until Rows; col <- 0 until Columns) {
+        val a = ((row * Columns + col) % 100).toFloat
+        b.read(row, col) mustBe (a * 2f + 0.5f)
+        c.read(row, col) mustBe math.max(a, a * 2f + 0.5f - 100f)
+      }
+      val expectedSum = (Rows * Columns / 100) * (0 until 100).sum.toFloat
+      cg.read(cg.sum).asInstanceOf[ScalarFieldReader].read() mustBe expectedSum
+    }
+    finally
+      cg.release
+  }
+
+  test("unsupported kernels are reported") {
+    val cg = jvmGraph(new ComputeGraph {
+      val a = ScalarField(5, 7, (r, c) => (r + c).toFloat)
+      val t = transpose(a)
+      probe(t)
+    })
+
+    try {
+      intercept[RuntimeException] {
+        cg.step
+      }
+    }
+    finally
+      cg.release
+  }
+}
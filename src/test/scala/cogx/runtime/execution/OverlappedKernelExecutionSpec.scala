@@ -19,6 +19,7 @@ package cogx.runtime.execution
 
 import cogx.`package`._
 import cogx.reference.RefTestInterface
+import cogx.helper.CogFlags.withCogFlag
 import cogx.runtime.ComputeGraph
 
 import scala.language.reflectiveCalls
@@ -115,4 +116,27 @@ class OverlappedKernelExecutionSpec
     // No real test here, just informational output about the drivers support for out-of-order execution
     require(true)
   }
+
+  test("kernel execution spread over multiple execution queues") {
+    // Two independent branches that join, so some kernels wait on events from another queue.
+    def makeAndRunGraph(queues: Int) = withCogFlag(Cog.executionQueues, Cog.executionQueues_= _, queues) {
+      val cg = new ComputeGraph with RefTestInterface {
+        val input = ScalarField(64, 64, (r, c) => r * 0.01f + c)
+        val branchA = abs(input * 2f + 1f)
+        val branchB = (input - 3f) * (input - 3f)
+        val joined = branchA + branchB
+        probe(joined, branchA, branchB)
+      }
+      try {
+        cg.step(10)
+        cg.readScalar(cg.joined)
+      }
+      finally
+        cg.release
+    }
+    val oneQueue = makeAndRunGraph(1)
+    val threeQueues = makeAndRunGraph(3)
+    for (r <- 0 until 64; c <- 0 until 64)
+      threeQueues.read(r, c) mustBe oneQueue.read(r, c)
+  }
 }
@@ -24,7 +24,13 @@ import org.scalatest.FunSuite
 import cogx.api.ImplicitConversions
 import cogx.compiler.parser.syntaxtree.{ScalarField, Field}
 import cogx.runtime.ComputeGraph
+import cogx.runtime.allocation.AllocationMode
 import cogx.platform.cpumemory.ScalarFieldMemory
+import cogx.helper.CogFlags.withCogFlag
+import cogx.parameters.Cog
+
+import scala.concurrent.Await
+import scala.concurrent.duration._
 
 /** Test code for ComputeGraph.
   *
@@ -78,6 +84,135 @@ class ComputeGraphSpec
     require(graph2.read(graph2.decrementer).asInstanceOf[ScalarFieldMemory].read() == -1f)
   }
 
+  test("asynchronous reads") {
+    val graph = new ComputeGraph {
+      val counter = ScalarField()
+      counter <== counter + 1
+      val doubled = counter * 2
+      probe(doubled)
+    }
+    import graph._
+    withRelease {
+      reset
+      step(3)
+      val snapshot = readAll(counter, doubled)
+      // Keep stepping while the read completes; the snapshot must not move.
+      val later = readAsync(counter)
+      step(2)
+      val Seq(count, twice) = Await.result(snapshot, 10 seconds)
+      require(count.asInstanceOf[ScalarFieldMemory].read() == 3f)
+      require(twice.asInstanceOf[ScalarFieldMemory].read() == 6f)
+      require(Await.result(later, 10 seconds).asInstanceOf[ScalarFieldMemory].read() == 3f)
+      require(Await.result(readAsync(counter), 10 seconds).asInstanceOf[ScalarFieldMemory].read() == 5f)
+    }
+  }
+
+  test("probe subscriptions") {
+    val graph = new ComputeGraph {
+      val counter = ScalarField()
+      counter <== counter + 1
+    }
+    import graph._
+    withRelease {
+      reset
+      val seen = new java.util.concurrent.LinkedBlockingQueue[(Float, Long)]
+      val subscription = subscribe(counter, 4) { (reader, time) =>
+        seen.put((reader.asInstanceOf[ScalarFieldMemory].read(), time))
+      }
+      step(10)
+      step
+      step
+      for (expected <- Seq(4L, 8L, 12L)) {
+        val (value, time) = seen.poll(10, SECONDS)
+        require(time == expected && value == expected.toFloat)
+      }
+      subscription.cancel()
+      step(8)
+      require(seen.poll(1, SECONDS) == null)
+    }
+  }
+
+  test("metrics") {
+    withCogFlag(Cog.metrics, Cog.metrics_= _, true) {
+      val graph = new ComputeGraph {
+        val counter = ScalarField(10, 10)
+        counter <== counter + 1
+      }
+      import graph._
+      withRelease {
+        reset
+        step(20)
+        val snapshot = metrics
+        val deviceKernels = snapshot.kernels.filter(_.kind == "device")
+        require(deviceKernels.nonEmpty)
+        for (kernel <- deviceKernels) {
+          require(kernel.count == 20)
+          require(kernel.p50Usecs <= kernel.p99Usecs && kernel.p99Usecs <= kernel.maxUsecs)
+        }
+        val phases = snapshot.phases.map(phase => (phase.phase, phase.count)).toMap
+        require(phases("step") == 20)
+        require(snapshot.toJson.contains("\"kernels\""))
+        require(snapshot.toCsv.split("\n").length == 1 + snapshot.kernels.length + snapshot.phases.length)
+        resetMetrics()
+        require(metrics.kernels.forall(_.count == 0))
+      }
+    }
+  }
+
+  test("compile report") {
+    val graph = new ComputeGraph {
+      val a = ScalarField(10, 10)
+      val b = (a * 2f) + 1f
+      val c = b * b
+      probe(c)
+    }
+    import graph._
+    withRelease {
+      val beforeStepping = compileReport
+      require(beforeStepping.phases.map(_.phase).contains("code generation"))
+      require(beforeStepping.programBuilds.isEmpty)
+      val optimization = beforeStepping.phases.find(_.phase == "optimization").get
+      val passes = beforeStepping.optimizerPasses
+      require(passes.head.kernelsBefore == optimization.kernelsBefore)
+      require(passes.last.kernelsAfter == optimization.kernelsAfter)
+      // The JVM backend doesn't merge kernels and builds no OpenCL programs.
+      val openCL = mode != AllocationMode.JVM
+      if (openCL) {
+        require(optimization.kernelsAfter < optimization.kernelsBefore)
+        require(passes.exists(_.pass == "HyperKernelMerger"))
+      }
+      step
+      val afterStepping = compileReport
+      if (openCL) {
+        require(afterStepping.programBuilds.nonEmpty)
+        require(afterStepping.programBuilds.forall(_.kernels > 0))
+      }
+      else
+        require(afterStepping.programBuilds.isEmpty)
+      require(afterStepping.totalSecs >= afterStepping.circuitSecs)
+    }
+  }
+
+  test("trace") {
+    val graph = new ComputeGraph {
+      val counter = ScalarField(10, 10)
+      counter <== counter + 1
+    }
+    import graph._
+    withRelease {
+      reset
+      val file = java.io.File.createTempFile("ComputeGraphSpec", ".json")
+      try {
+        require(trace(5, file.getPath) == 5)
+        val json = scala.io.Source.fromFile(file).mkString
+        require(json.contains("\"traceEvents\""))
+        require("\"phase0Clock\"".r.findAllIn(json).length == 5)
+      }
+      finally
+        file.delete()
+    }
+  }
+
   test("filter") {
     /*
     val graph = new ComputeGraph {